@@ -17,6 +17,9 @@ import jakarta.validation.constraints.NotNull;
  *                       (must not be null)
  * @param cedulaProfesor the identification number of the professor responsible
  *                       for the example (must not be null)
+ * @param inProcess      whether the example runs inside the application JVM
+ *                       instead of a JVM of its own (null keeps the current
+ *                       setting, or disables it for new examples)
  */
 public record ExampleDto(
                 Integer id,
@@ -29,5 +32,7 @@ public record ExampleDto(
 
                 @NotNull Integer difficulty,
 
-                @NotNull String cedulaProfesor) {
+                @NotNull String cedulaProfesor,
+
+                Boolean inProcess) {
 }
@@ -0,0 +1,14 @@
+package co.uniquindio.ingesis.dto.ExcecutionResource;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) selecting the programs of a batch execution. The
+ * batch runs the union of every selection given.
+ *
+ * @param codes      codes of the programs to execute
+ * @param codePrefix executes every program whose code starts with this prefix
+ * @param studentIds executes every program submitted by these students
+ */
+public record BatchExecutionRequestDto(List<String> codes, String codePrefix, List<Integer> studentIds) {
+}
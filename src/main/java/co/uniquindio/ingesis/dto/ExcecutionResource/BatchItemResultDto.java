@@ -0,0 +1,14 @@
+package co.uniquindio.ingesis.dto.ExcecutionResource;
+
+/**
+ * Data Transfer Object (DTO) with the result of one program of a batch
+ * execution.
+ *
+ * @param code   the code of the program
+ * @param status {@code success}, {@code failed}, {@code timeout} or
+ *               {@code rejected}
+ * @param result the execution result, or {@code null} if the execution was
+ *               rejected
+ */
+public record BatchItemResultDto(String code, String status, ExecutionResultDto result) {
+}
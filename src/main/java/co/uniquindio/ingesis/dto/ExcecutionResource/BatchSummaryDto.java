@@ -0,0 +1,23 @@
+package co.uniquindio.ingesis.dto.ExcecutionResource;
+
+/**
+ * Data Transfer Object (DTO) summarizing a batch execution.
+ *
+ * @param total             the number of programs in the batch
+ * @param succeeded         programs that ran and exited with code 0
+ * @param failed            programs that did not compile, could not run or
+ *                          exited with another code
+ * @param timedOut          programs stopped for exceeding the time limit
+ * @param rejected          programs not admitted by the execution scheduler
+ * @param wallTimeMillis    the time the whole batch took
+ * @param programsPerSecond the throughput of the batch
+ */
+public record BatchSummaryDto(
+        int total,
+        int succeeded,
+        int failed,
+        int timedOut,
+        int rejected,
+        long wallTimeMillis,
+        double programsPerSecond) {
+}
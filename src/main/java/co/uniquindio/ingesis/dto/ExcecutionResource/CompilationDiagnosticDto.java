@@ -0,0 +1,12 @@
+package co.uniquindio.ingesis.dto.ExcecutionResource;
+
+/**
+ * Data Transfer Object (DTO) representing a single compilation error.
+ *
+ * @param file    the source file, relative to the program folder, where the
+ *                error was reported (may be {@code null} for global errors)
+ * @param line    the line number of the error, or {@code -1} if unknown
+ * @param message the message reported by the compiler
+ */
+public record CompilationDiagnosticDto(String file, long line, String message) {
+}
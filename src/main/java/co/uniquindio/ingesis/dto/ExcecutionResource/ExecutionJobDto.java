@@ -0,0 +1,25 @@
+package co.uniquindio.ingesis.dto.ExcecutionResource;
+
+import co.uniquindio.ingesis.execution.job.ExecutionJobStatus;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) representing an asynchronous program execution.
+ *
+ * @param id          the identifier used to poll the job
+ * @param folderName  the program folder being executed
+ * @param status      the current state of the job
+ * @param result      the execution result, or {@code null} while the job has
+ *                    not finished
+ * @param submittedAt the moment the job was accepted
+ * @param completedAt the moment the job finished, or {@code null}
+ */
+public record ExecutionJobDto(
+        String id,
+        String folderName,
+        ExecutionJobStatus status,
+        ExecutionResultDto result,
+        Instant submittedAt,
+        Instant completedAt) {
+}
@@ -3,8 +3,39 @@ package co.uniquindio.ingesis.dto.ExcecutionResource;
 /**
  * Data Transfer Object (DTO) representing the result of code execution.
  *
- * @param output the standard output produced by the executed code
- * @param errors any error messages generated during execution
+ * @param output            the standard output produced by the executed code
+ * @param errors            any error messages generated during execution: the
+ *                          standard error of the program, or the compilation
+ *                          errors when it did not compile
+ * @param exitCode          the exit code of the program, or {@code null} if it
+ *                          did not run
+ * @param timedOut          whether the program was stopped for exceeding the
+ *                          time limit
+ * @param truncated         whether part of the output or errors was discarded
+ *                          because it exceeded the capture limit
+ * @param compileTimeMillis the time spent compiling, near zero when the
+ *                          compiled classes were cached
+ * @param runTimeMillis     the time the program ran
+ * @param cpuTimeMillis     the CPU time consumed while the program ran, or
+ *                          {@code null} if unknown
+ * @param peakRssBytes      the peak resident memory of the JVM running the
+ *                          program, or {@code null} if unknown
+ * @param outputBytes       the bytes the program wrote to stdout and stderr,
+ *                          including the truncated ones
+ * @param memoized          whether the result was reused from a previous run
+ *                          of the same sources instead of running the program;
+ *                          the timings are then those of that run
  */
-public record ExecutionResultDto(String output, String errors) {
-}
\ No newline at end of file
+public record ExecutionResultDto(
+        String output,
+        String errors,
+        Integer exitCode,
+        boolean timedOut,
+        boolean truncated,
+        long compileTimeMillis,
+        long runTimeMillis,
+        Long cpuTimeMillis,
+        Long peakRssBytes,
+        long outputBytes,
+        boolean memoized) {
+}
@@ -0,0 +1,19 @@
+package co.uniquindio.ingesis.dto.SnippetResource;
+
+/**
+ * Data Transfer Object (DTO) with the outcome of one snippet.
+ *
+ * @param source the code of the snippet
+ * @param status {@code valid}, {@code rejected} (does not compile),
+ *               {@code exception} (threw when run) or {@code unresolved}
+ *               (uses names that are not defined)
+ * @param value  the value of expressions and variables, or {@code null}
+ * @param error  the compilation errors, the exception or the unresolved
+ *               names, or {@code null} for valid snippets
+ */
+public record SnippetEvaluationDto(
+        String source,
+        String status,
+        String value,
+        String error) {
+}
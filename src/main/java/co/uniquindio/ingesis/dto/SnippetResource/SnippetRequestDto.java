@@ -0,0 +1,17 @@
+package co.uniquindio.ingesis.dto.SnippetResource;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Data Transfer Object (DTO) with a piece of Java code to evaluate.
+ *
+ * @param source one or more statements, expressions or declarations, as they
+ *               would be typed in {@code jshell}
+ */
+public record SnippetRequestDto(
+
+        @NotBlank @Size(max = 20000) String source
+
+) {
+}
@@ -0,0 +1,25 @@
+package co.uniquindio.ingesis.dto.SnippetResource;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) with the result of evaluating a piece of code.
+ *
+ * @param snippets   the outcome of each snippet evaluated, in order
+ * @param output     what the snippets printed to the standard output
+ * @param errors     what the snippets printed to the standard error
+ * @param timedOut   {@code true} if the evaluation was stopped at its time
+ *                   limit; the snippets after the one running are not
+ *                   evaluated
+ * @param truncated  {@code true} if part of the output was discarded because
+ *                   it exceeded the size limit
+ * @param timeMillis the time spent evaluating
+ */
+public record SnippetResultDto(
+        List<SnippetEvaluationDto> snippets,
+        String output,
+        String errors,
+        boolean timedOut,
+        boolean truncated,
+        long timeMillis) {
+}
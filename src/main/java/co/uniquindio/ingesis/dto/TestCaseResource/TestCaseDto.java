@@ -0,0 +1,34 @@
+package co.uniquindio.ingesis.dto.TestCaseResource;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Data Transfer Object (DTO) representing a test case of a program or example.
+ *
+ * @param id             the unique identifier of the test case (auto-generated
+ *                       by the database)
+ * @param input          the text fed to the standard input of the program
+ * @param expectedOutput the text the program must print
+ * @param timeoutMillis  the time limit of the test case, at most
+ *                       {@link #MAX_TIMEOUT_MILLIS}, or {@code null} for the
+ *                       default limit
+ */
+public record TestCaseDto(
+
+        Long id,
+
+        @NotNull String input,
+
+        @NotNull String expectedOutput,
+
+        @Positive @Max(MAX_TIMEOUT_MILLIS) Long timeoutMillis
+
+) {
+
+    /**
+     * The longest time limit a test case may ask for.
+     */
+    public static final long MAX_TIMEOUT_MILLIS = 30_000;
+}
@@ -0,0 +1,23 @@
+package co.uniquindio.ingesis.dto.TestCaseResource;
+
+/**
+ * Data Transfer Object (DTO) with the result of one test case.
+ *
+ * @param testCaseId   the identifier of the test case
+ * @param status       {@code passed}, {@code failed}, {@code timeout} or
+ *                     {@code error} (non-zero exit code)
+ * @param timeMillis   the time the program ran
+ * @param exitCode     the exit code, or {@code null} on timeout
+ * @param actualOutput the output of the program, only included when the case
+ *                     did not pass
+ * @param errors       the standard error of the program, only included when
+ *                     the case did not pass
+ */
+public record TestCaseResultDto(
+        Long testCaseId,
+        String status,
+        long timeMillis,
+        Integer exitCode,
+        String actualOutput,
+        String errors) {
+}
@@ -0,0 +1,23 @@
+package co.uniquindio.ingesis.dto.TestCaseResource;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) with the results of running all the test cases of
+ * a program or example.
+ *
+ * @param total             the number of test cases
+ * @param passed            the number of test cases passed
+ * @param compilationErrors why the program could not run, or {@code null}
+ * @param compileTimeMillis the time spent compiling
+ * @param totalTimeMillis   the time spent running all the test cases
+ * @param cases             the result of each test case
+ */
+public record TestReportDto(
+        int total,
+        int passed,
+        String compilationErrors,
+        long compileTimeMillis,
+        long totalTimeMillis,
+        List<TestCaseResultDto> cases) {
+}
@@ -0,0 +1,15 @@
+package co.uniquindio.ingesis.dto.programResource;
+
+/**
+ * Data Transfer Object (DTO) representing a published version of the files
+ * of a program, which can be pinned when executing it.
+ *
+ * @param version the version identifier
+ * @param current flag indicating whether the version is the one executed
+ *                when no version is pinned
+ */
+public record ProgramVersionDto(
+        String version,
+
+        boolean current) {
+}
@@ -0,0 +1,18 @@
+package co.uniquindio.ingesis.exception;
+
+/**
+ * Custom runtime exception thrown when a user requests an execution while
+ * already holding as many running or queued executions as allowed.
+ */
+public class ExecutionQuotaExceededException extends ExecutionRejectedException {
+
+    /**
+     * Constructs a new ExecutionQuotaExceededException.
+     *
+     * @param message           the reason of the rejection
+     * @param retryAfterSeconds the suggested delay before retrying, in seconds
+     */
+    public ExecutionQuotaExceededException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
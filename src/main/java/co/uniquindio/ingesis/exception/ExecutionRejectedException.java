@@ -0,0 +1,31 @@
+package co.uniquindio.ingesis.exception;
+
+/**
+ * Custom runtime exception thrown when a program execution is not admitted
+ * because the execution capacity of the server is exhausted.
+ */
+public class ExecutionRejectedException extends RuntimeException {
+
+    /**
+     * Suggested number of seconds before retrying the execution.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructs a new ExecutionRejectedException.
+     *
+     * @param message           the reason of the rejection
+     * @param retryAfterSeconds the suggested delay before retrying, in seconds
+     */
+    public ExecutionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return the suggested delay before retrying, in seconds
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
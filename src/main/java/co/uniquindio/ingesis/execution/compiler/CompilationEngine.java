@@ -0,0 +1,317 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import co.uniquindio.ingesis.dto.ExcecutionResource.CompilationDiagnosticDto;
+import co.uniquindio.ingesis.execution.runner.ProcessSupervisor;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compiles the sources of student programs.
+ *
+ * By default the sources are compiled inside the application JVM through the
+ * {@link JavaCompiler} API, reading them from memory and keeping the generated
+ * class bytes in memory as well. The engine can be switched back to forking an
+ * external {@code javac} process with {@code execution.compiler.mode=fork},
+ * which is also used automatically when the runtime does not ship a system
+ * compiler (e.g. a JRE-only image).
+ *
+ * In both modes the class files are written to an output directory chosen by
+ * the caller, never to the program folder, and compilation is bounded by
+ * {@code execution.compiler.timeout-seconds}. In-process compilations run on a
+ * fixed pool of {@code execution.compiler.threads} workers; as the compiler
+ * does not react to interrupts, a worker that timed out is abandoned until the
+ * compiler returns, which is why the total size of the sources compiled in
+ * process is capped by {@code execution.compiler.in-process.max-source-bytes}.
+ */
+@ApplicationScoped
+public class CompilationEngine {
+
+    private static final Logger logger = LogManager.getLogger(CompilationEngine.class);
+
+    private static final Pattern JAVAC_ERROR = Pattern.compile("^(.+\\.java):(\\d+): error: (.*)$");
+
+    private final CompilerMode mode;
+    private final long timeoutSeconds;
+    private final long maxSourceBytes;
+    private final JavaCompiler systemCompiler;
+    private final ProcessSupervisor processSupervisor;
+    private final ExecutorService compilerWorkers;
+
+    @Inject
+    public CompilationEngine(ProcessSupervisor processSupervisor,
+            @ConfigProperty(name = "execution.compiler.mode", defaultValue = "in-process") CompilerMode mode,
+            @ConfigProperty(name = "execution.compiler.timeout-seconds", defaultValue = "10") long timeoutSeconds,
+            @ConfigProperty(name = "execution.compiler.in-process.max-source-bytes",
+                    defaultValue = "1048576") long maxSourceBytes,
+            @ConfigProperty(name = "execution.compiler.threads", defaultValue = "0") int threads) {
+        this.processSupervisor = processSupervisor;
+        this.systemCompiler = ToolProvider.getSystemJavaCompiler();
+        if (mode == CompilerMode.IN_PROCESS && systemCompiler == null) {
+            logger.warn("No system Java compiler available, falling back to forked javac");
+            mode = CompilerMode.FORK;
+        }
+        this.mode = mode;
+        this.timeoutSeconds = timeoutSeconds;
+        this.maxSourceBytes = maxSourceBytes;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.compilerWorkers = Executors.newFixedThreadPool(
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "compiler-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Returns the mode actually used by this engine.
+     *
+     * @return the compiler mode
+     */
+    public CompilerMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Compiles the given sources and writes the resulting class files to the
+     * output directory.
+     *
+     * @param sourceRoot the program folder the source paths are relative to
+     * @param sources    the source contents indexed by path relative to
+     *                   {@code sourceRoot}
+     * @param outputDir  the directory where class files are written
+     * @return the compilation result with its diagnostics and class bytes
+     * @throws IOException if the class files cannot be written
+     */
+    public CompilationResult compile(Path sourceRoot, Map<String, String> sources, Path outputDir) throws IOException {
+        if (sources.isEmpty()) {
+            return CompilationResult.failure("No .java files found to compile.");
+        }
+
+        Files.createDirectories(outputDir);
+        CompilationResult result = mode == CompilerMode.IN_PROCESS
+                ? compileInProcess(sources)
+                : compileForked(sourceRoot, sources, outputDir);
+
+        if (result.success() && mode == CompilerMode.IN_PROCESS) {
+            writeClassFiles(result.classFiles(), outputDir);
+        }
+        return result;
+    }
+
+    /**
+     * Compiles the sources with the system compiler on a compiler worker,
+     * waiting at most the configured time limit.
+     *
+     * @param sources the source contents indexed by relative path
+     * @return the compilation result
+     * @throws IOException if the file manager cannot be configured
+     */
+    private CompilationResult compileInProcess(Map<String, String> sources) throws IOException {
+        long sourceBytes = 0;
+        for (String content : sources.values()) {
+            sourceBytes += content.getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (sourceBytes > maxSourceBytes) {
+            return CompilationResult.failure("Sources exceed the size limit (" + maxSourceBytes + " bytes)");
+        }
+
+        Future<CompilationResult> task = compilerWorkers.submit(() -> runCompiler(sources));
+        try {
+            return task.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            logger.warn("In-process compilation exceeded {}s, abandoning its worker", timeoutSeconds);
+            return CompilationResult.failure("Compilation exceeded time limit (" + timeoutSeconds + "s)");
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            return CompilationResult.failure("Compilation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("In-process compilation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Compiles the sources with the system compiler without touching the disk.
+     *
+     * @param sources the source contents indexed by relative path
+     * @return the compilation result
+     * @throws IOException if the file manager cannot be configured
+     */
+    private CompilationResult runCompiler(Map<String, String> sources) throws IOException {
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        StandardJavaFileManager standardManager = systemCompiler.getStandardFileManager(collector, Locale.ROOT,
+                StandardCharsets.UTF_8);
+
+        // Student programs must not see the application classpath
+        standardManager.setLocation(StandardLocation.CLASS_PATH, List.of());
+
+        List<InMemoryFileManager.SourceFile> units = new ArrayList<>();
+        sources.forEach((path, content) -> units.add(new InMemoryFileManager.SourceFile(path, content)));
+
+        try (InMemoryFileManager fileManager = new InMemoryFileManager(standardManager)) {
+            boolean success = systemCompiler
+                    .getTask(null, fileManager, collector, List.of("-proc:none"), null, units)
+                    .call();
+
+            List<CompilationDiagnosticDto> diagnostics = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+                if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                    continue;
+                }
+                String file = diagnostic.getSource() instanceof InMemoryFileManager.SourceFile source
+                        ? source.getRelativePath()
+                        : null;
+                diagnostics.add(new CompilationDiagnosticDto(file, diagnostic.getLineNumber(),
+                        diagnostic.getMessage(Locale.ROOT)));
+            }
+
+            return new CompilationResult(success, diagnostics, success ? fileManager.getClassFiles() : Map.of());
+        }
+    }
+
+    /**
+     * Compiles the sources by forking an external {@code javac} process.
+     *
+     * @param sourceRoot the program folder
+     * @param sources    the source contents indexed by relative path
+     * @param outputDir  the directory where {@code javac} writes class files
+     * @return the compilation result
+     * @throws IOException if the process cannot be started or its output read
+     */
+    private CompilationResult compileForked(Path sourceRoot, Map<String, String> sources, Path outputDir)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("javac");
+        command.add("-encoding");
+        command.add("UTF-8");
+        command.add("-d");
+        command.add(outputDir.toAbsolutePath().toString());
+        command.addAll(sources.keySet());
+
+        Process compileProcess = processSupervisor.start(new ProcessBuilder(command)
+                .directory(sourceRoot.toFile())
+                .redirectErrorStream(true), TimeUnit.SECONDS.toMillis(timeoutSeconds) * 2);
+
+        boolean finished;
+        try {
+            finished = compileProcess.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            processSupervisor.destroyTree(compileProcess, "interrupted");
+            return CompilationResult.failure("Compilation interrupted");
+        }
+
+        if (!finished) {
+            processSupervisor.destroyTree(compileProcess, "timeout");
+            return CompilationResult.failure("Compilation exceeded time limit (" + timeoutSeconds + "s)");
+        }
+
+        String output = new String(compileProcess.getInputStream().readAllBytes());
+        if (compileProcess.exitValue() != 0) {
+            return new CompilationResult(false, parseJavacOutput(output), Map.of());
+        }
+
+        return new CompilationResult(true, List.of(), readClassFiles(outputDir));
+    }
+
+    /**
+     * Extracts the file, line and message of every error printed by
+     * {@code javac}.
+     *
+     * @param output the raw compiler output
+     * @return the parsed diagnostics, or the raw output as a single diagnostic if
+     *         nothing could be parsed
+     */
+    private List<CompilationDiagnosticDto> parseJavacOutput(String output) {
+        List<CompilationDiagnosticDto> diagnostics = new ArrayList<>();
+        for (String line : output.split("\\R")) {
+            Matcher matcher = JAVAC_ERROR.matcher(line);
+            if (matcher.matches()) {
+                diagnostics.add(new CompilationDiagnosticDto(matcher.group(1), Long.parseLong(matcher.group(2)),
+                        matcher.group(3)));
+            }
+        }
+        if (diagnostics.isEmpty()) {
+            diagnostics.add(new CompilationDiagnosticDto(null, -1, output.strip()));
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Writes the class bytes to the output directory using the package layout.
+     *
+     * @param classFiles the class bytes indexed by binary class name
+     * @param outputDir  the output directory
+     * @throws IOException if a file cannot be written
+     */
+    private void writeClassFiles(Map<String, byte[]> classFiles, Path outputDir) throws IOException {
+        for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+            Path classFile = outputDir.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, entry.getValue());
+        }
+    }
+
+    /**
+     * Reads back the class files written by a forked {@code javac}.
+     *
+     * @param outputDir the output directory
+     * @return the class bytes indexed by binary class name
+     * @throws IOException if a file cannot be read
+     */
+    private Map<String, byte[]> readClassFiles(Path outputDir) throws IOException {
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        try (Stream<Path> paths = Files.walk(outputDir)) {
+            for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(".class"))::iterator) {
+                String relative = outputDir.relativize(path).toString().replace('\\', '/');
+                String className = relative.substring(0, relative.length() - ".class".length()).replace('/', '.');
+                classFiles.put(className, Files.readAllBytes(path));
+            }
+        }
+        return classFiles;
+    }
+
+    /**
+     * Stops the compiler workers when the application stops.
+     */
+    @PreDestroy
+    void shutdown() {
+        compilerWorkers.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import co.uniquindio.ingesis.dto.ExcecutionResource.CompilationDiagnosticDto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of compiling the sources of a program.
+ *
+ * @param success     {@code true} if the compiler produced class files without
+ *                    errors
+ * @param diagnostics the errors reported by the compiler
+ * @param classFiles  the generated class bytes indexed by binary class name
+ */
+public record CompilationResult(boolean success,
+        List<CompilationDiagnosticDto> diagnostics,
+        Map<String, byte[]> classFiles) {
+
+    /**
+     * Builds a failed result with a single diagnostic not bound to any file.
+     *
+     * @param message the error message
+     * @return the failed compilation result
+     */
+    public static CompilationResult failure(String message) {
+        return new CompilationResult(false, List.of(new CompilationDiagnosticDto(null, -1, message)), Map.of());
+    }
+
+    /**
+     * Formats the diagnostics the same way the command line compiler does.
+     *
+     * @return the diagnostics as text, preceded by a "Compilation errors:" header
+     */
+    public String formatErrors() {
+        StringBuilder output = new StringBuilder("Compilation errors:\n");
+        for (CompilationDiagnosticDto diagnostic : diagnostics) {
+            if (diagnostic.file() != null) {
+                output.append(diagnostic.file()).append(':');
+                if (diagnostic.line() > 0) {
+                    output.append(diagnostic.line()).append(':');
+                }
+                output.append(' ');
+            }
+            output.append(diagnostic.message()).append('\n');
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,321 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Cache of compiled programs keyed by a digest of their source tree.
+ *
+ * The digest covers the relative path and the content of every source file,
+ * so an unchanged program is never compiled twice while its entry is cached.
+ * The cache is bounded both in number of entries and in total class bytes and
+ * evicts the least recently used entries first.
+ *
+ * The cache state is guarded by a {@link ReentrantLock}; class directories
+ * are always deleted outside of it.
+ *
+ * Compilations go through {@link #acquireOrCompile(String, String, Compiler)},
+ * so that concurrent requests for the same source tree wait for a single
+ * compilation instead of running their own.
+ */
+@ApplicationScoped
+public class CompiledClassCache {
+
+    private static final Logger logger = LogManager.getLogger(CompiledClassCache.class);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Path cacheRoot;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, CompiledProgram> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> digestByFolder = new HashMap<>();
+    private long totalBytes;
+
+    private final Map<String, CompletableFuture<Void>> compiling = new ConcurrentHashMap<>();
+
+    /**
+     * Compilation of a source tree into a given directory.
+     */
+    @FunctionalInterface
+    public interface Compiler {
+
+        /**
+         * Compiles the sources.
+         *
+         * @param classesDir the directory where class files are written
+         * @return the compilation result
+         * @throws IOException if the sources cannot be compiled
+         */
+        CompilationResult compile(Path classesDir) throws IOException;
+    }
+
+    @Inject
+    public CompiledClassCache(
+            @ConfigProperty(name = "execution.cache.max-entries", defaultValue = "256") int maxEntries,
+            @ConfigProperty(name = "execution.cache.max-bytes", defaultValue = "67108864") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        try {
+            this.cacheRoot = Files.createTempDirectory("classroom-class-cache-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the compiled class cache directory", e);
+        }
+    }
+
+    /**
+     * Computes the digest of a source tree.
+     *
+     * @param sources the source contents indexed by relative path
+     * @return the hexadecimal SHA-256 digest of the paths and contents
+     */
+    public static String digest(Map<String, String> sources) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> entry : new TreeMap<>(sources).entrySet()) {
+                sha.update(entry.getKey().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+                sha.update(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Looks up a compiled program and leases it. Every successful lookup must be
+     * paired with a call to {@link #release(CompiledProgram)}.
+     *
+     * @param folderName the program folder the sources belong to
+     * @param digest     the digest of the current sources
+     * @return the leased entry, or {@code null} if the sources are not cached
+     */
+    public CompiledProgram acquire(String folderName, String digest) {
+        lock.lock();
+        try {
+            CompiledProgram program = entries.get(digest);
+            if (program == null) {
+                return null;
+            }
+            digestByFolder.put(folderName, digest);
+            program.acquire();
+            return program;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Looks up and leases a compiled program, compiling it if it is not cached.
+     * If the same source tree is already being compiled, waits for that
+     * compilation and leases its result instead. Every call must be paired
+     * with a call to {@link #release(CompiledProgram)}.
+     *
+     * @param folderName the program folder the sources belong to
+     * @param digest     the digest of the sources
+     * @param compiler   compiles the sources when no other caller is doing it
+     * @return the leased entry
+     * @throws IOException if the sources cannot be compiled
+     */
+    public CompiledProgram acquireOrCompile(String folderName, String digest, Compiler compiler)
+            throws IOException {
+        while (true) {
+            CompiledProgram cached = acquire(folderName, digest);
+            if (cached != null) {
+                return cached;
+            }
+
+            CompletableFuture<Void> compilation = new CompletableFuture<>();
+            CompletableFuture<Void> inFlight = compiling.putIfAbsent(digest, compilation);
+            if (inFlight != null) {
+                try {
+                    inFlight.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+                // Lease the result, or compile again in the unlikely case it was already evicted
+                continue;
+            }
+
+            try {
+                // Another caller may have finished compiling between the lookup and the registration
+                cached = acquire(folderName, digest);
+                if (cached != null) {
+                    compilation.complete(null);
+                    return cached;
+                }
+                Path classesDir = createClassesDirectory();
+                CompiledProgram program = put(folderName, digest, compiler.compile(classesDir), classesDir);
+                compilation.complete(null);
+                return program;
+            } catch (IOException | RuntimeException | Error e) {
+                compilation.completeExceptionally(e);
+                throw e;
+            } finally {
+                compiling.remove(digest, compilation);
+            }
+        }
+    }
+
+    /**
+     * Creates an empty directory for the classes of a new compilation.
+     *
+     * @return the new directory inside the cache root
+     * @throws IOException if the directory cannot be created
+     */
+    public Path createClassesDirectory() throws IOException {
+        return Files.createTempDirectory(cacheRoot, "classes-");
+    }
+
+    /**
+     * Stores the result of a compilation and leases it. If another thread cached
+     * the same digest in the meantime, the existing entry is returned and the
+     * given directory is discarded.
+     *
+     * @param folderName  the program folder the sources belong to
+     * @param digest      the digest of the compiled sources
+     * @param compilation the compilation result
+     * @param classesDir  the directory holding the generated class files
+     * @return the leased cache entry
+     */
+    public CompiledProgram put(String folderName, String digest, CompilationResult compilation, Path classesDir) {
+        List<Path> toDelete = new ArrayList<>();
+        CompiledProgram program;
+
+        lock.lock();
+        try {
+            program = entries.get(digest);
+            if (program != null) {
+                toDelete.add(classesDir);
+            } else {
+                program = new CompiledProgram(digest, compilation, classesDir);
+                entries.put(digest, program);
+                totalBytes += program.getSizeBytes();
+                toDelete.addAll(evictOverflow(digest));
+            }
+            digestByFolder.put(folderName, digest);
+            program.acquire();
+        } finally {
+            lock.unlock();
+        }
+
+        toDelete.forEach(this::deleteDirectory);
+        return program;
+    }
+
+    /**
+     * Releases a lease obtained through {@link #acquire(String, String)} or
+     * {@link #put(String, String, CompilationResult, Path)}.
+     *
+     * @param program the leased entry
+     */
+    public void release(CompiledProgram program) {
+        boolean delete;
+        lock.lock();
+        try {
+            delete = program.release();
+        } finally {
+            lock.unlock();
+        }
+        if (delete) {
+            deleteDirectory(program.getClassesDir());
+        }
+    }
+
+    /**
+     * Forgets the compilation a program folder used, typically because its
+     * sources have been replaced or deleted. The entry is shared by every
+     * folder with the same sources, so it is only dropped when no other folder
+     * uses it; otherwise it is left to the least recently used eviction.
+     *
+     * @param folderName the program folder
+     */
+    public void invalidate(String folderName) {
+        boolean delete = false;
+        CompiledProgram program = null;
+
+        lock.lock();
+        try {
+            String digest = digestByFolder.remove(folderName);
+            if (digest != null && !digestByFolder.containsValue(digest)) {
+                program = entries.remove(digest);
+                if (program != null) {
+                    totalBytes -= program.getSizeBytes();
+                    delete = program.evict();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (delete) {
+            deleteDirectory(program.getClassesDir());
+        }
+    }
+
+    /**
+     * Evicts least recently used entries until the cache fits its bounds. Must be
+     * called while holding the cache lock.
+     *
+     * @param keep digest of the entry that has just been added
+     * @return the directories of evicted entries that can be deleted
+     */
+    private List<Path> evictOverflow(String keep) {
+        List<Path> toDelete = new ArrayList<>();
+        Iterator<Map.Entry<String, CompiledProgram>> iterator = entries.entrySet().iterator();
+
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, CompiledProgram> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue().getSizeBytes();
+            digestByFolder.values().removeIf(eldest.getKey()::equals);
+            if (eldest.getValue().evict()) {
+                toDelete.add(eldest.getValue().getClassesDir());
+            }
+        }
+        return toDelete;
+    }
+
+    /**
+     * Deletes a classes directory and its content.
+     *
+     * @param directory the directory to delete
+     */
+    private void deleteDirectory(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Unable to delete cached classes directory {}", directory, e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import java.nio.file.Path;
+
+/**
+ * Compiled artifact of a program version held by the {@link CompiledClassCache}.
+ *
+ * Entries are leased while an execution uses their classes directory, so the
+ * directory is only deleted once the entry has been evicted and no execution
+ * references it anymore.
+ */
+public class CompiledProgram {
+
+    private final String digest;
+    private final CompilationResult compilation;
+    private final Path classesDir;
+    private final long sizeBytes;
+
+    private int leases;
+    private boolean evicted;
+
+    CompiledProgram(String digest, CompilationResult compilation, Path classesDir) {
+        this.digest = digest;
+        this.compilation = compilation;
+        this.classesDir = classesDir;
+        this.sizeBytes = compilation.classFiles().values().stream().mapToLong(bytes -> bytes.length).sum();
+    }
+
+    /**
+     * @return the digest of the source tree this artifact was compiled from
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return the result of the compilation, successful or not
+     */
+    public CompilationResult getCompilation() {
+        return compilation;
+    }
+
+    /**
+     * @return the directory holding the class files of this artifact
+     */
+    public Path getClassesDir() {
+        return classesDir;
+    }
+
+    long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    void acquire() {
+        leases++;
+    }
+
+    /**
+     * Releases a lease.
+     *
+     * @return {@code true} if the entry was evicted and is no longer leased, so
+     *         its directory can be deleted
+     */
+    boolean release() {
+        leases--;
+        return evicted && leases == 0;
+    }
+
+    /**
+     * Marks the entry as evicted.
+     *
+     * @return {@code true} if the entry is not leased, so its directory can be
+     *         deleted right away
+     */
+    boolean evict() {
+        evicted = true;
+        return leases == 0;
+    }
+}
@@ -0,0 +1,17 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+/**
+ * Strategy used to compile student programs.
+ */
+public enum CompilerMode {
+
+    /**
+     * Compiles inside the application JVM through {@code javax.tools}.
+     */
+    IN_PROCESS,
+
+    /**
+     * Forks an external {@code javac} process for every compilation.
+     */
+    FORK
+}
@@ -0,0 +1,82 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * File manager that keeps the class files generated by the compiler in memory
+ * instead of writing them next to the sources.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final Map<String, ByteArrayOutputStream> classFiles = new LinkedHashMap<>();
+
+    InMemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+            FileObject sibling) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        classFiles.put(className, buffer);
+        return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+            @Override
+            public OutputStream openOutputStream() {
+                return buffer;
+            }
+        };
+    }
+
+    /**
+     * Returns the class bytes produced by the last compilation.
+     *
+     * @return the class bytes indexed by binary class name
+     */
+    Map<String, byte[]> getClassFiles() {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        classFiles.forEach((name, buffer) -> result.put(name, buffer.toByteArray()));
+        return result;
+    }
+
+    /**
+     * Source file whose content has already been read into memory.
+     */
+    static class SourceFile extends SimpleJavaFileObject {
+
+        private final String relativePath;
+        private final String content;
+
+        SourceFile(String relativePath, String content) {
+            super(toUri(relativePath), Kind.SOURCE);
+            this.relativePath = relativePath;
+            this.content = content;
+        }
+
+        private static URI toUri(String relativePath) {
+            try {
+                return new URI("string", null, "/" + relativePath.replace('\\', '/'), null);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid source path: " + relativePath, e);
+            }
+        }
+
+        String getRelativePath() {
+            return relativePath;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}
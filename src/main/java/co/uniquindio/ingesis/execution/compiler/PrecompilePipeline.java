@@ -0,0 +1,163 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import co.uniquindio.ingesis.execution.manifest.SourceAnalyzer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiles student programs in the background as soon as their sources are
+ * uploaded, so that the first execution finds them in the
+ * {@link CompiledClassCache} and only has to launch.
+ *
+ * Compilations are queued once the upload transaction has committed and run on
+ * {@code execution.precompile.threads} threads with a queue of
+ * {@code execution.precompile.queue-capacity} entries; when the queue is full
+ * the program is simply compiled on its first execution, as before. Every
+ * upload of a program supersedes the previous ones: an upload that is no
+ * longer the latest when its turn comes, or whose sources on disk no longer
+ * match the uploaded digest, is skipped. A compilation already running when a
+ * newer upload arrives is left to finish; its classes are cached under the
+ * digest of the older sources, so they are never used for the newer ones and
+ * are evicted like any other unused entry.
+ *
+ * If an execution of the program is already compiling the same sources, the
+ * pipeline waits for that compilation instead of starting another.
+ */
+@ApplicationScoped
+public class PrecompilePipeline {
+
+    private static final Logger logger = LogManager.getLogger(PrecompilePipeline.class);
+
+    private final CompilationEngine compilationEngine;
+    private final CompiledClassCache compiledClassCache;
+    private final boolean enabled;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> latestUpload = new ConcurrentHashMap<>();
+
+    private final MeterRegistry registry;
+
+    @Inject
+    public PrecompilePipeline(CompilationEngine compilationEngine, CompiledClassCache compiledClassCache,
+            MeterRegistry registry,
+            @ConfigProperty(name = "execution.precompile.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "execution.precompile.threads", defaultValue = "1") int threads,
+            @ConfigProperty(name = "execution.precompile.queue-capacity", defaultValue = "64") int queueCapacity) {
+        this.compilationEngine = compilationEngine;
+        this.compiledClassCache = compiledClassCache;
+        this.registry = registry;
+        this.enabled = enabled;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "precompile-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    // Compilations must not compete with the executions students are waiting for
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues the compilation of a program whose sources have changed. Observed
+     * only after the upload transaction commits, so a rolled back upload is
+     * never compiled, and returning right away so the upload is not delayed.
+     *
+     * @param event the uploaded program
+     */
+    void onSourcesChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProgramSourcesChanged event) {
+        if (!enabled) {
+            return;
+        }
+        long upload = sequence.incrementAndGet();
+        latestUpload.put(event.code(), upload);
+        try {
+            executor.execute(() -> precompile(event, upload));
+        } catch (RejectedExecutionException e) {
+            latestUpload.remove(event.code(), upload);
+            count("rejected");
+        }
+    }
+
+    /**
+     * Compiles the sources of an upload and caches the result, including the
+     * diagnostics of a failed compilation, unless a newer upload arrived in the
+     * meantime.
+     *
+     * @param event  the uploaded program
+     * @param upload the sequence number of the upload
+     */
+    private void precompile(ProgramSourcesChanged event, long upload) {
+        try {
+            if (!isLatest(event.code(), upload)) {
+                count("stale");
+                return;
+            }
+
+            CompiledProgram cached = compiledClassCache.acquire(event.code(), event.digest());
+            if (cached != null) {
+                compiledClassCache.release(cached);
+                count("cached");
+                return;
+            }
+
+            Map<String, String> sources = SourceAnalyzer.readSources(event.folder());
+            if (!event.digest().equals(CompiledClassCache.digest(sources))) {
+                // The folder is being replaced by a newer upload
+                count("stale");
+                return;
+            }
+
+            compiledClassCache.release(compiledClassCache.acquireOrCompile(event.code(), event.digest(),
+                    classesDir -> compilationEngine.compile(event.folder(), sources, classesDir)));
+            count("compiled");
+        } catch (Exception e) {
+            logger.warn("Unable to precompile program {}", event.code(), e);
+            count("failed");
+        } finally {
+            latestUpload.remove(event.code(), upload);
+        }
+    }
+
+    /**
+     * Tells whether an upload is still the latest one of its program. Entries
+     * are removed once their compilation ends, so a missing entry means that a
+     * newer upload has already been compiled.
+     */
+    private boolean isLatest(String code, long upload) {
+        Long latest = latestUpload.get(code);
+        return latest != null && latest == upload;
+    }
+
+    private void count(String result) {
+        Counter.builder("execution.precompile")
+                .description("Background compilations of uploaded programs")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
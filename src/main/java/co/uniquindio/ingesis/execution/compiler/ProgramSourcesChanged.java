@@ -0,0 +1,14 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import java.nio.file.Path;
+
+/**
+ * CDI event fired when the sources of a student program are uploaded or
+ * replaced.
+ *
+ * @param code   the code of the program, which is also its cache key
+ * @param folder the program folder holding the new sources
+ * @param digest the {@link CompiledClassCache} digest of the new sources
+ */
+public record ProgramSourcesChanged(String code, Path folder, String digest) {
+}
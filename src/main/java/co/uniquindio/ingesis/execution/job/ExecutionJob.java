@@ -0,0 +1,89 @@
+package co.uniquindio.ingesis.execution.job;
+
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionJobDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionResultDto;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Program execution submitted through the asynchronous API and tracked by the
+ * {@link ExecutionJobStore} until it expires.
+ */
+public class ExecutionJob {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String folderName;
+    private final Instant submittedAt = Instant.now();
+    private final CompletableFuture<ExecutionJob> completion = new CompletableFuture<>();
+
+    private volatile ExecutionJobStatus status = ExecutionJobStatus.QUEUED;
+    private volatile ExecutionResultDto result;
+    private volatile Instant completedAt;
+
+    ExecutionJob(String folderName) {
+        this.folderName = folderName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFolderName() {
+        return folderName;
+    }
+
+    public ExecutionJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Marks the job as picked up by a worker.
+     */
+    public void markRunning() {
+        status = ExecutionJobStatus.RUNNING;
+    }
+
+    /**
+     * Records the final state of the job and wakes up the clients waiting for
+     * it.
+     *
+     * @param finalStatus {@link ExecutionJobStatus#COMPLETED} or
+     *                    {@link ExecutionJobStatus#REJECTED}
+     * @param output      the execution result, holding the rejection reason as
+     *                    error when rejected
+     */
+    public void finish(ExecutionJobStatus finalStatus, ExecutionResultDto output) {
+        result = output;
+        completedAt = Instant.now();
+        status = finalStatus;
+        completion.complete(this);
+    }
+
+    /**
+     * @return a future completed with this job once it finishes
+     */
+    public CompletableFuture<ExecutionJob> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Tells whether the job finished before the given instant.
+     *
+     * @param instant the instant to compare with
+     * @return {@code true} if the job is finished and its completion time is
+     *         before the instant
+     */
+    boolean finishedBefore(Instant instant) {
+        Instant finished = completedAt;
+        return finished != null && finished.isBefore(instant);
+    }
+
+    /**
+     * @return a snapshot of the job for the API
+     */
+    public ExecutionJobDto toDto() {
+        return new ExecutionJobDto(id, folderName, status, result, submittedAt, completedAt);
+    }
+}
@@ -0,0 +1,27 @@
+package co.uniquindio.ingesis.execution.job;
+
+/**
+ * Lifecycle states of an asynchronous execution job.
+ */
+public enum ExecutionJobStatus {
+
+    /**
+     * Accepted and waiting for a worker.
+     */
+    QUEUED,
+
+    /**
+     * Compiling or running.
+     */
+    RUNNING,
+
+    /**
+     * Finished; the result holds the program output or its errors.
+     */
+    COMPLETED,
+
+    /**
+     * Not admitted by the execution scheduler.
+     */
+    REJECTED
+}
@@ -0,0 +1,110 @@
+package co.uniquindio.ingesis.execution.job;
+
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory store of the asynchronous execution jobs.
+ *
+ * The store holds at most {@code execution.jobs.max-jobs} jobs. Finished jobs
+ * are kept for {@code execution.jobs.ttl-seconds} so that clients can fetch
+ * their result, and are then discarded; queued and running jobs never expire.
+ * When the store is full of unexpired jobs new submissions are rejected.
+ */
+@ApplicationScoped
+public class ExecutionJobStore {
+
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final int maxJobs;
+    private final Duration ttl;
+
+    private final Map<String, ExecutionJob> jobs = new ConcurrentHashMap<>();
+    private final ReentrantLock createLock = new ReentrantLock();
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "execution-jobs-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Inject
+    public ExecutionJobStore(MeterRegistry registry,
+            @ConfigProperty(name = "execution.jobs.max-jobs", defaultValue = "1000") int maxJobs,
+            @ConfigProperty(name = "execution.jobs.ttl-seconds", defaultValue = "600") long ttlSeconds) {
+        this.maxJobs = maxJobs;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+
+        long purgeInterval = Math.max(1, Math.min(60, ttlSeconds));
+        cleaner.scheduleWithFixedDelay(this::purgeExpired, purgeInterval, purgeInterval, TimeUnit.SECONDS);
+
+        Gauge.builder("execution.jobs.stored", jobs::size)
+                .description("Execution jobs held by the job store")
+                .register(registry);
+    }
+
+    /**
+     * Registers a new queued job.
+     *
+     * @param folderName the program folder to execute
+     * @return the new job
+     * @throws ExecutionRejectedException if the store is full
+     */
+    public ExecutionJob create(String folderName) {
+        createLock.lock();
+        try {
+            if (jobs.size() >= maxJobs) {
+                purgeExpired();
+                if (jobs.size() >= maxJobs) {
+                    throw new ExecutionRejectedException("Too many execution jobs pending", RETRY_AFTER_SECONDS);
+                }
+            }
+            ExecutionJob job = new ExecutionJob(folderName);
+            jobs.put(job.getId(), job);
+            return job;
+        } finally {
+            createLock.unlock();
+        }
+    }
+
+    /**
+     * Looks up a job.
+     *
+     * @param jobId the job identifier
+     * @return the job, or empty if it does not exist or has expired
+     */
+    public Optional<ExecutionJob> find(String jobId) {
+        ExecutionJob job = jobs.get(jobId);
+        if (job == null || job.finishedBefore(Instant.now().minus(ttl))) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    /**
+     * Discards the finished jobs older than the TTL.
+     */
+    private void purgeExpired() {
+        Instant limit = Instant.now().minus(ttl);
+        jobs.values().removeIf(job -> job.finishedBefore(limit));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cleaner.shutdownNow();
+    }
+}
@@ -0,0 +1,100 @@
+package co.uniquindio.ingesis.execution.manifest;
+
+import co.uniquindio.ingesis.execution.compiler.CompiledClassCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the Java sources of a program: what files it has, where its entry
+ * point is and how it has to be run.
+ *
+ * The manifest is built when a program is uploaded and persisted with it, so
+ * that executions do not have to scan and read the program folder.
+ *
+ * @param files            the source files, in upload order
+ * @param mainFile         the relative path of the first source with a main
+ *                         method, or {@code null}
+ * @param mainClass        the fully qualified name of the main class, or
+ *                         {@code null}
+ * @param digest           the {@link CompiledClassCache} digest of the sources
+ * @param accessesFiles    whether any source uses file APIs
+ * @param readsInput       whether any source reads the standard input
+ * @param nondeterministic whether any source uses randomness, clocks, threads
+ *                         or the environment
+ * @param callsExit        whether any source ends the JVM explicitly
+ */
+public record ProgramManifest(List<SourceEntry> files, String mainFile, String mainClass, String digest,
+        boolean accessesFiles, boolean readsInput, boolean nondeterministic, boolean callsExit) {
+
+    /**
+     * A source file of a program.
+     *
+     * @param path        the path relative to the program folder
+     * @param sizeBytes   the size of the file
+     * @param sha256      the hexadecimal SHA-256 of the file content
+     * @param packageName the declared package, or {@code null}
+     * @param hasMain     whether the file declares a main method
+     */
+    public record SourceEntry(String path, long sizeBytes, String sha256, String packageName, boolean hasMain) {
+    }
+
+    /**
+     * Tells whether every run of the program without input is expected to
+     * print the same, so that its result can be reused.
+     *
+     * @return {@code true} if the program neither reads input nor files, nor
+     *         uses nondeterministic APIs
+     */
+    public boolean isDeterministic() {
+        return !accessesFiles && !readsInput && !nondeterministic;
+    }
+
+    /**
+     * Builds the manifest of a source tree.
+     *
+     * @param sources the source contents indexed by relative path
+     * @return the manifest
+     */
+    public static ProgramManifest build(Map<String, String> sources) {
+        List<SourceEntry> files = new ArrayList<>();
+        String mainFile = null;
+        String mainClass = null;
+        boolean accessesFiles = false;
+        boolean readsInput = false;
+        boolean nondeterministic = false;
+        boolean callsExit = false;
+
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            String content = source.getValue();
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            String packageName = SourceAnalyzer.packageOf(content);
+            boolean hasMain = SourceAnalyzer.hasMainMethod(content);
+
+            files.add(new SourceEntry(source.getKey(), bytes.length, sha256(bytes), packageName, hasMain));
+            if (hasMain && mainFile == null) {
+                mainFile = source.getKey();
+                mainClass = SourceAnalyzer.fullClassName(mainFile, packageName);
+            }
+            accessesFiles |= SourceAnalyzer.accessesFiles(content);
+            readsInput |= SourceAnalyzer.readsInput(content);
+            nondeterministic |= SourceAnalyzer.isNondeterministic(content);
+            callsExit |= SourceAnalyzer.callsExit(content);
+        }
+        return new ProgramManifest(files, mainFile, mainClass, CompiledClassCache.digest(sources), accessesFiles,
+                readsInput, nondeterministic, callsExit);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
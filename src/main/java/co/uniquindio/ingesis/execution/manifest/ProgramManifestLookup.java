@@ -0,0 +1,55 @@
+package co.uniquindio.ingesis.execution.manifest;
+
+import co.uniquindio.ingesis.model.Program;
+import co.uniquindio.ingesis.repository.ProgramRepository;
+import co.uniquindio.ingesis.repository.ProgramSourceFileRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Loads the manifest persisted for a student program when it was uploaded.
+ *
+ * Executions run on job and batch worker threads as well as on request
+ * threads, so the lookup activates its own request context.
+ */
+@ApplicationScoped
+public class ProgramManifestLookup {
+
+    private final ProgramRepository programRepository;
+    private final ProgramSourceFileRepository sourceFileRepository;
+
+    @Inject
+    public ProgramManifestLookup(ProgramRepository programRepository,
+            ProgramSourceFileRepository sourceFileRepository) {
+        this.programRepository = programRepository;
+        this.sourceFileRepository = sourceFileRepository;
+    }
+
+    /**
+     * Finds the manifest of a program.
+     *
+     * @param code the code of the program, which is also its folder name
+     * @return the manifest, or empty if the program does not exist or was
+     *         uploaded before manifests were indexed
+     */
+    @ActivateRequestContext
+    public Optional<ProgramManifest> find(String code) {
+        return programRepository.findByCode(code)
+                .filter(program -> program.getSourceDigest() != null)
+                .map(this::toManifest);
+    }
+
+    private ProgramManifest toManifest(Program program) {
+        List<ProgramManifest.SourceEntry> files = sourceFileRepository.findByProgramId(program.getId()).stream()
+                .map(file -> new ProgramManifest.SourceEntry(file.getRelativePath(), file.getSizeBytes(),
+                        file.getSha256(), file.getPackageName(), file.isHasMain()))
+                .toList();
+        return new ProgramManifest(files, program.getMainFile(), program.getMainClass(), program.getSourceDigest(),
+                program.isAccessesFiles(), program.isReadsInput(), program.isNondeterministic(),
+                program.isCallsExit());
+    }
+}
@@ -0,0 +1,164 @@
+package co.uniquindio.ingesis.execution.manifest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Lightweight textual inspection of Java sources, used to find the entry point
+ * of a program and to tell how it has to be run without compiling it.
+ */
+public final class SourceAnalyzer {
+
+    /**
+     * Static import of every member of {@link System}, after which
+     * {@code in}, {@code getenv} and the clocks are used without their class.
+     */
+    private static final String STATIC_SYSTEM_IMPORT = "java.lang.System.*";
+
+    /**
+     * Source fragments revealing that a program reads or writes files.
+     */
+    private static final List<String> FILE_ACCESS_MARKERS = List.of(
+            "java.io.File", "java.nio.file", "new File(", "FileReader", "FileWriter", "FileInputStream",
+            "FileOutputStream", "RandomAccessFile", "Files.", "Paths.", "Path.of");
+
+    /**
+     * Source fragments revealing that a program reads its standard input.
+     */
+    private static final List<String> INPUT_MARKERS = List.of(
+            "System.in", "System.console()", "FileDescriptor.in", STATIC_SYSTEM_IMPORT);
+
+    /**
+     * Source fragments revealing that the output of a program may change from
+     * one run to the next: randomness, clocks, threads, the environment and
+     * the iteration order of hashed collections, which depends on identity
+     * hash codes for keys that do not override {@code hashCode}.
+     */
+    private static final List<String> NONDETERMINISM_MARKERS = List.of(
+            "Random", "Math.random", "currentTimeMillis", "nanoTime", ".now(", "Date(", "Calendar", "Clock",
+            "TimeZone", "UUID", "Thread", "Executor", "hashCode", "identityHashCode", "HashMap", "HashSet",
+            "Hashtable", "System.getenv", "System.getProperty", "Runtime.", "ProcessHandle", "java.net",
+            "ProcessBuilder", STATIC_SYSTEM_IMPORT);
+
+    /**
+     * Source fragments revealing that a program ends the JVM it runs on.
+     */
+    private static final List<String> EXIT_MARKERS = List.of("System.exit", ".exit(", ".halt(");
+
+    private SourceAnalyzer() {
+    }
+
+    /**
+     * Reads every Java source file inside a folder once, so that main method
+     * detection and compilation work on the same in-memory copy.
+     *
+     * @param folderPath the folder path to search for Java files
+     * @return the source contents indexed by path relative to the folder
+     * @throws IOException if an I/O error occurs during file traversal
+     */
+    public static Map<String, String> readSources(Path folderPath) throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        try (Stream<Path> paths = Files.walk(folderPath)) {
+            for (Path path : (Iterable<Path>) paths
+                    .filter(Files::isRegularFile)
+                    .filter(p -> p.toString().endsWith(".java"))::iterator) {
+                sources.put(folderPath.relativize(path).toString(), Files.readString(path));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Checks if the given Java source contains a valid main method declaration.
+     * 
+     * @param content the Java source to inspect
+     * @return {@code true} if the source contains a main method, {@code false}
+     *         otherwise
+     */
+    public static boolean hasMainMethod(String content) {
+        return content.contains("public static void main(String[] args)") ||
+                content.contains("public static void main( String[] args )") ||
+                content.contains("public static void main(String args[])");
+    }
+
+    /**
+     * Extracts the package declared by a Java source.
+     *
+     * @param content the Java source to inspect
+     * @return the package name, or {@code null} for the default package
+     */
+    public static String packageOf(String content) {
+        for (String line : content.split("\\R")) {
+            line = line.strip();
+            if (line.startsWith("package ")) {
+                return line.replace("package", "").replace(";", "").trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the fully qualified name of the class declared by a source file.
+     * 
+     * @param relativePath the path of the source file relative to the program
+     *                     folder
+     * @param packageName  the package of the source, or {@code null}
+     * @return the full class name including package if present
+     */
+    public static String fullClassName(String relativePath, String packageName) {
+        String className = Paths.get(relativePath).getFileName().toString().replace(".java", "");
+        return (packageName != null ? packageName + "." : "") + className;
+    }
+
+    /**
+     * Tells whether a source seems to access files, in which case the program
+     * needs its own folder as working directory.
+     *
+     * @param content the Java source to inspect
+     * @return {@code true} if the source uses file APIs
+     */
+    public static boolean accessesFiles(String content) {
+        return FILE_ACCESS_MARKERS.stream().anyMatch(content::contains);
+    }
+
+    /**
+     * Tells whether a source seems to read the standard input.
+     *
+     * @param content the Java source to inspect
+     * @return {@code true} if the source uses the standard input
+     */
+    public static boolean readsInput(String content) {
+        return INPUT_MARKERS.stream().anyMatch(content::contains);
+    }
+
+    /**
+     * Tells whether a source uses APIs whose results change between runs.
+     * The check is conservative: a source that merely mentions one of them is
+     * considered nondeterministic.
+     *
+     * @param content the Java source to inspect
+     * @return {@code true} if the output of the source may not be reproducible
+     */
+    public static boolean isNondeterministic(String content) {
+        return NONDETERMINISM_MARKERS.stream().anyMatch(content::contains);
+    }
+
+    /**
+     * Tells whether a source seems to end the JVM explicitly, in which case the
+     * program cannot share the JVM of the application. This is only a hint
+     * that spares inspecting the compiled classes, which decide.
+     *
+     * @param content the Java source to inspect
+     * @return {@code true} if the source calls {@code System.exit} or
+     *         {@code Runtime.halt}
+     */
+    public static boolean callsExit(String content) {
+        return EXIT_MARKERS.stream().anyMatch(content::contains);
+    }
+}
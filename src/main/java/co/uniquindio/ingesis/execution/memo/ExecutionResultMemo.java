@@ -0,0 +1,151 @@
+package co.uniquindio.ingesis.execution.memo;
+
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionResultDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memo of the results of deterministic programs run without input, keyed by
+ * the digest of their sources and the JVM profile they ran with.
+ *
+ * Disabled unless {@code execution.memo.enabled} is set. Results are kept for
+ * {@code execution.memo.ttl-seconds} and the memo holds at most
+ * {@code execution.memo.max-bytes} of output, evicting the least recently used
+ * results first. Lookups are counted in {@code execution.memo.lookups}, tagged
+ * {@code hit} or {@code miss}.
+ */
+@ApplicationScoped
+public class ExecutionResultMemo {
+
+    /**
+     * Rough size of an entry besides its text, so that empty outputs still
+     * count against the bound.
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Duration ttl;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    private record Entry(ExecutionResultDto result, long sizeBytes, Instant expiresAt) {
+    }
+
+    @Inject
+    public ExecutionResultMemo(MeterRegistry registry,
+            @ConfigProperty(name = "execution.memo.enabled", defaultValue = "false") boolean enabled,
+            @ConfigProperty(name = "execution.memo.max-bytes", defaultValue = "16777216") long maxBytes,
+            @ConfigProperty(name = "execution.memo.ttl-seconds", defaultValue = "600") long ttlSeconds) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+
+        Gauge.builder("execution.memo.bytes", this, memo -> memo.totalBytes)
+                .description("Output bytes held by the execution result memo")
+                .register(registry);
+        Gauge.builder("execution.memo.entries", entries, Map::size)
+                .description("Results held by the execution result memo")
+                .register(registry);
+        this.hits = Counter.builder("execution.memo.lookups")
+                .description("Lookups of memoized execution results")
+                .tag("result", "hit")
+                .register(registry);
+        this.misses = Counter.builder("execution.memo.lookups")
+                .description("Lookups of memoized execution results")
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    /**
+     * Tells whether results are memoized at all.
+     *
+     * @return {@code true} if the memo is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Looks up the result of a previous run of the same sources.
+     *
+     * @param key the digest of the program sources and the JVM profile
+     * @return the memoized result, or empty if there is none or it expired
+     */
+    public Optional<ExecutionResultDto> find(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt().isBefore(Instant.now())) {
+                remove(key);
+                entry = null;
+            }
+            (entry != null ? hits : misses).increment();
+            return Optional.ofNullable(entry).map(Entry::result);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Memoizes the result of a run that ended normally, replacing any previous
+     * result of the same sources. Failed and timed out runs are ignored, as are
+     * results larger than the whole memo.
+     *
+     * @param key    the digest of the program sources and the JVM profile
+     * @param result the result of the run
+     */
+    public void put(String key, ExecutionResultDto result) {
+        if (result.timedOut() || result.exitCode() == null || result.exitCode() != 0) {
+            return;
+        }
+        long sizeBytes = ENTRY_OVERHEAD_BYTES + 2L * (result.output().length() + result.errors().length());
+        if (sizeBytes > maxBytes) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            remove(key);
+            entries.put(key, new Entry(result, sizeBytes, Instant.now().plus(ttl)));
+            totalBytes += sizeBytes;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().sizeBytes();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a result. Must be called while holding the lock.
+     *
+     * @param key the key of the result
+     */
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.sizeBytes();
+        }
+    }
+}
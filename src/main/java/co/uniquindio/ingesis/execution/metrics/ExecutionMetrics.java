@@ -0,0 +1,109 @@
+package co.uniquindio.ingesis.execution.metrics;
+
+import co.uniquindio.ingesis.execution.runner.RunOutcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the resources consumed by every program execution as histograms
+ * tagged by outcome, for capacity planning of lab sessions.
+ *
+ * Outcomes are {@code success}, {@code runtime-error} (non-zero exit code),
+ * {@code timeout} and {@code compile-error}; programs that did not compile only
+ * record the compilation time as wall time. The run time is also recorded
+ * tagged by the mode of the runner, to compare forked, pooled and in-process
+ * executions.
+ */
+@ApplicationScoped
+public class ExecutionMetrics {
+
+    private static final String SUCCESS = "success";
+    private static final String RUNTIME_ERROR = "runtime-error";
+    private static final String TIMEOUT = "timeout";
+    private static final String COMPILE_ERROR = "compile-error";
+
+    private final MeterRegistry registry;
+
+    @Inject
+    public ExecutionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records a finished run.
+     *
+     * @param outcome     the outcome of the run
+     * @param outputBytes the bytes written to stdout and stderr
+     * @param mode        the mode of the runner that ran the program
+     */
+    public void recordRun(RunOutcome outcome, long outputBytes, String mode) {
+        String result = outcome.timedOut() ? TIMEOUT : outcome.exitCode() == 0 ? SUCCESS : RUNTIME_ERROR;
+
+        wallTime(result).record(outcome.wallTimeMillis(), TimeUnit.MILLISECONDS);
+        Timer.builder("execution.runner.time")
+                .description("Elapsed time of program runs by runner mode")
+                .tag("mode", mode)
+                .tag("outcome", result)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(outcome.wallTimeMillis(), TimeUnit.MILLISECONDS);
+        if (outcome.cpuTimeMillis() >= 0) {
+            Timer.builder("execution.cpu.time")
+                    .description("CPU time consumed by program executions")
+                    .tag("outcome", result)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(outcome.cpuTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (outcome.peakRssBytes() >= 0) {
+            DistributionSummary.builder("execution.peak.rss")
+                    .description("Peak resident memory of the JVM running the program")
+                    .baseUnit("bytes")
+                    .tag("outcome", result)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(outcome.peakRssBytes());
+        }
+        DistributionSummary.builder("execution.output")
+                .description("Bytes written by programs to stdout and stderr")
+                .baseUnit("bytes")
+                .tag("outcome", result)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(outputBytes);
+    }
+
+    /**
+     * Records a program that did not compile.
+     *
+     * @param compileTimeMillis the time spent compiling
+     */
+    public void recordCompileError(long compileTimeMillis) {
+        wallTime(COMPILE_ERROR).record(compileTimeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records an execution that was answered with the result of an identical
+     * execution already in flight instead of running the program again.
+     */
+    public void recordCoalesced() {
+        Counter.builder("execution.coalesced")
+                .description("Executions that waited for an identical execution in flight")
+                .register(registry)
+                .increment();
+    }
+
+    private Timer wallTime(String result) {
+        return Timer.builder("execution.wall.time")
+                .description("Elapsed time of program executions")
+                .tag("outcome", result)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
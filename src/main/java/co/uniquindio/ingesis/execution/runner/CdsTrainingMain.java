@@ -0,0 +1,61 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Program run by {@link SharedClassArchive} to find out which JDK classes go
+ * into the archive, and to measure the startup of each {@link JvmProfile}.
+ * It touches what classroom programs typically use: console input and
+ * formatted output, strings, collections, streams and lambdas, math, dates and
+ * exceptions.
+ *
+ * This class runs outside of Quarkus and must only depend on the JDK.
+ */
+public final class CdsTrainingMain {
+
+    private CdsTrainingMain() {
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        int first = scanner.hasNextInt() ? scanner.nextInt() : 3;
+
+        List<Integer> numbers = new ArrayList<>();
+        Random random = new Random(first);
+        for (int i = 0; i < 10; i++) {
+            numbers.add(random.nextInt(100));
+        }
+        int[] sorted = numbers.stream().mapToInt(Integer::intValue).sorted().toArray();
+        Map<Boolean, List<Integer>> parity = numbers.stream().collect(Collectors.partitioningBy(n -> n % 2 == 0));
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : "a b a c b a".split(" ")) {
+            counts.merge(word, 1, Integer::sum);
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d %s %.2f%n", first, Arrays.toString(sorted), Math.sqrt(first)));
+        report.append(new TreeMap<>(counts)).append(' ').append(parity.get(true).size()).append('\n');
+        report.append(IntStream.rangeClosed(1, 5).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+        report.append(' ').append(new BigDecimal("10").divide(new BigDecimal("3"), 2, RoundingMode.HALF_UP));
+        report.append(' ').append(LocalDate.of(2024, 1, 1).plusDays(first)).append('\n');
+        try {
+            Integer.parseInt("not a number");
+        } catch (NumberFormatException e) {
+            report.append(e.getMessage()).append('\n');
+        }
+        System.out.print(report);
+        System.err.println(report.length());
+    }
+}
@@ -0,0 +1,230 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inspection of compiled classes for code that may reach beyond the class
+ * loader it runs in, such as calls ending the JVM.
+ *
+ * The constant pool of every class lists the classes it uses and the methods
+ * it calls. Instead of looking for known ways to end the JVM, which reflection
+ * and APIs such as {@code java.beans.Statement} get around, every class a
+ * program refers to must be one of its own or belong to an allowed package of
+ * the JDK: the core of {@code java.lang}, collections, streams, text, time,
+ * math and I/O. Reflection, method handles, {@code java.beans},
+ * {@code sun.misc} and {@code jdk.internal} are therefore rejected, and so are
+ * the methods of allowed classes that end the JVM, launch processes, load
+ * classes by name or change the defaults shared by the whole application.
+ * Classes that cannot be parsed are rejected as well.
+ */
+final class ExitCallScanner {
+
+    /**
+     * Packages whose classes programs may use, by internal name.
+     */
+    private static final Set<String> ALLOWED_PACKAGES = Set.of("java/lang", "java/io", "java/math", "java/text",
+            "java/nio", "java/nio/charset", "java/nio/file");
+
+    /**
+     * Packages whose classes, and those of their subpackages, programs may
+     * use.
+     */
+    private static final List<String> ALLOWED_PACKAGE_TREES = List.of("java/util/", "java/time/");
+
+    /**
+     * Classes outside the allowed packages that the compiler itself refers to
+     * for lambdas, string concatenation and records. Calling them requires a
+     * {@code Lookup}, which programs cannot obtain.
+     */
+    private static final Set<String> BOOTSTRAP_CLASSES = Set.of("java/lang/invoke/LambdaMetafactory",
+            "java/lang/invoke/StringConcatFactory", "java/lang/invoke/MethodHandles",
+            "java/lang/invoke/MethodHandles$Lookup", "java/lang/runtime/ObjectMethods");
+
+    /**
+     * Classes of the allowed packages that programs may not use.
+     */
+    private static final Set<String> FORBIDDEN_CLASSES = Set.of("java/lang/ProcessBuilder",
+            "java/lang/ProcessBuilder$Redirect", "java/lang/Process", "java/lang/ProcessHandle",
+            "java/lang/ClassLoader", "java/lang/Module", "java/lang/ModuleLayer", "java/lang/SecurityManager",
+            "java/lang/StackWalker", "java/util/ServiceLoader");
+
+    /**
+     * Methods of allowed classes that programs may not call, by internal name
+     * of their class; an empty set stands for every method of the class.
+     */
+    private static final Map<String, Set<String>> FORBIDDEN_METHODS = Map.of(
+            "java/lang/System", Set.of("exit", "load", "loadLibrary", "setSecurityManager", "setIn", "setOut",
+                    "setErr", "setProperty", "setProperties", "clearProperty"),
+            "java/lang/Runtime", Set.of("exit", "halt", "exec", "load", "loadLibrary", "addShutdownHook",
+                    "removeShutdownHook"),
+            "java/lang/Class", Set.of("forName", "getMethod", "getMethods", "getDeclaredMethod",
+                    "getDeclaredMethods", "getField", "getFields", "getDeclaredField", "getDeclaredFields",
+                    "getConstructor", "getConstructors", "getDeclaredConstructor", "getDeclaredConstructors",
+                    "newInstance", "getClassLoader", "getModule"),
+            "java/lang/Thread", Set.of("setDefaultUncaughtExceptionHandler"),
+            "java/util/Locale", Set.of("setDefault"),
+            "java/util/TimeZone", Set.of("setDefault"),
+            "java/lang/invoke/MethodHandles", Set.of(),
+            "java/lang/invoke/MethodHandles$Lookup", Set.of());
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private ExitCallScanner() {
+    }
+
+    /**
+     * The constant pool of a class, indexed as in the class file.
+     */
+    private record ConstantPool(String thisClass, int[] tags, String[] utf8, int[] classNames, int[] first,
+            int[] second) {
+
+        String className(int index) {
+            return utf8[classNames[index]];
+        }
+    }
+
+    /**
+     * Tells whether any of the classes of a program may reach beyond its class
+     * loader.
+     *
+     * @param classFiles the class bytes indexed by binary class name
+     * @return {@code true} if a class uses a class or method that is not
+     *         allowed, or cannot be parsed
+     */
+    static boolean mayExit(Map<String, byte[]> classFiles) {
+        List<ConstantPool> pools = new ArrayList<>();
+        try {
+            for (byte[] classFile : classFiles.values()) {
+                pools.add(parse(classFile));
+            }
+        } catch (IOException | RuntimeException e) {
+            return true;
+        }
+        Set<String> programClasses = new HashSet<>();
+        for (ConstantPool pool : pools) {
+            programClasses.add(pool.thisClass());
+        }
+        return pools.stream().anyMatch(pool -> usesForbiddenCode(pool, programClasses));
+    }
+
+    private static boolean usesForbiddenCode(ConstantPool pool, Set<String> programClasses) {
+        int[] tags = pool.tags();
+        for (int i = 1; i < tags.length; i++) {
+            if (tags[i] == CONSTANT_CLASS && !isAllowed(elementType(pool.className(i)), programClasses)) {
+                return true;
+            }
+            if (tags[i] == CONSTANT_METHODREF || tags[i] == CONSTANT_INTERFACE_METHODREF) {
+                Set<String> forbidden = FORBIDDEN_METHODS.get(pool.className(pool.first()[i]));
+                String method = pool.utf8()[pool.first()[pool.second()[i]]];
+                if (forbidden != null && (forbidden.isEmpty() || forbidden.contains(method))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether programs may refer to a class.
+     *
+     * @param className      the internal name of the class, or {@code null}
+     *                       for a primitive array
+     * @param programClasses the classes of the program
+     */
+    private static boolean isAllowed(String className, Set<String> programClasses) {
+        if (className == null || programClasses.contains(className) || BOOTSTRAP_CLASSES.contains(className)) {
+            return true;
+        }
+        if (FORBIDDEN_CLASSES.contains(className)) {
+            return false;
+        }
+        int slash = className.lastIndexOf('/');
+        String packageName = slash < 0 ? "" : className.substring(0, slash);
+        return ALLOWED_PACKAGES.contains(packageName)
+                || ALLOWED_PACKAGE_TREES.stream().anyMatch(tree -> (packageName + "/").startsWith(tree));
+    }
+
+    /**
+     * Returns the class of the elements of an array class, or the class
+     * itself.
+     *
+     * @return the internal name, or {@code null} for primitive elements
+     */
+    private static String elementType(String className) {
+        if (!className.startsWith("[")) {
+            return className;
+        }
+        String element = className.substring(className.lastIndexOf('[') + 1);
+        return element.startsWith("L") && element.endsWith(";") ? element.substring(1, element.length() - 1)
+                : null;
+    }
+
+    private static ConstantPool parse(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classNames = new int[count];
+        int[] first = new int[count];
+        int[] second = new int[count];
+        int[] tags = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case CONSTANT_UTF8 -> utf8[i] = in.readUTF();
+                case CONSTANT_INTEGER, CONSTANT_FLOAT -> in.readInt();
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    in.readLong();
+                    // Eight-byte constants take two entries
+                    i++;
+                }
+                case CONSTANT_CLASS -> classNames[i] = in.readUnsignedShort();
+                case CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE ->
+                        in.readUnsignedShort();
+                case CONSTANT_FIELDREF, CONSTANT_METHODREF, CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE,
+                        CONSTANT_DYNAMIC, CONSTANT_INVOKE_DYNAMIC -> {
+                    first[i] = in.readUnsignedShort();
+                    second[i] = in.readUnsignedShort();
+                }
+                case CONSTANT_METHOD_HANDLE -> {
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        in.readUnsignedShort();
+        int thisClass = in.readUnsignedShort();
+        return new ConstantPool(utf8[classNames[thisClass]], tags, utf8, classNames, first, second);
+    }
+}
@@ -0,0 +1,154 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every program in a freshly started {@code java} process.
+ *
+ * Standard output and standard error are drained by dedicated threads while
+ * the process runs, so a program that prints a lot can never block on a full
+ * pipe. CPU time and peak memory are sampled while the process is alive,
+ * since they can no longer be read once it exits.
+ *
+ * The process is started through the {@link ProcessSupervisor}. When the time
+ * limit expires, the listener is cancelled or the calling thread is
+ * interrupted, the process is killed along with every process it started;
+ * processes it started and left running when it exited are killed too.
+ *
+ * The JVM is launched with the {@link JvmProfile} of the request, or with
+ * {@code execution.jvm.profile} when the request does not choose one, which
+ * is {@link JvmProfile#DEFAULT} unless fast-start is configured.
+ */
+@ApplicationScoped
+public class ForkedProgramRunner implements ProgramRunner {
+
+    private static final long DRAIN_GRACE_MILLIS = 1000;
+    private static final long SAMPLE_INTERVAL_MILLIS = 20;
+    private static final long LIFETIME_GRACE_MILLIS = 5000;
+
+    private final SharedClassArchive sharedClassArchive;
+    private final ProcessSupervisor processSupervisor;
+    private final JvmProfile defaultProfile;
+
+    @Inject
+    public ForkedProgramRunner(SharedClassArchive sharedClassArchive, ProcessSupervisor processSupervisor,
+            @ConfigProperty(name = "execution.jvm.profile", defaultValue = "default") JvmProfile defaultProfile) {
+        this.sharedClassArchive = sharedClassArchive;
+        this.processSupervisor = processSupervisor;
+        this.defaultProfile = defaultProfile;
+    }
+
+    @Override
+    public String mode() {
+        return "forked";
+    }
+
+    @Override
+    public RunOutcome run(RunRequest request, OutputListener listener) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+
+        List<String> command = new ArrayList<>();
+        command.add(SharedClassArchive.javaExecutable());
+        command.addAll(sharedClassArchive.jvmOptions(request.profile() != null ? request.profile() : defaultProfile));
+        command.addAll(List.of("-cp", request.classesDir().toAbsolutePath().toString(), request.mainClass()));
+
+        Process process = processSupervisor.start(new ProcessBuilder(command)
+                .directory(request.workingDir().toFile()), request.timeoutMillis() + LIFETIME_GRACE_MILLIS);
+
+        Thread stdout = drain(process.getInputStream(), OutputChannel.STDOUT, listener);
+        Thread stderr = drain(process.getErrorStream(), OutputChannel.STDERR, listener);
+        feedStdin(process, request.stdin());
+
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(request.timeoutMillis());
+        long cpuTime = -1;
+        long peakRss = -1;
+        List<ProcessHandle> descendants = List.of();
+        boolean finished = false;
+        boolean cancelled = false;
+        try {
+            long remaining;
+            while (!finished && !cancelled && (remaining = deadline - System.nanoTime()) > 0) {
+                finished = process.waitFor(
+                        Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+                if (!finished) {
+                    cpuTime = ProcessUsage.cpuTimeMillis(process.toHandle());
+                    peakRss = Math.max(peakRss, ProcessUsage.peakRssBytes(process.pid()));
+                    // Once the program exits, the processes it started can no longer be found from it
+                    descendants = process.descendants().toList();
+                    cancelled = listener.isCancelled();
+                }
+            }
+        } finally {
+            if (finished) {
+                processSupervisor.destroyOrphans(descendants, "orphaned");
+            } else {
+                processSupervisor.destroyTree(process, cancelled ? "cancelled" : "timeout");
+            }
+        }
+        // Bounded, in case a child of the program still holds the pipes open
+        stdout.join(DRAIN_GRACE_MILLIS);
+        stderr.join(DRAIN_GRACE_MILLIS);
+
+        long wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new RunOutcome(finished ? process.exitValue() : -1, !finished && !cancelled, wallTime, cpuTime,
+                peakRss);
+    }
+
+    /**
+     * Writes the standard input of the program from a separate thread and closes
+     * it, so that reads past the provided data see the end of the stream and a
+     * program that never reads cannot block the caller.
+     *
+     * @param process the running program
+     * @param stdin   the data to feed, may be {@code null}
+     */
+    private void feedStdin(Process process, byte[] stdin) {
+        Thread thread = new Thread(() -> {
+            try (OutputStream in = process.getOutputStream()) {
+                if (stdin != null) {
+                    in.write(stdin);
+                }
+            } catch (IOException ignored) {
+                // The program exited without reading its input
+            }
+        }, "program-stdin-feeder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts a thread that copies a process stream to the listener until the end
+     * of the stream.
+     *
+     * @param stream   the process stream
+     * @param channel  the channel the stream corresponds to
+     * @param listener the receiver of the output
+     * @return the started thread
+     */
+    static Thread drain(InputStream stream, OutputChannel channel, OutputListener listener) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try (stream) {
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    listener.onOutput(channel, buffer, 0, read);
+                }
+            } catch (IOException ignored) {
+                // The process was destroyed
+            }
+        }, "program-" + channel.name().toLowerCase() + "-drainer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
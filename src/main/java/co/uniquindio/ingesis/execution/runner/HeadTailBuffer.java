@@ -0,0 +1,83 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size byte buffer keeping the beginning and the end of a stream.
+ *
+ * The first half of the capacity holds the first bytes written; the second
+ * half is a ring holding the last bytes written. Everything in between is
+ * counted but discarded.
+ */
+class HeadTailBuffer {
+
+    private final byte[] head;
+    private final byte[] tail;
+    private int headLength;
+    private int tailPosition;
+    private int tailLength;
+    private long total;
+
+    /**
+     * @param capacity the maximum number of bytes retained
+     */
+    HeadTailBuffer(int capacity) {
+        this.head = new byte[capacity / 2];
+        this.tail = new byte[capacity - head.length];
+    }
+
+    synchronized void write(byte[] data, int offset, int length) {
+        total += length;
+
+        int toHead = Math.min(length, head.length - headLength);
+        System.arraycopy(data, offset, head, headLength, toHead);
+        headLength += toHead;
+        offset += toHead;
+        length -= toHead;
+
+        if (length == 0 || tail.length == 0) {
+            return;
+        }
+        if (length >= tail.length) {
+            System.arraycopy(data, offset + length - tail.length, tail, 0, tail.length);
+            tailPosition = 0;
+            tailLength = tail.length;
+            return;
+        }
+        int first = Math.min(length, tail.length - tailPosition);
+        System.arraycopy(data, offset, tail, tailPosition, first);
+        System.arraycopy(data, offset + first, tail, 0, length - first);
+        tailPosition = (tailPosition + length) % tail.length;
+        tailLength = Math.min(tail.length, tailLength + length);
+    }
+
+    /**
+     * @return {@code true} if part of the stream was discarded
+     */
+    synchronized boolean isTruncated() {
+        return total > headLength + tailLength;
+    }
+
+    /**
+     * Decodes the retained bytes as UTF-8, marking where bytes were discarded.
+     *
+     * @return the retained text
+     */
+    synchronized String toText() {
+        byte[] ordered = new byte[headLength + tailLength];
+        System.arraycopy(head, 0, ordered, 0, headLength);
+        int start = (tailPosition - tailLength + tail.length) % Math.max(tail.length, 1);
+        int first = Math.min(tailLength, tail.length - start);
+        System.arraycopy(tail, start, ordered, headLength, first);
+        System.arraycopy(tail, 0, ordered, headLength + first, tailLength - first);
+
+        long discarded = total - headLength - tailLength;
+        if (discarded == 0 || tailLength == 0) {
+            // Decoded as a whole so that a character split between head and tail stays intact
+            return new String(ordered, StandardCharsets.UTF_8);
+        }
+        return new String(ordered, 0, headLength, StandardCharsets.UTF_8)
+                + "\n... [" + discarded + " bytes truncated] ...\n"
+                + new String(ordered, headLength, tailLength, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs trusted programs, such as the examples of the teachers, inside the
+ * application JVM instead of starting a JVM per run.
+ *
+ * Every run loads the compiled classes in its own class loader, child of the
+ * platform class loader so that the program cannot see the application
+ * classes, and invokes {@code main} on a new thread group. The standard
+ * streams are routed per thread by {@link ProgramStreams}, so concurrent runs
+ * do not mix their input and output. When the time limit expires the threads
+ * of the program are interrupted and its class loader is closed and left to
+ * the garbage collector; a program that ignores interruptions keeps its
+ * threads until it ends by itself, which is why only trusted programs run
+ * here.
+ *
+ * Nothing prevents a program from ending the JVM, so only programs whose
+ * compiled classes neither call {@code System.exit} nor reach it through
+ * reflection or other processes are {@link #accepts(Map) accepted}. The mode
+ * is off unless {@code execution.runner.in-process.enabled} is set.
+ */
+@ApplicationScoped
+public class InProcessProgramRunner implements ProgramRunner {
+
+    private static final Logger logger = LogManager.getLogger(InProcessProgramRunner.class);
+
+    private final boolean enabled;
+    private final AtomicInteger runCounter = new AtomicInteger();
+    private final Counter abandonedRuns;
+
+    @Inject
+    public InProcessProgramRunner(MeterRegistry registry,
+            @ConfigProperty(name = "execution.runner.in-process.enabled", defaultValue = "false") boolean enabled) {
+        this.enabled = enabled;
+        this.abandonedRuns = Counter.builder("execution.runner.in-process.abandoned")
+                .description("In-process runs stopped at their time limit with threads still alive")
+                .register(registry);
+    }
+
+    /**
+     * Routes the standard streams of the JVM when the application starts.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (enabled) {
+            ProgramStreams.install();
+        }
+    }
+
+    /**
+     * Tells whether trusted programs may run inside the application JVM.
+     *
+     * @return {@code true} if the in-process mode is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Tells whether a compiled program may run inside the application JVM.
+     *
+     * @param classFiles the class bytes of the program indexed by binary class
+     *                   name
+     * @return {@code true} if the in-process mode is enabled and the program
+     *         only uses allowed classes of the JDK
+     */
+    public boolean accepts(Map<String, byte[]> classFiles) {
+        return enabled && !ExitCallScanner.mayExit(classFiles);
+    }
+
+    @Override
+    public String mode() {
+        return "in-process";
+    }
+
+    @Override
+    public RunOutcome run(RunRequest request, OutputListener listener) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(request.timeoutMillis());
+
+        URLClassLoader loader = new URLClassLoader(new URL[] { request.classesDir().toUri().toURL() },
+                ClassLoader.getPlatformClassLoader());
+        ThreadGroup group = new ThreadGroup("in-process-" + runCounter.incrementAndGet());
+        int[] exitCode = { 0 };
+        Thread main = new Thread(group, () -> {
+            ProgramStreams.bind(listener, request.stdin());
+            exitCode[0] = invokeMain(loader, request.mainClass());
+        }, "main");
+        main.setContextClassLoader(loader);
+
+        boolean finished = false;
+        try {
+            main.start();
+            finished = awaitProgram(main, group, deadline);
+        } finally {
+            // Daemon threads die with the program, as they would when its JVM exits
+            group.interrupt();
+            if (!finished) {
+                abandonedRuns.increment();
+                logger.warn("Abandoning in-process run of {} at its time limit", request.mainClass());
+            }
+            closeQuietly(loader);
+        }
+
+        long wallTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new RunOutcome(finished ? exitCode[0] : -1, !finished, wallTimeMillis, -1, -1);
+    }
+
+    /**
+     * Waits for the main thread and then for every non-daemon thread of the
+     * program, as the JVM itself would before exiting.
+     *
+     * @param main     the main thread of the program
+     * @param group    the thread group of the program
+     * @param deadline the {@link System#nanoTime()} at which the run times out
+     * @return {@code true} if the program ended before the deadline
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    private boolean awaitProgram(Thread main, ThreadGroup group, long deadline) throws InterruptedException {
+        if (!join(main, deadline)) {
+            return false;
+        }
+        for (Thread thread : RunnerMain.listThreads(group)) {
+            if (!thread.isDaemon() && !join(thread, deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean join(Thread thread, long deadline) throws InterruptedException {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos > 0) {
+            TimeUnit.NANOSECONDS.timedJoin(thread, remainingNanos);
+        }
+        return !thread.isAlive();
+    }
+
+    /**
+     * Invokes the main method and reports uncaught exceptions the same way the
+     * {@code java} launcher does.
+     *
+     * @param loader    the class loader of the program
+     * @param mainClass the fully qualified name of the main class
+     * @return the exit code of the program
+     */
+    private int invokeMain(ClassLoader loader, String mainClass) {
+        try {
+            Class<?> programClass = Class.forName(mainClass, true, loader);
+            Method main = programClass.getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[0]);
+            return 0;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            RunnerMain.hideRunnerFrames(cause);
+            System.err.print("Exception in thread \"main\" ");
+            cause.printStackTrace();
+            return 1;
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            System.err.println("Error: Could not find or load main class " + mainClass);
+            return 1;
+        }
+    }
+
+    private void closeQuietly(URLClassLoader loader) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the class loader of an in-process run", e);
+        }
+    }
+}
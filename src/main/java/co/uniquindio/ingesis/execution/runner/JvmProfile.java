@@ -0,0 +1,33 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.util.Locale;
+
+/**
+ * Set of JVM options used to launch a forked program.
+ */
+public enum JvmProfile {
+
+    /**
+     * Plain {@code java} launch with the JVM defaults.
+     */
+    DEFAULT,
+
+    /**
+     * Launch tuned for short programs: the {@link SharedClassArchive} of the JDK
+     * classes students usually need, C1 compilation only, the serial collector
+     * and a small heap.
+     */
+    FAST_START;
+
+    /**
+     * Parses a profile name as written in requests and configuration, either
+     * {@code fast-start} or {@code FAST_START}.
+     *
+     * @param value the profile name
+     * @return the profile
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static JvmProfile fromString(String value) {
+        return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,41 @@
+package co.uniquindio.ingesis.execution.runner;
+
+/**
+ * Output listener collecting stdout and stderr separately, each into its own
+ * {@link HeadTailBuffer}, so that a program printing without end only costs a
+ * fixed amount of memory.
+ */
+public class OutputCapture implements OutputListener {
+
+    private final HeadTailBuffer stdout;
+    private final HeadTailBuffer stderr;
+
+    /**
+     * @param maxBytesPerStream the bytes retained for each stream, half from the
+     *                          beginning and half from the end
+     */
+    public OutputCapture(int maxBytesPerStream) {
+        this.stdout = new HeadTailBuffer(maxBytesPerStream);
+        this.stderr = new HeadTailBuffer(maxBytesPerStream);
+    }
+
+    @Override
+    public void onOutput(OutputChannel channel, byte[] data, int offset, int length) {
+        (channel == OutputChannel.STDOUT ? stdout : stderr).write(data, offset, length);
+    }
+
+    public String getStdout() {
+        return stdout.toText();
+    }
+
+    public String getStderr() {
+        return stderr.toText();
+    }
+
+    /**
+     * @return {@code true} if part of either stream was discarded
+     */
+    public boolean isTruncated() {
+        return stdout.isTruncated() || stderr.isTruncated();
+    }
+}
@@ -0,0 +1,17 @@
+package co.uniquindio.ingesis.execution.runner;
+
+/**
+ * Output stream of a running program.
+ */
+public enum OutputChannel {
+
+    /**
+     * Standard output of the program.
+     */
+    STDOUT,
+
+    /**
+     * Standard error of the program.
+     */
+    STDERR
+}
@@ -0,0 +1,33 @@
+package co.uniquindio.ingesis.execution.runner;
+
+/**
+ * Receives the output of a running program as soon as it is produced.
+ *
+ * Implementations may be called from several threads at the same time (one per
+ * output channel) and must not block for long, since they run on the threads
+ * that drain the program output.
+ */
+@FunctionalInterface
+public interface OutputListener {
+
+    /**
+     * Called with a chunk of program output.
+     *
+     * @param channel the stream the chunk was written to
+     * @param data    buffer holding the chunk
+     * @param offset  start of the chunk in {@code data}
+     * @param length  number of bytes of the chunk
+     */
+    void onOutput(OutputChannel channel, byte[] data, int offset, int length);
+
+    /**
+     * Tells whether nobody is interested in the output any more, e.g. because
+     * the client streaming it disconnected, so that the program can be killed
+     * before its time limit.
+     *
+     * @return {@code true} if the run should be stopped
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
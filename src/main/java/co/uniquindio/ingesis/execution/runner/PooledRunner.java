@@ -0,0 +1,289 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Application side of a pre-started runner JVM executing {@link RunnerMain}.
+ *
+ * A runner executes one program at a time; the {@link RunnerPool} guarantees
+ * exclusive access while a run is in progress. This is what makes the CPU time
+ * and peak memory of the runner, measured around a run, attributable to the
+ * program.
+ *
+ * The runner is not trusted to follow the {@link RunnerProtocol}: a program
+ * may reach the control socket of its runner. A malformed or oversized frame
+ * fails the run and the runner is destroyed.
+ */
+class PooledRunner {
+
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    private final Process process;
+    private final ProcessSupervisor supervisor;
+    private final DataOutputStream commands;
+    private final DataInputStream frames;
+    private final byte[] payload = new byte[RunnerProtocol.MAX_FRAME_BYTES];
+    private int runs;
+
+    PooledRunner(Process process, ProcessSupervisor supervisor, SocketChannel control) {
+        this.process = process;
+        this.supervisor = supervisor;
+        this.commands = new DataOutputStream(new BufferedOutputStream(RunnerProtocol.outputStream(control)));
+        this.frames = new DataInputStream(new BufferedInputStream(RunnerProtocol.inputStream(control)));
+    }
+
+    /**
+     * Starts a runner JVM, accepts the control connection it opens and waits
+     * until it reports being ready.
+     *
+     * @param command    the command line of the runner JVM, to which the path
+     *                   of the control socket is appended
+     * @param workingDir the scratch working directory of the runner
+     * @param supervisor the supervisor starting and killing the runner JVM
+     * @return the ready runner
+     * @throws IOException if the runner cannot be started or dies while warming
+     *                     up
+     */
+    static PooledRunner start(List<String> command, Path workingDir, ProcessSupervisor supervisor)
+            throws IOException {
+        // The socket lives in a directory only this user can enter, and stops
+        // listening once the runner is connected
+        Path socketDir = Files.createTempDirectory("runner-");
+        Path socket = socketDir.resolve("control");
+        Process process = null;
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            List<String> arguments = new ArrayList<>(command);
+            arguments.add(socket.toString());
+            process = supervisor.start(new ProcessBuilder(arguments)
+                    .directory(workingDir.toFile())
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD), 0);
+            process.getOutputStream().close();
+            // A runner dying before it connects closes the server, ending the accept
+            process.onExit().thenRun(() -> closeQuietly(server));
+
+            PooledRunner runner = new PooledRunner(process, supervisor, server.accept());
+            if (runner.frames.readByte() != RunnerProtocol.FRAME_READY) {
+                throw new IOException("Runner sent an unexpected frame while starting");
+            }
+            return runner;
+        } catch (IOException e) {
+            if (process != null) {
+                supervisor.destroyTree(process, "failure");
+            }
+            throw e;
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(socketDir);
+        }
+    }
+
+    private static void closeQuietly(ServerSocketChannel server) {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Outcome of a run on this runner.
+     *
+     * @param outcome  the outcome reported to the caller
+     * @param reusable {@code false} if the runner must be recycled
+     */
+    record Result(RunOutcome outcome, boolean reusable) {
+    }
+
+    /**
+     * Runs a program on this runner. On timeout, or when the listener is
+     * cancelled, the runner process is destroyed and must not be reused.
+     *
+     * @param request  the program to run
+     * @param listener the receiver of the program output
+     * @param io       executor used to read the runner frames
+     * @return the result of the run
+     * @throws IOException          if the runner fails to communicate
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    Result run(RunRequest request, OutputListener listener, ExecutorService io)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        runs++;
+        ProcessUsage.resetPeakRss(process.pid());
+        long cpuBefore = ProcessUsage.cpuTimeMillis(process.toHandle());
+
+        byte[] stdin = request.stdin() != null ? request.stdin() : new byte[0];
+        commands.writeByte(RunnerProtocol.COMMAND_RUN);
+        commands.writeUTF(request.classesDir().toAbsolutePath().toString());
+        commands.writeUTF(request.mainClass());
+        commands.writeInt(stdin.length);
+        commands.write(stdin);
+        commands.flush();
+
+        Future<int[]> exit = io.submit(() -> readFrames(listener));
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(request.timeoutMillis());
+        try {
+            int[] status = awaitExit(exit, listener, deadline);
+            if (status == null) {
+                long cpuTime = cpuSince(cpuBefore);
+                long peakRss = ProcessUsage.peakRssBytes(process.pid());
+                boolean cancelled = listener.isCancelled();
+                supervisor.destroyTree(process, cancelled ? "cancelled" : "timeout");
+                long wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                return new Result(new RunOutcome(-1, !cancelled, wallTime, cpuTime, peakRss), false);
+            }
+            long wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Result(new RunOutcome(status[0], false, wallTime, cpuSince(cpuBefore),
+                    ProcessUsage.peakRssBytes(process.pid())), status[1] == 1);
+        } catch (ExecutionException e) {
+            destroy();
+            throw new IOException("Runner failed while running " + request.mainClass(), e.getCause());
+        } catch (InterruptedException e) {
+            destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the exit frame of a run until the deadline or until the
+     * listener is cancelled.
+     *
+     * @param exit     the reading of the run frames
+     * @param listener the receiver of the program output
+     * @param deadline the {@link System#nanoTime()} at which the run times out
+     * @return the exit code and the reusable flag, or {@code null} if the run
+     *         timed out or was cancelled
+     */
+    private int[] awaitExit(Future<int[]> exit, OutputListener listener, long deadline)
+            throws ExecutionException, InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !listener.isCancelled()) {
+            try {
+                return exit.get(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(CANCEL_CHECK_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Still running
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the CPU time the runner used since a previous reading.
+     *
+     * @param cpuBefore the previous reading, or {@code -1}
+     * @return the CPU time used since, or {@code -1} if unknown
+     */
+    private long cpuSince(long cpuBefore) {
+        long cpuNow = ProcessUsage.cpuTimeMillis(process.toHandle());
+        return cpuBefore < 0 || cpuNow < 0 ? -1 : cpuNow - cpuBefore;
+    }
+
+    /**
+     * Forwards output frames to the listener until the exit frame arrives.
+     *
+     * @param listener the receiver of the program output
+     * @return the exit code and the reusable flag (1 or 0)
+     * @throws IOException if the runner dies before finishing the run or sends
+     *                     a malformed frame
+     */
+    int[] readFrames(OutputListener listener) throws IOException {
+        while (true) {
+            byte type = frames.readByte();
+            if (type == RunnerProtocol.FRAME_EXIT) {
+                int exitCode = frames.readInt();
+                boolean reusable = frames.readBoolean();
+                return new int[] { exitCode, reusable ? 1 : 0 };
+            }
+            if (type != RunnerProtocol.FRAME_STDOUT && type != RunnerProtocol.FRAME_STDERR) {
+                throw new IOException("Unexpected runner frame: " + type);
+            }
+
+            int length = frames.readInt();
+            if (length < 0 || length > payload.length) {
+                throw new IOException("Runner sent a frame of " + length + " bytes");
+            }
+            frames.readFully(payload, 0, length);
+            listener.onOutput(type == RunnerProtocol.FRAME_STDOUT ? OutputChannel.STDOUT : OutputChannel.STDERR,
+                    payload, 0, length);
+        }
+    }
+
+    /**
+     * Checks that the runner answers a ping within the given time.
+     *
+     * @param timeoutMillis maximum time to wait for the answer
+     * @param io            executor used to read the answer
+     * @return {@code true} if the runner is healthy
+     */
+    boolean ping(long timeoutMillis, ExecutorService io) {
+        if (!process.isAlive()) {
+            return false;
+        }
+        try {
+            commands.writeByte(RunnerProtocol.COMMAND_PING);
+            commands.flush();
+            Future<Byte> answer = io.submit(frames::readByte);
+            return answer.get(timeoutMillis, TimeUnit.MILLISECONDS) == RunnerProtocol.FRAME_PONG;
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Kills the runner JVM and any process a program started from it.
+     */
+    void destroy() {
+        supervisor.destroyTree(process, "recycled");
+    }
+
+    /**
+     * Builds the classpath entry pointing at the code of {@link RunnerMain}.
+     *
+     * @return the classpath entry, or {@code null} if the code location is not a
+     *         local file or directory (e.g. in a native image)
+     */
+    static String locateRunnerClasspath() {
+        try {
+            var codeSource = RunnerMain.class.getProtectionDomain().getCodeSource();
+            if (codeSource == null || !"file".equals(codeSource.getLocation().getProtocol())) {
+                return null;
+            }
+            File location = new File(codeSource.getLocation().toURI());
+            return location.exists() ? location.getAbsolutePath() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts and kills every process the application launches: forked programs,
+ * runner JVMs, snippet JVMs and external compilers.
+ *
+ * Killing a process does not kill the processes it started; once their parent
+ * is gone they are adopted by the init process and nothing reclaims them. The
+ * supervisor therefore always kills the whole tree, descendants first, taken
+ * from {@link ProcessHandle#descendants()} while the root is still alive.
+ *
+ * A process started with a lifetime is killed by a periodic sweep once the
+ * lifetime expires, in case the thread owning it never gets to kill it. The
+ * number of live descendants of the application JVM is published as the
+ * {@code execution.process.live} gauge, and no process is started, nor new
+ * execution admitted, while it is at {@code execution.process.max-live}.
+ */
+@ApplicationScoped
+public class ProcessSupervisor {
+
+    private static final Logger logger = LogManager.getLogger(ProcessSupervisor.class);
+
+    private static final long SWEEP_INTERVAL_SECONDS = 5;
+    private static final long KILL_WAIT_MILLIS = 2000;
+    private static final int KILL_ROUNDS = 3;
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    /**
+     * A supervised process and the {@link System#nanoTime()} after which it
+     * is killed, or {@link Long#MAX_VALUE} if it may live forever.
+     */
+    private record Supervised(ProcessHandle handle, long deadline) {
+    }
+
+    private final int maxLive;
+    private final Map<Long, Supervised> supervised = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "process-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MeterRegistry registry;
+    private final Counter refusals;
+
+    @Inject
+    public ProcessSupervisor(MeterRegistry registry,
+            @ConfigProperty(name = "execution.process.max-live", defaultValue = "64") int maxLive) {
+        this.registry = registry;
+        this.maxLive = maxLive;
+
+        Gauge.builder("execution.process.live", this::liveProcesses)
+                .description("Live processes started by the application, directly or not")
+                .register(registry);
+        Gauge.builder("execution.process.max-live", () -> this.maxLive)
+                .description("Live processes above which no new process is started")
+                .register(registry);
+        this.refusals = Counter.builder("execution.process.refused")
+                .description("Processes and executions refused because of the live process ceiling")
+                .register(registry);
+    }
+
+    /**
+     * Starts the periodic sweep when the application starts.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Counts the live descendants of the application JVM, whoever started
+     * them.
+     *
+     * @return the number of live processes
+     */
+    public long liveProcesses() {
+        return ProcessHandle.current().descendants().filter(ProcessHandle::isAlive).count();
+    }
+
+    /**
+     * Rejects a new execution while the live process ceiling is reached.
+     *
+     * @throws ExecutionRejectedException if there are too many live processes
+     */
+    public void ensureCapacity() {
+        if (liveProcesses() >= maxLive) {
+            refusals.increment();
+            throw new ExecutionRejectedException("Too many programs running", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    /**
+     * Starts a process and supervises it until it is killed through
+     * {@link #destroyTree(Process, String)} or the sweep.
+     *
+     * @param builder           the process to start
+     * @param maxLifetimeMillis the time after which the sweep kills the
+     *                          process, or {@code 0} for a process that may
+     *                          live as long as the application
+     * @return the started process
+     * @throws IOException if the process cannot be started or the live process
+     *                     ceiling is reached
+     */
+    public Process start(ProcessBuilder builder, long maxLifetimeMillis) throws IOException {
+        if (liveProcesses() >= maxLive) {
+            refusals.increment();
+            throw new IOException("Refusing to start a process, " + maxLive + " processes are already alive");
+        }
+        Process process = builder.start();
+        supervise(process.toHandle(), maxLifetimeMillis);
+        return process;
+    }
+
+    /**
+     * Supervises a process started by other means, such as the remote JVM of
+     * a {@code jdk.jshell} shell.
+     *
+     * @param handle            the process
+     * @param maxLifetimeMillis the time after which the sweep kills the
+     *                          process, or {@code 0} for no limit
+     */
+    public void supervise(ProcessHandle handle, long maxLifetimeMillis) {
+        long deadline = maxLifetimeMillis > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis)
+                : Long.MAX_VALUE;
+        supervised.put(handle.pid(), new Supervised(handle, deadline));
+        handle.onExit().thenRun(() -> supervised.remove(handle.pid()));
+    }
+
+    /**
+     * Finds a live descendant of the application JVM whose command line
+     * contains the given argument.
+     *
+     * @param argument the argument identifying the process
+     * @return the process, if any
+     */
+    public Optional<ProcessHandle> findDescendant(String argument) {
+        return ProcessHandle.current().descendants()
+                .filter(handle -> handle.info().arguments()
+                        .map(arguments -> List.of(arguments).contains(argument))
+                        .orElse(false))
+                .findFirst();
+    }
+
+    /**
+     * Kills a process and all its descendants, and waits briefly for the
+     * process to be reaped.
+     *
+     * @param process the root of the tree
+     * @param reason  the reason, used as metric tag
+     */
+    public void destroyTree(Process process, String reason) {
+        destroyTree(process.toHandle(), reason);
+        try {
+            if (!process.waitFor(KILL_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Process {} still alive {} ms after being killed", process.pid(), KILL_WAIT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Kills a process and all its descendants without waiting for them, as
+     * processes the application did not start itself cannot be reaped by it.
+     *
+     * @param root   the root of the tree
+     * @param reason the reason, used as metric tag
+     */
+    public void destroyTree(ProcessHandle root, String reason) {
+        int killed = 0;
+        // A process may start children while its tree is being killed
+        for (int round = 0; round < KILL_ROUNDS; round++) {
+            List<ProcessHandle> descendants = root.descendants().toList();
+            if (descendants.isEmpty()) {
+                break;
+            }
+            descendants.forEach(ProcessHandle::destroyForcibly);
+            killed += descendants.size();
+        }
+        if (root.destroyForcibly()) {
+            killed++;
+        }
+        if (killed > 0) {
+            registry.counter("execution.process.killed", "reason", reason).increment(killed);
+        }
+    }
+
+    /**
+     * Kills the processes that are still alive after a process exited, for
+     * programs that start background processes and end without waiting for
+     * them.
+     *
+     * @param orphans the descendants of the exited process, as last seen while
+     *                it was alive
+     * @param reason  the reason, used as metric tag
+     */
+    public void destroyOrphans(List<ProcessHandle> orphans, String reason) {
+        for (ProcessHandle orphan : orphans) {
+            if (orphan.isAlive()) {
+                destroyTree(orphan, reason);
+            }
+        }
+    }
+
+    /**
+     * Kills the supervised processes whose lifetime has expired.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (Supervised process : supervised.values()) {
+            if (process.deadline() != Long.MAX_VALUE && now - process.deadline() > 0) {
+                logger.warn("Killing process {}, alive past its lifetime", process.handle().pid());
+                destroyTree(process.handle(), "expired");
+            }
+        }
+    }
+
+    /**
+     * Kills every supervised process when the application stops.
+     */
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+        supervised.values().forEach(process -> destroyTree(process.handle(), "shutdown"));
+    }
+}
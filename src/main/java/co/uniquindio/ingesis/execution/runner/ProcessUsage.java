@@ -0,0 +1,65 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Reads the resource usage of a running process: CPU time through
+ * {@link ProcessHandle.Info} and peak resident memory through
+ * {@code /proc/<pid>/status}. Values are {@code -1} when the platform does not
+ * provide them or the process is gone.
+ */
+final class ProcessUsage {
+
+    private ProcessUsage() {
+    }
+
+    /**
+     * @param process the process
+     * @return the total CPU time used so far, or {@code -1}
+     */
+    static long cpuTimeMillis(ProcessHandle process) {
+        return process.info().totalCpuDuration().map(Duration::toMillis).orElse(-1L);
+    }
+
+    /**
+     * Reads the peak resident set size (VmHWM) of a process.
+     *
+     * @param pid the process id
+     * @return the peak resident memory in bytes, or {@code -1}
+     */
+    static long peakRssBytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(procFile(pid, "status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    String kilobytes = line.substring("VmHWM:".length()).replace("kB", "").trim();
+                    return Long.parseLong(kilobytes) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux, or the process already exited
+        }
+        return -1;
+    }
+
+    /**
+     * Resets the peak resident set size of a process to its current size, so
+     * that the next reading only reflects what happened since.
+     *
+     * @param pid the process id
+     */
+    static void resetPeakRss(long pid) {
+        try {
+            Files.writeString(procFile(pid, "clear_refs"), "5");
+        } catch (IOException e) {
+            // Not supported; readings then cover the whole life of the process
+        }
+    }
+
+    private static Path procFile(long pid, String name) {
+        return Paths.get("/proc", Long.toString(pid), name);
+    }
+}
@@ -0,0 +1,53 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs compiled programs, either in a JVM separate from the application or,
+ * for trusted examples, in an isolated class loader inside it.
+ */
+public interface ProgramRunner {
+
+    /**
+     * Names how this runner executes programs, to tag its metrics.
+     *
+     * @return the execution mode, such as {@code forked} or {@code pool}
+     */
+    String mode();
+
+    /**
+     * Runs a compiled program, forwarding its output to the listener while it is
+     * produced.
+     *
+     * @param request  the program to run
+     * @param listener the receiver of the program output
+     * @return the outcome of the run
+     * @throws IOException          if the program cannot be started
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting for the program
+     */
+    RunOutcome run(RunRequest request, OutputListener listener) throws IOException, InterruptedException;
+
+    /**
+     * Runs a compiled program several times in sequence, typically with
+     * different standard inputs. Runners able to keep state between runs may
+     * reuse the same JVM for all of them.
+     *
+     * @param requests  the runs, in order
+     * @param listeners the receiver of the output of each run, in the same order
+     * @return the outcome of each run, in the same order
+     * @throws IOException          if the program cannot be started
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting for the program
+     */
+    default List<RunOutcome> runAll(List<RunRequest> requests, List<OutputListener> listeners)
+            throws IOException, InterruptedException {
+        List<RunOutcome> outcomes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            outcomes.add(run(requests.get(i), listeners.get(i)));
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,126 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Standard streams of the application JVM that route each read and write to
+ * the program running on the calling thread.
+ *
+ * A program thread is bound to its {@link OutputListener} and standard input
+ * through inheritable thread locals, so the threads the program starts are
+ * bound too. Threads that are not bound, such as the application's own,
+ * keep using the original streams.
+ */
+final class ProgramStreams {
+
+    private static final InheritableThreadLocal<OutputListener> LISTENER = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<InputStream> STDIN = new InheritableThreadLocal<>();
+    private static final AtomicBoolean installed = new AtomicBoolean();
+
+    private ProgramStreams() {
+    }
+
+    /**
+     * Replaces {@code System.in}, {@code System.out} and {@code System.err} with
+     * the routing streams. Installing them more than once has no effect.
+     */
+    static void install() {
+        if (!installed.compareAndSet(false, true)) {
+            return;
+        }
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setIn(new RoutedInputStream(originalIn));
+        System.setOut(new PrintStream(new RoutedOutputStream(OutputChannel.STDOUT, originalOut), true));
+        System.setErr(new PrintStream(new RoutedOutputStream(OutputChannel.STDERR, originalErr), true));
+    }
+
+    /**
+     * Binds the calling thread, and the threads it starts from now on, to a
+     * program.
+     *
+     * @param listener the receiver of the program output
+     * @param stdin    the bytes fed to the standard input of the program, or
+     *                 {@code null} for an empty input
+     */
+    static void bind(OutputListener listener, byte[] stdin) {
+        LISTENER.set(listener);
+        STDIN.set(new ByteArrayInputStream(stdin != null ? stdin : new byte[0]));
+    }
+
+    /**
+     * Output stream writing to the listener of the calling thread, or to the
+     * original stream for threads not bound to a program.
+     */
+    private static final class RoutedOutputStream extends OutputStream {
+
+        private final OutputChannel channel;
+        private final PrintStream original;
+
+        private RoutedOutputStream(OutputChannel channel, PrintStream original) {
+            this.channel = channel;
+            this.original = original;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) {
+            OutputListener listener = LISTENER.get();
+            if (listener == null) {
+                original.write(data, offset, length);
+            } else if (length > 0) {
+                listener.onOutput(channel, data, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (LISTENER.get() == null) {
+                original.flush();
+            }
+        }
+    }
+
+    /**
+     * Input stream reading from the input of the program of the calling
+     * thread, or from the original stream for threads not bound to a program.
+     */
+    private static final class RoutedInputStream extends InputStream {
+
+        private final InputStream original;
+
+        private RoutedInputStream(InputStream original) {
+            this.original = original;
+        }
+
+        private InputStream current() {
+            InputStream stdin = STDIN.get();
+            return stdin != null ? stdin : original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return current().read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return current().read(buffer, offset, length);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current().available();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package co.uniquindio.ingesis.execution.runner;
+
+/**
+ * Outcome of a program run.
+ *
+ * @param exitCode       the exit code of the program, or {@code -1} if it was
+ *                       stopped before finishing
+ * @param timedOut       {@code true} if the run exceeded its time limit
+ * @param wallTimeMillis the elapsed time of the run in milliseconds
+ * @param cpuTimeMillis  the CPU time consumed by the JVM running the program,
+ *                       or {@code -1} if unknown
+ * @param peakRssBytes   the peak resident memory of the JVM running the
+ *                       program, or {@code -1} if unknown
+ */
+public record RunOutcome(int exitCode, boolean timedOut, long wallTimeMillis, long cpuTimeMillis,
+        long peakRssBytes) {
+}
@@ -0,0 +1,19 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.nio.file.Path;
+
+/**
+ * Request to run a compiled program.
+ *
+ * @param workingDir    the program folder, used as working directory when the
+ *                      runner supports it
+ * @param classesDir    the directory holding the compiled classes
+ * @param mainClass     the fully qualified name of the main class
+ * @param stdin         the bytes fed to the standard input of the program
+ * @param timeoutMillis the maximum wall time of the run in milliseconds
+ * @param profile       the JVM profile of forked runs, or {@code null} for the
+ *                      configured default; pooled runners are already started
+ */
+public record RunRequest(Path workingDir, Path classesDir, String mainClass, byte[] stdin, long timeoutMillis,
+        JvmProfile profile) {
+}
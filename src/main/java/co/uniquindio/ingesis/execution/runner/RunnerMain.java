@@ -0,0 +1,316 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Entry point of the pooled runner JVMs started by {@link RunnerPool}.
+ *
+ * A runner connects to the control socket given as its only argument, waits
+ * for commands on it and runs each program in a fresh class loader on a
+ * dedicated thread group, forwarding everything the program prints to the
+ * application as {@link RunnerProtocol} frames.
+ * {@code System.exit} is trapped so that a program cannot stop the runner.
+ *
+ * After each run the system properties, the default locales and the default
+ * time zone are restored, and every live thread is compared with the threads
+ * of the warm runner: a thread left behind by the program, in any thread
+ * group, makes the runner report itself as not reusable. These checks run in
+ * a JVM the program controls, so the {@link RunnerPool} only hands a runner to
+ * another request when configured to.
+ *
+ * This class runs outside of Quarkus and must only depend on the JDK.
+ */
+public final class RunnerMain {
+
+    private static DataOutputStream protocol;
+    private static volatile Integer trappedExitStatus;
+    private static volatile int lastExitCode;
+
+    private RunnerMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        SocketChannel control = SocketChannel.open(UnixDomainSocketAddress.of(args[0]));
+        protocol = new DataOutputStream(new BufferedOutputStream(RunnerProtocol.outputStream(control)));
+        DataInputStream commands = new DataInputStream(
+                new BufferedInputStream(RunnerProtocol.inputStream(control)));
+
+        PrintStream programOut = new PrintStream(
+                new BufferedOutputStream(new FrameOutputStream(RunnerProtocol.FRAME_STDOUT)), true);
+        PrintStream programErr = new PrintStream(
+                new BufferedOutputStream(new FrameOutputStream(RunnerProtocol.FRAME_STDERR)), true);
+        Properties initialProperties = (Properties) System.getProperties().clone();
+        Locale initialLocale = Locale.getDefault();
+        Locale initialDisplayLocale = Locale.getDefault(Locale.Category.DISPLAY);
+        Locale initialFormatLocale = Locale.getDefault(Locale.Category.FORMAT);
+        TimeZone initialTimeZone = TimeZone.getDefault();
+
+        installExitTrap(Thread.currentThread());
+        warmUp();
+        Set<Thread> runnerThreads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        writeFrame(RunnerProtocol.FRAME_READY);
+
+        int command;
+        while ((command = commands.read()) != -1) {
+            if (command == RunnerProtocol.COMMAND_PING) {
+                writeFrame(RunnerProtocol.FRAME_PONG);
+            } else if (command == RunnerProtocol.COMMAND_RUN) {
+                String classpath = commands.readUTF();
+                String mainClass = commands.readUTF();
+                byte[] stdin = new byte[commands.readInt()];
+                commands.readFully(stdin);
+
+                System.setIn(new ByteArrayInputStream(stdin));
+                System.setOut(programOut);
+                System.setErr(programErr);
+
+                boolean reusable = runProgram(classpath, mainClass, runnerThreads);
+                int exitCode = trappedExitStatus != null ? trappedExitStatus : lastExitCode;
+                programOut.flush();
+                programErr.flush();
+
+                System.setProperties((Properties) initialProperties.clone());
+                Locale.setDefault(initialLocale);
+                Locale.setDefault(Locale.Category.DISPLAY, initialDisplayLocale);
+                Locale.setDefault(Locale.Category.FORMAT, initialFormatLocale);
+                TimeZone.setDefault(initialTimeZone);
+                Thread.setDefaultUncaughtExceptionHandler(null);
+                trappedExitStatus = null;
+
+                synchronized (protocol) {
+                    protocol.writeByte(RunnerProtocol.FRAME_EXIT);
+                    protocol.writeInt(exitCode);
+                    protocol.writeBoolean(reusable);
+                    protocol.flush();
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the main method of a program and waits for every non-daemon thread it
+     * started, as the JVM itself would before exiting.
+     *
+     * @param classpath     the classpath of the program
+     * @param mainClass     the fully qualified name of the main class
+     * @param runnerThreads the threads alive before any program ran
+     * @return {@code true} if the program left no thread behind, so the runner
+     *         can be reused
+     */
+    private static boolean runProgram(String classpath, String mainClass, Set<Thread> runnerThreads)
+            throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            urls.add(Paths.get(entry).toUri().toURL());
+        }
+
+        try (URLClassLoader loader = new URLClassLoader(urls.toArray(new URL[0]),
+                ClassLoader.getPlatformClassLoader())) {
+            ThreadGroup group = new ThreadGroup("program");
+            Thread main = new Thread(group, () -> invokeMain(loader, mainClass), "main");
+            main.setContextClassLoader(loader);
+            lastExitCode = 0;
+            main.start();
+            main.join();
+
+            // Threads may have been started outside the program group, e.g. in its parent
+            for (Thread thread : programThreads(runnerThreads)) {
+                if (!thread.isDaemon()) {
+                    thread.join();
+                }
+            }
+            return programThreads(runnerThreads).isEmpty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Invokes the main method and reports uncaught exceptions the same way the
+     * {@code java} launcher does.
+     *
+     * @param loader    the class loader of the program
+     * @param mainClass the fully qualified name of the main class
+     */
+    private static void invokeMain(ClassLoader loader, String mainClass) {
+        try {
+            Class<?> programClass = Class.forName(mainClass, true, loader);
+            Method main = programClass.getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (!(cause instanceof ExitTrappedException)) {
+                hideRunnerFrames(cause);
+                System.err.print("Exception in thread \"main\" ");
+                cause.printStackTrace();
+                lastExitCode = 1;
+            }
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            System.err.println("Error: Could not find or load main class " + mainClass);
+            lastExitCode = 1;
+        }
+    }
+
+    /**
+     * Removes the reflection and runner frames below the program's main method,
+     * so stack traces look like the ones printed by the {@code java} launcher.
+     *
+     * @param error the uncaught exception
+     */
+    static void hideRunnerFrames(Throwable error) {
+        StackTraceElement[] frames = error.getStackTrace();
+        int end = frames.length;
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i].getClassName().startsWith("jdk.internal.reflect.")
+                    || frames[i].getClassName().equals(Method.class.getName())) {
+                end = i;
+                break;
+            }
+        }
+        StackTraceElement[] visible = new StackTraceElement[end];
+        System.arraycopy(frames, 0, visible, 0, end);
+        error.setStackTrace(visible);
+    }
+
+    static Thread[] listThreads(ThreadGroup group) {
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int count = group.enumerate(threads);
+        Thread[] result = new Thread[count];
+        System.arraycopy(threads, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Lists the live threads that did not exist when the runner became ready.
+     *
+     * @param runnerThreads the threads alive before any program ran
+     * @return the threads started since, by programs or by the JDK on their
+     *         behalf
+     */
+    static List<Thread> programThreads(Set<Thread> runnerThreads) {
+        List<Thread> threads = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && !runnerThreads.contains(thread)) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * Installs a security manager that turns {@code System.exit} calls made by
+     * programs into exceptions, while allowing everything else.
+     *
+     * @param controlThread the thread allowed to really exit the runner
+     */
+    @SuppressWarnings("removal")
+    private static void installExitTrap(Thread controlThread) {
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkExit(int status) {
+                if (Thread.currentThread() != controlThread) {
+                    trappedExitStatus = status;
+                    throw new ExitTrappedException();
+                }
+            }
+
+            @Override
+            public void checkPermission(Permission permission) {
+                // Everything else is allowed
+            }
+
+            @Override
+            public void checkPermission(Permission permission, Object context) {
+                // Everything else is allowed
+            }
+        });
+    }
+
+    /**
+     * Loads the JDK classes most student programs use, so that the first run on
+     * this runner does not pay for it.
+     */
+    private static void warmUp() {
+        String.format("%d %s %.2f", 1, "warm", 1.5);
+        new Scanner("1 2").nextInt();
+        new StringBuilder().append(1).append('a').toString();
+        List.of(3, 1, 2).stream().sorted().map(String::valueOf).reduce("", String::concat);
+    }
+
+    private static void writeFrame(byte type) throws IOException {
+        synchronized (protocol) {
+            protocol.writeByte(type);
+            protocol.flush();
+        }
+    }
+
+    /**
+     * Stream that forwards everything written by the program as output frames.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final byte type;
+
+        private FrameOutputStream(byte type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            synchronized (protocol) {
+                for (int written = 0; written < length; written += RunnerProtocol.MAX_FRAME_BYTES) {
+                    int chunk = Math.min(length - written, RunnerProtocol.MAX_FRAME_BYTES);
+                    protocol.writeByte(type);
+                    protocol.writeInt(chunk);
+                    protocol.write(data, offset + written, chunk);
+                }
+                protocol.flush();
+            }
+        }
+    }
+
+    /**
+     * Thrown in place of exiting the JVM when a program calls
+     * {@code System.exit}.
+     */
+    private static final class ExitTrappedException extends SecurityException {
+
+        private static final long serialVersionUID = 1L;
+
+        private ExitTrappedException() {
+            super("System.exit is not allowed inside the runner");
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of pre-started runner JVMs that execute student programs without paying
+ * the JVM boot time on every request.
+ *
+ * Each runner executes {@link RunnerMain} and runs one program at a time in a
+ * fresh class loader. The runs of one request, such as the test cases of a
+ * program, share a runner as long as it reports no thread left behind. Once
+ * the request ends the runner is recycled (destroyed and replaced by a new
+ * one) when it has served {@code execution.runner.pool.max-runs} runs, 1 by
+ * default: what a program leaves in its JVM can only be checked from inside
+ * that JVM, which the program controls, so a runner is not handed to another
+ * user's request unless configured to. Runners are also recycled on any
+ * timeout, when a program leaves threads behind, and when they fail a health
+ * check.
+ *
+ * Runners are started in a scratch working directory, so programs that access
+ * files through relative paths should be executed with the
+ * {@link ForkedProgramRunner} instead.
+ */
+@ApplicationScoped
+public class RunnerPool implements ProgramRunner {
+
+    private static final Logger logger = LogManager.getLogger(RunnerPool.class);
+
+    private static final long PING_TIMEOUT_MILLIS = 2000;
+    private static final long RESTART_DELAY_SECONDS = 5;
+
+    private final boolean enabled;
+    private final int size;
+    private final int maxRuns;
+    private final String maxHeap;
+    private final long acquireTimeoutSeconds;
+    private final long healthCheckIntervalSeconds;
+    private final String runnerClasspath;
+
+    private final BlockingQueue<PooledRunner> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final ExecutorService io = Executors.newCachedThreadPool(daemonThreads("runner-pool-io"));
+    private final ScheduledExecutorService maintenance = Executors
+            .newSingleThreadScheduledExecutor(daemonThreads("runner-pool-maintenance"));
+
+    private final ProcessSupervisor processSupervisor;
+    private final MeterRegistry registry;
+    private final Timer acquireTimer;
+    private final Counter startFailures;
+
+    private Path scratchDir;
+    private volatile boolean shuttingDown;
+
+    @Inject
+    public RunnerPool(MeterRegistry registry, ProcessSupervisor processSupervisor,
+            @ConfigProperty(name = "execution.runner.mode", defaultValue = "pool") String mode,
+            @ConfigProperty(name = "execution.runner.pool.size", defaultValue = "0") int size,
+            @ConfigProperty(name = "execution.runner.pool.max-runs", defaultValue = "1") int maxRuns,
+            @ConfigProperty(name = "execution.runner.pool.max-heap", defaultValue = "256m") String maxHeap,
+            @ConfigProperty(name = "execution.runner.pool.acquire-timeout-seconds", defaultValue = "30") long acquireTimeoutSeconds,
+            @ConfigProperty(name = "execution.runner.pool.health-check-interval-seconds", defaultValue = "30") long healthCheckIntervalSeconds,
+            @ConfigProperty(name = "execution.runner.pool.classpath") Optional<String> classpath) {
+        this.registry = registry;
+        this.processSupervisor = processSupervisor;
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.maxRuns = maxRuns;
+        this.maxHeap = maxHeap;
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+        this.healthCheckIntervalSeconds = healthCheckIntervalSeconds;
+        this.runnerClasspath = classpath.orElseGet(PooledRunner::locateRunnerClasspath);
+
+        boolean poolMode = "pool".equalsIgnoreCase(mode);
+        if (poolMode && runnerClasspath == null) {
+            logger.warn("Unable to locate the runner classes, programs will run in forked JVMs");
+        }
+        this.enabled = poolMode && runnerClasspath != null;
+
+        Gauge.builder("execution.runner.pool.size", () -> this.size)
+                .description("Configured number of runner JVMs")
+                .register(registry);
+        Gauge.builder("execution.runner.pool.idle", idle::size)
+                .description("Runner JVMs waiting for a program")
+                .register(registry);
+        Gauge.builder("execution.runner.pool.live", live::get)
+                .description("Runner JVMs currently alive")
+                .register(registry);
+        this.acquireTimer = Timer.builder("execution.runner.pool.acquire")
+                .description("Time spent waiting for an idle runner")
+                .register(registry);
+        this.startFailures = Counter.builder("execution.runner.pool.start.failures")
+                .description("Runner JVMs that failed to start")
+                .register(registry);
+    }
+
+    /**
+     * Starts the runners when the application starts.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        scratchDir = Files.createTempDirectory("classroom-runners-");
+        for (int i = 0; i < size; i++) {
+            spawn();
+        }
+        maintenance.scheduleWithFixedDelay(this::checkHealth, healthCheckIntervalSeconds,
+                healthCheckIntervalSeconds, TimeUnit.SECONDS);
+        logger.info("Starting {} runner JVMs", size);
+    }
+
+    /**
+     * Tells whether programs can be executed on the pool.
+     *
+     * @return {@code true} if the pool is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String mode() {
+        return "pool";
+    }
+
+    @Override
+    public RunOutcome run(RunRequest request, OutputListener listener) throws IOException, InterruptedException {
+        return runAll(List.of(request), List.of(listener)).get(0);
+    }
+
+    /**
+     * Runs every request on the same runner JVM, taking a new runner only when
+     * the current one has to be recycled, e.g. after a run times out. The
+     * requests belong to a single user, so the runner is only checked against
+     * {@code max-runs} once they are done.
+     */
+    @Override
+    public List<RunOutcome> runAll(List<RunRequest> requests, List<OutputListener> listeners)
+            throws IOException, InterruptedException {
+        List<RunOutcome> outcomes = new ArrayList<>();
+        PooledRunner runner = null;
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                if (runner == null) {
+                    runner = acquire();
+                }
+                PooledRunner.Result result = null;
+                try {
+                    result = runner.run(requests.get(i), listeners.get(i), io);
+                } finally {
+                    if (result == null) {
+                        recycle(runner, "failure");
+                        runner = null;
+                    }
+                }
+                outcomes.add(result.outcome());
+
+                String recycleReason = recycleReason(result);
+                if (recycleReason != null) {
+                    recycle(runner, recycleReason);
+                    runner = null;
+                }
+            }
+        } finally {
+            if (runner != null && runner.getRuns() >= maxRuns) {
+                recycle(runner, "max-runs");
+            } else if (runner != null) {
+                idle.offer(runner);
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Tells whether a runner must be recycled before the next run of the same
+     * request.
+     *
+     * @param result the result of the last run of the runner
+     * @return the reason, used as metric tag, or {@code null} if the runner can
+     *         be reused
+     */
+    private String recycleReason(PooledRunner.Result result) {
+        if (result.outcome().timedOut()) {
+            return "timeout";
+        }
+        if (!result.reusable()) {
+            return "dirty";
+        }
+        return null;
+    }
+
+    /**
+     * Takes an idle, live runner from the pool.
+     *
+     * @return the runner, owned exclusively by the caller
+     * @throws IOException          if no runner becomes available in time
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    private PooledRunner acquire() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(acquireTimeoutSeconds);
+        try {
+            while (true) {
+                PooledRunner runner = idle.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (runner == null) {
+                    throw new IOException("No program runner available after " + acquireTimeoutSeconds + "s");
+                }
+                if (runner.isAlive()) {
+                    return runner;
+                }
+                recycle(runner, "unhealthy");
+            }
+        } finally {
+            acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Destroys a runner and starts a replacement in the background.
+     *
+     * @param runner the runner to destroy
+     * @param reason the reason, used as metric tag
+     */
+    private void recycle(PooledRunner runner, String reason) {
+        runner.destroy();
+        live.decrementAndGet();
+        registry.counter("execution.runner.pool.recycled", "reason", reason).increment();
+        if (!shuttingDown) {
+            spawn();
+        }
+    }
+
+    /**
+     * Starts a new runner in the background and adds it to the idle queue once it
+     * is warm. Failed starts are retried after a delay.
+     */
+    private void spawn() {
+        io.execute(() -> {
+            try {
+                PooledRunner runner = PooledRunner.start(buildCommand(), scratchDir, processSupervisor);
+                live.incrementAndGet();
+                if (shuttingDown) {
+                    runner.destroy();
+                    live.decrementAndGet();
+                    return;
+                }
+                idle.offer(runner);
+            } catch (IOException e) {
+                startFailures.increment();
+                logger.warn("Unable to start a runner JVM, retrying in {}s", RESTART_DELAY_SECONDS, e);
+                if (!shuttingDown) {
+                    maintenance.schedule(this::spawn, RESTART_DELAY_SECONDS, TimeUnit.SECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds the command line of a runner JVM.
+     *
+     * @return the command and its arguments
+     */
+    private List<String> buildCommand() {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + maxHeap);
+        command.add("-XX:+UseSerialGC");
+        command.add("-Djava.security.manager=allow");
+        command.add("-cp");
+        command.add(runnerClasspath);
+        command.add(RunnerMain.class.getName());
+        return command;
+    }
+
+    /**
+     * Pings every idle runner and recycles the ones that do not answer.
+     */
+    private void checkHealth() {
+        List<PooledRunner> runners = new ArrayList<>();
+        idle.drainTo(runners);
+        for (PooledRunner runner : runners) {
+            if (runner.ping(PING_TIMEOUT_MILLIS, io)) {
+                idle.offer(runner);
+            } else {
+                recycle(runner, "unhealthy");
+            }
+        }
+    }
+
+    /**
+     * Destroys every runner when the application stops.
+     */
+    @PreDestroy
+    void shutdown() {
+        shuttingDown = true;
+        maintenance.shutdownNow();
+        List<PooledRunner> runners = new ArrayList<>();
+        idle.drainTo(runners);
+        runners.forEach(PooledRunner::destroy);
+        io.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Constants of the protocol spoken between the application and the pooled
+ * runner JVMs.
+ *
+ * The protocol runs over a Unix domain socket the runner connects to while
+ * starting, before any program is loaded, and not over the standard streams
+ * of the runner process, which a program can reach through
+ * {@link java.io.FileDescriptor}; those are discarded. The application writes
+ * commands; a run command carries the classpath, the main class and the
+ * standard input of the program. The runner answers with output frames
+ * ({@code type, length, bytes}) of at most {@link #MAX_FRAME_BYTES} followed
+ * by an exit frame carrying the exit code of the program and whether the
+ * runner can be reused. The application recycles a runner that sends a
+ * larger frame.
+ *
+ * This class is shared by both sides and must only depend on the JDK.
+ */
+final class RunnerProtocol {
+
+    static final byte COMMAND_RUN = 'R';
+    static final byte COMMAND_PING = 'P';
+
+    static final byte FRAME_STDOUT = 'O';
+    static final byte FRAME_STDERR = 'E';
+    static final byte FRAME_EXIT = 'X';
+    static final byte FRAME_PONG = 'P';
+    static final byte FRAME_READY = 'Y';
+
+    /**
+     * Largest payload of an output frame; longer writes are split.
+     */
+    static final int MAX_FRAME_BYTES = 64 * 1024;
+
+    private RunnerProtocol() {
+    }
+
+    /**
+     * Reads from a blocking socket channel. Unlike
+     * {@link java.nio.channels.Channels#newInputStream}, reading does not
+     * block writes to the same channel from other threads.
+     *
+     * @param channel the channel, in blocking mode
+     * @return a stream over the channel, closing it when closed
+     */
+    static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] data, int offset, int length) throws IOException {
+                return length == 0 ? 0 : channel.read(ByteBuffer.wrap(data, offset, length));
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Writes to a blocking socket channel without blocking reads from it.
+     *
+     * @param channel the channel, in blocking mode
+     * @return a stream over the channel, closing it when closed
+     */
+    static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] data, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
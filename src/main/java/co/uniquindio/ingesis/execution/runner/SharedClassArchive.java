@@ -0,0 +1,273 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Class-Data Sharing archive of the JDK classes used by student programs,
+ * and the JVM options of each {@link JvmProfile}.
+ *
+ * Every forked program would otherwise load, parse and verify the same core
+ * classes from scratch. When the application starts, a background thread runs
+ * {@link CdsTrainingMain} to record the classes it loads, keeps only the JDK
+ * ones (so the archive does not depend on any classpath) and dumps them into
+ * a static archive at {@code execution.cds.archive-path}. The archive file is
+ * named after the JDK version and reused across restarts as long as the JVM
+ * accepts it, so it is rebuilt after a JDK upgrade.
+ *
+ * When {@code execution.cds.benchmark-runs} is set, the startup of both
+ * profiles is then measured on the training program and recorded in the
+ * {@code execution.jvm.startup} timer; the measurement launches two JVMs per
+ * run, so it is off by default. Until the archive is ready, or if it cannot be
+ * built, {@link JvmProfile#FAST_START} launches without it.
+ */
+@ApplicationScoped
+public class SharedClassArchive {
+
+    private static final Logger logger = LogManager.getLogger(SharedClassArchive.class);
+
+    private static final long STEP_TIMEOUT_SECONDS = 120;
+    private static final String APPLICATION_CLASSES = "co/uniquindio/";
+
+    private final boolean enabled;
+    private final Path archiveFile;
+    private final int benchmarkRuns;
+    private final String fastStartMaxHeap;
+    private final String trainingClasspath;
+
+    private final ProcessSupervisor processSupervisor;
+    private final MeterRegistry registry;
+    private volatile Path archive;
+
+    @Inject
+    public SharedClassArchive(MeterRegistry registry, ProcessSupervisor processSupervisor,
+            @ConfigProperty(name = "execution.cds.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "execution.cds.archive-path") Optional<String> archivePath,
+            @ConfigProperty(name = "execution.cds.benchmark-runs", defaultValue = "0") int benchmarkRuns,
+            @ConfigProperty(name = "execution.jvm.fast-start.max-heap", defaultValue = "64m") String fastStartMaxHeap,
+            @ConfigProperty(name = "execution.runner.pool.classpath") Optional<String> classpath) {
+        this.registry = registry;
+        this.processSupervisor = processSupervisor;
+        this.enabled = enabled;
+        this.archiveFile = archivePath.map(Paths::get).orElseGet(() -> Paths.get(
+                System.getProperty("java.io.tmpdir"), "classroom-cds", "jdk-" + Runtime.version() + ".jsa"));
+        this.benchmarkRuns = benchmarkRuns;
+        this.fastStartMaxHeap = fastStartMaxHeap;
+        this.trainingClasspath = classpath.orElseGet(PooledRunner::locateRunnerClasspath);
+
+        Gauge.builder("execution.jvm.cds.ready", () -> archive != null ? 1 : 0)
+                .description("Whether forked programs start with the shared class archive")
+                .register(registry);
+    }
+
+    /**
+     * Prepares the archive in the background when the application starts, so
+     * that startup is not delayed.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::prepare, "shared-class-archive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the path of the {@code java} launcher of the running JDK, the one
+     * the archive is built for.
+     *
+     * @return the launcher path
+     */
+    public static String javaExecutable() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    /**
+     * Returns the JVM options of a profile, to be placed between the launcher
+     * and the classpath.
+     *
+     * @param profile the profile
+     * @return the options, empty for {@link JvmProfile#DEFAULT}
+     */
+    public List<String> jvmOptions(JvmProfile profile) {
+        List<String> options = new ArrayList<>();
+        if (profile == JvmProfile.FAST_START) {
+            Path ready = archive;
+            if (ready != null) {
+                options.add("-XX:SharedArchiveFile=" + ready);
+                options.add("-Xshare:auto");
+            }
+            options.add("-XX:TieredStopAtLevel=1");
+            options.add("-XX:+UseSerialGC");
+            options.add("-Xmx" + fastStartMaxHeap);
+            options.add("-XX:-UsePerfData");
+        }
+        return options;
+    }
+
+    /**
+     * Reuses or builds the archive, then measures the startup savings if
+     * asked to.
+     */
+    private void prepare() {
+        try {
+            if (isUsable(archiveFile)) {
+                logger.info("Reusing shared class archive {}", archiveFile);
+            } else {
+                long start = System.nanoTime();
+                build();
+                logger.info("Built shared class archive {} in {} ms", archiveFile,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            archive = archiveFile;
+        } catch (IOException e) {
+            logger.warn("Unable to build the shared class archive, fast-start JVMs will run without it", e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (benchmarkRuns > 0) {
+            try {
+                benchmark();
+            } catch (IOException e) {
+                logger.warn("Unable to measure the JVM startup time", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Tells whether an existing archive can be mapped by the running JDK.
+     *
+     * @param file the archive file
+     * @return {@code true} if the JVM starts with the archive required
+     */
+    private boolean isUsable(Path file) throws InterruptedException {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            launch(List.of(javaExecutable(), "-XX:SharedArchiveFile=" + file, "-Xshare:on", "-version"));
+            return true;
+        } catch (IOException e) {
+            logger.info("Discarding unusable shared class archive {}", file);
+            return false;
+        }
+    }
+
+    /**
+     * Records the classes loaded by the training program and dumps the JDK ones
+     * into the archive, replacing it atomically.
+     */
+    private void build() throws IOException, InterruptedException {
+        if (trainingClasspath == null) {
+            throw new IOException("Unable to locate the training program classes");
+        }
+        Path workDir = Files.createTempDirectory("classroom-cds-");
+        try {
+            Path loadedClasses = workDir.resolve("loaded.classlist");
+            launch(List.of(javaExecutable(), "-Xshare:off", "-XX:DumpLoadedClassList=" + loadedClasses,
+                    "-cp", trainingClasspath, CdsTrainingMain.class.getName()));
+
+            Path jdkClasses = workDir.resolve("jdk.classlist");
+            try (Stream<String> lines = Files.lines(loadedClasses)) {
+                Files.write(jdkClasses, lines.filter(line -> !line.contains(APPLICATION_CLASSES)).toList());
+            }
+
+            Files.createDirectories(archiveFile.toAbsolutePath().getParent());
+            Path dumped = workDir.resolve("archive.jsa");
+            launch(List.of(javaExecutable(), "-Xshare:dump", "-XX:SharedClassListFile=" + jdkClasses,
+                    "-XX:SharedArchiveFile=" + dumped));
+            Path staged = Files.createTempFile(archiveFile.toAbsolutePath().getParent(), "archive-", ".tmp");
+            Files.copy(dumped, staged, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(staged, archiveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            try (Stream<Path> paths = Files.walk(workDir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Launches the training program alternately with each profile and records
+     * the wall time of every launch.
+     */
+    private void benchmark() throws IOException, InterruptedException {
+        JvmProfile[] profiles = JvmProfile.values();
+        long[] totals = new long[profiles.length];
+
+        for (int run = 0; run <= benchmarkRuns; run++) {
+            for (int i = 0; i < profiles.length; i++) {
+                List<String> command = new ArrayList<>();
+                command.add(javaExecutable());
+                command.addAll(jvmOptions(profiles[i]));
+                command.addAll(List.of("-cp", trainingClasspath, CdsTrainingMain.class.getName()));
+
+                long start = System.nanoTime();
+                launch(command);
+                long elapsed = System.nanoTime() - start;
+                // The first round only warms up the file system cache
+                if (run > 0) {
+                    totals[i] += elapsed;
+                    Timer.builder("execution.jvm.startup")
+                            .description("Wall time of the training program launched with each JVM profile")
+                            .tag("profile", profiles[i].name().toLowerCase().replace('_', '-'))
+                            .register(registry)
+                            .record(elapsed, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        long defaultMillis = TimeUnit.NANOSECONDS.toMillis(totals[JvmProfile.DEFAULT.ordinal()] / benchmarkRuns);
+        long fastMillis = TimeUnit.NANOSECONDS.toMillis(totals[JvmProfile.FAST_START.ordinal()] / benchmarkRuns);
+        logger.info("JVM startup over {} runs: default {} ms, fast-start {} ms, {} ms saved per run",
+                benchmarkRuns, defaultMillis, fastMillis, defaultMillis - fastMillis);
+    }
+
+    /**
+     * Runs a JVM to completion with no input and its output discarded.
+     *
+     * @param command the command line
+     * @throws IOException if the JVM cannot start, fails or does not finish in
+     *                     time
+     */
+    private void launch(List<String> command) throws IOException, InterruptedException {
+        Process process = processSupervisor.start(new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD), TimeUnit.SECONDS.toMillis(STEP_TIMEOUT_SECONDS));
+        process.getOutputStream().close();
+        if (!process.waitFor(STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            processSupervisor.destroyTree(process, "timeout");
+            throw new IOException("Timed out running " + command);
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("Exit code " + process.exitValue() + " running " + command);
+        }
+    }
+}
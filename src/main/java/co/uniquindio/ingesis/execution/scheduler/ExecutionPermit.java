@@ -0,0 +1,35 @@
+package co.uniquindio.ingesis.execution.scheduler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Execution slot granted by the {@link ExecutionScheduler} to a user, or a
+ * request of the user waiting for an execution already running. Closing the
+ * permit returns the slot; closing it more than once has no effect.
+ */
+public class ExecutionPermit implements AutoCloseable {
+
+    private final ExecutionScheduler scheduler;
+    private final ExecutionScheduler.TenantQueue queue;
+    private final boolean slot;
+    private final long acquiredAt = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    ExecutionPermit(ExecutionScheduler scheduler, ExecutionScheduler.TenantQueue queue, boolean slot) {
+        this.scheduler = scheduler;
+        this.queue = queue;
+        this.slot = slot;
+    }
+
+    @Override
+    public void close() {
+        if (!released.compareAndSet(false, true)) {
+            return;
+        }
+        if (slot) {
+            scheduler.release(queue, (System.nanoTime() - acquiredAt) / 1_000_000);
+        } else {
+            scheduler.leave(queue);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package co.uniquindio.ingesis.execution.scheduler;
+
+import co.uniquindio.ingesis.exception.ExecutionQuotaExceededException;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for program executions, sharing the execution slots
+ * fairly between the users requesting them.
+ *
+ * At most {@code execution.scheduler.slots} executions compile and run at the
+ * same time. Further requests wait in a bounded queue of
+ * {@code execution.scheduler.queue-capacity} entries for at most
+ * {@code execution.scheduler.max-wait-seconds}; when the queue is full, or the
+ * wait expires, the request is rejected right away with an
+ * {@link ExecutionRejectedException} carrying a Retry-After hint estimated from
+ * the recent execution times.
+ *
+ * Waiting requests are queued per {@link ExecutionTenant}, and freed slots go
+ * to the users in weighted round-robin: a teacher gets up to
+ * {@code execution.scheduler.teacher-weight} slots per turn, a student one, so
+ * a user with many queued requests cannot starve the others. A student may
+ * hold at most {@code execution.scheduler.max-per-student} running or queued
+ * executions, and a teacher {@code execution.scheduler.max-per-teacher}
+ * (0 for no limit); further requests are rejected with an
+ * {@link ExecutionQuotaExceededException}.
+ *
+ * A request that waits for the result of an identical execution already
+ * running for another user {@link #join(ExecutionTenant) joins} it: it takes
+ * no slot, but still counts towards the limit of its own user.
+ */
+@ApplicationScoped
+public class ExecutionScheduler {
+
+    private static final double DURATION_SMOOTHING = 0.2;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final int slots;
+    private final int queueCapacity;
+    private final long maxWaitSeconds;
+    private final int maxPerStudent;
+    private final int maxPerTeacher;
+    private final int teacherWeight;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, TenantQueue> tenants = new ConcurrentHashMap<>();
+    private final Deque<TenantQueue> rotation = new ArrayDeque<>();
+    private final Map<String, RoleStats> roleStats = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile double averageDurationMillis = 1000;
+
+    private final MeterRegistry registry;
+
+    @Inject
+    public ExecutionScheduler(MeterRegistry registry,
+            @ConfigProperty(name = "execution.scheduler.slots", defaultValue = "0") int slots,
+            @ConfigProperty(name = "execution.scheduler.queue-capacity", defaultValue = "50") int queueCapacity,
+            @ConfigProperty(name = "execution.scheduler.max-wait-seconds", defaultValue = "30") long maxWaitSeconds,
+            @ConfigProperty(name = "execution.scheduler.max-per-student", defaultValue = "2") int maxPerStudent,
+            @ConfigProperty(name = "execution.scheduler.max-per-teacher", defaultValue = "0") int maxPerTeacher,
+            @ConfigProperty(name = "execution.scheduler.teacher-weight", defaultValue = "3") int teacherWeight) {
+        this.registry = registry;
+        this.slots = slots > 0 ? slots : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+        this.maxWaitSeconds = maxWaitSeconds;
+        this.maxPerStudent = maxPerStudent;
+        this.maxPerTeacher = maxPerTeacher;
+        this.teacherWeight = Math.max(1, teacherWeight);
+
+        Gauge.builder("execution.scheduler.queue.depth", waiting::get)
+                .description("Executions waiting for a slot")
+                .register(registry);
+        Gauge.builder("execution.scheduler.active", running::get)
+                .description("Executions currently holding a slot")
+                .register(registry);
+        Gauge.builder("execution.scheduler.tenants", tenants::size)
+                .description("Users with executions running or waiting for a slot")
+                .register(registry);
+    }
+
+    /**
+     * Waits for an execution slot on behalf of a user.
+     *
+     * @param tenant the user requesting the execution
+     * @return the permit, to be closed once the execution ends
+     * @throws ExecutionQuotaExceededException if the user already holds as many
+     *                                         executions as allowed
+     * @throws ExecutionRejectedException      if the queue is full or no slot
+     *                                         frees up in time
+     */
+    public ExecutionPermit acquire(ExecutionTenant tenant) {
+        RoleStats stats = statsOf(tenant.role());
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            TenantQueue queue = admit(tenant, stats);
+
+            if (running.get() < slots && waiting.get() == 0) {
+                grant(queue);
+                stats.waitTimer.record(0, TimeUnit.NANOSECONDS);
+                return new ExecutionPermit(this, queue, true);
+            }
+
+            if (waiting.get() >= queueCapacity) {
+                removeIfIdle(queue);
+                stats.rejection("queue-full").increment();
+                throw new ExecutionRejectedException("The execution queue is full", estimateRetryAfterSeconds());
+            }
+
+            Waiter waiter = enqueue(queue);
+            try {
+                long deadline = start + TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+                long remaining;
+                while (!waiter.granted && (remaining = deadline - System.nanoTime()) > 0) {
+                    waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!waiter.granted) {
+                    abandon(queue, waiter);
+                    throw new ExecutionRejectedException("Interrupted while waiting for an execution slot",
+                            estimateRetryAfterSeconds());
+                }
+            } finally {
+                stats.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+
+            if (!waiter.granted) {
+                abandon(queue, waiter);
+                stats.rejection("wait-timeout").increment();
+                throw new ExecutionRejectedException("No execution slot became available in time",
+                        estimateRetryAfterSeconds());
+            }
+            return new ExecutionPermit(this, queue, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a request of a user that waits for an execution already
+     * running instead of taking a slot of its own.
+     *
+     * @param tenant the user requesting the execution
+     * @return the permit, to be closed once the request stops waiting
+     * @throws ExecutionQuotaExceededException if the user already holds as many
+     *                                         executions as allowed
+     */
+    public ExecutionPermit join(ExecutionTenant tenant) {
+        RoleStats stats = statsOf(tenant.role());
+        lock.lock();
+        try {
+            TenantQueue queue = admit(tenant, stats);
+            queue.joined++;
+            return new ExecutionPermit(this, queue, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the queue of a user, rejecting the request if the user already
+     * holds as many executions as allowed. Must be called holding the lock.
+     *
+     * @param tenant the user requesting the execution
+     * @param stats  the metrics of the role of the user
+     * @return the queue of the user
+     */
+    private TenantQueue admit(ExecutionTenant tenant, RoleStats stats) {
+        TenantQueue queue = tenants.computeIfAbsent(tenant.id(),
+                id -> new TenantQueue(id, stats, tenant.isTeacher() ? teacherWeight : 1));
+        int limit = tenant.isTeacher() ? maxPerTeacher : maxPerStudent;
+        if (limit > 0 && queue.running + queue.waiters.size() + queue.joined >= limit) {
+            removeIfIdle(queue);
+            stats.rejection("user-limit").increment();
+            throw new ExecutionQuotaExceededException("You already have " + limit
+                    + " executions running or queued", estimateRetryAfterSeconds());
+        }
+        return queue;
+    }
+
+    /**
+     * Returns a slot, hands it to the next waiting user and updates the
+     * average execution time used for the Retry-After estimation.
+     *
+     * @param queue      the queue of the user that held the slot
+     * @param heldMillis the time the slot was held
+     */
+    void release(TenantQueue queue, long heldMillis) {
+        averageDurationMillis += DURATION_SMOOTHING * (heldMillis - averageDurationMillis);
+        lock.lock();
+        try {
+            queue.running--;
+            queue.stats.running.decrementAndGet();
+            running.decrementAndGet();
+            dispatch();
+            removeIfIdle(queue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends a request registered through {@link #join(ExecutionTenant)}.
+     *
+     * @param queue the queue of the user
+     */
+    void leave(TenantQueue queue) {
+        lock.lock();
+        try {
+            queue.joined--;
+            removeIfIdle(queue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands the free slots to the waiting users in weighted round-robin. The
+     * user at the head of the rotation gets slots until it has no more
+     * waiting requests or has used its weight, and then moves to the tail.
+     * Must be called holding the lock.
+     */
+    private void dispatch() {
+        while (running.get() < slots && !rotation.isEmpty()) {
+            TenantQueue next = rotation.peekFirst();
+            Waiter waiter = next.waiters.pollFirst();
+            waiting.decrementAndGet();
+            next.stats.queued.decrementAndGet();
+            grant(next);
+            waiter.granted = true;
+            waiter.condition.signal();
+
+            next.turnGrants++;
+            if (next.waiters.isEmpty() || next.turnGrants >= next.weight) {
+                rotation.pollFirst();
+                next.turnGrants = 0;
+                if (!next.waiters.isEmpty()) {
+                    rotation.addLast(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives a slot to a user. Must be called holding the lock.
+     *
+     * @param queue the queue of the user
+     */
+    private void grant(TenantQueue queue) {
+        queue.running++;
+        queue.stats.running.incrementAndGet();
+        running.incrementAndGet();
+    }
+
+    /**
+     * Queues a request of a user, adding the user to the rotation if it had no
+     * waiting requests. Must be called holding the lock.
+     *
+     * @param queue the queue of the user
+     * @return the queued request
+     */
+    private Waiter enqueue(TenantQueue queue) {
+        Waiter waiter = new Waiter(lock.newCondition());
+        if (queue.waiters.isEmpty()) {
+            rotation.addLast(queue);
+        }
+        queue.waiters.addLast(waiter);
+        queue.stats.queued.incrementAndGet();
+        waiting.incrementAndGet();
+        return waiter;
+    }
+
+    /**
+     * Removes a request that stopped waiting without a slot. Must be called
+     * holding the lock.
+     *
+     * @param queue  the queue of the user
+     * @param waiter the request
+     */
+    private void abandon(TenantQueue queue, Waiter waiter) {
+        queue.waiters.remove(waiter);
+        queue.stats.queued.decrementAndGet();
+        waiting.decrementAndGet();
+        if (queue.waiters.isEmpty()) {
+            rotation.remove(queue);
+            queue.turnGrants = 0;
+        }
+        removeIfIdle(queue);
+    }
+
+    /**
+     * Forgets a user with nothing running nor waiting. Must be called holding
+     * the lock.
+     *
+     * @param queue the queue of the user
+     */
+    private void removeIfIdle(TenantQueue queue) {
+        if (queue.running == 0 && queue.joined == 0 && queue.waiters.isEmpty()) {
+            tenants.remove(queue.id, queue);
+        }
+    }
+
+    private RoleStats statsOf(String role) {
+        return roleStats.computeIfAbsent(role, r -> new RoleStats(registry, r));
+    }
+
+    /**
+     * Estimates when a slot will be available for a new request, assuming the
+     * queued executions take the recent average time.
+     *
+     * @return the suggested delay in seconds, between 1 and 60
+     */
+    private long estimateRetryAfterSeconds() {
+        double drainMillis = averageDurationMillis * (waiting.get() + 1) / slots;
+        long seconds = (long) Math.ceil(drainMillis / 1000);
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+
+    /**
+     * Executions of one user, guarded by the lock of the scheduler.
+     */
+    static final class TenantQueue {
+
+        private final String id;
+        private final RoleStats stats;
+        private final int weight;
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+        private int running;
+        private int joined;
+        private int turnGrants;
+
+        private TenantQueue(String id, RoleStats stats, int weight) {
+            this.id = id;
+            this.stats = stats;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A request waiting for a slot.
+     */
+    private static final class Waiter {
+
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Queue metrics of the users of one role. Users are aggregated by role to
+     * keep the number of time series bounded.
+     */
+    private static final class RoleStats {
+
+        private final MeterRegistry registry;
+        private final String role;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final Timer waitTimer;
+
+        private RoleStats(MeterRegistry registry, String role) {
+            this.registry = registry;
+            this.role = role;
+            Gauge.builder("execution.scheduler.tenant.queued", queued::get)
+                    .description("Executions waiting for a slot, by role of the user")
+                    .tag("role", role)
+                    .register(registry);
+            Gauge.builder("execution.scheduler.tenant.active", running::get)
+                    .description("Executions holding a slot, by role of the user")
+                    .tag("role", role)
+                    .register(registry);
+            this.waitTimer = Timer.builder("execution.scheduler.wait")
+                    .description("Time executions spend waiting for a slot")
+                    .tag("role", role)
+                    .register(registry);
+        }
+
+        private Counter rejection(String reason) {
+            return Counter.builder("execution.scheduler.rejections")
+                    .description("Executions rejected by admission control")
+                    .tag("reason", reason)
+                    .tag("role", role)
+                    .register(registry);
+        }
+    }
+}
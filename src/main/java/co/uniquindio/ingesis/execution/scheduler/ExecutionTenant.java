@@ -0,0 +1,44 @@
+package co.uniquindio.ingesis.execution.scheduler;
+
+/**
+ * The user an execution is requested by, which the {@link ExecutionScheduler}
+ * shares the execution slots between.
+ *
+ * @param id   the identifier of the user, taken from the claims of the token
+ * @param role the role of the user, {@code student} or {@code teacher}
+ */
+public record ExecutionTenant(String id, String role) {
+
+    /**
+     * Tenant of the requests that carry no identity.
+     */
+    public static final ExecutionTenant ANONYMOUS = new ExecutionTenant("anonymous", "anonymous");
+
+    /**
+     * Builds the tenant of a request from the claims set by the
+     * {@code JwtFilter}, preferring the cedula, which identifies students and
+     * teachers alike, over the numeric identifier.
+     *
+     * @param cedula the {@code userCedula} claim, or {@code null}
+     * @param userId the {@code userId} claim, or {@code null}
+     * @param role   the {@code userRole} claim, or {@code null}
+     * @return the tenant, or {@link #ANONYMOUS} if the request has no identity
+     */
+    public static ExecutionTenant of(String cedula, Integer userId, String role) {
+        String normalizedRole = role != null ? role.toLowerCase() : ANONYMOUS.role();
+        if (cedula != null && !cedula.isBlank()) {
+            return new ExecutionTenant(cedula, normalizedRole);
+        }
+        if (userId != null) {
+            return new ExecutionTenant(normalizedRole + "-" + userId, normalizedRole);
+        }
+        return ANONYMOUS;
+    }
+
+    /**
+     * @return {@code true} if the tenant is a teacher
+     */
+    public boolean isTeacher() {
+        return "teacher".equals(role);
+    }
+}
@@ -0,0 +1,15 @@
+package co.uniquindio.ingesis.execution.snippet;
+
+/**
+ * Outcome of one snippet of an evaluation.
+ *
+ * @param source the code of the snippet
+ * @param status {@code valid}, {@code rejected} (does not compile),
+ *               {@code exception} (threw when run) or {@code unresolved}
+ *               (declares something that uses undefined names)
+ * @param value  the value of expressions and variables, or {@code null}
+ * @param error  the compilation errors, the exception or the unresolved
+ *               names, or {@code null} for valid snippets
+ */
+public record SnippetEvaluation(String source, String status, String value, String error) {
+}
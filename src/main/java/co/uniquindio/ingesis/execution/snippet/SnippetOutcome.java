@@ -0,0 +1,13 @@
+package co.uniquindio.ingesis.execution.snippet;
+
+import java.util.List;
+
+/**
+ * Outcome of evaluating a piece of code on a {@link SnippetShell}.
+ *
+ * @param evaluations the outcome of each snippet evaluated, in order
+ * @param timedOut    {@code true} if the evaluation was stopped at its time
+ *                    limit
+ */
+public record SnippetOutcome(List<SnippetEvaluation> evaluations, boolean timedOut) {
+}
@@ -0,0 +1,229 @@
+package co.uniquindio.ingesis.execution.snippet;
+
+import co.uniquindio.ingesis.execution.runner.OutputChannel;
+import co.uniquindio.ingesis.execution.runner.OutputListener;
+import co.uniquindio.ingesis.execution.runner.ProcessSupervisor;
+import jdk.jshell.DeclarationSnippet;
+import jdk.jshell.Diag;
+import jdk.jshell.EvalException;
+import jdk.jshell.JShell;
+import jdk.jshell.JShellException;
+import jdk.jshell.Snippet;
+import jdk.jshell.SnippetEvent;
+import jdk.jshell.SourceCodeAnalysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link JShell} instance of the {@link SnippetShellPool}, whose snippets
+ * run in a JVM of its own.
+ *
+ * The shell starts with the imports of the {@code jshell} tool and is warmed
+ * up before its first and only evaluation.
+ *
+ * The remote JVM is started by {@code jdk.jshell} itself, so it is tagged
+ * with a system property to find its process and hand it to the
+ * {@link ProcessSupervisor}, which kills it, and whatever the snippets
+ * started, when the shell is closed.
+ */
+class SnippetShell {
+
+    /**
+     * Imports the {@code jshell} tool declares on startup.
+     */
+    private static final List<String> DEFAULT_IMPORTS = List.of(
+            "import java.io.*;", "import java.math.*;", "import java.net.*;", "import java.nio.file.*;",
+            "import java.util.*;", "import java.util.concurrent.*;", "import java.util.function.*;",
+            "import java.util.regex.*;", "import java.util.stream.*;");
+
+    /**
+     * Snippets evaluated once on startup so that the compiler and the remote
+     * JVM are warm for the first user.
+     */
+    private static final List<String> WARM_UP = List.of(
+            "int warmUp = 1 + 1;", "System.out.print(\"\");", "List.of(3, 1, 2).stream().sorted().toList()");
+
+    private final JShell shell;
+    private final Optional<ProcessHandle> remote;
+    private final ProcessSupervisor supervisor;
+    private final Set<Snippet> baseline;
+    private final AtomicBoolean alive = new AtomicBoolean(true);
+    private volatile OutputListener listener;
+
+    private SnippetShell(String maxHeap, ProcessSupervisor supervisor) {
+        String tag = "-Dclassroom.snippet.shell=" + UUID.randomUUID();
+        this.shell = JShell.builder()
+                .in(new ByteArrayInputStream(new byte[0]))
+                .out(new PrintStream(new ShellOutput(OutputChannel.STDOUT), true))
+                .err(new PrintStream(new ShellOutput(OutputChannel.STDERR), true))
+                .remoteVMOptions("-Xmx" + maxHeap, "-XX:+UseSerialGC", "-XX:TieredStopAtLevel=1", tag)
+                .build();
+        shell.onShutdown(closed -> alive.set(false));
+        this.supervisor = supervisor;
+        this.remote = supervisor.findDescendant(tag);
+        remote.ifPresent(handle -> supervisor.supervise(handle, 0));
+
+        DEFAULT_IMPORTS.forEach(shell::eval);
+        this.baseline = shell.snippets().collect(Collectors.toSet());
+        WARM_UP.forEach(shell::eval);
+        dropWarmUp();
+    }
+
+    /**
+     * Starts a shell and its remote JVM, and warms them up.
+     *
+     * @param maxHeap    the maximum heap of the remote JVM, e.g. {@code 64m}
+     * @param supervisor the supervisor killing the remote JVM on close
+     * @return the shell, ready to evaluate snippets
+     * @throws IllegalStateException if the remote JVM cannot be started
+     */
+    static SnippetShell start(String maxHeap, ProcessSupervisor supervisor) {
+        return new SnippetShell(maxHeap, supervisor);
+    }
+
+    /**
+     * Evaluates a piece of code, snippet by snippet, until it ends, a snippet
+     * is incomplete or the time limit expires. Evaluation stops at the time
+     * limit, even in the middle of a snippet.
+     *
+     * @param source        the code to evaluate
+     * @param listener      the receiver of what the snippets print
+     * @param timeoutMillis the time limit of the whole evaluation
+     * @param timer         the executor stopping the evaluation at the limit
+     * @return the outcome of each snippet, and whether the limit expired
+     * @throws IllegalStateException if the shell has stopped
+     */
+    SnippetOutcome evaluate(String source, OutputListener listener, long timeoutMillis,
+            ScheduledExecutorService timer) {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        List<SnippetEvaluation> evaluations = new ArrayList<>();
+        this.listener = listener;
+        ScheduledFuture<?> stop = timer.schedule(() -> {
+            timedOut.set(true);
+            shell.stop();
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            String remaining = source;
+            while (!timedOut.get()) {
+                SourceCodeAnalysis.CompletionInfo info = shell.sourceCodeAnalysis().analyzeCompletion(remaining);
+                if (info.completeness() == SourceCodeAnalysis.Completeness.EMPTY) {
+                    break;
+                }
+                // Incomplete code is evaluated as is, to report why it does not compile
+                boolean complete = info.completeness().isComplete();
+                for (SnippetEvent event : shell.eval(complete ? info.source() : remaining)) {
+                    if (event.causeSnippet() == null) {
+                        evaluations.add(describe(event));
+                    }
+                }
+                if (!complete) {
+                    break;
+                }
+                remaining = info.remaining();
+            }
+        } finally {
+            stop.cancel(false);
+            this.listener = null;
+        }
+        return new SnippetOutcome(evaluations, timedOut.get());
+    }
+
+    /**
+     * Drops the warm-up snippets, keeping the default imports.
+     */
+    private void dropWarmUp() {
+        List<Snippet> evaluated = shell.snippets()
+                .filter(snippet -> !baseline.contains(snippet))
+                .filter(snippet -> shell.status(snippet).isActive())
+                .toList();
+        evaluated.forEach(shell::drop);
+    }
+
+    /**
+     * @return {@code true} if the shell and its remote JVM are running
+     */
+    boolean isAlive() {
+        return alive.get();
+    }
+
+    /**
+     * Stops the shell, and kills its remote JVM and every process the snippets
+     * started.
+     */
+    void close() {
+        alive.set(false);
+        // Closing the shell waits for the remote JVM, which may be stuck in a snippet
+        remote.ifPresent(handle -> supervisor.destroyTree(handle, "recycled"));
+        shell.close();
+    }
+
+    private SnippetEvaluation describe(SnippetEvent event) {
+        Snippet snippet = event.snippet();
+        String source = snippet.source().strip();
+        if (event.status() == Snippet.Status.REJECTED) {
+            String diagnostics = shell.diagnostics(snippet)
+                    .filter(Diag::isError)
+                    .map(diag -> diag.getMessage(Locale.ENGLISH))
+                    .collect(Collectors.joining("\n"));
+            return new SnippetEvaluation(source, "rejected", null, diagnostics);
+        }
+        if (event.exception() != null) {
+            return new SnippetEvaluation(source, "exception", null, describe(event.exception()));
+        }
+        if (snippet instanceof DeclarationSnippet declaration
+                && (event.status() == Snippet.Status.RECOVERABLE_DEFINED
+                        || event.status() == Snippet.Status.RECOVERABLE_NOT_DEFINED)) {
+            return new SnippetEvaluation(source, "unresolved", null, "Unresolved references: "
+                    + String.join(", ", shell.unresolvedDependencies(declaration).toList()));
+        }
+        // Statements have no value, but JShell reports an empty one
+        String value = snippet.kind() == Snippet.Kind.STATEMENT ? null : event.value();
+        return new SnippetEvaluation(source, "valid", value, null);
+    }
+
+    private String describe(JShellException exception) {
+        String className = exception instanceof EvalException evalException
+                ? evalException.getExceptionClassName()
+                : exception.getClass().getName();
+        return exception.getMessage() != null ? className + ": " + exception.getMessage() : className;
+    }
+
+    /**
+     * Stream forwarding what the remote JVM prints to the listener of the
+     * current evaluation. Output arriving between evaluations is discarded.
+     */
+    private final class ShellOutput extends OutputStream {
+
+        private final OutputChannel channel;
+
+        private ShellOutput(OutputChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) {
+            OutputListener current = listener;
+            if (current != null && length > 0) {
+                current.onOutput(channel, data, offset, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package co.uniquindio.ingesis.execution.snippet;
+
+import co.uniquindio.ingesis.execution.runner.OutputListener;
+import co.uniquindio.ingesis.execution.runner.ProcessSupervisor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of warm {@code jdk.jshell} shells that evaluate short pieces of code
+ * without uploading and compiling a whole program.
+ *
+ * Each shell runs the snippets in a JVM of its own and evaluates a single
+ * piece of code: snippets may leave threads, system properties, static state
+ * of the JDK classes or open files behind, which dropping them does not undo,
+ * so a shell is never handed to another user. Once an evaluation ends the
+ * shell is recycled (closed and replaced by a new one) in the background, and
+ * the pool keeps {@code execution.snippet.pool.size} warm shells ready so that
+ * the next request does not wait for a JVM to start.
+ */
+@ApplicationScoped
+public class SnippetShellPool {
+
+    private static final Logger logger = LogManager.getLogger(SnippetShellPool.class);
+
+    private static final long RESTART_DELAY_SECONDS = 5;
+
+    private final boolean enabled;
+    private final int size;
+    private final String maxHeap;
+    private final long acquireTimeoutSeconds;
+
+    private final BlockingQueue<SnippetShell> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final ExecutorService io = Executors.newCachedThreadPool(daemonThreads("snippet-pool-io"));
+    private final ScheduledExecutorService timer = Executors
+            .newSingleThreadScheduledExecutor(daemonThreads("snippet-pool-timer"));
+
+    private final ProcessSupervisor processSupervisor;
+    private final MeterRegistry registry;
+    private final Timer acquireTimer;
+    private final Timer evaluationTimer;
+    private final Counter startFailures;
+
+    private volatile boolean shuttingDown;
+
+    @Inject
+    public SnippetShellPool(MeterRegistry registry, ProcessSupervisor processSupervisor,
+            @ConfigProperty(name = "execution.snippet.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "execution.snippet.pool.size", defaultValue = "4") int size,
+            @ConfigProperty(name = "execution.snippet.pool.max-heap", defaultValue = "64m") String maxHeap,
+            @ConfigProperty(name = "execution.snippet.pool.acquire-timeout-seconds", defaultValue = "10") long acquireTimeoutSeconds) {
+        this.registry = registry;
+        this.processSupervisor = processSupervisor;
+        this.enabled = enabled;
+        this.size = size;
+        this.maxHeap = maxHeap;
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+
+        Gauge.builder("execution.snippet.pool.idle", idle::size)
+                .description("Snippet shells waiting for an evaluation")
+                .register(registry);
+        Gauge.builder("execution.snippet.pool.live", live::get)
+                .description("Snippet shells currently alive")
+                .register(registry);
+        this.acquireTimer = Timer.builder("execution.snippet.pool.acquire")
+                .description("Time spent waiting for an idle snippet shell")
+                .register(registry);
+        this.evaluationTimer = Timer.builder("execution.snippet.evaluation")
+                .description("Time spent evaluating snippets")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.startFailures = Counter.builder("execution.snippet.pool.start.failures")
+                .description("Snippet shells that failed to start")
+                .register(registry);
+    }
+
+    /**
+     * Starts the shells when the application starts.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            spawn();
+        }
+        logger.info("Starting {} snippet shells", size);
+    }
+
+    /**
+     * Tells whether snippets can be evaluated.
+     *
+     * @return {@code true} if the pool is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Evaluates a piece of code on an idle shell, which is then replaced.
+     *
+     * @param source        the code to evaluate
+     * @param listener      the receiver of what the snippets print
+     * @param timeoutMillis the time limit of the evaluation
+     * @return the outcome of each snippet
+     * @throws IOException          if no shell becomes available in time or the
+     *                              shell fails
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting for a shell
+     */
+    public SnippetOutcome evaluate(String source, OutputListener listener, long timeoutMillis)
+            throws IOException, InterruptedException {
+        SnippetShell shell = acquire();
+        long start = System.nanoTime();
+        SnippetOutcome outcome;
+        try {
+            outcome = shell.evaluate(source, listener, timeoutMillis, timer);
+        } catch (RuntimeException e) {
+            recycle(shell, "failure");
+            throw new IOException("The snippet shell stopped unexpectedly", e);
+        } finally {
+            evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        recycle(shell, outcome.timedOut() ? "timeout" : "used");
+        return outcome;
+    }
+
+    /**
+     * Takes an idle, live shell from the pool.
+     *
+     * @return the shell, owned exclusively by the caller
+     * @throws IOException          if no shell becomes available in time
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    private SnippetShell acquire() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(acquireTimeoutSeconds);
+        try {
+            while (true) {
+                SnippetShell shell = idle.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (shell == null) {
+                    throw new IOException("No snippet shell available after " + acquireTimeoutSeconds + "s");
+                }
+                if (shell.isAlive()) {
+                    return shell;
+                }
+                recycle(shell, "unhealthy");
+            }
+        } finally {
+            acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Closes a shell and starts a replacement in the background.
+     *
+     * @param shell  the shell to close
+     * @param reason the reason, used as metric tag
+     */
+    private void recycle(SnippetShell shell, String reason) {
+        io.execute(shell::close);
+        live.decrementAndGet();
+        registry.counter("execution.snippet.pool.recycled", "reason", reason).increment();
+        if (!shuttingDown) {
+            spawn();
+        }
+    }
+
+    /**
+     * Starts a new shell in the background and adds it to the idle queue once
+     * it is warm. Failed starts are retried after a delay.
+     */
+    private void spawn() {
+        io.execute(() -> {
+            try {
+                SnippetShell shell = SnippetShell.start(maxHeap, processSupervisor);
+                live.incrementAndGet();
+                if (shuttingDown) {
+                    shell.close();
+                    live.decrementAndGet();
+                    return;
+                }
+                idle.offer(shell);
+            } catch (RuntimeException e) {
+                startFailures.increment();
+                logger.warn("Unable to start a snippet shell, retrying in {}s", RESTART_DELAY_SECONDS, e);
+                if (!shuttingDown) {
+                    timer.schedule(this::spawn, RESTART_DELAY_SECONDS, TimeUnit.SECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Closes every shell when the application stops.
+     */
+    @PreDestroy
+    void shutdown() {
+        shuttingDown = true;
+        timer.shutdownNow();
+        List<SnippetShell> shells = new ArrayList<>();
+        idle.drainTo(shells);
+        shells.forEach(SnippetShell::close);
+        io.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
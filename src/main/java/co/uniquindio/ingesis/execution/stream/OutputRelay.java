@@ -0,0 +1,219 @@
+package co.uniquindio.ingesis.execution.stream;
+
+import co.uniquindio.ingesis.execution.runner.OutputChannel;
+import co.uniquindio.ingesis.execution.runner.OutputListener;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Forwards the output of a running program to a client as named text events,
+ * one event in flight at a time.
+ *
+ * The relay never blocks the thread draining the program: output waiting to
+ * be sent is held in a buffer of at most {@code maxBufferedBytes}, and output
+ * arriving while the buffer is full is dropped and reported to the client with
+ * a {@code dropped} event carrying the number of lost bytes. Consecutive
+ * chunks of the same channel are merged into a single event. Once the client
+ * goes away everything else is discarded.
+ *
+ * Events are named {@code stdout}, {@code stderr}, {@code dropped}, and
+ * finally the name given to {@link #finish(String, String)}.
+ */
+public class OutputRelay implements OutputListener {
+
+    private static final int MAX_EVENT_CHARS = 8192;
+
+    /**
+     * Sends one event to the client.
+     */
+    @FunctionalInterface
+    public interface EventSender {
+
+        /**
+         * @param name the event name
+         * @param data the event payload
+         * @return a stage completed once the event is written, exceptionally if
+         *         the client is gone
+         */
+        CompletionStage<?> send(String name, String data);
+    }
+
+    private record Event(String name, String data, int size, boolean last) {
+    }
+
+    private final int maxBufferedBytes;
+    private final EventSender sender;
+
+    private final Deque<Event> queue = new ArrayDeque<>();
+    private final Map<OutputChannel, CharsetDecoder> decoders = new EnumMap<>(OutputChannel.class);
+    private final Map<OutputChannel, ByteBuffer> leftovers = new EnumMap<>(OutputChannel.class);
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+    private int bufferedBytes;
+    private long droppedBytes;
+    private boolean sending;
+    private boolean closed;
+
+    /**
+     * @param maxBufferedBytes maximum output waiting to be sent
+     * @param sender           the transport of the events
+     */
+    public OutputRelay(int maxBufferedBytes, EventSender sender) {
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.sender = sender;
+    }
+
+    @Override
+    public void onOutput(OutputChannel channel, byte[] data, int offset, int length) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (bufferedBytes + length > maxBufferedBytes) {
+                droppedBytes += length;
+                // A dropped chunk may end in the middle of a character
+                leftovers.remove(channel);
+                return;
+            }
+            reportDropped();
+            enqueue(channel.name().toLowerCase(), decode(channel, data, offset, length), length);
+        }
+        dispatch();
+    }
+
+    /**
+     * The run is cancelled once the client is gone, since its output can no
+     * longer be delivered.
+     */
+    @Override
+    public synchronized boolean isCancelled() {
+        return closed;
+    }
+
+    /**
+     * Sends the final event once the pending output has been sent.
+     *
+     * @param name the name of the final event
+     * @param data the payload of the final event
+     * @return a stage completed once the final event is sent or the client is
+     *         gone
+     */
+    public CompletionStage<Void> finish(String name, String data) {
+        synchronized (this) {
+            if (closed) {
+                return finished;
+            }
+            reportDropped();
+            queue.add(new Event(name, data, 0, true));
+        }
+        dispatch();
+        return finished;
+    }
+
+    /**
+     * Appends output to the queue, merging it with the last queued event of the
+     * same channel.
+     */
+    private void enqueue(String name, String text, int size) {
+        bufferedBytes += size;
+        Event last = queue.peekLast();
+        if (last != null && last.name().equals(name) && last.data().length() + text.length() <= MAX_EVENT_CHARS) {
+            queue.pollLast();
+            queue.add(new Event(name, last.data() + text, last.size() + size, false));
+        } else {
+            queue.add(new Event(name, text, size, false));
+        }
+    }
+
+    private void reportDropped() {
+        if (droppedBytes > 0) {
+            queue.add(new Event("dropped", Long.toString(droppedBytes), 0, false));
+            droppedBytes = 0;
+        }
+    }
+
+    /**
+     * Decodes UTF-8 output, keeping an incomplete trailing character for the
+     * next chunk of the same channel.
+     */
+    private String decode(OutputChannel channel, byte[] data, int offset, int length) {
+        CharsetDecoder decoder = decoders.computeIfAbsent(channel, c -> StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        ByteBuffer leftover = leftovers.remove(channel);
+
+        ByteBuffer in;
+        if (leftover == null) {
+            in = ByteBuffer.wrap(data, offset, length);
+        } else {
+            in = ByteBuffer.allocate(leftover.remaining() + length);
+            in.put(leftover).put(data, offset, length).flip();
+        }
+
+        CharBuffer out = CharBuffer.allocate(in.remaining());
+        decoder.decode(in, out, false);
+        if (in.hasRemaining()) {
+            ByteBuffer rest = ByteBuffer.allocate(in.remaining());
+            rest.put(in).flip();
+            leftovers.put(channel, rest);
+        }
+        return out.flip().toString();
+    }
+
+    /**
+     * Sends the queued events one at a time. Events that complete synchronously
+     * are sent in a loop rather than recursively.
+     */
+    private void dispatch() {
+        while (true) {
+            Event next;
+            synchronized (this) {
+                if (sending || closed || queue.isEmpty()) {
+                    return;
+                }
+                next = queue.poll();
+                sending = true;
+            }
+
+            CompletableFuture<?> sent;
+            try {
+                sent = sender.send(next.name(), next.data()).toCompletableFuture();
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+
+            if (!sent.isDone()) {
+                sent.whenComplete((result, error) -> {
+                    onSent(next, error);
+                    dispatch();
+                });
+                return;
+            }
+            onSent(next, sent.isCompletedExceptionally() ? sent.handle((r, e) -> e).join() : null);
+        }
+    }
+
+    private void onSent(Event event, Throwable error) {
+        synchronized (this) {
+            sending = false;
+            bufferedBytes -= event.size();
+            if (error != null) {
+                closed = true;
+                queue.clear();
+            }
+        }
+        if (error != null || event.last()) {
+            finished.complete(null);
+        }
+    }
+}
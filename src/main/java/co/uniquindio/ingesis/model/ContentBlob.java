@@ -0,0 +1,42 @@
+package co.uniquindio.ingesis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing a file content stored once in the blob store, whatever
+ * the number of programs and examples containing it.
+ * 
+ * The content is identified by its SHA-256 and counts the
+ * {@link StoredFile}s referencing it; the blob is deleted once the
+ * transaction that drops the count to zero has committed.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "blob_contenido")
+public class ContentBlob {
+
+    /**
+     * Hexadecimal SHA-256 of the content, which is also its name in the blob
+     * store.
+     */
+    @Id
+    @Column(name = "hash_sha256", length = 64)
+    private String sha256;
+
+    /**
+     * Size of the content in bytes.
+     */
+    @Column(name = "tamano_bytes", nullable = false)
+    private long sizeBytes;
+
+    /**
+     * Number of stored files referencing the content.
+     */
+    @Column(name = "referencias", nullable = false)
+    private long references;
+}
@@ -63,4 +63,25 @@ public class Example {
      */
     @Column(name = "cedula_profesor", nullable = false)
     private String cedulaProfesor;
+
+    /**
+     * Indicates whether the example is trusted to run inside the application
+     * JVM instead of a JVM of its own.
+     */
+    @Column(name = "ejecucion_en_proceso", nullable = false)
+    private boolean inProcessExecution = false;
+
+    /**
+     * SHA-256 of the ZIP archive as uploaded, kept in the blob store to be
+     * downloaded again unchanged. Null for examples uploaded before it was
+     * kept.
+     */
+    @Column(name = "hash_archivo_original", length = 64)
+    private String originalArchiveSha256;
+
+    /**
+     * Size in bytes of the uploaded ZIP archive.
+     */
+    @Column(name = "tamano_archivo_original")
+    private Long originalArchiveSize;
 }
@@ -67,4 +67,66 @@ public class Program {
      */
     @Column(name = "compartido", nullable = false)
     private boolean shared = false;
+
+    /**
+     * Path, relative to the program folder, of the source file holding the
+     * main method. Null if no main method was found or the program was
+     * uploaded before manifests were indexed.
+     */
+    @Column(name = "archivo_principal")
+    private String mainFile;
+
+    /**
+     * Fully qualified name of the main class.
+     */
+    @Column(name = "clase_principal")
+    private String mainClass;
+
+    /**
+     * Digest of the source tree, used as key of the compiled class cache.
+     * Null if the manifest of the program has not been indexed.
+     */
+    @Column(name = "digest_fuentes", length = 64)
+    private String sourceDigest;
+
+    /**
+     * Indicates whether the sources use file APIs, so the program must run
+     * with its folder as working directory.
+     */
+    @Column(name = "accede_archivos", nullable = false)
+    private boolean accessesFiles = false;
+
+    /**
+     * Indicates whether the sources read the standard input.
+     */
+    @Column(name = "lee_entrada", nullable = false)
+    private boolean readsInput = false;
+
+    /**
+     * Indicates whether the sources use randomness, clocks, threads or the
+     * environment, so two runs may print different results.
+     */
+    @Column(name = "no_determinista", nullable = false)
+    private boolean nondeterministic = false;
+
+    /**
+     * Indicates whether the sources end the JVM explicitly with
+     * {@code System.exit} or {@code Runtime.halt}.
+     */
+    @Column(name = "invoca_exit", nullable = false)
+    private boolean callsExit = false;
+
+    /**
+     * SHA-256 of the ZIP archive as uploaded, kept in the blob store to be
+     * downloaded again unchanged. Null for programs uploaded before it was
+     * kept.
+     */
+    @Column(name = "hash_archivo_original", length = 64)
+    private String originalArchiveSha256;
+
+    /**
+     * Size in bytes of the uploaded ZIP archive.
+     */
+    @Column(name = "tamano_archivo_original")
+    private Long originalArchiveSize;
 }
@@ -0,0 +1,66 @@
+package co.uniquindio.ingesis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing a Java source file of a program, indexed when the
+ * program is uploaded.
+ * 
+ * Together with the entry point stored in {@link Program}, the source files
+ * form the manifest used to execute the program without scanning its folder.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "archivo_fuente")
+public class ProgramSourceFile {
+
+    /**
+     * Unique identifier for the source file.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_archivo_fuente")
+    private Long id;
+
+    /**
+     * The program the file belongs to.
+     */
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "id_programa")
+    private Program program;
+
+    /**
+     * Path of the file relative to the program folder.
+     */
+    @Column(name = "ruta_relativa", nullable = false)
+    private String relativePath;
+
+    /**
+     * Size of the file in bytes.
+     */
+    @Column(name = "tamano_bytes", nullable = false)
+    private long sizeBytes;
+
+    /**
+     * Hexadecimal SHA-256 of the file content.
+     */
+    @Column(name = "hash_sha256", nullable = false, length = 64)
+    private String sha256;
+
+    /**
+     * Package declared by the file, or {@code null} for the default package.
+     */
+    @Column(name = "paquete")
+    private String packageName;
+
+    /**
+     * Indicates whether the file declares a main method.
+     */
+    @Column(name = "tiene_main", nullable = false)
+    private boolean hasMain;
+}
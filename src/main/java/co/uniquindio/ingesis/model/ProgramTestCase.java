@@ -0,0 +1,63 @@
+package co.uniquindio.ingesis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing an input/expected-output pair attached by a teacher to
+ * a program or to an example.
+ * 
+ * Exactly one of {@code program} and {@code example} is set. When the test
+ * cases are run, the program reads {@code input} from its standard input and
+ * its standard output is compared with {@code expectedOutput}.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "caso_prueba")
+public class ProgramTestCase {
+
+    /**
+     * Unique identifier for the test case.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_caso_prueba")
+    private Long id;
+
+    /**
+     * The program the test case belongs to, or {@code null} for an example.
+     */
+    @ManyToOne
+    @JoinColumn(name = "id_programa")
+    private Program program;
+
+    /**
+     * The example the test case belongs to, or {@code null} for a program.
+     */
+    @ManyToOne
+    @JoinColumn(name = "id_ejemplo")
+    private Example example;
+
+    /**
+     * Text fed to the standard input of the program.
+     */
+    @Column(name = "entrada", nullable = false, columnDefinition = "TEXT")
+    private String input;
+
+    /**
+     * Text the program is expected to print on its standard output.
+     */
+    @Column(name = "salida_esperada", nullable = false, columnDefinition = "TEXT")
+    private String expectedOutput;
+
+    /**
+     * Time limit of the test case in milliseconds, or {@code null} for the
+     * default execution time limit.
+     */
+    @Column(name = "tiempo_limite_ms")
+    private Long timeoutMillis;
+}
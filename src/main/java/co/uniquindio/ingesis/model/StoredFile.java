@@ -0,0 +1,63 @@
+package co.uniquindio.ingesis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing a file or directory uploaded with a program or an
+ * example. The files of an owner form the manifest its folder is
+ * materialized from.
+ * 
+ * Exactly one of {@code program} and {@code example} is set. The content of
+ * a file is the {@link ContentBlob} with the same SHA-256; directories have
+ * no content.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "archivo_almacenado")
+public class StoredFile {
+
+    /**
+     * Unique identifier for the stored file.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_archivo_almacenado")
+    private Long id;
+
+    /**
+     * The program the file belongs to, or {@code null} for an example.
+     */
+    @ManyToOne
+    @JoinColumn(name = "id_programa")
+    private Program program;
+
+    /**
+     * The example the file belongs to, or {@code null} for a program.
+     */
+    @ManyToOne
+    @JoinColumn(name = "id_ejemplo")
+    private Example example;
+
+    /**
+     * Path of the file relative to the owner folder.
+     */
+    @Column(name = "ruta_relativa", nullable = false)
+    private String relativePath;
+
+    /**
+     * Hexadecimal SHA-256 of the content, or {@code null} for a directory.
+     */
+    @Column(name = "hash_sha256", length = 64)
+    private String sha256;
+
+    /**
+     * Size of the file in bytes.
+     */
+    @Column(name = "tamano_bytes", nullable = false)
+    private long sizeBytes;
+}
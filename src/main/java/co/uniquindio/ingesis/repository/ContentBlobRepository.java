@@ -0,0 +1,79 @@
+package co.uniquindio.ingesis.repository;
+
+import co.uniquindio.ingesis.model.ContentBlob;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+
+import java.util.List;
+
+/**
+ * Repository for managing ContentBlob entities.
+ */
+@ApplicationScoped
+public class ContentBlobRepository implements PanacheRepositoryBase<ContentBlob, String> {
+
+    /**
+     * Adds a reference to a content, registering the content if it is new.
+     * 
+     * A single upsert, so that concurrent uploads of the same new content do
+     * not both try to insert it. The row stays locked until the transaction
+     * ends, which makes a concurrent release wait.
+     * 
+     * @param sha256    the hexadecimal SHA-256 of the content
+     * @param sizeBytes the size of the content in bytes
+     */
+    public void acquire(String sha256, long sizeBytes) {
+        getEntityManager().createNativeQuery("insert into blob_contenido (hash_sha256, tamano_bytes, referencias) "
+                + "values (?1, ?2, 1) on conflict (hash_sha256) "
+                + "do update set referencias = blob_contenido.referencias + 1")
+                .setParameter(1, sha256)
+                .setParameter(2, sizeBytes)
+                .executeUpdate();
+    }
+
+    /**
+     * Removes a reference to a content. The content is kept, with no
+     * references, until {@link #collect(String)} deletes it once the
+     * transaction has committed.
+     * 
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @return {@code true} if the content is no longer referenced
+     */
+    public boolean release(String sha256) {
+        ContentBlob blob = findById(sha256, LockModeType.PESSIMISTIC_WRITE);
+        if (blob == null) {
+            return false;
+        }
+        blob.setReferences(blob.getReferences() - 1);
+        return blob.getReferences() <= 0;
+    }
+
+    /**
+     * Deletes a content if nothing references it. The row stays locked until
+     * the transaction ends, which makes a concurrent upload of the same
+     * content wait and then register it again.
+     * 
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @return {@code true} if the content was deleted
+     */
+    public boolean collect(String sha256) {
+        ContentBlob blob = findById(sha256, LockModeType.PESSIMISTIC_WRITE);
+        if (blob == null || blob.getReferences() > 0) {
+            return false;
+        }
+        delete(blob);
+        flush();
+        return true;
+    }
+
+    /**
+     * Lists the contents nothing references, left behind when a node stopped
+     * before deleting them.
+     * 
+     * @return the hexadecimal SHA-256 of each content
+     */
+    public List<String> findUnreferenced() {
+        return find("references <= 0").stream().map(ContentBlob::getSha256).toList();
+    }
+}
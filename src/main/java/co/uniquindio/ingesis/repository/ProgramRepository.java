@@ -53,6 +53,17 @@ public class ProgramRepository implements PanacheRepository<Program> {
         return find("code", code).firstResultOptional();
     }
 
+    /**
+     * Finds all programs whose code starts with the given prefix.
+     * 
+     * @param prefix beginning of the program code, matched literally
+     * @return list of matching programs ordered by code
+     */
+    public List<Program> findByCodePrefix(String prefix) {
+        String escaped = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return list("code like ?1 escape '\\' order by code", escaped + "%");
+    }
+
     /**
      * Checks if a program exists for a specific student by program code.
      * 
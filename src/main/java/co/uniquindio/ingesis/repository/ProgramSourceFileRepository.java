@@ -0,0 +1,34 @@
+package co.uniquindio.ingesis.repository;
+
+import co.uniquindio.ingesis.model.ProgramSourceFile;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+
+/**
+ * Repository for managing ProgramSourceFile entities.
+ */
+@ApplicationScoped
+public class ProgramSourceFileRepository implements PanacheRepository<ProgramSourceFile> {
+
+    /**
+     * Find all source files of a program, in upload order.
+     * 
+     * @param programId the ID of the program
+     * @return list of source files of the program
+     */
+    public List<ProgramSourceFile> findByProgramId(Integer programId) {
+        return list("program.id = ?1 order by id", programId);
+    }
+
+    /**
+     * Delete all source files of a program.
+     * 
+     * @param programId the ID of the program
+     * @return number of deleted source files
+     */
+    public long deleteByProgramId(Integer programId) {
+        return delete("program.id", programId);
+    }
+}
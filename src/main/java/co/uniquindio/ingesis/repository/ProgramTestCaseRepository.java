@@ -0,0 +1,54 @@
+package co.uniquindio.ingesis.repository;
+
+import co.uniquindio.ingesis.model.ProgramTestCase;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+
+/**
+ * Repository for managing ProgramTestCase entities.
+ */
+@ApplicationScoped
+public class ProgramTestCaseRepository implements PanacheRepository<ProgramTestCase> {
+
+    /**
+     * Find all test cases of a program, in creation order.
+     * 
+     * @param programId the ID of the program
+     * @return list of test cases of the program
+     */
+    public List<ProgramTestCase> findByProgramId(Integer programId) {
+        return list("program.id = ?1 order by id", programId);
+    }
+
+    /**
+     * Find all test cases of an example, in creation order.
+     * 
+     * @param exampleId the ID of the example
+     * @return list of test cases of the example
+     */
+    public List<ProgramTestCase> findByExampleId(Integer exampleId) {
+        return list("example.id = ?1 order by id", exampleId);
+    }
+
+    /**
+     * Delete all test cases of a program.
+     * 
+     * @param programId the ID of the program
+     * @return number of deleted test cases
+     */
+    public long deleteByProgramId(Integer programId) {
+        return delete("program.id", programId);
+    }
+
+    /**
+     * Delete all test cases of an example.
+     * 
+     * @param exampleId the ID of the example
+     * @return number of deleted test cases
+     */
+    public long deleteByExampleId(Integer exampleId) {
+        return delete("example.id", exampleId);
+    }
+}
@@ -0,0 +1,65 @@
+package co.uniquindio.ingesis.repository;
+
+import co.uniquindio.ingesis.model.StoredFile;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+
+/**
+ * Repository for managing StoredFile entities.
+ */
+@ApplicationScoped
+public class StoredFileRepository implements PanacheRepository<StoredFile> {
+
+    /**
+     * Find all stored files of a program, in upload order.
+     * 
+     * @param programId the ID of the program
+     * @return list of stored files of the program
+     */
+    public List<StoredFile> findByProgramId(Integer programId) {
+        return list("program.id = ?1 order by id", programId);
+    }
+
+    /**
+     * Find all stored files of the program with the given code, in upload
+     * order.
+     * 
+     * @param code the code of the program
+     * @return list of stored files of the program
+     */
+    public List<StoredFile> findByProgramCode(String code) {
+        return list("program.code = ?1 order by id", code);
+    }
+
+    /**
+     * Find all stored files of an example, in upload order.
+     * 
+     * @param exampleId the ID of the example
+     * @return list of stored files of the example
+     */
+    public List<StoredFile> findByExampleId(Integer exampleId) {
+        return list("example.id = ?1 order by id", exampleId);
+    }
+
+    /**
+     * Delete all stored files of a program.
+     * 
+     * @param programId the ID of the program
+     * @return number of deleted stored files
+     */
+    public long deleteByProgramId(Integer programId) {
+        return delete("program.id", programId);
+    }
+
+    /**
+     * Delete all stored files of an example.
+     * 
+     * @param exampleId the ID of the example
+     * @return number of deleted stored files
+     */
+    public long deleteByExampleId(Integer exampleId) {
+        return delete("example.id", exampleId);
+    }
+}
@@ -0,0 +1,117 @@
+package co.uniquindio.ingesis.resource;
+
+import co.uniquindio.ingesis.storage.StoredArchive;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.PathPart;
+
+import java.nio.file.Path;
+
+/**
+ * Builds the download responses of uploaded archives kept in the blob store.
+ *
+ * The file is returned as the entity, so the HTTP layer sends it from the
+ * file system without copying it through the application. The SHA-256 of the
+ * archive is its strong ETag: a client holding the same archive gets
+ * {@code 304 Not Modified}, and an interrupted download can be resumed with a
+ * single {@code Range} of bytes, answered with {@code 206 Partial Content}.
+ * Requests for several ranges get the whole archive.
+ */
+final class ArchiveDownloads {
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private ArchiveDownloads() {
+    }
+
+    /**
+     * Answers the download of an uploaded archive.
+     *
+     * @param request the request, to evaluate its preconditions
+     * @param headers the headers of the request
+     * @param file    the file of the archive
+     * @param archive the archive, whose path is the name offered to the client
+     * @return the whole archive, a range of it, or a status without body
+     */
+    static Response serve(Request request, HttpHeaders headers, Path file, StoredArchive.Entry archive) {
+        EntityTag tag = new EntityTag(archive.sha256());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.header("Accept-Ranges", BYTES_UNIT).build();
+        }
+
+        long size = archive.sizeBytes();
+        String range = headers.getHeaderString("Range");
+        String ifRange = headers.getHeaderString("If-Range");
+        // A range only applies to the version the client already has part of
+        boolean partial = range != null && (ifRange == null || ifRange.equals("\"" + archive.sha256() + "\""));
+        long[] bounds = partial ? parseRange(range, size) : null;
+
+        Response.ResponseBuilder response;
+        if (bounds == null) {
+            response = Response.ok(file.toFile());
+        } else if (bounds.length == 0) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", BYTES_UNIT + " */" + size)
+                    .tag(tag)
+                    .build();
+        } else {
+            long length = bounds[1] - bounds[0] + 1;
+            response = Response.status(Response.Status.PARTIAL_CONTENT)
+                    .entity(new PathPart(file, bounds[0], length))
+                    .header("Content-Range", BYTES_UNIT + " " + bounds[0] + "-" + bounds[1] + "/" + size);
+        }
+        return response
+                .tag(tag)
+                .header("Accept-Ranges", BYTES_UNIT)
+                .header("Content-Disposition", "attachment; filename=\"" + archive.path() + "\"")
+                .build();
+    }
+
+    /**
+     * Reads a {@code Range} header holding a single range of bytes.
+     *
+     * @param header the header, e.g. {@code bytes=100-199}, {@code bytes=100-}
+     *               or {@code bytes=-100}
+     * @param size   the size of the archive
+     * @return the first and last byte of the range, an empty array if the
+     *         range is beyond the archive, or {@code null} if the header must
+     *         be ignored and the whole archive sent
+     */
+    static long[] parseRange(String header, long size) {
+        String spec = header.trim();
+        if (!spec.regionMatches(true, 0, BYTES_UNIT + "=", 0, BYTES_UNIT.length() + 1)) {
+            return null;
+        }
+        spec = spec.substring(BYTES_UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last bytes of the archive
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return new long[0];
+                }
+                return new long[] { Math.max(0, size - suffix), size - 1 };
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            if (start >= size) {
+                return new long[0];
+            }
+            if (end < start) {
+                return null;
+            }
+            return new long[] { start, Math.min(end, size - 1) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
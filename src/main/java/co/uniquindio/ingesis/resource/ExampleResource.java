@@ -2,17 +2,24 @@ package co.uniquindio.ingesis.resource;
 
 import co.uniquindio.ingesis.dto.ExampleResource.ExampleDto;
 import co.uniquindio.ingesis.service.interfaces.ExampleServiceInterface;
+import co.uniquindio.ingesis.storage.ArchiveCache;
+import co.uniquindio.ingesis.storage.SourceArchiveStore;
+import co.uniquindio.ingesis.storage.StorageLayout;
+import co.uniquindio.ingesis.storage.StoredArchive;
 import jakarta.annotation.security.PermitAll;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.io.*;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Optional;
 
 /**
  * REST resource for managing code examples.
@@ -31,6 +38,15 @@ public class ExampleResource {
         this.exampleService = exampleService;
     }
 
+    @Inject
+    SourceArchiveStore sourceArchiveStore;
+
+    @Inject
+    ArchiveCache archiveCache;
+
+    @Inject
+    StorageLayout storageLayout;
+
     /**
      * Creates a new example along with its ZIP file.
      *
@@ -40,8 +56,11 @@ public class ExampleResource {
      * @param content        Example content/description
      * @param category       Example category (e.g., Loops, Arrays)
      * @param difficulty     Difficulty level of the example
+     * @param inProcess      Whether the example runs inside the application
+     *                       JVM; only teachers may enable it
      * @param requestContext Request context to extract user identity
-     * @return Response indicating the result of the operation
+     * @return Response indicating the result of the operation, or 403 if a
+     *         user other than a teacher enables the in-process mode
      */
     @POST
     @Path("/update")
@@ -53,12 +72,17 @@ public class ExampleResource {
             @FormParam("content") String content,
             @FormParam("category") String category,
             @FormParam("difficulty") Integer difficulty,
+            @FormParam("inProcess") Boolean inProcess,
             @Context ContainerRequestContext requestContext) {
         try {
             String cedulaProfesor = (String) requestContext.getProperty("userCedula");
-            ExampleDto exampleDto = new ExampleDto(id, title, content, category, difficulty, cedulaProfesor);
-            String response = exampleService.addExample(exampleDto, zipInputStream);
+            ExampleDto exampleDto = new ExampleDto(id, title, content, category, difficulty, cedulaProfesor,
+                    inProcess);
+            String response = exampleService.addExample(exampleDto, zipInputStream,
+                    (String) requestContext.getProperty("userRole"));
             return Response.ok(response).build();
+        } catch (ForbiddenException e) {
+            return Response.status(Response.Status.FORBIDDEN).entity(e.getMessage()).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
@@ -74,7 +98,7 @@ public class ExampleResource {
     @Path("/{id}")
     public Response getExample(@PathParam("id") Integer id) {
         try {
-            ExampleDto example = exampleService.getExample(new ExampleDto(id, "", "", "", 0, ""));
+            ExampleDto example = exampleService.getExample(new ExampleDto(id, "", "", "", 0, "", null));
             return Response.ok(example).build();
         } catch (Exception e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
@@ -90,8 +114,12 @@ public class ExampleResource {
      * @param content        New content/description
      * @param category       New category
      * @param difficulty     New difficulty level
+     * @param inProcess      Whether the example runs inside the application
+     *                       JVM, or null to keep the current setting; only
+     *                       teachers may enable it
      * @param requestContext Request context to extract user identity
-     * @return Response with update result
+     * @return Response with update result, or 403 if a user other than a
+     *         teacher enables the in-process mode
      */
     @PUT
     @Path("/update/{id}")
@@ -103,12 +131,17 @@ public class ExampleResource {
             @FormParam("content") String content,
             @FormParam("category") String category,
             @FormParam("difficulty") Integer difficulty,
+            @FormParam("inProcess") Boolean inProcess,
             @Context ContainerRequestContext requestContext) {
         try {
             String cedulaProfesor = (String) requestContext.getProperty("userCedula");
-            ExampleDto exampleDto = new ExampleDto(id, title, content, category, difficulty, cedulaProfesor);
-            String response = exampleService.updateExample(exampleDto, zipInputStream);
+            ExampleDto exampleDto = new ExampleDto(id, title, content, category, difficulty, cedulaProfesor,
+                    inProcess);
+            String response = exampleService.updateExample(exampleDto, zipInputStream,
+                    (String) requestContext.getProperty("userRole"));
             return Response.ok(response).build();
+        } catch (ForbiddenException e) {
+            return Response.status(Response.Status.FORBIDDEN).entity(e.getMessage()).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
@@ -178,71 +211,57 @@ public class ExampleResource {
         return exampleService.getStudentsAssignedToExample(exampleId);
     }
 
-    private static final String EXAMPLES_BASE_DIR = "/deployments/ejemplos";
-
     /**
-     * Downloads an example's files as a ZIP archive.
+     * Downloads an example's files as a ZIP archive. The archive the example
+     * was uploaded as is sent unchanged, with range and conditional request
+     * support; examples uploaded before archives were kept get an archive
+     * streamed while it is built, and repeated downloads of the same files
+     * are served from the prebuilt archive.
      *
      * @param exampleId Example ID
+     * @param request   The request, to evaluate its preconditions
+     * @param headers   The headers of the request
      * @return ZIP file containing the example's content
      */
     @GET
     @Path("/ejemplo/{exampleId}/download")
     @Produces("application/zip")
-    public Response downloadExampleAsZip(@PathParam("exampleId") String exampleId) {
-        File exampleFolder = new File(EXAMPLES_BASE_DIR, exampleId);
-
-        if (!exampleFolder.exists() || !exampleFolder.isDirectory()) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Example folder not found").build();
-        }
-
+    public Response downloadExampleAsZip(@PathParam("exampleId") String exampleId,
+            @Context Request request, @Context HttpHeaders headers) {
+        String owner = "example-" + exampleId;
+        List<StoredArchive.Entry> entries;
         try {
-            File zipFile = File.createTempFile("example-" + exampleId + "-", ".zip");
-
-            try (FileOutputStream fos = new FileOutputStream(zipFile);
-                    ZipOutputStream zos = new ZipOutputStream(fos)) {
-                zipFolderRecursive(exampleFolder, exampleFolder, zos);
+            Optional<StoredArchive.Entry> original = sourceArchiveStore.findExampleOriginal(Integer.valueOf(exampleId));
+            if (original.isPresent()) {
+                return ArchiveDownloads.serve(request, headers, sourceArchiveStore.locate(original.get()),
+                        original.get());
             }
-
-            return Response.ok(zipFile)
-                    .header("Content-Disposition", "attachment; filename=\"example-" + exampleId + ".zip\"")
-                    .build();
-
+            entries = sourceArchiveStore.findExampleEntries(Integer.valueOf(exampleId));
+        } catch (NumberFormatException e) {
+            entries = List.of();
         } catch (IOException e) {
-            e.printStackTrace();
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("Error creating ZIP file for the example").build();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
-    }
 
-    /**
-     * Recursively compresses a folder and its subdirectories into a ZIP output
-     * stream.
-     *
-     * @param baseFolder  Base folder to calculate relative paths
-     * @param currentFile Current file or folder being processed
-     * @param zos         Output stream to write ZIP entries
-     * @throws IOException if an I/O error occurs
-     */
-    private void zipFolderRecursive(File baseFolder, File currentFile, ZipOutputStream zos) throws IOException {
-        for (File file : currentFile.listFiles()) {
-            if (file.isDirectory()) {
-                zipFolderRecursive(baseFolder, file, zos);
-            } else {
-                String relativePath = baseFolder.toURI().relativize(file.toURI()).getPath();
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    ZipEntry zipEntry = new ZipEntry(relativePath);
-                    zos.putNextEntry(zipEntry);
-
-                    byte[] buffer = new byte[1024];
-                    int len;
-                    while ((len = fis.read(buffer)) > 0) {
-                        zos.write(buffer, 0, len);
-                    }
-                    zos.closeEntry();
-                }
+        Object archive;
+        if (!entries.isEmpty()) {
+            List<StoredArchive.Entry> files = entries;
+            Optional<java.nio.file.Path> prebuilt = archiveCache.find(owner, files);
+            archive = prebuilt.isPresent()
+                    ? prebuilt.get().toFile()
+                    : (StreamingOutput) output -> archiveCache.write(owner, files, output);
+        } else {
+            // Examples uploaded before the blob store only have their folder
+            File exampleFolder = storageLayout.examplesDir().resolve(exampleId).toFile();
+            if (!exampleFolder.isDirectory()) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity("Example folder not found").build();
             }
+            archive = (StreamingOutput) output -> archiveCache.writeFolder(exampleFolder.toPath(), output);
         }
+
+        return Response.ok(archive)
+                .header("Content-Disposition", "attachment; filename=\"example-" + exampleId + ".zip\"")
+                .build();
     }
 }
@@ -1,12 +1,35 @@
 package co.uniquindio.ingesis.resource;
 
 
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchExecutionRequestDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchItemResultDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchSummaryDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionJobDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionResultDto;
+import co.uniquindio.ingesis.dto.responses.ErrorResponse;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.execution.runner.JvmProfile;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+import co.uniquindio.ingesis.execution.stream.OutputRelay;
+import co.uniquindio.ingesis.service.interfaces.BatchExecutionServiceInterface;
 import co.uniquindio.ingesis.service.interfaces.ExecutionServiceInterface;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Recurso REST para la ejecución de programas Java.
@@ -16,20 +39,205 @@ import jakarta.ws.rs.core.Response;
 @Produces(MediaType.APPLICATION_JSON)
 public class ExecutionResource {
 
+    /**
+     * Espera máxima de un long-poll, por debajo del tiempo de inactividad del
+     * proxy.
+     */
+    private static final long MAX_WAIT_SECONDS = 25;
+
     @Inject
     ExecutionServiceInterface executionService;
 
+    @Inject
+    BatchExecutionServiceInterface batchExecutionService;
+
+    @ConfigProperty(name = "execution.stream.buffer-bytes", defaultValue = "65536")
+    int streamBufferBytes;
+
     /**
      * Ejecuta un programa Java almacenado en una carpeta específica.
      *
      * @param folderName Nombre del directorio dentro de "programs/" donde está el archivo Java.
-     * @return Salida de la ejecución (stdout o errores).
+     * @param version    Versión publicada de los archivos a ejecutar; si se
+     *                   omite se ejecuta la actual.
+     * @param profile    Perfil de la JVM ({@code fast-start} o {@code default})
+     *                   cuando el programa se ejecuta en su propia JVM; si se
+     *                   omite se usa el configurado.
+     * @param fresh      Si es {@code true}, ejecuta el programa aunque haya un
+     *                   resultado memorizado de las mismas fuentes.
+     * @param requestContext Contexto de la petición, con los datos del usuario.
+     * @return Salida estándar y de errores por separado, código de salida y
+     *         tiempos de la ejecución, 429 si el usuario ya tiene demasiadas
+     *         ejecuciones en curso, o 503 con Retry-After si el servidor no
+     *         admite más ejecuciones.
      */
     @POST
     @Path("/execute/{folderName}")
     @RolesAllowed({"student"})
-    public Response executeProgram(@PathParam("folderName") String folderName) {
-        String result = executionService.executeProgram(folderName);
-        return Response.ok().entity(result).build();
+    public Response executeProgram(@PathParam("folderName") String folderName,
+            @QueryParam("version") String version,
+            @QueryParam("profile") JvmProfile profile, @QueryParam("fresh") @DefaultValue("false") boolean fresh,
+            @Context ContainerRequestContext requestContext) {
+        try {
+            ExecutionResultDto result = executionService.executeProgram(folderName, version, profile, fresh,
+                    tenantOf(requestContext));
+            return Response.ok().entity(result).build();
+        } catch (ExecutionRejectedException e) {
+            return buildRejectedResponse(e);
+        }
+    }
+
+    /**
+     * Ejecuta un programa Java y transmite su salida como Server-Sent Events a
+     * medida que se produce.
+     *
+     * Se emiten eventos {@code stdout} y {@code stderr} con el texto impreso,
+     * {@code dropped} con los bytes descartados cuando el cliente no lee lo
+     * bastante rápido, y al final un evento {@code exit} con el resultado de la
+     * ejecución, o {@code rejected} si el servidor no admite más ejecuciones.
+     * Se usa GET para que el navegador pueda consumirlo con EventSource.
+     *
+     * @param folderName Nombre del directorio dentro de "programs/" donde está el archivo Java.
+     * @param version    Versión publicada de los archivos a ejecutar; si se
+     *                   omite se ejecuta la actual.
+     * @param sink       Canal de eventos hacia el cliente.
+     * @param sse        Fábrica de eventos.
+     * @param requestContext Contexto de la petición, con los datos del usuario.
+     */
+    @GET
+    @Path("/stream/{folderName}")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RolesAllowed({"student"})
+    public void streamProgram(@PathParam("folderName") String folderName,
+            @QueryParam("version") String version, @Context SseEventSink sink, @Context Sse sse, @Context ContainerRequestContext requestContext) {
+        OutputRelay relay = new OutputRelay(streamBufferBytes,
+                (name, data) -> sink.send(sse.newEventBuilder().name(name).data(data).build()));
+
+        String eventName;
+        String result;
+        try {
+            result = executionService.streamProgram(folderName, version, tenantOf(requestContext), relay);
+            eventName = "exit";
+        } catch (ExecutionRejectedException e) {
+            result = e.getMessage() + ". Retry after " + e.getRetryAfterSeconds() + "s";
+            eventName = "rejected";
+        }
+        relay.finish(eventName, result).whenComplete((ignored, error) -> sink.close());
+    }
+
+    /**
+     * Ejecuta en paralelo todos los programas seleccionados (por código, prefijo
+     * de código o estudiantes) y transmite como Server-Sent Events un evento
+     * {@code result} por programa a medida que termina y un evento final
+     * {@code summary} con los totales y el rendimiento del lote.
+     *
+     * @param request Selección de programas a ejecutar.
+     * @param sink    Canal de eventos hacia el cliente.
+     * @param sse     Fábrica de eventos.
+     * @param requestContext Contexto de la petición, con los datos del docente.
+     */
+    @POST
+    @Path("/batch")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RolesAllowed({"teacher"})
+    public void executeBatch(BatchExecutionRequestDto request, @Context SseEventSink sink, @Context Sse sse,
+            @Context ContainerRequestContext requestContext) {
+        // Events are chained so that they reach the client in order, whatever thread produced them
+        ReentrantLock lock = new ReentrantLock();
+        CompletionStage<?>[] last = { CompletableFuture.completedFuture(null) };
+        Consumer<OutboundSseEvent> send = event -> {
+            lock.lock();
+            try {
+                last[0] = last[0].thenCompose(ignored -> sink.send(event));
+            } finally {
+                lock.unlock();
+            }
+        };
+
+        BatchSummaryDto summary = batchExecutionService.executeBatch(request, tenantOf(requestContext),
+                item -> send.accept(
+                sse.newEventBuilder().name("result").mediaType(MediaType.APPLICATION_JSON_TYPE)
+                        .data(BatchItemResultDto.class, item).build()));
+        send.accept(sse.newEventBuilder().name("summary").mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(BatchSummaryDto.class, summary).build());
+
+        lock.lock();
+        try {
+            last[0].whenComplete((ignored, error) -> sink.close());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Envía la ejecución de un programa como trabajo asíncrono y responde de
+     * inmediato con el identificador del trabajo.
+     *
+     * @param folderName Nombre del directorio dentro de "programs/" donde está el archivo Java.
+     * @param requestContext Contexto de la petición, con los datos del usuario.
+     * @return 202 con el trabajo y su ubicación, o 503 con Retry-After si hay
+     *         demasiados trabajos pendientes.
+     */
+    @POST
+    @Path("/jobs/{folderName}")
+    @RolesAllowed({"student"})
+    public Response submitExecution(@PathParam("folderName") String folderName,
+            @Context ContainerRequestContext requestContext) {
+        try {
+            ExecutionJobDto job = executionService.submitExecution(folderName, tenantOf(requestContext));
+            return Response.accepted(job)
+                    .location(UriBuilder.fromResource(ExecutionResource.class).path("jobs").path(job.id()).build())
+                    .build();
+        } catch (ExecutionRejectedException e) {
+            return buildRejectedResponse(e);
+        }
+    }
+
+    /**
+     * Consulta el estado de un trabajo de ejecución. Con {@code wait} mayor que
+     * cero la respuesta se retiene hasta que el trabajo termina o se cumple la
+     * espera (long-poll), sin ocupar un hilo del servidor.
+     *
+     * @param jobId Identificador devuelto al enviar el trabajo.
+     * @param wait  Segundos máximos de espera, limitados a 25.
+     * @return El trabajo con su resultado si ya terminó, o 404 si no existe o
+     *         expiró.
+     */
+    @GET
+    @Path("/jobs/{jobId}")
+    @RolesAllowed({"student"})
+    public CompletionStage<Response> getExecutionJob(@PathParam("jobId") String jobId,
+            @QueryParam("wait") @DefaultValue("0") long wait) {
+        long waitSeconds = Math.max(0, Math.min(wait, MAX_WAIT_SECONDS));
+        return executionService.awaitExecutionJob(jobId, waitSeconds)
+                .thenApply(job -> job
+                        .map(found -> Response.ok(found).build())
+                        .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                                .entity(new ErrorResponse("Execution job not found: " + jobId))
+                                .build()));
+    }
+
+    /**
+     * Identifica al usuario que solicita la ejecución a partir de los datos del
+     * token que deja el {@code JwtFilter}.
+     *
+     * @param requestContext Contexto de la petición.
+     * @return Usuario con el que se reparten los cupos de ejecución.
+     */
+    private ExecutionTenant tenantOf(ContainerRequestContext requestContext) {
+        return ExecutionTenant.of((String) requestContext.getProperty("userCedula"),
+                (Integer) requestContext.getProperty("userId"), (String) requestContext.getProperty("userRole"));
+    }
+
+    /**
+     * Construye la respuesta para una ejecución rechazada por el control de
+     * admisión, indicando cuándo reintentar: 429 si el usuario superó su
+     * límite de ejecuciones y 503 si el servidor está saturado.
+     *
+     * @param e Excepción con el motivo del rechazo.
+     * @return Respuesta con el encabezado Retry-After.
+     */
+    private Response buildRejectedResponse(ExecutionRejectedException e) {
+        return RejectedExecutions.response(e);
     }
 }
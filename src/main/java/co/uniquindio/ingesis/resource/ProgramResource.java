@@ -1,25 +1,31 @@
 package co.uniquindio.ingesis.resource;
 
 import co.uniquindio.ingesis.dto.programResource.ProgramDto;
+import co.uniquindio.ingesis.dto.programResource.ProgramVersionDto;
 import co.uniquindio.ingesis.exception.ProgramNotExistException;
 import co.uniquindio.ingesis.model.Program;
 import co.uniquindio.ingesis.repository.ProgramRepository;
 import co.uniquindio.ingesis.service.interfaces.ProgramServiceInterface;
+import co.uniquindio.ingesis.storage.ArchiveCache;
+import co.uniquindio.ingesis.storage.SourceArchiveStore;
+import co.uniquindio.ingesis.storage.StorageLayout;
+import co.uniquindio.ingesis.storage.StoredArchive;
 import jakarta.annotation.security.PermitAll;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Optional;
 
 /**
  * REST resource for managing student programs.
@@ -41,6 +47,15 @@ public class ProgramResource {
     @Inject
     ProgramRepository programRepository;
 
+    @Inject
+    SourceArchiveStore sourceArchiveStore;
+
+    @Inject
+    ArchiveCache archiveCache;
+
+    @Inject
+    StorageLayout storageLayout;
+
     /**
      * Uploads a new program for a student.
      *
@@ -89,6 +104,27 @@ public class ProgramResource {
         }
     }
 
+    /**
+     * Lists the published versions of a program's files, which can be pinned
+     * when executing it.
+     *
+     * @param studentId ID of the student
+     * @param code      Code of the program
+     * @return The versions, oldest first, or a not found response
+     */
+    @GET
+    @Path("/{code}/versions")
+    public Response listProgramVersions(
+            @PathParam("studentId") Integer studentId,
+            @PathParam("code") String code) {
+        try {
+            List<ProgramVersionDto> versions = programService.listVersions(code);
+            return Response.ok(versions).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        }
+    }
+
     /**
      * Updates an existing program for a student.
      *
@@ -137,70 +173,54 @@ public class ProgramResource {
         }
     }
 
-    private static final String BASE_DIR = "/deployments/programs";
-
     /**
-     * Downloads the program folder as a ZIP file.
+     * Downloads the program files as a ZIP file. The archive the program was
+     * uploaded as is sent unchanged, with range and conditional request
+     * support; programs uploaded before archives were kept get an archive
+     * streamed while it is built, and repeated downloads of the same files
+     * are served from the prebuilt archive.
      *
      * @param programCode Code of the program
-     * @return The zipped folder or a not found/error response
+     * @param request     The request, to evaluate its preconditions
+     * @param headers     The headers of the request
+     * @return The zipped folder or a not found response
      */
     @GET
     @Path("/{programCode}/download")
     @Produces("application/zip")
-    public Response downloadProgramAsZip(@PathParam("programCode") String programCode) {
-        File programFolder = new File(BASE_DIR, programCode);
-
-        if (!programFolder.exists() || !programFolder.isDirectory()) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity("Program folder not found").build();
-        }
-
-        try {
-            File zipFile = File.createTempFile(programCode + "-", ".zip");
-
-            try (FileOutputStream fos = new FileOutputStream(zipFile);
-                    ZipOutputStream zos = new ZipOutputStream(fos)) {
-                zipFolderRecursive(programFolder, programFolder, zos);
+    public Response downloadProgramAsZip(@PathParam("programCode") String programCode,
+            @Context Request request, @Context HttpHeaders headers) {
+        Optional<StoredArchive.Entry> original = sourceArchiveStore.findProgramOriginal(programCode);
+        if (original.isPresent()) {
+            try {
+                return ArchiveDownloads.serve(request, headers, sourceArchiveStore.locate(original.get()),
+                        original.get());
+            } catch (IOException e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
             }
-
-            return Response.ok(zipFile)
-                    .header("Content-Disposition", "attachment; filename=\"" + programCode + ".zip\"")
-                    .build();
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("Error generating zip file").build();
         }
-    }
 
-    /**
-     * Recursively compresses a folder and its subfolders into a ZIP stream.
-     *
-     * @param baseFolder  Base folder to calculate relative paths
-     * @param currentFile Current file or folder to process
-     * @param zos         Output ZIP stream
-     */
-    private void zipFolderRecursive(File baseFolder, File currentFile, ZipOutputStream zos) throws IOException {
-        for (File file : currentFile.listFiles()) {
-            if (file.isDirectory()) {
-                zipFolderRecursive(baseFolder, file, zos);
-            } else {
-                String relativePath = baseFolder.toURI().relativize(file.toURI()).getPath();
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    ZipEntry zipEntry = new ZipEntry(relativePath);
-                    zos.putNextEntry(zipEntry);
-
-                    byte[] buffer = new byte[1024];
-                    int len;
-                    while ((len = fis.read(buffer)) > 0) {
-                        zos.write(buffer, 0, len);
-                    }
-                    zos.closeEntry();
-                }
+        String owner = "program-" + programCode;
+        List<StoredArchive.Entry> entries = sourceArchiveStore.findProgramEntries(programCode);
+        Object archive;
+        if (!entries.isEmpty()) {
+            Optional<java.nio.file.Path> prebuilt = archiveCache.find(owner, entries);
+            archive = prebuilt.isPresent()
+                    ? prebuilt.get().toFile()
+                    : (StreamingOutput) output -> archiveCache.write(owner, entries, output);
+        } else {
+            // Programs uploaded before the blob store only have their folder
+            File programFolder = storageLayout.programsDir().resolve(programCode).toFile();
+            if (!programFolder.isDirectory()) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity("Program folder not found").build();
             }
+            archive = (StreamingOutput) output -> archiveCache.writeFolder(programFolder.toPath(), output);
         }
+
+        return Response.ok(archive)
+                .header("Content-Disposition", "attachment; filename=\"" + programCode + ".zip\"")
+                .build();
     }
 
     /**
@@ -0,0 +1,34 @@
+package co.uniquindio.ingesis.resource;
+
+import co.uniquindio.ingesis.dto.responses.ErrorResponse;
+import co.uniquindio.ingesis.exception.ExecutionQuotaExceededException;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Builds the responses of executions rejected by admission control.
+ */
+final class RejectedExecutions {
+
+    private RejectedExecutions() {
+    }
+
+    /**
+     * Answers a rejected execution, telling the client when to retry: 429 if
+     * the user exceeded their own limit of executions, 503 if the server is
+     * saturated.
+     *
+     * @param e the rejection
+     * @return the response, with a Retry-After header
+     */
+    static Response response(ExecutionRejectedException e) {
+        Response.Status status = e instanceof ExecutionQuotaExceededException
+                ? Response.Status.TOO_MANY_REQUESTS
+                : Response.Status.SERVICE_UNAVAILABLE;
+        return Response.status(status)
+                .header(HttpHeaders.RETRY_AFTER, e.getRetryAfterSeconds())
+                .entity(new ErrorResponse(e.getMessage()))
+                .build();
+    }
+}
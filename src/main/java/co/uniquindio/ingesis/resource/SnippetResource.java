@@ -0,0 +1,55 @@
+package co.uniquindio.ingesis.resource;
+
+import co.uniquindio.ingesis.dto.SnippetResource.SnippetRequestDto;
+import co.uniquindio.ingesis.dto.SnippetResource.SnippetResultDto;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+import co.uniquindio.ingesis.service.interfaces.SnippetServiceInterface;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * REST resource for evaluating short pieces of Java code, as in
+ * {@code jshell}, without uploading a program.
+ */
+@Path("/api/snippets")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class SnippetResource {
+
+    /**
+     * Service interface for snippet evaluation.
+     */
+    @Inject
+    SnippetServiceInterface snippetService;
+
+    /**
+     * Evaluates a piece of code. Nothing declared is kept for later requests.
+     *
+     * @param request        the code to evaluate
+     * @param requestContext the request context, with the data of the user
+     * @return the outcome of each snippet and what they printed, 429 if the
+     *         user already has too many executions in progress, or 503 with
+     *         Retry-After if the server admits no more executions or no shell
+     *         is available
+     */
+    @POST
+    @Path("/evaluate")
+    @RolesAllowed({"student", "teacher"})
+    public Response evaluate(@Valid SnippetRequestDto request, @Context ContainerRequestContext requestContext) {
+        try {
+            ExecutionTenant tenant = ExecutionTenant.of((String) requestContext.getProperty("userCedula"),
+                    (Integer) requestContext.getProperty("userId"), (String) requestContext.getProperty("userRole"));
+            SnippetResultDto result = snippetService.evaluate(request.source(), tenant);
+            return Response.ok(result).build();
+        } catch (ExecutionRejectedException e) {
+            return RejectedExecutions.response(e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package co.uniquindio.ingesis.resource;
+
+import co.uniquindio.ingesis.dto.TestCaseResource.TestCaseDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestReportDto;
+import co.uniquindio.ingesis.dto.responses.ErrorResponse;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.exception.ProgramNotExistException;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+import co.uniquindio.ingesis.service.interfaces.TestCaseServiceInterface;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+
+/**
+ * REST resource for managing the input/expected-output test cases of programs
+ * and examples, and for running a program against all of them at once.
+ */
+@Path("/api/test-cases")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class TestCaseResource {
+
+    /**
+     * Service interface for test case operations.
+     */
+    @Inject
+    TestCaseServiceInterface testCaseService;
+
+    /**
+     * Attaches a test case to a program.
+     *
+     * @param code the code of the program
+     * @param dto  the test case
+     * @return the created test case, or 404 if the program does not exist
+     */
+    @POST
+    @Path("/program/{code}")
+    @RolesAllowed({"teacher"})
+    public Response addProgramTestCase(@PathParam("code") String code, @Valid TestCaseDto dto) {
+        try {
+            TestCaseDto created = testCaseService.addProgramTestCase(code, dto);
+            return Response.status(Response.Status.CREATED).entity(created).build();
+        } catch (ProgramNotExistException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(new ErrorResponse(e.getMessage())).build();
+        }
+    }
+
+    /**
+     * Attaches a test case to an example.
+     *
+     * @param exampleId the ID of the example
+     * @param dto       the test case
+     * @return the created test case
+     */
+    @POST
+    @Path("/example/{exampleId}")
+    @RolesAllowed({"teacher"})
+    public Response addExampleTestCase(@PathParam("exampleId") Integer exampleId, @Valid TestCaseDto dto) {
+        TestCaseDto created = testCaseService.addExampleTestCase(exampleId, dto);
+        return Response.status(Response.Status.CREATED).entity(created).build();
+    }
+
+    /**
+     * Lists the test cases of a program.
+     *
+     * @param code the code of the program
+     * @return the test cases, or 404 if the program does not exist
+     */
+    @GET
+    @Path("/program/{code}")
+    @RolesAllowed({"teacher"})
+    public Response listProgramTestCases(@PathParam("code") String code) {
+        try {
+            List<TestCaseDto> testCases = testCaseService.listProgramTestCases(code);
+            return Response.ok(testCases).build();
+        } catch (ProgramNotExistException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(new ErrorResponse(e.getMessage())).build();
+        }
+    }
+
+    /**
+     * Lists the test cases of an example.
+     *
+     * @param exampleId the ID of the example
+     * @return the test cases
+     */
+    @GET
+    @Path("/example/{exampleId}")
+    @RolesAllowed({"teacher"})
+    public Response listExampleTestCases(@PathParam("exampleId") Integer exampleId) {
+        return Response.ok(testCaseService.listExampleTestCases(exampleId)).build();
+    }
+
+    /**
+     * Deletes a test case.
+     *
+     * @param testCaseId the ID of the test case
+     * @return 204 once deleted
+     */
+    @DELETE
+    @Path("/{testCaseId}")
+    @RolesAllowed({"teacher"})
+    public Response deleteTestCase(@PathParam("testCaseId") Long testCaseId) {
+        testCaseService.deleteTestCase(testCaseId);
+        return Response.noContent().build();
+    }
+
+    /**
+     * Compiles a program once and runs it against all its test cases.
+     *
+     * @param code           the code of the program
+     * @param requestContext the request context, holding the caller's claims
+     * @return the per-case pass/fail report, 404 if the program does not exist,
+     *         429 if the caller already has too many executions, or 503 with
+     *         Retry-After if the server is at capacity
+     */
+    @POST
+    @Path("/program/{code}/run")
+    @RolesAllowed({"student", "teacher"})
+    public Response runProgramTestCases(@PathParam("code") String code,
+            @Context ContainerRequestContext requestContext) {
+        try {
+            TestReportDto report = testCaseService.runProgramTestCases(code, tenantOf(requestContext));
+            return Response.ok(report).build();
+        } catch (ProgramNotExistException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(new ErrorResponse(e.getMessage())).build();
+        } catch (ExecutionRejectedException e) {
+            return buildRejectedResponse(e);
+        }
+    }
+
+    /**
+     * Compiles an example once and runs it against all its test cases.
+     *
+     * @param exampleId      the ID of the example
+     * @param requestContext the request context, holding the caller's claims
+     * @return the per-case pass/fail report, 429 if the caller already has too
+     *         many executions, or 503 with Retry-After if the server is at
+     *         capacity
+     */
+    @POST
+    @Path("/example/{exampleId}/run")
+    @RolesAllowed({"student", "teacher"})
+    public Response runExampleTestCases(@PathParam("exampleId") Integer exampleId,
+            @Context ContainerRequestContext requestContext) {
+        try {
+            TestReportDto report = testCaseService.runExampleTestCases(exampleId, tenantOf(requestContext));
+            return Response.ok(report).build();
+        } catch (ExecutionRejectedException e) {
+            return buildRejectedResponse(e);
+        }
+    }
+
+    private ExecutionTenant tenantOf(ContainerRequestContext requestContext) {
+        return ExecutionTenant.of((String) requestContext.getProperty("userCedula"),
+                (Integer) requestContext.getProperty("userId"), (String) requestContext.getProperty("userRole"));
+    }
+
+    private Response buildRejectedResponse(ExecutionRejectedException e) {
+        return RejectedExecutions.response(e);
+    }
+}
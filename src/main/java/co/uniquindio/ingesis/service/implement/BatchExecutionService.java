@@ -0,0 +1,155 @@
+package co.uniquindio.ingesis.service.implement;
+
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchExecutionRequestDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchItemResultDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchSummaryDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionResultDto;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+import co.uniquindio.ingesis.model.Program;
+import co.uniquindio.ingesis.repository.ProgramRepository;
+import co.uniquindio.ingesis.service.interfaces.BatchExecutionServiceInterface;
+import co.uniquindio.ingesis.service.interfaces.ExecutionServiceInterface;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Service that executes the programs of a whole class or assignment at once,
+ * fanning them out over a work-stealing pool sized to the processors of the
+ * host.
+ *
+ * Each program goes through {@link ExecutionServiceInterface#executeProgram},
+ * so batches share the admission control of regular executions, on behalf of
+ * the teacher requesting them; programs not admitted in time are reported as
+ * rejected instead of failing the batch.
+ */
+@ApplicationScoped
+public class BatchExecutionService implements BatchExecutionServiceInterface {
+
+    private static final Logger logger = LogManager.getLogger(BatchExecutionService.class);
+
+    private final ExecutionServiceInterface executionService;
+    private final ProgramRepository programRepository;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor with dependency injection.
+     *
+     * @param executionService  service executing each program
+     * @param programRepository repository used to resolve the selected programs
+     * @param parallelism       number of programs executed at the same time by
+     *                          a batch, 0 for the number of processors
+     */
+    @Inject
+    public BatchExecutionService(ExecutionServiceInterface executionService, ProgramRepository programRepository,
+            @ConfigProperty(name = "execution.batch.parallelism", defaultValue = "0") int parallelism) {
+        this.executionService = executionService;
+        this.programRepository = programRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public BatchSummaryDto executeBatch(BatchExecutionRequestDto request, ExecutionTenant tenant,
+            Consumer<BatchItemResultDto> onResult) {
+        Set<String> codes = resolveCodes(request);
+        long start = System.nanoTime();
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger timedOut = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (String code : codes) {
+            tasks.add(pool.submit(() -> {
+                BatchItemResultDto item = executeOne(code, tenant);
+                switch (item.status()) {
+                    case "success" -> succeeded.incrementAndGet();
+                    case "timeout" -> timedOut.incrementAndGet();
+                    case "rejected" -> rejected.incrementAndGet();
+                    default -> failed.incrementAndGet();
+                }
+                try {
+                    onResult.accept(item);
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to deliver the batch result of {}", code, e);
+                }
+            }));
+        }
+        tasks.forEach(ForkJoinTask::join);
+
+        long wallTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        double throughput = wallTimeMillis > 0 ? codes.size() * 1000.0 / wallTimeMillis : 0;
+        return new BatchSummaryDto(codes.size(), succeeded.get(), failed.get(), timedOut.get(), rejected.get(),
+                wallTimeMillis, throughput);
+    }
+
+    /**
+     * Executes a single program of the batch.
+     *
+     * @param code   the program code
+     * @param tenant the user requesting the batch
+     * @return the classified result
+     */
+    private BatchItemResultDto executeOne(String code, ExecutionTenant tenant) {
+        try {
+            ExecutionResultDto result = executionService.executeProgram(code, tenant);
+            String status;
+            if (result.timedOut()) {
+                status = "timeout";
+            } else if (result.exitCode() != null && result.exitCode() == 0) {
+                status = "success";
+            } else {
+                status = "failed";
+            }
+            return new BatchItemResultDto(code, status, result);
+        } catch (ExecutionRejectedException e) {
+            return new BatchItemResultDto(code, "rejected", null);
+        }
+    }
+
+    /**
+     * Resolves the union of the program selections of the request, keeping the
+     * order in which they were given and dropping duplicates.
+     *
+     * @param request the selection of programs
+     * @return the program codes to execute
+     */
+    private Set<String> resolveCodes(BatchExecutionRequestDto request) {
+        Set<String> codes = new LinkedHashSet<>();
+        if (request.codes() != null) {
+            codes.addAll(request.codes());
+        }
+        if (request.codePrefix() != null && !request.codePrefix().isBlank()) {
+            programRepository.findByCodePrefix(request.codePrefix()).forEach(p -> codes.add(p.getCode()));
+        }
+        if (request.studentIds() != null) {
+            for (Integer studentId : request.studentIds()) {
+                programRepository.findByStudentId(studentId).stream().map(Program::getCode).forEach(codes::add);
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Stops the pool when the application stops.
+     */
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,14 @@
+package co.uniquindio.ingesis.service.implement;
+
+import co.uniquindio.ingesis.storage.StagedFolder;
+
+/**
+ * CDI event fired when a new version of the folder of an example is staged
+ * within an upload, to be published if the upload commits and discarded if
+ * it rolls back.
+ *
+ * @param exampleId the ID of the example
+ * @param folder    the staged version
+ */
+record ExampleFolderStaged(Integer exampleId, StagedFolder folder) {
+}
@@ -6,29 +6,40 @@ import co.uniquindio.ingesis.model.ExampleAssignment;
 import co.uniquindio.ingesis.model.Student;
 import co.uniquindio.ingesis.repository.ExampleAssignmentRepository;
 import co.uniquindio.ingesis.repository.ExampleRepository;
+import co.uniquindio.ingesis.repository.ProgramTestCaseRepository;
 import co.uniquindio.ingesis.repository.StudentRepository;
 import co.uniquindio.ingesis.service.interfaces.ExampleServiceInterface;
+import co.uniquindio.ingesis.storage.ArchiveCache;
+import co.uniquindio.ingesis.storage.FolderCache;
+import co.uniquindio.ingesis.storage.SourceArchiveStore;
+import co.uniquindio.ingesis.storage.StagedFolder;
+import co.uniquindio.ingesis.storage.StoredArchive;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.NotFoundException;
 
 import java.io.*;
-import java.nio.file.FileVisitResult;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import jakarta.inject.Inject;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.Files;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 @ApplicationScoped
 public class ExampleService implements ExampleServiceInterface {
 
+    private static final Logger logger = LogManager.getLogger(ExampleService.class);
+
+    /**
+     * The only role trusted to run its examples inside the application JVM.
+     */
+    private static final String TEACHER_ROLE = "teacher";
+
     private final ExampleRepository exampleRepository;
 
     @Inject
@@ -37,69 +48,55 @@ public class ExampleService implements ExampleServiceInterface {
     @Inject
     StudentRepository studentRepository;
 
+    @Inject
+    ProgramTestCaseRepository testCaseRepository;
+
+    @Inject
+    SourceArchiveStore sourceArchiveStore;
+
+    @Inject
+    ArchiveCache archiveCache;
+
+    @Inject
+    FolderCache folderCache;
+
+    @Inject
+    Event<ExampleFolderStaged> folderStaged;
+
     public ExampleService(ExampleRepository exampleRepository) {
         this.exampleRepository = exampleRepository;
     }
 
     /**
-     * Adds a new example and extracts its ZIP content to a folder.
+     * Adds a new example, stores its ZIP content and materializes it in a
+     * folder.
      *
      * @param exampleDto     Data transfer object with example info
      * @param zipInputStream InputStream of the ZIP file with example files
+     * @param userRole       Role of the authenticated user
      * @return Success message
-     * @throws IOException If an I/O error occurs during unzip
+     * @throws IOException        If an I/O error occurs while storing the files
+     * @throws ForbiddenException If a user other than a teacher asks to run the
+     *                            example inside the application JVM
      */
     @Override
     @Transactional
-    public String addExample(ExampleDto exampleDto, InputStream zipInputStream) throws IOException {
+    public String addExample(ExampleDto exampleDto, InputStream zipInputStream, String userRole)
+            throws IOException {
+        checkInProcess(exampleDto, userRole);
         Example example = buildExampleFromDto(exampleDto);
 
         // Persist example in the database
         exampleRepository.persist(example);
 
-        // Create folder to unzip files
-        String exampleDirectory = "ejemplos/" + example.getId();
-        File directory = new File(exampleDirectory);
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
-
-        // Unzip the input ZIP stream into the created folder
-        unzip(zipInputStream, directory.getAbsolutePath());
+        // Store the files and stage the example folder built from them
+        StoredArchive archive = sourceArchiveStore.ingest(zipInputStream);
+        sourceArchiveStore.attach(example, archive);
+        stageFolder(example, archive);
 
         return "Example created successfully!";
     }
 
-    /**
-     * Unzips a ZIP file input stream into the specified directory.
-     *
-     * @param zipInputStream ZIP file input stream
-     * @param outputDir      Directory to extract files to
-     * @throws IOException If an I/O error occurs
-     */
-    private void unzip(InputStream zipInputStream, String outputDir) throws IOException {
-        try (ZipInputStream zis = new ZipInputStream(zipInputStream)) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                File file = new File(outputDir, entry.getName());
-                if (entry.isDirectory()) {
-                    file.mkdirs();
-                } else {
-                    // Create parent directories if not exist
-                    file.getParentFile().mkdirs();
-                    try (FileOutputStream fos = new FileOutputStream(file)) {
-                        byte[] buffer = new byte[1024];
-                        int len;
-                        while ((len = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, len);
-                        }
-                    }
-                }
-                zis.closeEntry();
-            }
-        }
-    }
-
     /**
      * Retrieves an example by its ID wrapped in a DTO.
      *
@@ -116,14 +113,23 @@ public class ExampleService implements ExampleServiceInterface {
     /**
      * Updates an existing example and optionally replaces its ZIP files.
      *
+     * Files replaced by a user other than a teacher are no longer run inside
+     * the application JVM, since nobody trusted reviewed them.
+     *
      * @param exampleDto     DTO with updated data
      * @param zipInputStream New ZIP input stream (optional)
+     * @param userRole       Role of the authenticated user
      * @return Success message
-     * @throws IOException If an I/O error occurs during unzip or file deletion
+     * @throws IOException        If an I/O error occurs while storing or
+     *                            deleting files
+     * @throws ForbiddenException If a user other than a teacher asks to run the
+     *                            example inside the application JVM
      */
     @Override
     @Transactional
-    public String updateExample(ExampleDto exampleDto, InputStream zipInputStream) throws IOException {
+    public String updateExample(ExampleDto exampleDto, InputStream zipInputStream, String userRole)
+            throws IOException {
+        checkInProcess(exampleDto, userRole);
         Example example = exampleRepository.findByIdOptional(exampleDto.id().longValue())
                 .orElseThrow(() -> new NotFoundException("Example not found"));
 
@@ -132,25 +138,23 @@ public class ExampleService implements ExampleServiceInterface {
         example.setContent(exampleDto.content());
         example.setCategory(exampleDto.category());
         example.setDifficulty(exampleDto.difficulty());
+        if (exampleDto.inProcess() != null) {
+            example.setInProcessExecution(exampleDto.inProcess());
+        }
+        if (zipInputStream != null && !TEACHER_ROLE.equals(userRole)) {
+            example.setInProcessExecution(false);
+        }
         exampleRepository.persist(example);
 
         // If a ZIP file is provided, replace existing files
         if (zipInputStream != null) {
-            String exampleDirectory = "ejemplos/" + example.getId();
-            File directory = new File(exampleDirectory);
-
-            // Delete existing directory if exists
-            if (directory.exists()) {
-                deleteDirectory(directory);
-            }
-
-            // Create directory again
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
+            // Store the new files before releasing the old ones, which they may share
+            StoredArchive archive = sourceArchiveStore.ingest(zipInputStream);
+            sourceArchiveStore.releaseExample(example);
+            sourceArchiveStore.attach(example, archive);
 
-            // Extract new ZIP files
-            unzip(zipInputStream, directory.getAbsolutePath());
+            // Stage a new version of the folder; executions of the previous one keep it until they end
+            stageFolder(example, archive);
         }
 
         return "Example and files updated successfully.";
@@ -168,30 +172,15 @@ public class ExampleService implements ExampleServiceInterface {
         Example example = exampleRepository.findByIdOptional(id.longValue())
                 .orElseThrow(() -> new NotFoundException("Example not found"));
 
-        // Delete from database
+        // Delete from database, together with its test cases and files
+        testCaseRepository.deleteByExampleId(example.getId());
+        sourceArchiveStore.releaseExample(example);
         exampleRepository.delete(example);
-
-        // Path to example folder
-        String examplePath = "ejemplos/" + example.getId();
-        Path exampleDirectory = Paths.get(examplePath);
+        archiveCache.invalidate("example-" + example.getId());
 
         try {
-            if (Files.exists(exampleDirectory)) {
-                // Walk the file tree and delete files and folders recursively
-                Files.walkFileTree(exampleDirectory, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        Files.delete(file);
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                        Files.delete(dir);
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
-            }
+            // The versions of the folder are deleted once no execution uses them
+            folderCache.removeExample(example.getId());
             return "Example deleted successfully.";
         } catch (IOException e) {
             return "Error deleting example directory: " + e.getMessage();
@@ -199,25 +188,56 @@ public class ExampleService implements ExampleServiceInterface {
     }
 
     /**
-     * Recursively deletes a directory and its contents.
+     * Rejects requests to run an example inside the application JVM unless
+     * they come from a teacher, whose role is taken from the verified token.
+     *
+     * @param exampleDto The example data
+     * @param userRole   The role of the authenticated user
+     * @throws ForbiddenException If the user may not enable the in-process mode
+     */
+    private void checkInProcess(ExampleDto exampleDto, String userRole) {
+        if (Boolean.TRUE.equals(exampleDto.inProcess()) && !TEACHER_ROLE.equals(userRole)) {
+            throw new ForbiddenException("Only teachers may run examples inside the application JVM");
+        }
+    }
+
+    /**
+     * Builds a new version of the folder of an example from its stored files,
+     * published once the upload commits.
+     *
+     * @param example The example
+     * @param archive The stored files of the example
+     * @throws IOException If the folder cannot be built
+     */
+    private void stageFolder(Example example, StoredArchive archive) throws IOException {
+        StagedFolder folder = folderCache.stageExample(example.getId(), archive.entries());
+        folderStaged.fire(new ExampleFolderStaged(example.getId(), folder));
+    }
+
+    /**
+     * Publishes the folder staged by a committed upload and drops the cached
+     * archive of the replaced files.
+     *
+     * @param event The staged folder
+     */
+    void onFolderStaged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ExampleFolderStaged event) {
+        try {
+            folderCache.publish(event.folder());
+        } catch (IOException e) {
+            // The folder is rebuilt from the stored files by the next execution
+            logger.warn("Unable to publish the folder of example {}", event.exampleId(), e);
+            folderCache.discard(event.folder());
+        }
+        archiveCache.invalidate("example-" + event.exampleId());
+    }
+
+    /**
+     * Discards the folder staged by an upload that rolled back.
      *
-     * @param directory Directory to delete
-     * @throws IOException If an I/O error occurs
+     * @param event The staged folder
      */
-    private void deleteDirectory(File directory) throws IOException {
-        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Files.delete(file);
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                Files.delete(dir);
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    void onFolderRolledBack(@Observes(during = TransactionPhase.AFTER_FAILURE) ExampleFolderStaged event) {
+        folderCache.discard(event.folder());
     }
 
     /**
@@ -239,7 +259,7 @@ public class ExampleService implements ExampleServiceInterface {
      */
     private Example buildExampleFromDto(ExampleDto dto) {
         return new Example(dto.id(), dto.title(), dto.content(), dto.category(), dto.difficulty(),
-                dto.cedulaProfesor());
+                dto.cedulaProfesor(), Boolean.TRUE.equals(dto.inProcess()), null, null);
     }
 
     /**
@@ -247,7 +267,7 @@ public class ExampleService implements ExampleServiceInterface {
      */
     private ExampleDto buildDtoFromExample(Example example) {
         return new ExampleDto(example.getId(), example.getTitle(), example.getContent(), example.getCategory(),
-                example.getDifficulty(), example.getCedulaProfesor());
+                example.getDifficulty(), example.getCedulaProfesor(), example.isInProcessExecution());
     }
 
     /**
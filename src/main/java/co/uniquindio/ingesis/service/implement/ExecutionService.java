@@ -1,30 +1,84 @@
 package co.uniquindio.ingesis.service.implement;
 
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionJobDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionResultDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestCaseDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestCaseResultDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestReportDto;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.execution.compiler.CompilationEngine;
+import co.uniquindio.ingesis.execution.compiler.CompiledClassCache;
+import co.uniquindio.ingesis.execution.compiler.CompiledProgram;
+import co.uniquindio.ingesis.execution.job.ExecutionJob;
+import co.uniquindio.ingesis.execution.job.ExecutionJobStatus;
+import co.uniquindio.ingesis.execution.job.ExecutionJobStore;
+import co.uniquindio.ingesis.execution.manifest.ProgramManifest;
+import co.uniquindio.ingesis.execution.manifest.ProgramManifestLookup;
+import co.uniquindio.ingesis.execution.manifest.SourceAnalyzer;
+import co.uniquindio.ingesis.execution.memo.ExecutionResultMemo;
+import co.uniquindio.ingesis.execution.metrics.ExecutionMetrics;
+import co.uniquindio.ingesis.execution.runner.ForkedProgramRunner;
+import co.uniquindio.ingesis.execution.runner.InProcessProgramRunner;
+import co.uniquindio.ingesis.execution.runner.JvmProfile;
+import co.uniquindio.ingesis.execution.runner.OutputCapture;
+import co.uniquindio.ingesis.execution.runner.OutputChannel;
+import co.uniquindio.ingesis.execution.runner.OutputListener;
+import co.uniquindio.ingesis.execution.runner.ProcessSupervisor;
+import co.uniquindio.ingesis.execution.runner.ProgramRunner;
+import co.uniquindio.ingesis.execution.runner.RunOutcome;
+import co.uniquindio.ingesis.execution.runner.RunRequest;
+import co.uniquindio.ingesis.execution.runner.RunnerPool;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionPermit;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionScheduler;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
 import co.uniquindio.ingesis.service.interfaces.ExecutionServiceInterface;
+import co.uniquindio.ingesis.storage.FolderCache;
+import co.uniquindio.ingesis.storage.VersionedFolders;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service responsible for compiling and executing Java programs located in
  * specific folders.
  * 
- * Programs are expected to be located under the base directory
- * {@code programs/}, with each
- * program in its own subfolder. The service validates the existence of a main
- * Java file with a
- * valid {@code public static void main(String[] args)} method, compiles all
- * Java files in the folder,
- * and executes the compiled program with a timeout to prevent long-running
- * processes.
+ * Programs live under {@code programs/} of the {@code storage.root}, each in
+ * its own folder published as versions by the {@link FolderCache}; an
+ * execution leases the version it runs, so that an upload never changes the
+ * files in use. The main class is taken from the {@link ProgramManifest}
+ * indexed at upload, the sources are compiled by the
+ * {@link CompilationEngine} and reused from the {@link CompiledClassCache}
+ * while they do not change, and the program runs with a timeout on the
+ * {@link RunnerPool}, in a forked JVM or, for trusted examples, inside the
+ * application JVM through the {@link InProcessProgramRunner}.
  * 
- * Compilation and execution errors are returned as part of the output messages.
+ * Every execution is admitted by the {@link ExecutionScheduler}, which bounds
+ * the programs running at once and shares them between
+ * {@link ExecutionTenant users}. Deterministic programs reuse the result kept
+ * by the {@link ExecutionResultMemo}, and identical requests for a program
+ * already running share its result. Executions may also be submitted as jobs
+ * tracked by the {@link ExecutionJobStore}.
+ * 
+ * The standard output and error are captured separately and bounded, and
+ * compilation and execution errors are returned as part of the result.
  * 
  * @author
  * @version 1.0
@@ -33,8 +87,80 @@ import java.util.stream.Stream;
 public class ExecutionService implements ExecutionServiceInterface {
 
     private static final String BASE_PROGRAMS_DIR = "programs";
+    private static final String BASE_EXAMPLES_DIR = "ejemplos";
     private static final long TIMEOUT_SECONDS = 10;
 
+    private final CompilationEngine compilationEngine;
+    private final CompiledClassCache compiledClassCache;
+    private final RunnerPool runnerPool;
+    private final ForkedProgramRunner forkedProgramRunner;
+    private final InProcessProgramRunner inProcessProgramRunner;
+    private final ProcessSupervisor processSupervisor;
+    private final ExecutionScheduler executionScheduler;
+    private final ExecutionJobStore executionJobStore;
+    private final ExecutionMetrics executionMetrics;
+    private final ProgramManifestLookup programManifestLookup;
+    private final ExecutionResultMemo executionResultMemo;
+    private final FolderCache folderCache;
+    private final ExecutorService jobWorkers;
+    private final Map<String, CompletableFuture<ExecutionResultDto>> inFlightRuns = new ConcurrentHashMap<>();
+    private final int captureMaxBytes;
+
+    /**
+     * Constructor with dependency injection for the compilation and runner
+     * components.
+     *
+     * @param compilationEngine   engine used to compile the program sources
+     * @param compiledClassCache  cache of compiled programs by source digest
+     * @param runnerPool          pool of pre-started runner JVMs
+     * @param forkedProgramRunner runner starting a new JVM per execution
+     * @param inProcessProgramRunner runner of trusted examples inside the
+     *                            application JVM
+     * @param processSupervisor   supervisor of the processes running programs
+     * @param executionScheduler  admission control for concurrent executions
+     * @param executionJobStore   store of the asynchronous execution jobs
+     * @param executionMetrics    recorder of the resources used by executions
+     * @param programManifestLookup loader of the manifests indexed on upload
+     * @param executionResultMemo memo of the results of deterministic programs
+     * @param folderCache         publisher of the program folder versions
+     * @param jobWorkers          number of threads running jobs, 0 for the
+     *                            number of processors
+     * @param captureMaxBytes     bytes of output and errors retained for each
+     *                            execution
+     */
+    @Inject
+    public ExecutionService(CompilationEngine compilationEngine, CompiledClassCache compiledClassCache,
+            RunnerPool runnerPool, ForkedProgramRunner forkedProgramRunner,
+            InProcessProgramRunner inProcessProgramRunner, ProcessSupervisor processSupervisor,
+            ExecutionScheduler executionScheduler,
+            ExecutionJobStore executionJobStore, ExecutionMetrics executionMetrics,
+            ProgramManifestLookup programManifestLookup, ExecutionResultMemo executionResultMemo,
+            FolderCache folderCache,
+            @ConfigProperty(name = "execution.jobs.workers", defaultValue = "0") int jobWorkers,
+            @ConfigProperty(name = "execution.capture.max-bytes", defaultValue = "65536") int captureMaxBytes) {
+        this.compilationEngine = compilationEngine;
+        this.compiledClassCache = compiledClassCache;
+        this.runnerPool = runnerPool;
+        this.forkedProgramRunner = forkedProgramRunner;
+        this.inProcessProgramRunner = inProcessProgramRunner;
+        this.processSupervisor = processSupervisor;
+        this.executionScheduler = executionScheduler;
+        this.executionJobStore = executionJobStore;
+        this.executionMetrics = executionMetrics;
+        this.programManifestLookup = programManifestLookup;
+        this.executionResultMemo = executionResultMemo;
+        this.folderCache = folderCache;
+        this.captureMaxBytes = captureMaxBytes;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.jobWorkers = Executors.newFixedThreadPool(
+                jobWorkers > 0 ? jobWorkers : Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "execution-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
     /**
      * Compiles and executes a Java program located in a specified folder.
      * 
@@ -47,204 +173,647 @@ public class ExecutionService implements ExecutionServiceInterface {
      * 
      * @param folderName the name of the folder inside the base directory containing
      *                   the Java program
-     * @return the output from the program execution or error messages if
-     *         compilation/execution fails
+     * @param tenant     the user requesting the execution
+     * @return the output and errors of the program, its exit code and timings,
+     *         or the compilation/execution errors if it could not run
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution
      */
     @Override
-    public String executeProgram(String folderName) {
-        try {
-            Path folderPath = validateAndGetFolderPath(folderName);
+    public ExecutionResultDto executeProgram(String folderName, ExecutionTenant tenant) {
+        return executeProgram(folderName, null, null, false, tenant);
+    }
 
-            File mainFile = findMainJavaFile(folderPath);
-            if (mainFile == null) {
-                return buildNoMainFileError(folderPath);
-            }
+    /**
+     * Compiles and executes a Java program like
+     * {@link #executeProgram(String, ExecutionTenant)}, launching it with the given JVM profile
+     * when it runs in a forked JVM.
+     *
+     * A pinned version runs from its own files and sources, read from its
+     * folder, since the manifest stored with the program describes the
+     * current version only.
+     *
+     * A memoized result of the same sources is returned right away unless
+     * {@code fresh} is set; a fresh result replaces the memoized one. If the
+     * same sources are already running with the same profile, the call waits
+     * for that run and returns its result; if that run is rejected by the
+     * {@link ExecutionScheduler}, the call runs the program on its own.
+     *
+     * @param folderName the name of the folder inside the base directory containing
+     *                   the Java program
+     * @param version    the published version to run, or {@code null} for the
+     *                   current one
+     * @param profile    the JVM profile, or {@code null} for the configured
+     *                   default
+     * @param fresh      whether to run the program even if its result is
+     *                   memoized
+     * @param tenant     the user requesting the execution
+     * @return the output and errors of the program, its exit code and timings,
+     *         or the compilation/execution errors if it could not run
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution
+     */
+    @Override
+    public ExecutionResultDto executeProgram(String folderName, String version, JvmProfile profile, boolean fresh,
+            ExecutionTenant tenant) {
+        if (version != null) {
+            return runProgram(folderName, version, null, profile, false, tenant);
+        }
+        ProgramManifest manifest = programManifestLookup.find(folderName).orElse(null);
+        if (manifest == null) {
+            return runProgram(folderName, null, null, profile, false, tenant);
+        }
 
-            String compileOutput = compileJavaFiles(folderPath);
-            if (!compileOutput.isEmpty()) {
-                return compileOutput;
+        boolean memoizable = executionResultMemo.isEnabled() && manifest.isDeterministic();
+        if (memoizable && !fresh) {
+            Optional<ExecutionResultDto> memoized = executionResultMemo.find(memoKey(manifest.digest(), profile));
+            if (memoized.isPresent()) {
+                return memoized.get();
             }
+        }
 
-            return executeCompiledProgram(folderPath, mainFile);
+        String key = folderName + '@' + manifest.digest() + '@' + profile;
+        while (true) {
+            CompletableFuture<ExecutionResultDto> run = new CompletableFuture<>();
+            CompletableFuture<ExecutionResultDto> inFlight = inFlightRuns.putIfAbsent(key, run);
+            if (inFlight == null) {
+                try {
+                    ExecutionResultDto result = runProgram(folderName, null, manifest, profile, memoizable, tenant);
+                    run.complete(result);
+                    return result;
+                } catch (RuntimeException | Error e) {
+                    run.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlightRuns.remove(key, run);
+                }
+            }
 
-        } catch (Exception e) {
-            return "Error executing program: " + e.getMessage();
+            // The waiting request takes no slot but counts towards the limit of its own user
+            ExecutionPermit permit = executionScheduler.join(tenant);
+            try (permit) {
+                executionMetrics.recordCoalesced();
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ExecutionRejectedException) {
+                    // The run in flight was rejected for its own user, so this request runs on its own
+                    inFlightRuns.remove(key, inFlight);
+                    continue;
+                }
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
         }
     }
 
     /**
-     * Validates the existence and type of the specified folder and returns its
-     * path.
-     * 
-     * @param folderName the folder name to validate under the base directory
-     * @return the absolute path of the folder if it exists and is a directory
-     * @throws FileNotFoundException if the folder does not exist
-     * @throws IOException           if the path exists but is not a directory
+     * Runs a student program once without input and builds its result.
+     *
+     * @param folderName the name of the program folder
+     * @param version    the version to run, or {@code null} for the current one
+     * @param manifest   the stored manifest of the program, or {@code null} to
+     *                   look it up or build it from the folder
+     * @param profile    the JVM profile, or {@code null} for the default
+     * @param memoize    whether to memoize the result
+     * @param tenant     the user requesting the execution
+     * @return the output and errors of the program, its exit code and timings,
+     *         or the compilation/execution errors if it could not run
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution
      */
-    private Path validateAndGetFolderPath(String folderName) throws Exception {
-        Path folderPath = Paths.get(BASE_PROGRAMS_DIR, folderName);
-        if (!Files.exists(folderPath)) {
-            throw new FileNotFoundException("Program directory does not exist: " + folderPath);
+    private ExecutionResultDto runProgram(String folderName, String version, ProgramManifest manifest,
+            JvmProfile profile, boolean memoize, ExecutionTenant tenant) {
+        OutputCapture capture = new OutputCapture(captureMaxBytes);
+        ExecutionSummary summary = execute(BASE_PROGRAMS_DIR, folderName, version, manifest,
+                List.of(new RunInput(null, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS), profile)), List.of(capture),
+                false, tenant);
+
+        if (summary.failure() != null) {
+            return errorResult(summary.failure(), summary.compileTimeMillis());
+        }
+
+        RunOutcome outcome = summary.outcome();
+        String errors = capture.getStderr();
+        if (outcome.timedOut()) {
+            errors += "Program exceeded execution time limit (" + TIMEOUT_SECONDS + "s)\n";
         }
-        if (!Files.isDirectory(folderPath)) {
-            throw new IOException("Specified path is not a directory: " + folderPath);
+        ExecutionResultDto result = new ExecutionResultDto(capture.getStdout(), errors,
+                outcome.timedOut() ? null : outcome.exitCode(), outcome.timedOut(), capture.isTruncated(),
+                summary.compileTimeMillis(), outcome.wallTimeMillis(),
+                outcome.cpuTimeMillis() >= 0 ? outcome.cpuTimeMillis() : null,
+                outcome.peakRssBytes() >= 0 ? outcome.peakRssBytes() : null,
+                summary.outputBytes().get(0), false);
+
+        if (memoize) {
+            executionResultMemo.put(memoKey(summary.digest(), profile), withMemoized(result));
         }
-        return folderPath;
+        return result;
     }
 
     /**
-     * Searches for a Java source file containing a valid main method inside the
-     * folder.
-     * 
-     * @param folderPath the folder path to search for Java files
-     * @return the first Java file containing a main method, or {@code null} if none
-     *         is found
-     * @throws IOException if an I/O error occurs during file traversal
+     * Builds the key of a memoized result. The profile is part of it because
+     * the JVM options change what a program can observe, such as identity hash
+     * codes and the heap it may use.
+     *
+     * @param digest  the digest of the program sources
+     * @param profile the JVM profile, or {@code null} for the default
+     * @return the key
      */
-    private File findMainJavaFile(Path folderPath) throws IOException {
-        try (Stream<Path> paths = Files.walk(folderPath)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .map(Path::toFile)
-                    .filter(this::hasMainMethod)
-                    .findFirst()
-                    .orElse(null);
-        }
+    private static String memoKey(String digest, JvmProfile profile) {
+        return digest + '@' + profile;
     }
 
     /**
-     * Checks if a given Java file contains a valid main method declaration.
-     * 
-     * @param javaFile the Java source file to inspect
-     * @return {@code true} if the file contains a main method, {@code false}
-     *         otherwise
+     * Marks a result as reused, for the executions that will be answered with
+     * it.
+     *
+     * @param result the result of a run
+     * @return the same result flagged as memoized
      */
-    private boolean hasMainMethod(File javaFile) {
-        try {
-            String content = Files.readString(javaFile.toPath());
-            return content.contains("public static void main(String[] args)") ||
-                    content.contains("public static void main( String[] args )") ||
-                    content.contains("public static void main(String args[])");
-        } catch (IOException e) {
-            return false;
-        }
+    private ExecutionResultDto withMemoized(ExecutionResultDto result) {
+        return new ExecutionResultDto(result.output(), result.errors(), result.exitCode(), result.timedOut(),
+                result.truncated(), result.compileTimeMillis(), result.runTimeMillis(), result.cpuTimeMillis(),
+                result.peakRssBytes(), result.outputBytes(), true);
     }
 
     /**
-     * Constructs an error message listing all Java files when no valid main file is
-     * found.
-     * 
-     * @param folderPath the folder where the search was performed
-     * @return a detailed error message with the list of Java files found
-     * @throws IOException if an I/O error occurs during file traversal
+     * Builds the result of a program that did not run.
+     *
+     * @param errors            why the program did not run
+     * @param compileTimeMillis the time spent compiling
+     * @return the result with no output and no exit code
      */
-    private String buildNoMainFileError(Path folderPath) throws IOException {
-        StringBuilder error = new StringBuilder();
-        error.append("No .java file with a valid 'main' method found in: ")
-                .append(folderPath.toString())
-                .append("\n\nFiles found:\n");
+    private ExecutionResultDto errorResult(String errors, long compileTimeMillis) {
+        return new ExecutionResultDto("", errors, null, false, false, compileTimeMillis, 0, null, null, 0, false);
+    }
 
-        try (Stream<Path> paths = Files.walk(folderPath)) {
-            paths.filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .forEach(p -> error.append("- ").append(p.toString()).append("\n"));
+    /**
+     * Compiles and executes a Java program, handing its output to the listener
+     * as it is produced instead of collecting it.
+     *
+     * @param folderName the name of the folder inside the base directory containing
+     *                   the Java program
+     * @param version    the published version to run, or {@code null} for the
+     *                   current one
+     * @param tenant     the user requesting the execution
+     * @param listener   the receiver of the program output
+     * @return how the program ended, or the compilation or execution errors
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution
+     */
+    @Override
+    public String streamProgram(String folderName, String version, ExecutionTenant tenant,
+            OutputListener listener) {
+        ExecutionSummary summary = execute(folderName, version, listener, null, tenant);
+        if (summary.failure() != null) {
+            return summary.failure();
         }
+        if (summary.outcome().timedOut()) {
+            return "Program exceeded execution time limit (" + TIMEOUT_SECONDS + "s)";
+        }
+        return "Program exited with code " + summary.outcome().exitCode();
+    }
 
-        return error.toString();
+    /**
+     * Runs the test cases of a student program. The program is compiled once
+     * and every case runs in turn on the same runner, with its input on the
+     * standard input and its own time limit.
+     *
+     * @param folderName the name of the folder inside the base directory containing
+     *                   the Java program
+     * @param tenant     the user requesting the execution
+     * @param testCases  the test cases to run
+     * @return the per-case report
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution
+     */
+    @Override
+    public TestReportDto executeProgramTestCases(String folderName, ExecutionTenant tenant,
+            List<TestCaseDto> testCases) {
+        return executeTestCases(BASE_PROGRAMS_DIR, folderName, testCases, false, tenant);
     }
 
     /**
-     * Compiles all Java source files in the given folder.
-     * 
-     * @param folderPath the folder containing Java files to compile
-     * @return an empty string if compilation is successful, or an error message
-     *         otherwise
-     * @throws Exception if an error occurs during compilation
+     * Runs the test cases of an example, like
+     * {@link #executeProgramTestCases(String, ExecutionTenant, List)}.
+     * Examples marked for in-process execution run inside the application JVM
+     * when they can.
+     *
+     * @param exampleId the identifier of the example
+     * @param inProcess whether the example may run inside the application JVM
+     * @param tenant    the user requesting the execution
+     * @param testCases the test cases to run
+     * @return the per-case report
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution
      */
-    private String compileJavaFiles(Path folderPath) throws Exception {
-        List<String> javaFiles;
-        try (Stream<Path> paths = Files.walk(folderPath)) {
-            javaFiles = paths
-                    .filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .map(p -> folderPath.relativize(p).toString())
-                    .collect(Collectors.toList());
-        }
+    @Override
+    public TestReportDto executeExampleTestCases(Integer exampleId, boolean inProcess, ExecutionTenant tenant,
+            List<TestCaseDto> testCases) {
+        return executeTestCases(BASE_EXAMPLES_DIR, String.valueOf(exampleId), testCases, inProcess, tenant);
+    }
 
-        if (javaFiles.isEmpty()) {
-            return "No .java files found to compile.";
+    private TestReportDto executeTestCases(String baseDir, String folderName, List<TestCaseDto> testCases,
+            boolean inProcess, ExecutionTenant tenant) {
+        List<RunInput> inputs = new ArrayList<>();
+        List<OutputCapture> captures = new ArrayList<>();
+        for (TestCaseDto testCase : testCases) {
+            // Test cases stored before the limit was validated are clamped to it
+            long timeoutMillis = testCase.timeoutMillis() != null
+                    ? Math.min(testCase.timeoutMillis(), TestCaseDto.MAX_TIMEOUT_MILLIS)
+                    : TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            inputs.add(new RunInput(testCase.input().getBytes(StandardCharsets.UTF_8), timeoutMillis, null));
+            captures.add(new OutputCapture(captureMaxBytes));
         }
 
-        List<String> command = new ArrayList<>();
-        command.add("javac");
-        command.add("-encoding");
-        command.add("UTF-8");
-        command.addAll(javaFiles);
+        ExecutionSummary summary = execute(baseDir, folderName, null, null, inputs, new ArrayList<>(captures),
+                inProcess, tenant);
+        if (summary.failure() != null) {
+            return new TestReportDto(testCases.size(), 0, summary.failure(), summary.compileTimeMillis(), 0,
+                    List.of());
+        }
 
-        Process compileProcess = new ProcessBuilder(command)
-                .directory(folderPath.toFile())
-                .redirectErrorStream(true)
-                .start();
+        List<TestCaseResultDto> results = new ArrayList<>();
+        int passed = 0;
+        long totalTimeMillis = 0;
+        for (int i = 0; i < testCases.size(); i++) {
+            RunOutcome outcome = summary.outcomes().get(i);
+            OutputCapture capture = captures.get(i);
+            totalTimeMillis += outcome.wallTimeMillis();
 
-        boolean finished = compileProcess.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        String output = new String(compileProcess.getInputStream().readAllBytes());
+            String status;
+            if (outcome.timedOut()) {
+                status = "timeout";
+            } else if (outcome.exitCode() != 0) {
+                status = "error";
+            } else if (normalizeOutput(capture.getStdout()).equals(normalizeOutput(testCases.get(i).expectedOutput()))
+                    && !capture.isTruncated()) {
+                status = "passed";
+            } else {
+                status = "failed";
+            }
 
-        if (!finished || compileProcess.exitValue() != 0) {
-            return "Compilation errors:\n" + output;
+            if (status.equals("passed")) {
+                passed++;
+                results.add(new TestCaseResultDto(testCases.get(i).id(), status, outcome.wallTimeMillis(),
+                        outcome.exitCode(), null, null));
+            } else {
+                results.add(new TestCaseResultDto(testCases.get(i).id(), status, outcome.wallTimeMillis(),
+                        outcome.timedOut() ? null : outcome.exitCode(), capture.getStdout(), capture.getStderr()));
+            }
         }
+        return new TestReportDto(testCases.size(), passed, null, summary.compileTimeMillis(), totalTimeMillis,
+                results);
+    }
 
-        return "";
+    /**
+     * Normalizes program output for comparison: line separators become
+     * {@code \n}, and trailing spaces and trailing blank lines are ignored.
+     *
+     * @param output the output to normalize
+     * @return the normalized output
+     */
+    private String normalizeOutput(String output) {
+        StringBuilder normalized = new StringBuilder();
+        for (String line : output.split("\\R", -1)) {
+            normalized.append(line.stripTrailing()).append('\n');
+        }
+        return normalized.toString().stripTrailing();
     }
 
     /**
-     * Executes the compiled Java program and captures its output.
-     * 
-     * @param folderPath the folder where the compiled classes are located
-     * @param javaFile   the Java source file containing the main class
-     * @return the program's output or a timeout message if execution exceeds the
-     *         time limit
-     * @throws Exception if an error occurs during execution
+     * Input and time limit of one run of a program.
+     *
+     * @param stdin         the bytes fed to the standard input, or {@code null}
+     * @param timeoutMillis the time limit of the run
+     * @param profile       the JVM profile if the run is forked, or
+     *                      {@code null} for the default
      */
-    private String executeCompiledProgram(Path folderPath, File javaFile) throws Exception {
-        String className = extractFullClassName(javaFile);
+    private record RunInput(byte[] stdin, long timeoutMillis, JvmProfile profile) {
+    }
 
-        Process runProcess = new ProcessBuilder("java", className)
-                .directory(folderPath.toFile())
-                .redirectErrorStream(true)
-                .start();
+    /**
+     * How an execution ended.
+     *
+     * @param outcomes          the outcome of each run, or {@code null} if the
+     *                          program did not run
+     * @param outputBytes       the bytes each run wrote to stdout and stderr
+     * @param failure           why the program did not run, or {@code null}
+     * @param compileTimeMillis the time spent compiling
+     * @param digest            the digest of the sources that ran, or
+     *                          {@code null} if the program did not run
+     */
+    private record ExecutionSummary(List<RunOutcome> outcomes, List<Long> outputBytes, String failure,
+            long compileTimeMillis, String digest) {
 
-        boolean finished = runProcess.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        String output = new String(runProcess.getInputStream().readAllBytes());
+        static ExecutionSummary failed(String failure, long compileTimeMillis) {
+            return new ExecutionSummary(null, null, failure, compileTimeMillis, null);
+        }
 
-        if (!finished) {
-            return "Program exceeded execution time limit (" + TIMEOUT_SECONDS + "s)\n" +
-                    "Partial output:\n" + output;
+        RunOutcome outcome() {
+            return outcomes.get(0);
         }
+    }
 
-        return "Program output:\n" + output;
+    /**
+     * Validates, compiles and runs a student program once, without input and
+     * with the default time limit.
+     *
+     * @param folderName the name of the program folder
+     * @param version    the version to run, or {@code null} for the current one
+     * @param listener   the receiver of the program output
+     * @param profile    the JVM profile, or {@code null} for the default
+     * @param tenant     the user requesting the execution
+     * @return the outcome of the run, or why the program did not run
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution
+     */
+    private ExecutionSummary execute(String folderName, String version, OutputListener listener,
+            JvmProfile profile, ExecutionTenant tenant) {
+        return execute(BASE_PROGRAMS_DIR, folderName, version, null,
+                List.of(new RunInput(null, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS), profile)), List.of(listener),
+                false, tenant);
     }
 
     /**
-     * Extracts the fully qualified class name from a Java source file.
-     * 
-     * @param javaFile the Java source file to inspect
-     * @return the full class name including package if present
-     * @throws IOException if an error occurs reading the file
-     */
-    private String extractFullClassName(File javaFile) throws IOException {
-        String packageName = null;
-        List<String> lines = Files.readAllLines(javaFile.toPath());
-
-        for (String line : lines) {
-            line = line.strip();
-            if (line.startsWith("package ")) {
-                packageName = line.replace("package", "").replace(";", "").trim();
-                break;
+     * Leases a version of a program folder, validates and compiles the
+     * program, then runs it once per input under a single execution slot.
+     *
+     * @param baseDir    the directory containing the program folders
+     * @param folderName the name of the program folder
+     * @param version    the version to run, or {@code null} for the current
+     *                   one
+     * @param manifest   the stored manifest of the program, or {@code null} to
+     *                   look it up; a pinned version is never looked up
+     * @param inputs     the input and time limit of each run
+     * @param listeners  the receiver of the output of each run
+     * @param inProcess  whether the program is trusted to run inside the
+     *                   application JVM
+     * @param tenant     the user the execution slot is taken for
+     * @return the outcome of each run, or why the program did not run
+     * @throws ExecutionRejectedException if the {@link ExecutionScheduler} does
+     *                                    not admit the execution, or too many
+     *                                    processes are alive
+     */
+    private ExecutionSummary execute(String baseDir, String folderName, String version, ProgramManifest manifest,
+            List<RunInput> inputs, List<OutputListener> listeners, boolean inProcess, ExecutionTenant tenant) {
+        long compileTimeMillis = 0;
+        processSupervisor.ensureCapacity();
+        // The permit is held for the whole execution and returned when it ends
+        ExecutionPermit permit = executionScheduler.acquire(tenant);
+        try (permit; VersionedFolders.Lease lease = lease(baseDir, folderName, version)) {
+            Path folderPath = lease.path();
+
+            // Sources are only read when there is no manifest or the compiled classes are not cached
+            Map<String, String> sources = null;
+            if (manifest == null && version == null) {
+                manifest = findManifest(baseDir, folderName).orElse(null);
+            }
+            if (manifest == null) {
+                sources = SourceAnalyzer.readSources(folderPath);
+                manifest = ProgramManifest.build(sources);
+            }
+
+            if (manifest.mainClass() == null) {
+                return ExecutionSummary.failed(buildNoMainFileError(folderPath, manifest), 0);
+            }
+
+            long compileStart = System.nanoTime();
+            // Pinned versions are cached apart, so the current version stays invalidated by its key
+            String cacheKey = version != null ? cacheKey(baseDir, folderName) + "@" + version
+                    : cacheKey(baseDir, folderName);
+            CompiledProgram compiled = compile(cacheKey, folderPath, manifest.digest(), sources);
+            compileTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - compileStart);
+            try {
+                if (!compiled.getCompilation().success()) {
+                    executionMetrics.recordCompileError(compileTimeMillis);
+                    return ExecutionSummary.failed(compiled.getCompilation().formatErrors(), compileTimeMillis);
+                }
+
+                String className = manifest.mainClass();
+                List<RunRequest> requests = new ArrayList<>();
+                List<OutputListener> countingListeners = new ArrayList<>();
+                AtomicLong[] outputCounters = new AtomicLong[inputs.size()];
+                for (int i = 0; i < inputs.size(); i++) {
+                    RunInput input = inputs.get(i);
+                    requests.add(new RunRequest(folderPath, compiled.getClassesDir(), className, input.stdin(),
+                            input.timeoutMillis(), input.profile()));
+
+                    AtomicLong counter = outputCounters[i] = new AtomicLong();
+                    OutputListener listener = listeners.get(i);
+                    countingListeners.add(new OutputListener() {
+                        @Override
+                        public void onOutput(OutputChannel channel, byte[] data, int offset, int length) {
+                            counter.addAndGet(length);
+                            listener.onOutput(channel, data, offset, length);
+                        }
+
+                        @Override
+                        public boolean isCancelled() {
+                            return listener.isCancelled();
+                        }
+                    });
+                }
+
+                ProgramRunner runner = selectRunner(manifest, compiled, inProcess);
+                List<RunOutcome> outcomes = runner.runAll(requests, countingListeners);
+                List<Long> outputBytes = new ArrayList<>();
+                for (int i = 0; i < outcomes.size(); i++) {
+                    outputBytes.add(outputCounters[i].get());
+                    executionMetrics.recordRun(outcomes.get(i), outputCounters[i].get(), runner.mode());
+                }
+                return new ExecutionSummary(outcomes, outputBytes, null, compileTimeMillis, manifest.digest());
+            } finally {
+                compiledClassCache.release(compiled);
             }
+
+        } catch (ExecutionRejectedException e) {
+            // The catch clauses also cover the permit acquisition; rejections must reach the caller
+            throw e;
+        } catch (Exception e) {
+            return ExecutionSummary.failed("Error executing program: " + e.getMessage(), compileTimeMillis);
         }
+    }
+
+    /**
+     * Queues the execution of a program and returns immediately. The job runs
+     * {@link #executeProgram(String, ExecutionTenant)} on a job worker, so it
+     * goes through the same admission control as synchronous executions; a
+     * rejection by the {@link ExecutionScheduler} finishes the job as
+     * {@link ExecutionJobStatus#REJECTED}.
+     *
+     * @param folderName the name of the folder inside the base directory containing
+     *                   the Java program
+     * @param tenant     the user requesting the execution
+     * @return the queued job
+     * @throws ExecutionRejectedException if the job store is full
+     */
+    @Override
+    public ExecutionJobDto submitExecution(String folderName, ExecutionTenant tenant) {
+        ExecutionJob job = executionJobStore.create(folderName);
+        jobWorkers.execute(() -> runJob(job, tenant));
+        return job.toDto();
+    }
+
+    /**
+     * Returns the state of a job, waiting up to the given time for it to finish.
+     * The wait does not block any thread.
+     *
+     * @param jobId       the job identifier
+     * @param waitSeconds maximum time to wait for the job to finish, 0 to return
+     *                    right away
+     * @return a stage completed with the job, or with an empty value if the job
+     *         does not exist or has expired
+     */
+    @Override
+    public CompletionStage<Optional<ExecutionJobDto>> awaitExecutionJob(String jobId, long waitSeconds) {
+        Optional<ExecutionJob> found = executionJobStore.find(jobId);
+        if (found.isEmpty() || waitSeconds <= 0 || found.get().getCompletion().isDone()) {
+            return CompletableFuture.completedFuture(found.map(ExecutionJob::toDto));
+        }
+
+        ExecutionJob job = found.get();
+        // completeOnTimeout is applied to a dependent stage, never to the job's own future
+        return job.getCompletion()
+                .thenApply(finished -> finished)
+                .completeOnTimeout(job, waitSeconds, TimeUnit.SECONDS)
+                .thenApply(current -> Optional.of(current.toDto()));
+    }
+
+    /**
+     * Runs a job on the calling worker thread.
+     *
+     * @param job    the job to run
+     * @param tenant the user that submitted the job
+     */
+    private void runJob(ExecutionJob job, ExecutionTenant tenant) {
+        job.markRunning();
+        try {
+            job.finish(ExecutionJobStatus.COMPLETED, executeProgram(job.getFolderName(), tenant));
+        } catch (ExecutionRejectedException e) {
+            job.finish(ExecutionJobStatus.REJECTED, errorResult(e.getMessage(), 0));
+        } catch (RuntimeException e) {
+            job.finish(ExecutionJobStatus.COMPLETED, errorResult("Error executing program: " + e.getMessage(), 0));
+        }
+    }
+
+    /**
+     * Stops the job workers when the application stops.
+     */
+    @PreDestroy
+    void shutdown() {
+        jobWorkers.shutdownNow();
+    }
 
-        String className = javaFile.getName().replace(".java", "");
-        return (packageName != null ? packageName + "." : "") + className;
+    /**
+     * Builds the {@link CompiledClassCache} key of a program folder. Student
+     * programs are keyed by their code, which is what {@link ProgramService}
+     * invalidates; other folders are prefixed with their base directory.
+     *
+     * @param baseDir    the directory containing the program folders
+     * @param folderName the name of the program folder
+     * @return the cache key
+     */
+    private String cacheKey(String baseDir, String folderName) {
+        return BASE_PROGRAMS_DIR.equals(baseDir) ? folderName : baseDir + "/" + folderName;
+    }
+
+    /**
+     * Leases the folder of a program or an example, built on this node if it
+     * was uploaded through another one.
+     *
+     * @param baseDir    the directory containing the program folders
+     * @param folderName the name of the program folder
+     * @param version    the version to lease, or {@code null} for the current
+     *                   one
+     * @return the lease of the folder
+     * @throws IOException if the folder does not exist or cannot be built
+     */
+    private VersionedFolders.Lease lease(String baseDir, String folderName, String version) throws IOException {
+        return BASE_PROGRAMS_DIR.equals(baseDir) ? folderCache.leaseProgram(folderName, version)
+                : folderCache.leaseExample(Integer.valueOf(folderName));
+    }
+
+    /**
+     * Finds the manifest stored for a student program when it was uploaded.
+     * Examples, and programs uploaded before manifests were indexed, have
+     * none.
+     *
+     * @param baseDir    the directory containing the program folders
+     * @param folderName the name of the program folder
+     * @return the stored manifest, if any
+     */
+    private Optional<ProgramManifest> findManifest(String baseDir, String folderName) {
+        return BASE_PROGRAMS_DIR.equals(baseDir) ? programManifestLookup.find(folderName) : Optional.empty();
+    }
+
+    /**
+     * Returns the compiled classes of a source tree, compiling them only if
+     * the same source tree is not already in the {@link CompiledClassCache} nor
+     * being compiled by another request.
+     *
+     * @param cacheKey   the cache key of the program folder
+     * @param folderPath the program folder
+     * @param digest     the digest of the source tree
+     * @param sources    the source contents indexed by relative path, or
+     *                   {@code null} to read them from the folder on a cache
+     *                   miss
+     * @return the leased cache entry, to be released once the execution ends
+     * @throws IOException if the sources cannot be read or compiled
+     */
+    private CompiledProgram compile(String cacheKey, Path folderPath, String digest, Map<String, String> sources)
+            throws IOException {
+        return compiledClassCache.acquireOrCompile(cacheKey, digest, classesDir -> {
+            Map<String, String> compiled = sources != null ? sources : SourceAnalyzer.readSources(folderPath);
+            if (!digest.equals(CompiledClassCache.digest(compiled))) {
+                // The manifest was read before a new upload replaced the folder
+                throw new IOException("The program sources changed while it was starting, run it again");
+            }
+            return compilationEngine.compile(folderPath, compiled, classesDir);
+        });
+    }
+
+    /**
+     * Constructs an error message listing all Java files when no valid main file is
+     * found.
+     * 
+     * @param folderPath the folder where the search was performed
+     * @param manifest   the manifest of the Java sources in the folder
+     * @return a detailed error message with the list of Java files found
+     */
+    private String buildNoMainFileError(Path folderPath, ProgramManifest manifest) {
+        StringBuilder error = new StringBuilder();
+        error.append("No .java file with a valid 'main' method found in: ")
+                .append(folderPath.toString())
+                .append("\n\nFiles found:\n");
+
+        manifest.files().forEach(f -> error.append("- ").append(folderPath.resolve(f.path())).append("\n"));
+
+        return error.toString();
+    }
+
+    /**
+     * Chooses the runner for a program: the application JVM for trusted
+     * programs that neither access files nor end the JVM, the pool of
+     * pre-started JVMs when it is enabled, or a forked JVM for programs that
+     * access files, since those need their folder as working directory.
+     *
+     * Whether the program ends the JVM is decided on its compiled classes; the
+     * manifest flag, found in the sources, only spares the check.
+     *
+     * @param manifest  the manifest of the program
+     * @param compiled  the compiled program
+     * @param inProcess whether the program is trusted to run inside the
+     *                  application JVM
+     * @return the runner to use
+     */
+    private ProgramRunner selectRunner(ProgramManifest manifest, CompiledProgram compiled, boolean inProcess) {
+        if (manifest.accessesFiles()) {
+            return forkedProgramRunner;
+        }
+        if (inProcess && !manifest.callsExit()
+                && inProcessProgramRunner.accepts(compiled.getCompilation().classFiles())) {
+            return inProcessProgramRunner;
+        }
+        return runnerPool.isEnabled() ? runnerPool : forkedProgramRunner;
     }
 }
@@ -0,0 +1,14 @@
+package co.uniquindio.ingesis.service.implement;
+
+import co.uniquindio.ingesis.storage.StagedFolder;
+
+/**
+ * CDI event fired when a new version of the folder of a program is staged
+ * within an upload, to be published if the upload commits and discarded if
+ * it rolls back.
+ *
+ * @param code   the code of the program
+ * @param folder the staged version
+ */
+record ProgramFolderStaged(String code, StagedFolder folder) {
+}
@@ -1,51 +1,134 @@
 package co.uniquindio.ingesis.service.implement;
 
 import co.uniquindio.ingesis.dto.programResource.ProgramDto;
+import co.uniquindio.ingesis.dto.programResource.ProgramVersionDto;
 import co.uniquindio.ingesis.exception.ProgramExistException;
 import co.uniquindio.ingesis.exception.ProgramNotExistException;
+import co.uniquindio.ingesis.execution.compiler.CompiledClassCache;
+import co.uniquindio.ingesis.execution.compiler.ProgramSourcesChanged;
+import co.uniquindio.ingesis.execution.manifest.ProgramManifest;
 import co.uniquindio.ingesis.model.Program;
+import co.uniquindio.ingesis.model.ProgramSourceFile;
 import co.uniquindio.ingesis.repository.ProgramRepository;
+import co.uniquindio.ingesis.repository.ProgramSourceFileRepository;
+import co.uniquindio.ingesis.repository.ProgramTestCaseRepository;
 import co.uniquindio.ingesis.service.interfaces.ProgramServiceInterface;
+import co.uniquindio.ingesis.storage.ArchiveCache;
+import co.uniquindio.ingesis.storage.FolderCache;
+import co.uniquindio.ingesis.storage.SourceArchiveStore;
+import co.uniquindio.ingesis.storage.StagedFolder;
+import co.uniquindio.ingesis.storage.StoredArchive;
+import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
 import jakarta.transaction.Transactional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.*;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import java.nio.file.*;
 
 /**
  * Implementation of the Program Service Interface that handles program
  * management operations.
  * This service manages the programs' data and their associated files in the
- * file system.
+ * file system. The uploaded files are stored once in the blob store, and the
+ * program folder is materialized from them into a new version, published
+ * atomically through the {@link FolderCache} so that running executions
+ * never see a half-replaced folder. The version is published, and the caches
+ * of the previous sources invalidated, only once the upload commits.
  */
 @ApplicationScoped
 public class ProgramService implements ProgramServiceInterface {
 
+    private static final Logger logger = LogManager.getLogger(ProgramService.class);
+
     /**
      * Repository for program entity operations.
      */
     private final ProgramRepository programRepository;
-    private static final String BASE_PROGRAMS_DIR = "programs";
+
+    /**
+     * Cache of compiled programs, invalidated whenever the sources change.
+     */
+    private final CompiledClassCache compiledClassCache;
+
+    /**
+     * Repository of the test cases, deleted together with their program.
+     */
+    private final ProgramTestCaseRepository testCaseRepository;
+
+    /**
+     * Repository of the indexed source files of the programs.
+     */
+    private final ProgramSourceFileRepository sourceFileRepository;
+
+    /**
+     * Store of the uploaded files, deduplicated by content.
+     */
+    private final SourceArchiveStore sourceArchiveStore;
+
+    /**
+     * Cache of the download archives, invalidated whenever the files change.
+     */
+    private final ArchiveCache archiveCache;
+
+    /**
+     * Publisher of the versions of the program folders on this node.
+     */
+    private final FolderCache folderCache;
+
+    /**
+     * Event announcing new sources, which are then compiled in the background
+     * once the upload commits.
+     */
+    private final Event<ProgramSourcesChanged> sourcesChanged;
+
+    /**
+     * Event carrying a staged folder version to the end of its upload.
+     */
+    private final Event<ProgramFolderStaged> folderStaged;
 
     /**
      * Constructor with dependency injection for the program repository.
      *
-     * @param programRepository Repository for program operations
+     * @param programRepository  Repository for program operations
+     * @param compiledClassCache Cache of compiled programs
+     * @param testCaseRepository   Repository for test case operations
+     * @param sourceFileRepository Repository for the indexed source files
+     * @param sourceArchiveStore   Store of the uploaded files
+     * @param archiveCache         Cache of the download archives
+     * @param folderCache          Publisher of the program folder versions
+     * @param sourcesChanged       Event fired when the sources of a program change
+     * @param folderStaged         Event fired when a folder version is staged
      */
     @Inject
-    public ProgramService(ProgramRepository programRepository) {
+    public ProgramService(ProgramRepository programRepository, CompiledClassCache compiledClassCache,
+            ProgramTestCaseRepository testCaseRepository, ProgramSourceFileRepository sourceFileRepository,
+            SourceArchiveStore sourceArchiveStore, ArchiveCache archiveCache, FolderCache folderCache,
+            Event<ProgramSourcesChanged> sourcesChanged, Event<ProgramFolderStaged> folderStaged) {
         this.programRepository = programRepository;
+        this.compiledClassCache = compiledClassCache;
+        this.testCaseRepository = testCaseRepository;
+        this.sourceFileRepository = sourceFileRepository;
+        this.sourceArchiveStore = sourceArchiveStore;
+        this.archiveCache = archiveCache;
+        this.folderCache = folderCache;
+        this.sourcesChanged = sourcesChanged;
+        this.folderStaged = folderStaged;
     }
 
     /**
-     * Adds a new program to the system and extracts its ZIP file content to the
-     * appropriate directory.
+     * Adds a new program to the system, stores its ZIP file content and
+     * materializes it in the appropriate directory. The manifest of the
+     * sources (main class, packages and file list) is indexed while storing
+     * and saved with the program.
      *
      * @param programDto     DTO containing program information
      * @param zipInputStream Input stream of the ZIP file with program content
@@ -65,28 +148,64 @@ public class ProgramService implements ProgramServiceInterface {
             throw new ProgramExistException();
         }
 
-        // Define the program directory using Paths
-        Path programPath = Paths.get(BASE_PROGRAMS_DIR, newProgram.getCode()).toAbsolutePath().normalize();
+        // Define the program directory
+        Path programPath = programFolder(newProgram.getCode());
 
-        // Security check - prevent directory traversal
-        if (!programPath.startsWith(Paths.get(BASE_PROGRAMS_DIR).toAbsolutePath())) {
-            throw new SecurityException("Invalid program directory path");
-        }
-
-        // Create directory if not exists
-        if (!Files.exists(programPath)) {
-            Files.createDirectories(programPath);
-        }
-
-        // Extract the zip file
-        extractZipFile(zipInputStream, programPath.toFile());
+        // Store the files and stage the program directory built from them
+        StoredArchive archive = sourceArchiveStore.ingest(zipInputStream);
+        ProgramManifest manifest = ProgramManifest.build(archive.sources());
+        stageFolder(newProgram.getCode(), archive);
 
         Program managedProgram = programRepository.getEntityManager().merge(newProgram);
         programRepository.persistAndFlush(managedProgram);
+        sourceArchiveStore.attach(managedProgram, archive);
+        saveManifest(managedProgram, programPath, manifest);
 
         return "Program created successfully with source code.";
     }
 
+    /**
+     * Builds a new version of the directory of a program, published once the
+     * upload commits.
+     *
+     * @param code    Code of the program
+     * @param archive The stored files of the program
+     * @throws IOException If the directory cannot be built
+     */
+    private void stageFolder(String code, StoredArchive archive) throws IOException {
+        folderStaged.fire(new ProgramFolderStaged(code, folderCache.stageProgram(code, archive.entries())));
+    }
+
+    /**
+     * Publishes the directory staged by a committed upload and drops the
+     * cached classes and archive of the replaced sources. Observed before the
+     * background compilation of the new sources, which reads the directory.
+     *
+     * @param event The staged directory
+     */
+    void onFolderStaged(@Observes(during = TransactionPhase.AFTER_SUCCESS)
+            @Priority(Interceptor.Priority.PLATFORM_BEFORE) ProgramFolderStaged event) {
+        StagedFolder folder = event.folder();
+        try {
+            folderCache.publish(folder);
+        } catch (IOException e) {
+            // The directory is rebuilt from the stored files by the next execution
+            logger.warn("Unable to publish the directory of program {}", event.code(), e);
+            folderCache.discard(folder);
+        }
+        compiledClassCache.invalidate(event.code());
+        archiveCache.invalidate("program-" + event.code());
+    }
+
+    /**
+     * Discards the directory staged by an upload that rolled back.
+     *
+     * @param event The staged directory
+     */
+    void onFolderRolledBack(@Observes(during = TransactionPhase.AFTER_FAILURE) ProgramFolderStaged event) {
+        folderCache.discard(event.folder());
+    }
+
     /**
      * Retrieves program information by its code.
      *
@@ -126,25 +245,18 @@ public class ProgramService implements ProgramServiceInterface {
 
         // If a ZIP file is provided, update the program files
         if (zipInputStream != null) {
-            Path programPath = Paths.get(BASE_PROGRAMS_DIR, program.getCode()).toAbsolutePath().normalize();
-
-            // Security check
-            if (!programPath.startsWith(Paths.get(BASE_PROGRAMS_DIR).toAbsolutePath())) {
-                throw new SecurityException("Invalid program directory path");
-            }
-
-            File programDir = programPath.toFile();
-
-            // Delete existing directory before extracting new files
-            if (programDir.exists()) {
-                deleteDirectory(programDir); // Usando tu método existente
-            }
-
-            // Create the directory if it doesn't exist
-            programDir.mkdirs();
-
-            // Extract the new ZIP file
-            extractZipFile(zipInputStream, programDir);
+            Path programPath = programFolder(program.getCode());
+
+            // Store the new files before releasing the old ones, which they may share
+            StoredArchive archive = sourceArchiveStore.ingest(zipInputStream);
+            sourceArchiveStore.releaseProgram(program);
+            sourceArchiveStore.attach(program, archive);
+
+            // Stage a new version of the directory and index its sources again;
+            // executions of the previous version keep it until they end
+            ProgramManifest manifest = ProgramManifest.build(archive.sources());
+            stageFolder(program.getCode(), archive);
+            saveManifest(program, programPath, manifest);
         }
 
         return "Program and file updated successfully.";
@@ -165,50 +277,60 @@ public class ProgramService implements ProgramServiceInterface {
         Program program = programRepository.findByCode(programDto.code())
                 .orElseThrow(ProgramNotExistException::new);
 
-        // Delete the program from the database
+        // Delete the program, its test cases, its source index and its files from the database
+        testCaseRepository.deleteByProgramId(program.getId());
+        sourceFileRepository.deleteByProgramId(program.getId());
+        sourceArchiveStore.releaseProgram(program);
         programRepository.delete(program);
 
         // Path to the program directory
-        Path programPath = Paths.get(BASE_PROGRAMS_DIR, programDto.code()).toAbsolutePath().normalize();
+        Path programPath = programFolder(programDto.code());
 
-        // Security check
-        if (!programPath.startsWith(Paths.get(BASE_PROGRAMS_DIR).toAbsolutePath())) {
-            throw new SecurityException("Invalid program directory path");
-        }
-
-        File programDir = programPath.toFile();
+        compiledClassCache.invalidate(programDto.code());
+        archiveCache.invalidate("program-" + programDto.code());
 
-        if (programDir.exists()) {
-            try {
-                deleteDirectory(programDir);
-            } catch (IOException e) {
-                throw new IOException("Failed to delete program directory: " + programPath, e);
-            }
+        // The versions of the directory are deleted once no execution uses them
+        try {
+            folderCache.removeProgram(programDto.code());
+        } catch (IOException e) {
+            throw new IOException("Failed to delete program directory: " + programPath, e);
         }
 
         return "Program deleted successfully.";
     }
 
     /**
-     * Recursively deletes a directory and all its contents.
+     * Lists the published versions of the files of a program.
      *
-     * @param directory The directory to delete
-     * @throws IOException If an I/O error occurs
+     * @param code Code of the program
+     * @return The versions, oldest first
+     * @throws ProgramNotExistException If no program with the specified code exists
+     * @throws IOException              If the versions cannot be listed
      */
-    private void deleteDirectory(File directory) throws IOException {
-        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Files.delete(file);
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                Files.delete(dir);
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    @Override
+    public List<ProgramVersionDto> listVersions(String code) throws ProgramNotExistException, IOException {
+        programRepository.findByCode(code).orElseThrow(ProgramNotExistException::new);
+        String current = folderCache.currentProgramVersion(code);
+        return folderCache.programVersions(code).stream()
+                .map(version -> new ProgramVersionDto(version, version.equals(current)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolves the directory of a program, rejecting codes that would place
+     * it outside the programs directory.
+     *
+     * @param code Code of the program
+     * @return The absolute path of the program directory
+     */
+    private Path programFolder(String code) {
+        Path programPath = folderCache.programFolder(code).normalize();
+
+        // Security check - prevent directory traversal
+        if (!programPath.startsWith(folderCache.programFolder(""))) {
+            throw new SecurityException("Invalid program directory path");
+        }
+        return programPath;
     }
 
     @Override
@@ -228,7 +350,8 @@ public class ProgramService implements ProgramServiceInterface {
      */
     private Program buildProgramFromDto(ProgramDto programDto) {
         return new Program(programDto.id(), programDto.code(), programDto.name(), programDto.description(), "",
-                programDto.studentId(), programDto.shared());
+                programDto.studentId(), programDto.shared(), null, null, null, false, false, false, false,
+                null, null);
     }
 
     /**
@@ -243,32 +366,32 @@ public class ProgramService implements ProgramServiceInterface {
     }
 
     /**
-     * Extracts a ZIP file to the specified directory.
+     * Stores the manifest of the uploaded sources with the program, replacing
+     * the previous index of its source files, and requests the background
+     * compilation of programs with an entry point.
      *
-     * @param zipInputStream Input stream of the ZIP file
-     * @param directory      Directory where files will be extracted
-     * @throws IOException If an I/O error occurs during extraction
+     * @param program     The managed program entity
+     * @param programPath The directory the sources were materialized in
+     * @param manifest    The manifest of the Java sources of the program
      */
-    private void extractZipFile(InputStream zipInputStream, File directory) throws IOException {
-        System.out.println(" Descomprimiendo ZIP en: " + directory.getAbsolutePath());
-        try (ZipInputStream zis = new ZipInputStream(zipInputStream)) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                File entryFile = new File(directory, entry.getName());
-                System.out.println(" Extrayendo: " + entryFile.getAbsolutePath());
-                if (entry.isDirectory()) {
-                    entryFile.mkdirs();
-                } else {
-                    try (FileOutputStream fos = new FileOutputStream(entryFile)) {
-                        byte[] buffer = new byte[1024];
-                        int length;
-                        while ((length = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, length);
-                        }
-                    }
-                }
-                zis.closeEntry();
-            }
+    private void saveManifest(Program program, Path programPath, ProgramManifest manifest) {
+        program.setMainFile(manifest.mainFile());
+        program.setMainClass(manifest.mainClass());
+        program.setSourceDigest(manifest.digest());
+        program.setAccessesFiles(manifest.accessesFiles());
+        program.setReadsInput(manifest.readsInput());
+        program.setNondeterministic(manifest.nondeterministic());
+        program.setCallsExit(manifest.callsExit());
+
+        sourceFileRepository.deleteByProgramId(program.getId());
+        for (ProgramManifest.SourceEntry file : manifest.files()) {
+            sourceFileRepository.persist(new ProgramSourceFile(null, program, file.path(), file.sizeBytes(),
+                    file.sha256(), file.packageName(), file.hasMain()));
+        }
+
+        // Programs without a main method are never compiled by the execution service either
+        if (manifest.mainClass() != null) {
+            sourcesChanged.fire(new ProgramSourcesChanged(program.getCode(), programPath, manifest.digest()));
         }
     }
 
@@ -0,0 +1,83 @@
+package co.uniquindio.ingesis.service.implement;
+
+import co.uniquindio.ingesis.dto.SnippetResource.SnippetEvaluationDto;
+import co.uniquindio.ingesis.dto.SnippetResource.SnippetResultDto;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.execution.runner.OutputCapture;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionPermit;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionScheduler;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+import co.uniquindio.ingesis.execution.snippet.SnippetOutcome;
+import co.uniquindio.ingesis.execution.snippet.SnippetShellPool;
+import co.uniquindio.ingesis.service.interfaces.SnippetServiceInterface;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service evaluating short pieces of code on the warm shells of the
+ * {@link SnippetShellPool}, for quick experiments that do not deserve a whole
+ * program upload.
+ *
+ * Evaluations are admitted by the {@link ExecutionScheduler} like program
+ * executions, so they share the execution slots and the limits of each user.
+ * The output is captured like the output of programs, bounded to
+ * {@code execution.capture.max-bytes} per stream, and every evaluation is
+ * limited to {@code execution.snippet.timeout-millis}.
+ */
+@ApplicationScoped
+public class SnippetService implements SnippetServiceInterface {
+
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final SnippetShellPool snippetShellPool;
+    private final ExecutionScheduler executionScheduler;
+    private final long timeoutMillis;
+    private final int captureMaxBytes;
+
+    @Inject
+    public SnippetService(SnippetShellPool snippetShellPool, ExecutionScheduler executionScheduler,
+            @ConfigProperty(name = "execution.snippet.timeout-millis", defaultValue = "3000") long timeoutMillis,
+            @ConfigProperty(name = "execution.capture.max-bytes", defaultValue = "65536") int captureMaxBytes) {
+        this.snippetShellPool = snippetShellPool;
+        this.executionScheduler = executionScheduler;
+        this.timeoutMillis = timeoutMillis;
+        this.captureMaxBytes = captureMaxBytes;
+    }
+
+    @Override
+    public SnippetResultDto evaluate(String source, ExecutionTenant tenant) {
+        if (!snippetShellPool.isEnabled()) {
+            throw new ExecutionRejectedException("Snippet evaluation is disabled", RETRY_AFTER_SECONDS);
+        }
+
+        OutputCapture capture = new OutputCapture(captureMaxBytes);
+        long start = System.nanoTime();
+        SnippetOutcome outcome;
+        ExecutionPermit permit = executionScheduler.acquire(tenant);
+        try (permit) {
+            outcome = snippetShellPool.evaluate(source, capture, timeoutMillis);
+        } catch (IOException e) {
+            throw new ExecutionRejectedException(e.getMessage(), RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionRejectedException("Interrupted while waiting for a snippet shell",
+                    RETRY_AFTER_SECONDS);
+        }
+        long timeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        String errors = capture.getStderr();
+        if (outcome.timedOut()) {
+            errors += "Evaluation exceeded the time limit (" + timeoutMillis + "ms)\n";
+        }
+        return new SnippetResultDto(
+                outcome.evaluations().stream()
+                        .map(evaluation -> new SnippetEvaluationDto(evaluation.source(), evaluation.status(),
+                                evaluation.value(), evaluation.error()))
+                        .toList(),
+                capture.getStdout(), errors, outcome.timedOut(), capture.isTruncated(), timeMillis);
+    }
+}
@@ -0,0 +1,122 @@
+package co.uniquindio.ingesis.service.implement;
+
+import co.uniquindio.ingesis.dto.TestCaseResource.TestCaseDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestReportDto;
+import co.uniquindio.ingesis.exception.ProgramNotExistException;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+import co.uniquindio.ingesis.model.Example;
+import co.uniquindio.ingesis.model.Program;
+import co.uniquindio.ingesis.model.ProgramTestCase;
+import co.uniquindio.ingesis.repository.ExampleRepository;
+import co.uniquindio.ingesis.repository.ProgramRepository;
+import co.uniquindio.ingesis.repository.ProgramTestCaseRepository;
+import co.uniquindio.ingesis.service.interfaces.ExecutionServiceInterface;
+import co.uniquindio.ingesis.service.interfaces.TestCaseServiceInterface;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
+
+import java.util.List;
+
+/**
+ * Service implementation for managing the test cases of programs and examples.
+ * 
+ * Running the test cases hands them to the {@link ExecutionServiceInterface},
+ * which compiles the program once and runs every case on the same runner.
+ */
+@ApplicationScoped
+public class TestCaseService implements TestCaseServiceInterface {
+
+    private final ProgramTestCaseRepository testCaseRepository;
+    private final ProgramRepository programRepository;
+    private final ExampleRepository exampleRepository;
+    private final ExecutionServiceInterface executionService;
+
+    /**
+     * Constructor with dependency injection.
+     *
+     * @param testCaseRepository repository of the test cases
+     * @param programRepository  repository of the programs
+     * @param exampleRepository  repository of the examples
+     * @param executionService   service running the programs
+     */
+    @Inject
+    public TestCaseService(ProgramTestCaseRepository testCaseRepository, ProgramRepository programRepository,
+            ExampleRepository exampleRepository, ExecutionServiceInterface executionService) {
+        this.testCaseRepository = testCaseRepository;
+        this.programRepository = programRepository;
+        this.exampleRepository = exampleRepository;
+        this.executionService = executionService;
+    }
+
+    @Override
+    @Transactional
+    public TestCaseDto addProgramTestCase(String programCode, TestCaseDto dto) throws ProgramNotExistException {
+        Program program = findProgram(programCode);
+        ProgramTestCase testCase = new ProgramTestCase(null, program, null, dto.input(), dto.expectedOutput(),
+                dto.timeoutMillis());
+        testCaseRepository.persist(testCase);
+        return toDto(testCase);
+    }
+
+    @Override
+    @Transactional
+    public TestCaseDto addExampleTestCase(Integer exampleId, TestCaseDto dto) {
+        Example example = findExample(exampleId);
+        ProgramTestCase testCase = new ProgramTestCase(null, null, example, dto.input(), dto.expectedOutput(),
+                dto.timeoutMillis());
+        testCaseRepository.persist(testCase);
+        return toDto(testCase);
+    }
+
+    @Override
+    public List<TestCaseDto> listProgramTestCases(String programCode) throws ProgramNotExistException {
+        Program program = findProgram(programCode);
+        return testCaseRepository.findByProgramId(program.getId()).stream().map(this::toDto).toList();
+    }
+
+    @Override
+    public List<TestCaseDto> listExampleTestCases(Integer exampleId) {
+        Example example = findExample(exampleId);
+        return testCaseRepository.findByExampleId(example.getId()).stream().map(this::toDto).toList();
+    }
+
+    @Override
+    @Transactional
+    public void deleteTestCase(Long testCaseId) {
+        if (!testCaseRepository.deleteById(testCaseId)) {
+            throw new NotFoundException("Test case not found");
+        }
+    }
+
+    @Override
+    public TestReportDto runProgramTestCases(String programCode, ExecutionTenant tenant)
+            throws ProgramNotExistException {
+        List<TestCaseDto> testCases = listProgramTestCases(programCode);
+        return executionService.executeProgramTestCases(programCode, tenant, testCases);
+    }
+
+    @Override
+    public TestReportDto runExampleTestCases(Integer exampleId, ExecutionTenant tenant) {
+        Example example = findExample(exampleId);
+        List<TestCaseDto> testCases = testCaseRepository.findByExampleId(example.getId()).stream()
+                .map(this::toDto).toList();
+        return executionService.executeExampleTestCases(exampleId, example.isInProcessExecution(), tenant,
+                testCases);
+    }
+
+    private Program findProgram(String programCode) throws ProgramNotExistException {
+        return programRepository.findByCode(programCode).orElseThrow(ProgramNotExistException::new);
+    }
+
+    private Example findExample(Integer exampleId) {
+        return exampleRepository.findByIdOptional(Long.valueOf(exampleId))
+                .orElseThrow(() -> new NotFoundException("Example not found"));
+    }
+
+    private TestCaseDto toDto(ProgramTestCase testCase) {
+        return new TestCaseDto(testCase.getId(), testCase.getInput(), testCase.getExpectedOutput(),
+                testCase.getTimeoutMillis());
+    }
+}
@@ -0,0 +1,28 @@
+package co.uniquindio.ingesis.service.interfaces;
+
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchExecutionRequestDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchItemResultDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.BatchSummaryDto;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+
+import java.util.function.Consumer;
+
+/**
+ * Service interface responsible for executing many programs at once.
+ */
+public interface BatchExecutionServiceInterface {
+
+    /**
+     * Executes every program selected by the request in parallel and waits for
+     * all of them.
+     *
+     * @param request  the selection of programs
+     * @param tenant   the user requesting the batch, whose share of the
+     *                 execution slots the programs use
+     * @param onResult receives the result of each program as soon as it
+     *                 finishes, possibly from several threads at once
+     * @return the summary of the batch
+     */
+    BatchSummaryDto executeBatch(BatchExecutionRequestDto request, ExecutionTenant tenant,
+            Consumer<BatchItemResultDto> onResult);
+}
@@ -13,10 +13,14 @@ public interface ExampleServiceInterface {
      *
      * @param exampleDto     the data transfer object containing example details
      * @param zipInputStream the input stream of the ZIP file with example files
+     * @param userRole       the role of the authenticated user
      * @return a confirmation message or identifier of the added example
      * @throws IOException if there is an error reading the ZIP input stream
+     * @throws jakarta.ws.rs.ForbiddenException if a user other than a teacher
+     *                                          asks to run the example inside
+     *                                          the application JVM
      */
-    String addExample(ExampleDto exampleDto, InputStream zipInputStream) throws IOException;
+    String addExample(ExampleDto exampleDto, InputStream zipInputStream, String userRole) throws IOException;
 
     /**
      * Retrieves an example based on the provided example DTO.
@@ -31,10 +35,14 @@ public interface ExampleServiceInterface {
      *
      * @param exampleDto     the DTO with updated example details
      * @param zipInputStream the input stream of the updated ZIP file, if any
+     * @param userRole       the role of the authenticated user
      * @return a confirmation message or identifier of the updated example
      * @throws IOException if there is an error reading the ZIP input stream
+     * @throws jakarta.ws.rs.ForbiddenException if a user other than a teacher
+     *                                          asks to run the example inside
+     *                                          the application JVM
      */
-    String updateExample(ExampleDto exampleDto, InputStream zipInputStream) throws IOException;
+    String updateExample(ExampleDto exampleDto, InputStream zipInputStream, String userRole) throws IOException;
 
     /**
      * Deletes an example by its identifier.
@@ -1,7 +1,25 @@
 package co.uniquindio.ingesis.service.interfaces;
 
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionJobDto;
+import co.uniquindio.ingesis.dto.ExcecutionResource.ExecutionResultDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestCaseDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestReportDto;
+import co.uniquindio.ingesis.exception.ExecutionQuotaExceededException;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.execution.runner.JvmProfile;
+import co.uniquindio.ingesis.execution.runner.OutputListener;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Service interface responsible for executing programs.
+ *
+ * Every execution is requested on behalf of an {@link ExecutionTenant}; an
+ * {@link ExecutionQuotaExceededException} is thrown when that user already
+ * holds as many executions as allowed.
  */
 public interface ExecutionServiceInterface {
 
@@ -9,7 +27,92 @@ public interface ExecutionServiceInterface {
      * Executes a program located in the specified folder.
      *
      * @param folderName the name of the folder where the program files are located
-     * @return the output or result of the program execution as a String
+     * @param tenant     the user requesting the execution
+     * @return the output, errors, exit code and timings of the execution
+     * @throws ExecutionRejectedException if the server is at capacity and the
+     *                                    execution was not admitted
+     */
+    ExecutionResultDto executeProgram(String folderName, ExecutionTenant tenant);
+
+    /**
+     * Executes a program located in the specified folder, launching it with the
+     * given JVM profile when it runs in its own JVM. The result of a previous
+     * run of the same deterministic sources may be returned instead, unless
+     * {@code fresh} is set.
+     *
+     * @param folderName the name of the folder where the program files are located
+     * @param version    the published version of the files to run, or
+     *                   {@code null} for the current one
+     * @param profile    the JVM profile, or {@code null} for the configured default
+     * @param fresh      whether to bypass memoized results
+     * @param tenant     the user requesting the execution
+     * @return the output, errors, exit code and timings of the execution
+     * @throws ExecutionRejectedException if the server is at capacity and the
+     *                                    execution was not admitted
+     */
+    ExecutionResultDto executeProgram(String folderName, String version, JvmProfile profile, boolean fresh,
+            ExecutionTenant tenant);
+
+    /**
+     * Executes a program, handing its output to the listener while it runs.
+     *
+     * @param folderName the name of the folder where the program files are located
+     * @param version    the published version of the files to run, or
+     *                   {@code null} for the current one
+     * @param tenant     the user requesting the execution
+     * @param listener   the receiver of the program output
+     * @return how the program ended, or the compilation or execution errors
+     * @throws ExecutionRejectedException if the server is at capacity and the
+     *                                    execution was not admitted
+     */
+    String streamProgram(String folderName, String version, ExecutionTenant tenant, OutputListener listener);
+
+    /**
+     * Compiles a program once and runs it against each test case, comparing
+     * its output with the expected one.
+     *
+     * @param folderName the name of the folder where the program files are located
+     * @param tenant     the user requesting the execution
+     * @param testCases  the test cases to run
+     * @return the per-case report
+     * @throws ExecutionRejectedException if the server is at capacity and the
+     *                                    execution was not admitted
+     */
+    TestReportDto executeProgramTestCases(String folderName, ExecutionTenant tenant, List<TestCaseDto> testCases);
+
+    /**
+     * Compiles an example once and runs it against each test case, comparing
+     * its output with the expected one.
+     *
+     * @param exampleId the identifier of the example
+     * @param inProcess whether the example may run inside the application JVM
+     * @param tenant    the user requesting the execution
+     * @param testCases the test cases to run
+     * @return the per-case report
+     * @throws ExecutionRejectedException if the server is at capacity and the
+     *                                    execution was not admitted
+     */
+    TestReportDto executeExampleTestCases(Integer exampleId, boolean inProcess, ExecutionTenant tenant,
+            List<TestCaseDto> testCases);
+
+    /**
+     * Submits the execution of a program as an asynchronous job.
+     *
+     * @param folderName the name of the folder where the program files are located
+     * @param tenant     the user requesting the execution
+     * @return the submitted job, whose identifier is used to fetch the result
+     * @throws ExecutionRejectedException if too many jobs are pending
+     */
+    ExecutionJobDto submitExecution(String folderName, ExecutionTenant tenant);
+
+    /**
+     * Fetches an asynchronous execution job, optionally waiting for it to finish.
+     *
+     * @param jobId       the identifier returned on submission
+     * @param waitSeconds maximum time to wait for the job to finish, 0 to return
+     *                    the current state right away
+     * @return a stage completed with the job, or with an empty value if it does
+     *         not exist or has expired
      */
-    String executeProgram(String folderName);
+    CompletionStage<Optional<ExecutionJobDto>> awaitExecutionJob(String jobId, long waitSeconds);
 }
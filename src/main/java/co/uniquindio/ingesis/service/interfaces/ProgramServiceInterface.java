@@ -1,6 +1,7 @@
 package co.uniquindio.ingesis.service.interfaces;
 
 import co.uniquindio.ingesis.dto.programResource.ProgramDto;
+import co.uniquindio.ingesis.dto.programResource.ProgramVersionDto;
 import co.uniquindio.ingesis.exception.ProgramExistException;
 import co.uniquindio.ingesis.exception.ProgramNotExistException;
 
@@ -58,6 +59,17 @@ public interface ProgramServiceInterface {
      */
     String deleteProgram(ProgramDto programDto) throws ProgramNotExistException, IOException;
 
+    /**
+     * Lists the published versions of the files of a program that can still
+     * be pinned for execution.
+     *
+     * @param code Code of the program
+     * @return The versions, oldest first
+     * @throws ProgramNotExistException If no program exists with the specified code
+     * @throws IOException              If the versions cannot be listed
+     */
+    List<ProgramVersionDto> listVersions(String code) throws ProgramNotExistException, IOException;
+
     List<ProgramDto> listPrograms();
 
     // Nuevo método para listar programas compartidos
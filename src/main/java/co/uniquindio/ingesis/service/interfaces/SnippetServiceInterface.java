@@ -0,0 +1,24 @@
+package co.uniquindio.ingesis.service.interfaces;
+
+import co.uniquindio.ingesis.dto.SnippetResource.SnippetResultDto;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+
+/**
+ * Service interface responsible for evaluating short pieces of code.
+ */
+public interface SnippetServiceInterface {
+
+    /**
+     * Evaluates a piece of code snippet by snippet, as {@code jshell} would,
+     * without any state left from previous evaluations.
+     *
+     * @param source the code to evaluate
+     * @param tenant the user requesting the evaluation
+     * @return the outcome of each snippet and what they printed
+     * @throws ExecutionRejectedException if snippet evaluation is disabled, the
+     *                                    execution scheduler does not admit it
+     *                                    or no shell is available
+     */
+    SnippetResultDto evaluate(String source, ExecutionTenant tenant);
+}
@@ -0,0 +1,80 @@
+package co.uniquindio.ingesis.service.interfaces;
+
+import co.uniquindio.ingesis.dto.TestCaseResource.TestCaseDto;
+import co.uniquindio.ingesis.dto.TestCaseResource.TestReportDto;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import co.uniquindio.ingesis.exception.ProgramNotExistException;
+import co.uniquindio.ingesis.execution.scheduler.ExecutionTenant;
+
+import java.util.List;
+
+/**
+ * Interface for managing the test cases of programs and examples and running
+ * them.
+ */
+public interface TestCaseServiceInterface {
+
+    /**
+     * Attaches a test case to a program.
+     *
+     * @param programCode the code of the program
+     * @param dto         the test case
+     * @return the saved test case
+     * @throws ProgramNotExistException if no program has the given code
+     */
+    TestCaseDto addProgramTestCase(String programCode, TestCaseDto dto) throws ProgramNotExistException;
+
+    /**
+     * Attaches a test case to an example.
+     *
+     * @param exampleId the ID of the example
+     * @param dto       the test case
+     * @return the saved test case
+     */
+    TestCaseDto addExampleTestCase(Integer exampleId, TestCaseDto dto);
+
+    /**
+     * Lists the test cases of a program.
+     *
+     * @param programCode the code of the program
+     * @return the test cases, in creation order
+     * @throws ProgramNotExistException if no program has the given code
+     */
+    List<TestCaseDto> listProgramTestCases(String programCode) throws ProgramNotExistException;
+
+    /**
+     * Lists the test cases of an example.
+     *
+     * @param exampleId the ID of the example
+     * @return the test cases, in creation order
+     */
+    List<TestCaseDto> listExampleTestCases(Integer exampleId);
+
+    /**
+     * Deletes a test case.
+     *
+     * @param testCaseId the ID of the test case
+     */
+    void deleteTestCase(Long testCaseId);
+
+    /**
+     * Runs every test case of a program.
+     *
+     * @param programCode the code of the program
+     * @param tenant      the user requesting the run
+     * @return the per-case report
+     * @throws ProgramNotExistException   if no program has the given code
+     * @throws ExecutionRejectedException if the server is at capacity
+     */
+    TestReportDto runProgramTestCases(String programCode, ExecutionTenant tenant) throws ProgramNotExistException;
+
+    /**
+     * Runs every test case of an example.
+     *
+     * @param exampleId the ID of the example
+     * @param tenant    the user requesting the run
+     * @return the per-case report
+     * @throws ExecutionRejectedException if the server is at capacity
+     */
+    TestReportDto runExampleTestCases(Integer exampleId, ExecutionTenant tenant);
+}
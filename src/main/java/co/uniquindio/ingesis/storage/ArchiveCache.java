@@ -0,0 +1,323 @@
+package co.uniquindio.ingesis.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds the ZIP archives downloaded for programs and examples, streaming
+ * them to the client, and keeps the last archive of each owner so that
+ * repeated downloads are served from a file.
+ *
+ * An archive is built from the stored files of its owner, read from the
+ * {@link BlobStore}, and identified by a version: the digest of the paths and
+ * contents of those files. While the first download streams, the archive is
+ * also written to {@code storage.archive-cache.path}; later downloads of the
+ * same version get the file, which the HTTP layer can send without copying
+ * it through the application. Uploading new files changes the version, and
+ * {@link #invalidate(String)} drops the archive of an updated or deleted
+ * owner. The least recently downloaded archives are evicted above
+ * {@code storage.archive-cache.max-bytes}.
+ */
+@ApplicationScoped
+public class ArchiveCache {
+
+    private static final Logger logger = LogManager.getLogger(ArchiveCache.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * An archive in the cache.
+     */
+    private static final class CachedArchive {
+
+        private final String version;
+        private final Path file;
+        private final long sizeBytes;
+        private volatile long lastAccess = System.nanoTime();
+
+        private CachedArchive(String version, Path file, long sizeBytes) {
+            this.version = version;
+            this.file = file;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final BlobStore blobStore;
+
+    private final Map<String, CachedArchive> archives = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final MeterRegistry registry;
+
+    @Inject
+    public ArchiveCache(MeterRegistry registry, BlobStore blobStore,
+            @ConfigProperty(name = "storage.archive-cache.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "storage.archive-cache.path") Optional<String> path,
+            @ConfigProperty(name = "storage.archive-cache.max-bytes", defaultValue = "268435456") long maxBytes) {
+        this.registry = registry;
+        this.blobStore = blobStore;
+        this.enabled = enabled;
+        this.directory = path.map(Paths::get).orElseGet(() -> Paths.get(
+                System.getProperty("java.io.tmpdir"), "classroom-archives"));
+        this.maxBytes = maxBytes;
+
+        Gauge.builder("storage.archive.cache.size", cachedBytes::get)
+                .description("Bytes of prebuilt download archives")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Empties the cache directory when the application starts, since the
+     * archives left by a previous run are not indexed.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Returns the prebuilt archive of an owner, if it matches its current
+     * files.
+     *
+     * @param owner   the owner, e.g. {@code program-<code>}
+     * @param entries the current files of the owner
+     * @return the archive file
+     */
+    public Optional<Path> find(String owner, List<StoredArchive.Entry> entries) {
+        CachedArchive cached = archives.get(owner);
+        if (cached == null || !cached.version.equals(StoredArchive.digest(entries)) || !Files.exists(cached.file)) {
+            registry.counter("storage.archive.cache", "result", "miss").increment();
+            return Optional.empty();
+        }
+        cached.lastAccess = System.nanoTime();
+        registry.counter("storage.archive.cache", "result", "hit").increment();
+        return Optional.of(cached.file);
+    }
+
+    /**
+     * Writes the archive of an owner's files to a stream, keeping a copy in
+     * the cache once it is complete.
+     *
+     * @param owner   the owner, e.g. {@code program-<code>}
+     * @param entries the files of the owner
+     * @param out     the stream, typically the HTTP response; not closed
+     * @throws IOException if a file cannot be read or the stream fails
+     */
+    public void write(String owner, List<StoredArchive.Entry> entries, OutputStream out) throws IOException {
+        if (!enabled) {
+            zip(entries, out);
+            return;
+        }
+        String version = StoredArchive.digest(entries);
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "building-", ".zip");
+        try {
+            try (OutputStream copy = Files.newOutputStream(temp)) {
+                zip(entries, new TeeOutputStream(out, copy));
+            }
+            publish(owner, version, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes the archive of a folder whose files are not in the blob store.
+     * Such archives are not cached.
+     *
+     * @param folder the folder
+     * @param out    the stream, typically the HTTP response; not closed
+     * @throws IOException if a file cannot be read or the stream fails
+     */
+    public void writeFolder(Path folder, OutputStream out) throws IOException {
+        // A versioned folder is a link, which the walk would not enter
+        Path root = folder.toRealPath();
+        ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new NonClosing(out), BUFFER_SIZE));
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path file : walk.filter(Files::isRegularFile).sorted().toList()) {
+                zos.putNextEntry(new ZipEntry(root.relativize(file).toString().replace('\\', '/')));
+                Files.copy(file, zos);
+                zos.closeEntry();
+            }
+        }
+        zos.close();
+    }
+
+    /**
+     * Drops the archive of an owner whose files changed or were deleted.
+     *
+     * @param owner the owner, e.g. {@code program-<code>}
+     */
+    public void invalidate(String owner) {
+        CachedArchive removed = archives.remove(owner);
+        if (removed != null) {
+            discard(removed);
+        }
+    }
+
+    private void zip(List<StoredArchive.Entry> entries, OutputStream out) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new NonClosing(out), BUFFER_SIZE));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (StoredArchive.Entry entry : entries) {
+            if (entry.isDirectory()) {
+                zos.putNextEntry(new ZipEntry(entry.path() + "/"));
+            } else {
+                zos.putNextEntry(new ZipEntry(entry.path()));
+                try (InputStream in = Files.newInputStream(blobStore.fetch(entry.sha256()))) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        zos.write(buffer, 0, read);
+                    }
+                }
+            }
+            zos.closeEntry();
+        }
+        zos.close();
+    }
+
+    /**
+     * Moves a complete archive into the cache as the current one of its owner
+     * and evicts archives above the size limit.
+     */
+    private void publish(String owner, String version, Path temp) throws IOException {
+        Path file = directory.resolve(HexFormat.of().formatHex(sha256(owner + "\n" + version)) + ".zip");
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        CachedArchive archive = new CachedArchive(version, file, Files.size(file));
+        cachedBytes.addAndGet(archive.sizeBytes);
+        CachedArchive previous = archives.put(owner, archive);
+        if (previous != null && !previous.file.equals(file)) {
+            discard(previous);
+        } else if (previous != null) {
+            cachedBytes.addAndGet(-previous.sizeBytes);
+        }
+        evict();
+    }
+
+    private void evict() {
+        while (cachedBytes.get() > maxBytes) {
+            Optional<Map.Entry<String, CachedArchive>> oldest = archives.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            if (oldest.isEmpty() || !archives.remove(oldest.get().getKey(), oldest.get().getValue())) {
+                return;
+            }
+            discard(oldest.get().getValue());
+        }
+    }
+
+    private void discard(CachedArchive archive) {
+        cachedBytes.addAndGet(-archive.sizeBytes);
+        try {
+            // A download in progress keeps reading the open file
+            Files.deleteIfExists(archive.file);
+        } catch (IOException e) {
+            logger.warn("Unable to delete cached archive {}", archive.file, e);
+        }
+    }
+
+    private static byte[] sha256(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Stream writing to the client and to the cache file at once.
+     */
+    private static final class TeeOutputStream extends FilterOutputStream {
+
+        private final OutputStream copy;
+
+        private TeeOutputStream(OutputStream out, OutputStream copy) {
+            super(out);
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            out.write(data, offset, length);
+            copy.write(data, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            copy.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Stream that flushes instead of closing the response, which belongs to
+     * the HTTP layer.
+     */
+    private static final class NonClosing extends FilterOutputStream {
+
+        private NonClosing(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            out.write(data, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
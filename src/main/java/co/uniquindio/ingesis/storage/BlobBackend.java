@@ -0,0 +1,64 @@
+package co.uniquindio.ingesis.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where the contents of the {@link BlobStore} are kept durably, selected with
+ * {@code storage.backend}: {@code local} for a directory of this node, or
+ * {@code s3} for an S3-compatible object store shared by every node.
+ *
+ * Blobs are named after the SHA-256 of their content and never modified, so a
+ * backend only has to store, fetch and delete whole contents. The reference
+ * counts deciding when a blob is deleted are kept in the database.
+ */
+public interface BlobBackend {
+
+    /**
+     * Returns the directory of this node holding the blobs, for a backend
+     * that stores them on the local file system. The {@link BlobStore} then
+     * reads them in place; otherwise it keeps a cache of the blobs it reads.
+     *
+     * @return the directory, or empty for a remote backend
+     */
+    default Optional<Path> directory() {
+        return Optional.empty();
+    }
+
+    /**
+     * Tells whether a blob is stored.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @return {@code true} if the blob exists
+     * @throws IOException if the backend cannot be reached
+     */
+    boolean exists(String sha256) throws IOException;
+
+    /**
+     * Stores a content. A backend with a {@link #directory()} moves the file
+     * into it; other backends only read it.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @param file   the file holding the content
+     * @throws IOException if the content cannot be stored
+     */
+    void upload(String sha256, Path file) throws IOException;
+
+    /**
+     * Writes a stored content to a file.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @param target the file to write, replaced if it exists
+     * @throws IOException if the blob does not exist or cannot be read
+     */
+    void download(String sha256, Path target) throws IOException;
+
+    /**
+     * Deletes a stored content, if it exists.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @throws IOException if the backend cannot be reached
+     */
+    void delete(String sha256) throws IOException;
+}
@@ -0,0 +1,67 @@
+package co.uniquindio.ingesis.storage;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Deletes the contents of the {@link BlobStore} that nothing references.
+ *
+ * Contents are collected only after the transaction releasing their last
+ * reference commits, so that a deletion rolled back, for instance by a
+ * foreign key, still finds its files. Contents left unreferenced by a node
+ * that stopped before collecting them are collected when the application
+ * starts.
+ */
+@ApplicationScoped
+public class BlobCollector {
+
+    private static final Logger logger = LogManager.getLogger(BlobCollector.class);
+
+    private final SourceArchiveStore sourceArchiveStore;
+
+    @Inject
+    public BlobCollector(SourceArchiveStore sourceArchiveStore) {
+        this.sourceArchiveStore = sourceArchiveStore;
+    }
+
+    /**
+     * Collects the contents whose last reference was released by a committed
+     * transaction.
+     *
+     * @param event the released contents
+     */
+    void onBlobsReleased(@Observes(during = TransactionPhase.AFTER_SUCCESS) BlobsReleased event) {
+        collect(event.sha256s());
+    }
+
+    /**
+     * Collects the contents left unreferenced by a previous run.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        try {
+            collect(sourceArchiveStore.findUnreferenced());
+        } catch (RuntimeException e) {
+            logger.warn("Unable to list the unreferenced blobs", e);
+        }
+    }
+
+    private void collect(List<String> sha256s) {
+        for (String sha256 : sha256s) {
+            try {
+                sourceArchiveStore.collect(sha256);
+            } catch (RuntimeException e) {
+                // Left for the next startup
+                logger.warn("Unable to collect blob {}", sha256, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package co.uniquindio.ingesis.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * File contents named after their SHA-256, each content stored once however
+ * many programs and examples contain it.
+ *
+ * Contents are kept durably by the configured {@link BlobBackend}. With the
+ * local backend they are read in place; with a remote one, every content
+ * uploaded or read through this node is kept in a local cache, so that the
+ * programs run here are fetched once and their folders rebuilt without going
+ * back to the object store. The least recently used contents are evicted above
+ * {@code storage.cache.max-bytes}.
+ *
+ * Local contents live at {@code <directory>/<first two hex digits>/<hash>} and
+ * are made read-only. A folder is materialized by copying its files out of
+ * their blobs, never by linking them: the programs run in the folder are
+ * untrusted, and a link would let one of them rewrite a content every other
+ * folder shares. The references to each blob are counted in the database by
+ * the {@link SourceArchiveStore}.
+ */
+@ApplicationScoped
+public class BlobStore {
+
+    private static final Logger logger = LogManager.getLogger(BlobStore.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MEMORY_THRESHOLD_BYTES = 1024 * 1024;
+    private static final String TEMP_DIR = "tmp";
+
+    /**
+     * A content in the local cache of a remote backend.
+     */
+    private static final class CachedBlob {
+
+        private final long sizeBytes;
+        private volatile long lastAccess = System.nanoTime();
+
+        private CachedBlob(long sizeBytes) {
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    private final BlobBackend backend;
+    private final boolean remote;
+    private final Path root;
+    private final long maxCacheBytes;
+
+    private final Map<String, CachedBlob> cached = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+
+    private final MeterRegistry registry;
+    private final Counter writtenBytes;
+    private final Counter deduplicatedBytes;
+
+    @Inject
+    public BlobStore(MeterRegistry registry, Instance<BlobBackend> backend, StorageLayout layout,
+            @ConfigProperty(name = "storage.cache.max-bytes", defaultValue = "1073741824") long maxCacheBytes) {
+        this(registry, backend.get(), layout, maxCacheBytes);
+    }
+
+    BlobStore(MeterRegistry registry, BlobBackend backend, StorageLayout layout, long maxCacheBytes) {
+        this.registry = registry;
+        this.backend = backend;
+        Optional<Path> directory = this.backend.directory();
+        this.remote = directory.isEmpty();
+        this.root = directory.orElseGet(layout::blobsDir);
+        this.maxCacheBytes = maxCacheBytes;
+
+        this.writtenBytes = Counter.builder("storage.blob.written")
+                .description("Bytes of new contents written to the blob store")
+                .baseUnit("bytes")
+                .register(registry);
+        this.deduplicatedBytes = Counter.builder("storage.blob.deduplicated")
+                .description("Bytes of uploaded contents already in the blob store")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("storage.blob.cache.size", cachedBytes::get)
+                .description("Bytes of remote contents cached on this node")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Indexes the contents cached by a previous run when the application
+     * starts, so that they count towards the cache size and can be evicted.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) throws IOException {
+        if (!remote || !Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                if (file.getParent().getFileName().toString().equals(TEMP_DIR)) {
+                    Files.deleteIfExists(file);
+                } else {
+                    CachedBlob blob = new CachedBlob(Files.size(file));
+                    cached.put(file.getFileName().toString(), blob);
+                    cachedBytes.addAndGet(blob.sizeBytes);
+                }
+            }
+        }
+        evict(null);
+    }
+
+    /**
+     * Reads and hashes a content without storing it.
+     *
+     * @param in the content, read to its end but not closed
+     * @return the staged content, to be closed once stored
+     * @throws IOException if the content cannot be read
+     */
+    StagedBlob stage(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        Path spill = null;
+        OutputStream file = null;
+        long size = 0;
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                if (file == null && size + read > MEMORY_THRESHOLD_BYTES) {
+                    spill = createTempFile("staged-");
+                    file = Files.newOutputStream(spill);
+                    memory.writeTo(file);
+                    memory = null;
+                }
+                if (file != null) {
+                    file.write(buffer, 0, read);
+                } else {
+                    memory.write(buffer, 0, read);
+                }
+                size += read;
+            }
+            if (file != null) {
+                file.close();
+            }
+        } catch (IOException e) {
+            if (file != null) {
+                file.close();
+                Files.deleteIfExists(spill);
+            }
+            throw e;
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        return new StagedBlob(hash, size, memory != null ? memory.toByteArray() : null, spill);
+    }
+
+    /**
+     * Stores a staged content unless the store already has it.
+     *
+     * @param staged the content
+     * @throws IOException if the content cannot be written
+     */
+    void put(StagedBlob staged) throws IOException {
+        if (backend.exists(staged.sha256())) {
+            deduplicatedBytes.increment(staged.sizeBytes());
+            return;
+        }
+        Path temp;
+        if (staged.spill() != null) {
+            temp = staged.spill();
+        } else {
+            temp = createTempFile("blob-");
+            try (InputStream in = staged.open()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        backend.upload(staged.sha256(), temp);
+        writtenBytes.increment(staged.sizeBytes());
+        if (remote) {
+            // The node uploading a program is usually the first to run it
+            cache(staged.sha256(), temp);
+        }
+    }
+
+    /**
+     * Returns a local file holding a content, reading it from the backend if
+     * it is not on this node.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @return the read-only file
+     * @throws FileNotFoundException if the content does not exist
+     * @throws IOException           if the content cannot be read
+     */
+    public Path fetch(String sha256) throws IOException {
+        Path blob = path(sha256);
+        if (!remote) {
+            if (!Files.exists(blob)) {
+                throw new FileNotFoundException("Missing blob " + sha256);
+            }
+            return blob;
+        }
+        CachedBlob hit = cached.get(sha256);
+        if (hit != null && Files.exists(blob)) {
+            hit.lastAccess = System.nanoTime();
+            registry.counter("storage.blob.cache", "result", "hit").increment();
+            return blob;
+        }
+        registry.counter("storage.blob.cache", "result", "miss").increment();
+        Path temp = createTempFile("fetch-");
+        try {
+            backend.download(sha256, temp);
+            cache(sha256, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return blob;
+    }
+
+    /**
+     * Copies a content to the given location, replacing any file there. The
+     * copy is writable and shares nothing with the blob.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @param target the location of the file
+     * @throws IOException if the content is missing or cannot be placed
+     */
+    void materialize(String sha256, Path target) throws IOException {
+        Path blob = fetch(sha256);
+        Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        // The copy inherits the read-only mode of the blob
+        target.toFile().setWritable(true, true);
+    }
+
+    /**
+     * Deletes a content that nothing references any more.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     */
+    void delete(String sha256) {
+        try {
+            if (remote) {
+                uncache(sha256);
+            }
+            backend.delete(sha256);
+        } catch (IOException e) {
+            logger.warn("Unable to delete blob {}", sha256, e);
+        }
+    }
+
+    /**
+     * Returns the location of a content on this node.
+     */
+    private Path path(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path createTempFile(String prefix) throws IOException {
+        Path tempDir = root.resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, prefix, ".blob");
+    }
+
+    /**
+     * Moves a complete content into the local cache and evicts the least
+     * recently used contents above the size limit.
+     */
+    private void cache(String sha256, Path temp) throws IOException {
+        Path blob = path(sha256);
+        Files.createDirectories(blob.getParent());
+        temp.toFile().setReadOnly();
+        try {
+            Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Cached by a concurrent read in the meantime
+            Files.deleteIfExists(temp);
+        }
+        CachedBlob entry = new CachedBlob(Files.size(blob));
+        if (cached.putIfAbsent(sha256, entry) == null) {
+            cachedBytes.addAndGet(entry.sizeBytes);
+        }
+        evict(sha256);
+    }
+
+    /**
+     * Evicts contents until the cache fits its size limit, except the one
+     * about to be read.
+     */
+    private void evict(String keep) {
+        while (cachedBytes.get() > maxCacheBytes) {
+            Optional<Map.Entry<String, CachedBlob>> oldest = cached.entrySet().stream()
+                    .filter(entry -> !entry.getKey().equals(keep))
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            if (oldest.isEmpty()) {
+                return;
+            }
+            try {
+                uncache(oldest.get().getKey());
+            } catch (IOException e) {
+                logger.warn("Unable to evict cached blob {}", oldest.get().getKey(), e);
+                return;
+            }
+        }
+    }
+
+    private void uncache(String sha256) throws IOException {
+        CachedBlob removed = cached.remove(sha256);
+        if (removed != null) {
+            cachedBytes.addAndGet(-removed.sizeBytes);
+        }
+        // Reads in progress keep the content on disk
+        Files.deleteIfExists(path(sha256));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
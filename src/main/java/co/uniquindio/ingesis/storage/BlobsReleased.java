@@ -0,0 +1,11 @@
+package co.uniquindio.ingesis.storage;
+
+import java.util.List;
+
+/**
+ * CDI event fired when the last references to some contents are released.
+ *
+ * @param sha256s the hexadecimal SHA-256 of each content, in hash order
+ */
+public record BlobsReleased(List<String> sha256s) {
+}
@@ -0,0 +1,229 @@
+package co.uniquindio.ingesis.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The folders of programs and examples on this node, built from their stored
+ * files and published through {@link VersionedFolders} under the directories
+ * of the {@link StorageLayout}.
+ *
+ * The database and the {@link BlobStore} are the source of truth; a folder is
+ * a copy of them local to each node. The node receiving an upload stages the
+ * new folder while the upload is stored and publishes it once the upload
+ * commits, and every node checks, before leasing the current
+ * folder for an execution, that it was built from the files the database
+ * lists: each version is labelled with the {@link StoredArchive#digest(List)}
+ * of its files, and a folder that is missing or stale is rebuilt from the blob
+ * store, whose cache keeps the contents of the programs run on this node.
+ * Folders uploaded before the blob store, which have no stored files, are
+ * leased as they are.
+ *
+ * Versions are numbered by the node that builds them, so a pinned version is
+ * only found on that node.
+ */
+@ApplicationScoped
+public class FolderCache {
+
+    private final StorageLayout layout;
+    private final VersionedFolders versionedFolders;
+    private final SourceArchiveStore sourceArchiveStore;
+    private final MeterRegistry registry;
+
+    private final Map<Path, Object> locks = new ConcurrentHashMap<>();
+
+    @Inject
+    public FolderCache(StorageLayout layout, VersionedFolders versionedFolders,
+            SourceArchiveStore sourceArchiveStore, MeterRegistry registry) {
+        this.layout = layout;
+        this.versionedFolders = versionedFolders;
+        this.sourceArchiveStore = sourceArchiveStore;
+        this.registry = registry;
+    }
+
+    /**
+     * Builds a new version of the folder of a program without publishing it.
+     *
+     * @param code    the code of the program
+     * @param entries the stored files of the program
+     * @return the version, to be {@link #publish(StagedFolder) published} or
+     *         {@link #discard(StagedFolder) discarded}
+     * @throws IOException if the folder cannot be built
+     */
+    public StagedFolder stageProgram(String code, List<StoredArchive.Entry> entries) throws IOException {
+        return stage(layout.programsDir(), code, entries);
+    }
+
+    /**
+     * Builds a new version of the folder of an example without publishing it.
+     *
+     * @param exampleId the ID of the example
+     * @param entries   the stored files of the example
+     * @return the version, to be {@link #publish(StagedFolder) published} or
+     *         {@link #discard(StagedFolder) discarded}
+     * @throws IOException if the folder cannot be built
+     */
+    public StagedFolder stageExample(Integer exampleId, List<StoredArchive.Entry> entries) throws IOException {
+        return stage(layout.examplesDir(), String.valueOf(exampleId), entries);
+    }
+
+    /**
+     * Makes a staged version the current version of its folder.
+     *
+     * @param staged the version
+     * @throws IOException if the version cannot be published
+     */
+    public void publish(StagedFolder staged) throws IOException {
+        versionedFolders.publish(staged.baseDir(), staged.name(), staged.version(), staged.label());
+    }
+
+    /**
+     * Deletes a staged version that will not be published.
+     *
+     * @param staged the version
+     */
+    public void discard(StagedFolder staged) {
+        versionedFolders.discard(staged.version());
+    }
+
+    /**
+     * Leases the folder of a program, rebuilding the current version first if
+     * this node does not have it.
+     *
+     * @param code    the code of the program
+     * @param version the version to lease, or {@code null} for the current one
+     * @return the lease, to be closed once the folder is no longer read
+     * @throws java.io.FileNotFoundException if the folder or the version does
+     *                                       not exist
+     * @throws IOException                   if the folder cannot be built
+     */
+    public VersionedFolders.Lease leaseProgram(String code, String version) throws IOException {
+        Path baseDir = layout.programsDir();
+        if (version == null) {
+            synchronize(baseDir, code, sourceArchiveStore.findProgramEntries(code));
+        }
+        return versionedFolders.lease(baseDir, code, version);
+    }
+
+    /**
+     * Leases the current folder of an example, rebuilding it first if this
+     * node does not have it.
+     *
+     * @param exampleId the ID of the example
+     * @return the lease, to be closed once the folder is no longer read
+     * @throws java.io.FileNotFoundException if the folder does not exist
+     * @throws IOException                   if the folder cannot be built
+     */
+    public VersionedFolders.Lease leaseExample(Integer exampleId) throws IOException {
+        Path baseDir = layout.examplesDir();
+        String name = String.valueOf(exampleId);
+        synchronize(baseDir, name, sourceArchiveStore.findExampleEntries(exampleId));
+        return versionedFolders.lease(baseDir, name, null);
+    }
+
+    /**
+     * Lists the versions of the folder of a program on this node.
+     *
+     * @param code the code of the program
+     * @return the versions, oldest first
+     * @throws IOException if the versions cannot be listed
+     */
+    public List<String> programVersions(String code) throws IOException {
+        return versionedFolders.versions(layout.programsDir(), code);
+    }
+
+    /**
+     * Returns the current version of the folder of a program on this node.
+     *
+     * @param code the code of the program
+     * @return the version, or {@code null} if the folder is not versioned
+     * @throws IOException if the folder cannot be read
+     */
+    public String currentProgramVersion(String code) throws IOException {
+        return versionedFolders.currentVersion(layout.programsDir(), code);
+    }
+
+    /**
+     * Returns the folder of a program on this node, which may not exist.
+     *
+     * @param code the code of the program
+     * @return the path of the folder
+     */
+    public Path programFolder(String code) {
+        return layout.programsDir().resolve(code);
+    }
+
+    /**
+     * Returns the folder of an example on this node, which may not exist.
+     *
+     * @param exampleId the ID of the example
+     * @return the path of the folder
+     */
+    public Path exampleFolder(Integer exampleId) {
+        return layout.examplesDir().resolve(String.valueOf(exampleId));
+    }
+
+    /**
+     * Removes the folder of a program; its versions are deleted once no
+     * execution leases them.
+     *
+     * @param code the code of the program
+     * @throws IOException if the folder cannot be removed
+     */
+    public void removeProgram(String code) throws IOException {
+        versionedFolders.remove(layout.programsDir(), code);
+    }
+
+    /**
+     * Removes the folder of an example; its versions are deleted once no
+     * execution leases them.
+     *
+     * @param exampleId the ID of the example
+     * @throws IOException if the folder cannot be removed
+     */
+    public void removeExample(Integer exampleId) throws IOException {
+        versionedFolders.remove(layout.examplesDir(), String.valueOf(exampleId));
+    }
+
+    /**
+     * Rebuilds the current version of a folder unless it was built from the
+     * given files.
+     */
+    private void synchronize(Path baseDir, String name, List<StoredArchive.Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String label = StoredArchive.digest(entries);
+        if (label.equals(versionedFolders.currentLabel(baseDir, name))) {
+            registry.counter("storage.folder.cache", "result", "hit").increment();
+            return;
+        }
+        synchronized (locks.computeIfAbsent(baseDir.resolve(name), key -> new Object())) {
+            // Rebuilt by a concurrent execution while this one waited
+            if (label.equals(versionedFolders.currentLabel(baseDir, name))) {
+                registry.counter("storage.folder.cache", "result", "hit").increment();
+                return;
+            }
+            registry.counter("storage.folder.cache", "result", "miss").increment();
+            publish(stage(baseDir, name, entries));
+        }
+    }
+
+    private StagedFolder stage(Path baseDir, String name, List<StoredArchive.Entry> entries) throws IOException {
+        Path version = versionedFolders.stage(baseDir, name);
+        try {
+            sourceArchiveStore.materialize(entries, version);
+        } catch (IOException | RuntimeException e) {
+            versionedFolders.discard(version);
+            throw e;
+        }
+        return new StagedFolder(baseDir, name, version, StoredArchive.digest(entries));
+    }
+}
@@ -0,0 +1,74 @@
+package co.uniquindio.ingesis.storage;
+
+import io.quarkus.arc.lookup.LookupUnlessProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * {@link BlobBackend} keeping the blobs in {@link StorageLayout#blobsDir()},
+ * at {@code <dir>/<first two hex digits>/<hash>}. It is the default backend,
+ * for a single node or for nodes sharing a network file system mounted at
+ * the same root.
+ */
+@ApplicationScoped
+@LookupUnlessProperty(name = "storage.backend", stringValue = "s3")
+public class LocalBlobBackend implements BlobBackend {
+
+    private final Path directory;
+
+    @Inject
+    public LocalBlobBackend(StorageLayout layout) {
+        this.directory = layout.blobsDir();
+    }
+
+    @Override
+    public Optional<Path> directory() {
+        return Optional.of(directory);
+    }
+
+    @Override
+    public boolean exists(String sha256) {
+        return Files.exists(path(sha256));
+    }
+
+    @Override
+    public void upload(String sha256, Path file) throws IOException {
+        Path blob = path(sha256);
+        Files.createDirectories(blob.getParent());
+        // Blobs are shared by every owner of the content and must never be modified
+        file.toFile().setReadOnly();
+        try {
+            Files.move(file, blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored by a concurrent upload in the meantime
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public void download(String sha256, Path target) throws IOException {
+        Files.copy(path(sha256), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void delete(String sha256) throws IOException {
+        Files.deleteIfExists(path(sha256));
+    }
+
+    /**
+     * Returns the location of a blob in the directory.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @return the path of the blob, which may not exist
+     */
+    Path path(String sha256) {
+        return directory.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+}
@@ -0,0 +1,171 @@
+package co.uniquindio.ingesis.storage;
+
+import io.quarkus.arc.lookup.LookupIfProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * {@link BlobBackend} keeping the blobs in a bucket of an S3-compatible
+ * object store (AWS S3, MinIO, Ceph, ...), shared by every node, so that the
+ * nodes only need a local disk for their caches.
+ *
+ * Objects are addressed path-style, {@code <endpoint>/<bucket>/<prefix><hash>},
+ * which every compatible store accepts, and requests are signed with
+ * {@link SigV4Signer}. The SHA-256 the request signature covers is the name
+ * of the blob itself, so the store rejects an upload whose content does not
+ * match it; downloads are checked against the name as they are written.
+ */
+@ApplicationScoped
+@LookupIfProperty(name = "storage.backend", stringValue = "s3")
+public class S3BlobBackend implements BlobBackend {
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final URI endpoint;
+    private final String bucket;
+    private final String prefix;
+    private final Duration timeout;
+    private final SigV4Signer signer;
+    private final HttpClient client;
+
+    @Inject
+    public S3BlobBackend(@ConfigProperty(name = "storage.s3.endpoint") Optional<String> endpoint,
+            @ConfigProperty(name = "storage.s3.bucket") Optional<String> bucket,
+            @ConfigProperty(name = "storage.s3.region", defaultValue = "us-east-1") String region,
+            @ConfigProperty(name = "storage.s3.prefix", defaultValue = "blobs/") String prefix,
+            @ConfigProperty(name = "storage.s3.access-key") Optional<String> accessKey,
+            @ConfigProperty(name = "storage.s3.secret-key") Optional<String> secretKey,
+            @ConfigProperty(name = "storage.s3.timeout-seconds", defaultValue = "30") long timeoutSeconds) {
+        String url = endpoint.orElseThrow(() -> new IllegalStateException("storage.s3.endpoint is required"));
+        this.endpoint = URI.create(url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+        this.bucket = bucket.orElseThrow(() -> new IllegalStateException("storage.s3.bucket is required"));
+        this.prefix = prefix;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.signer = new SigV4Signer(
+                accessKey.orElseThrow(() -> new IllegalStateException("storage.s3.access-key is required")),
+                secretKey.orElseThrow(() -> new IllegalStateException("storage.s3.secret-key is required")),
+                region, "s3");
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public boolean exists(String sha256) throws IOException {
+        HttpResponse<Void> response = send(request("HEAD", sha256, SigV4Signer.EMPTY_PAYLOAD_SHA256)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        check(response.statusCode(), "HEAD", sha256);
+        return true;
+    }
+
+    @Override
+    public void upload(String sha256, Path file) throws IOException {
+        HttpResponse<Void> response = send(request("PUT", sha256, sha256)
+                .PUT(HttpRequest.BodyPublishers.ofFile(file))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        check(response.statusCode(), "PUT", sha256);
+    }
+
+    @Override
+    public void download(String sha256, Path target) throws IOException {
+        HttpResponse<InputStream> response = send(request("GET", sha256, SigV4Signer.EMPTY_PAYLOAD_SHA256)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 404) {
+                throw new FileNotFoundException("Missing blob " + sha256);
+            }
+            check(response.statusCode(), "GET", sha256);
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(body, digest);
+                    OutputStream out = Files.newOutputStream(target)) {
+                in.transferTo(out);
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equals(sha256)) {
+                Files.deleteIfExists(target);
+                throw new IOException("Corrupted download of blob " + sha256);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String sha256) throws IOException {
+        HttpResponse<Void> response = send(request("DELETE", sha256, SigV4Signer.EMPTY_PAYLOAD_SHA256)
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 404) {
+            check(response.statusCode(), "DELETE", sha256);
+        }
+    }
+
+    /**
+     * Starts a signed request for the object of a blob.
+     */
+    private HttpRequest.Builder request(String method, String sha256, String payloadHash) {
+        String path = SigV4Signer.encodePath(endpoint.getRawPath() + "/" + bucket + "/" + prefix + sha256);
+        // The client sends the port in the Host header only when the URI has one
+        String host = endpoint.getPort() == -1 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+        String amzDate = AMZ_DATE.format(ZonedDateTime.now(ZoneOffset.UTC));
+
+        SortedMap<String, String> headers = new TreeMap<>();
+        headers.put("host", host);
+        headers.put("x-amz-content-sha256", payloadHash);
+        headers.put("x-amz-date", amzDate);
+        return HttpRequest.newBuilder(URI.create(endpoint.getScheme() + "://" + host + path))
+                .timeout(timeout)
+                .header("x-amz-content-sha256", payloadHash)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", signer.authorization(method, path, "", headers, payloadHash));
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling the object store", e);
+        }
+    }
+
+    private static void check(int status, String method, String sha256) throws IOException {
+        if (status / 100 != 2) {
+            throw new IOException(method + " of blob " + sha256 + " failed with status " + status);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
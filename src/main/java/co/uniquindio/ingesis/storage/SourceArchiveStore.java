@@ -0,0 +1,349 @@
+package co.uniquindio.ingesis.storage;
+
+import co.uniquindio.ingesis.model.Example;
+import co.uniquindio.ingesis.model.Program;
+import co.uniquindio.ingesis.model.StoredFile;
+import co.uniquindio.ingesis.repository.ContentBlobRepository;
+import co.uniquindio.ingesis.repository.ExampleRepository;
+import co.uniquindio.ingesis.repository.ProgramRepository;
+import co.uniquindio.ingesis.repository.StoredFileRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Stores the files uploaded with programs and examples in the
+ * {@link BlobStore} and keeps, for each owner, the manifest its folder is
+ * materialized from.
+ *
+ * The uploaded archive itself is kept as a blob too and referenced from its
+ * owner, so that it can be downloaded again byte for byte instead of being
+ * rebuilt from the files.
+ *
+ * Every {@link StoredFile} holds a reference to its {@code ContentBlob}.
+ * References are taken and released in the transaction of the upload or
+ * deletion, in hash order so that concurrent uploads cannot deadlock. A blob
+ * whose last reference is released is deleted only once that transaction has
+ * committed, by the {@link BlobCollector}, so that a rolled back deletion
+ * never loses a content. A content is written only after its reference is
+ * taken, which waits for a concurrent collection of the same content to
+ * finish.
+ */
+@ApplicationScoped
+public class SourceArchiveStore {
+
+    private final BlobStore blobStore;
+    private final ContentBlobRepository blobRepository;
+    private final StoredFileRepository storedFileRepository;
+    private final ProgramRepository programRepository;
+    private final ExampleRepository exampleRepository;
+    private final Event<BlobsReleased> blobsReleased;
+
+    @Inject
+    public SourceArchiveStore(BlobStore blobStore, ContentBlobRepository blobRepository,
+            StoredFileRepository storedFileRepository, ProgramRepository programRepository,
+            ExampleRepository exampleRepository, Event<BlobsReleased> blobsReleased) {
+        this.blobStore = blobStore;
+        this.blobRepository = blobRepository;
+        this.storedFileRepository = storedFileRepository;
+        this.programRepository = programRepository;
+        this.exampleRepository = exampleRepository;
+        this.blobsReleased = blobsReleased;
+    }
+
+    /**
+     * Reads an uploaded ZIP archive and stores the contents the blob store does
+     * not have yet, as well as the archive. The returned archive holds a
+     * reference to each of its contents and to the archive, to be attached to
+     * an owner in the same transaction.
+     *
+     * @param zipInputStream the archive
+     * @return the files of the archive and its Java sources
+     * @throws IOException if the archive cannot be read, has an entry outside
+     *                     its folder, or a content cannot be stored
+     */
+    @Transactional
+    public StoredArchive ingest(InputStream zipInputStream) throws IOException {
+        List<StoredArchive.Entry> entries = new ArrayList<>();
+        Map<String, String> sources = new LinkedHashMap<>();
+        List<StagedBlob> staged = new ArrayList<>();
+        try {
+            StagedBlob upload = blobStore.stage(zipInputStream);
+            staged.add(upload);
+            try (ZipInputStream zis = new ZipInputStream(upload.open())) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    String path = relativePath(entry.getName());
+                    if (entry.isDirectory()) {
+                        entries.add(new StoredArchive.Entry(path, null, 0));
+                    } else {
+                        StagedBlob blob = blobStore.stage(zis);
+                        staged.add(blob);
+                        entries.add(new StoredArchive.Entry(path, blob.sha256(), blob.sizeBytes()));
+                        if (path.endsWith(".java")) {
+                            try (InputStream content = blob.open()) {
+                                sources.put(path, new String(content.readAllBytes(), StandardCharsets.UTF_8));
+                            }
+                        }
+                    }
+                    zis.closeEntry();
+                }
+            }
+
+            StoredArchive.Entry original = new StoredArchive.Entry("", upload.sha256(), upload.sizeBytes());
+            staged.sort(Comparator.comparing(StagedBlob::sha256));
+            for (StagedBlob blob : staged) {
+                blobRepository.acquire(blob.sha256(), blob.sizeBytes());
+                blobStore.put(blob);
+            }
+            return new StoredArchive(entries, sources, original);
+        } finally {
+            for (StagedBlob blob : staged) {
+                blob.close();
+            }
+        }
+    }
+
+    /**
+     * Records an ingested archive as the files of a program.
+     *
+     * @param program the managed program
+     * @param archive the archive
+     */
+    @Transactional
+    public void attach(Program program, StoredArchive archive) {
+        for (StoredArchive.Entry entry : archive.entries()) {
+            storedFileRepository.persist(
+                    new StoredFile(null, program, null, entry.path(), entry.sha256(), entry.sizeBytes()));
+        }
+        program.setOriginalArchiveSha256(archive.original().sha256());
+        program.setOriginalArchiveSize(archive.original().sizeBytes());
+    }
+
+    /**
+     * Records an ingested archive as the files of an example.
+     *
+     * @param example the managed example
+     * @param archive the archive
+     */
+    @Transactional
+    public void attach(Example example, StoredArchive archive) {
+        for (StoredArchive.Entry entry : archive.entries()) {
+            storedFileRepository.persist(
+                    new StoredFile(null, null, example, entry.path(), entry.sha256(), entry.sizeBytes()));
+        }
+        example.setOriginalArchiveSha256(archive.original().sha256());
+        example.setOriginalArchiveSize(archive.original().sizeBytes());
+    }
+
+    /**
+     * Returns the stored files of a program.
+     *
+     * @param code the code of the program
+     * @return the files in upload order, empty if the program does not exist
+     *         or was uploaded before the blob store
+     */
+    @Transactional
+    public List<StoredArchive.Entry> findProgramEntries(String code) {
+        return toEntries(storedFileRepository.findByProgramCode(code));
+    }
+
+    /**
+     * Returns the stored files of an example.
+     *
+     * @param exampleId the ID of the example
+     * @return the files in upload order, empty if the example does not exist
+     *         or was uploaded before the blob store
+     */
+    @Transactional
+    public List<StoredArchive.Entry> findExampleEntries(Integer exampleId) {
+        return toEntries(storedFileRepository.findByExampleId(exampleId));
+    }
+
+    /**
+     * Returns the archive a program was uploaded as.
+     *
+     * @param code the code of the program
+     * @return the archive, empty if the program does not exist or was
+     *         uploaded before archives were kept
+     */
+    @Transactional
+    public Optional<StoredArchive.Entry> findProgramOriginal(String code) {
+        return programRepository.findByCode(code)
+                .filter(program -> program.getOriginalArchiveSha256() != null)
+                .map(program -> new StoredArchive.Entry(program.getCode() + ".zip",
+                        program.getOriginalArchiveSha256(), program.getOriginalArchiveSize()));
+    }
+
+    /**
+     * Returns the archive an example was uploaded as.
+     *
+     * @param exampleId the ID of the example
+     * @return the archive, empty if the example does not exist or was
+     *         uploaded before archives were kept
+     */
+    @Transactional
+    public Optional<StoredArchive.Entry> findExampleOriginal(Integer exampleId) {
+        return exampleRepository.findByIdOptional(exampleId.longValue())
+                .filter(example -> example.getOriginalArchiveSha256() != null)
+                .map(example -> new StoredArchive.Entry("example-" + example.getId() + ".zip",
+                        example.getOriginalArchiveSha256(), example.getOriginalArchiveSize()));
+    }
+
+    /**
+     * Returns a local file holding the content of a stored file or archive.
+     *
+     * @param entry the file or archive, not a directory
+     * @return the read-only file in the blob store or its local cache
+     * @throws IOException if the content cannot be read from the backend
+     */
+    public Path locate(StoredArchive.Entry entry) throws IOException {
+        return blobStore.fetch(entry.sha256());
+    }
+
+    /**
+     * Reads the Java sources among stored files.
+     *
+     * @param entries the files
+     * @return the content of the Java sources indexed by relative path
+     * @throws IOException if a content cannot be read
+     */
+    public Map<String, String> readSources(List<StoredArchive.Entry> entries) throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (StoredArchive.Entry entry : entries) {
+            if (!entry.isDirectory() && entry.path().endsWith(".java")) {
+                sources.put(entry.path(), Files.readString(blobStore.fetch(entry.sha256()), StandardCharsets.UTF_8));
+            }
+        }
+        return sources;
+    }
+
+    private List<StoredArchive.Entry> toEntries(List<StoredFile> files) {
+        return files.stream()
+                .map(file -> new StoredArchive.Entry(file.getRelativePath(), file.getSha256(), file.getSizeBytes()))
+                .toList();
+    }
+
+    /**
+     * Forgets the files and the uploaded archive of a program; the contents
+     * nothing else references are deleted once the transaction commits.
+     *
+     * @param program the managed program
+     */
+    @Transactional
+    public void releaseProgram(Program program) {
+        release(storedFileRepository.findByProgramId(program.getId()), program.getOriginalArchiveSha256());
+        storedFileRepository.deleteByProgramId(program.getId());
+        program.setOriginalArchiveSha256(null);
+        program.setOriginalArchiveSize(null);
+    }
+
+    /**
+     * Forgets the files and the uploaded archive of an example; the contents
+     * nothing else references are deleted once the transaction commits.
+     *
+     * @param example the managed example
+     */
+    @Transactional
+    public void releaseExample(Example example) {
+        release(storedFileRepository.findByExampleId(example.getId()), example.getOriginalArchiveSha256());
+        storedFileRepository.deleteByExampleId(example.getId());
+        example.setOriginalArchiveSha256(null);
+        example.setOriginalArchiveSize(null);
+    }
+
+    private void release(List<StoredFile> files, String originalSha256) {
+        List<String> unreferenced = Stream
+                .concat(files.stream().map(StoredFile::getSha256), Stream.of(originalSha256))
+                .filter(sha256 -> sha256 != null)
+                .sorted()
+                .filter(blobRepository::release)
+                .toList();
+        if (!unreferenced.isEmpty()) {
+            blobsReleased.fire(new BlobsReleased(unreferenced));
+        }
+    }
+
+    /**
+     * Deletes a content, in a transaction of its own, unless it was referenced
+     * again since its last reference was released.
+     *
+     * @param sha256 the hexadecimal SHA-256 of the content
+     * @return {@code true} if the content was deleted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean collect(String sha256) {
+        if (!blobRepository.collect(sha256)) {
+            return false;
+        }
+        // Deleted while the row is locked, so that an upload of the same content writes it again
+        blobStore.delete(sha256);
+        return true;
+    }
+
+    /**
+     * Lists the contents nothing references.
+     *
+     * @return the hexadecimal SHA-256 of each content
+     */
+    @Transactional
+    public List<String> findUnreferenced() {
+        return blobRepository.findUnreferenced();
+    }
+
+    /**
+     * Builds a folder from stored files. The folder must not hold other files.
+     * Every file is a writable copy of its blob, never a link to it, so that
+     * the program run in the folder cannot alter a content other folders
+     * share.
+     *
+     * @param entries the files and directories of the folder
+     * @param folder  the folder, created if needed
+     * @throws IOException if a file cannot be placed
+     */
+    public void materialize(List<StoredArchive.Entry> entries, Path folder) throws IOException {
+        Files.createDirectories(folder);
+        for (StoredArchive.Entry entry : entries) {
+            Path target = folder.resolve(entry.path());
+            if (entry.isDirectory()) {
+                Files.createDirectories(target);
+            } else {
+                Files.createDirectories(target.getParent());
+                blobStore.materialize(entry.sha256(), target);
+            }
+        }
+    }
+
+    /**
+     * Normalizes the name of an archive entry, rejecting names that would
+     * place it outside the folder.
+     *
+     * @param name the entry name
+     * @return the relative path, with {@code /} separators
+     * @throws IOException if the name is absolute or escapes the folder
+     */
+    private String relativePath(String name) throws IOException {
+        Path path = Paths.get(name).normalize();
+        if (path.isAbsolute() || path.startsWith("..") || path.toString().isEmpty()) {
+            throw new IOException("Invalid entry in the archive: " + name);
+        }
+        return path.toString().replace('\\', '/');
+    }
+}
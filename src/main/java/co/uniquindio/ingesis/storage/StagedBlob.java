@@ -0,0 +1,61 @@
+package co.uniquindio.ingesis.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content read and hashed by the {@link BlobStore} but not stored yet. Small
+ * contents are held in memory, so that a content already in the store is
+ * never written to disk; larger ones are spilled to a temporary file.
+ */
+final class StagedBlob implements AutoCloseable {
+
+    private final String sha256;
+    private final long sizeBytes;
+    private final byte[] content;
+    private final Path spill;
+
+    StagedBlob(String sha256, long sizeBytes, byte[] content, Path spill) {
+        this.sha256 = sha256;
+        this.sizeBytes = sizeBytes;
+        this.content = content;
+        this.spill = spill;
+    }
+
+    String sha256() {
+        return sha256;
+    }
+
+    long sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return the temporary file holding the content, or {@code null} if the
+     *         content is held in memory
+     */
+    Path spill() {
+        return spill;
+    }
+
+    /**
+     * @return a stream over the content
+     * @throws IOException if the temporary file cannot be read
+     */
+    InputStream open() throws IOException {
+        return content != null ? new ByteArrayInputStream(content) : Files.newInputStream(spill);
+    }
+
+    /**
+     * Deletes the temporary file, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            Files.deleteIfExists(spill);
+        }
+    }
+}
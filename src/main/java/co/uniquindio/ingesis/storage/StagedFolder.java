@@ -0,0 +1,15 @@
+package co.uniquindio.ingesis.storage;
+
+import java.nio.file.Path;
+
+/**
+ * A version of a folder built by the {@link FolderCache} but not published
+ * yet, so that nothing reads it until the upload it belongs to commits.
+ *
+ * @param baseDir the directory holding the folder
+ * @param name    the name of the folder
+ * @param version the staged directory, complete
+ * @param label   what the version was built from
+ */
+public record StagedFolder(Path baseDir, String name, Path version, String label) {
+}
@@ -0,0 +1,60 @@
+package co.uniquindio.ingesis.storage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Locations of the files the application keeps on the local file system,
+ * all under the single directory {@code storage.root}.
+ *
+ * The root defaults to the working directory, which in the container image is
+ * {@code /deployments}, so the folders stay where both the services and the
+ * download endpoints used to look for them.
+ */
+@ApplicationScoped
+public class StorageLayout {
+
+    private static final String PROGRAMS_DIR = "programs";
+    private static final String EXAMPLES_DIR = "ejemplos";
+    private static final String BLOBS_DIR = "blobs";
+
+    private final Path root;
+
+    @Inject
+    public StorageLayout(@ConfigProperty(name = "storage.root", defaultValue = ".") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return the directory holding every other storage directory
+     */
+    public Path root() {
+        return root;
+    }
+
+    /**
+     * @return the directory of the program folders
+     */
+    public Path programsDir() {
+        return root.resolve(PROGRAMS_DIR);
+    }
+
+    /**
+     * @return the directory of the example folders
+     */
+    public Path examplesDir() {
+        return root.resolve(EXAMPLES_DIR);
+    }
+
+    /**
+     * @return the directory of the blobs, or of their cache when the
+     *         {@link BlobBackend} keeps them elsewhere
+     */
+    public Path blobsDir() {
+        return root.resolve(BLOBS_DIR);
+    }
+}
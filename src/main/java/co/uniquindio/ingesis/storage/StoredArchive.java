@@ -0,0 +1,55 @@
+package co.uniquindio.ingesis.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content of an uploaded ZIP archive once its files, and the archive itself,
+ * are in the {@link BlobStore}.
+ *
+ * @param entries  the files and directories of the archive, in archive order
+ * @param sources  the content of the Java sources indexed by relative path
+ * @param original the archive as uploaded, with an empty path
+ */
+public record StoredArchive(List<Entry> entries, Map<String, String> sources, Entry original) {
+
+    /**
+     * A file or directory of the archive.
+     *
+     * @param path      the path relative to the folder, with {@code /}
+     *                  separators
+     * @param sha256    the hexadecimal SHA-256 of the content, or
+     *                  {@code null} for a directory
+     * @param sizeBytes the size of the file in bytes
+     */
+    public record Entry(String path, String sha256, long sizeBytes) {
+
+        public boolean isDirectory() {
+            return sha256 == null;
+        }
+    }
+
+    /**
+     * Computes the version of a set of files from their paths and contents,
+     * which identifies the folder and the download archive built from them.
+     *
+     * @param entries the files and directories
+     * @return the hexadecimal SHA-256 of the paths and contents
+     */
+    public static String digest(List<Entry> entries) {
+        StringBuilder manifest = new StringBuilder();
+        for (Entry entry : entries) {
+            manifest.append(entry.path()).append('\0').append(entry.sha256()).append('\n');
+        }
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(manifest.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package co.uniquindio.ingesis.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Publishes the folders of programs and examples as immutable versions, so
+ * that an upload never modifies a folder an execution is reading.
+ *
+ * Each upload is materialized into a staged directory,
+ * {@code <base>/.staging/<name>/<version>}, which is neither listed nor
+ * leasable. Publishing moves it to {@code <base>/.versions/<name>/<version>}
+ * and then replaces the symbolic link {@code <base>/<name>} with one pointing
+ * to it, each in a single atomic rename, so a reader following the link sees
+ * either the old version or the new one, whole.
+ *
+ * Executions {@link #lease(Path, String, String) lease} the version they run,
+ * the current one or a pinned one. The {@code storage.versions.retain} most
+ * recent superseded versions are kept so that clients can still pin them;
+ * older ones, and every version of a deleted folder, are deleted in the
+ * background once no execution leases them.
+ *
+ * A version may be published with a label, kept next to it as
+ * {@code <version>.label}, which tells what it was built from without reading
+ * it.
+ *
+ * Folders written before versions existed are real directories; the first
+ * upload moves such a folder in as version {@code 0}.
+ */
+@ApplicationScoped
+public class VersionedFolders {
+
+    private static final Logger logger = LogManager.getLogger(VersionedFolders.class);
+
+    private static final String VERSIONS_DIR = ".versions";
+    private static final String STAGING_DIR = ".staging";
+    private static final String LEGACY_VERSION = "0";
+    private static final String LABEL_SUFFIX = ".label";
+    private static final int LEASE_ATTEMPTS = 3;
+    private static final int MOVE_ATTEMPTS = 3;
+
+    /**
+     * A version of a folder leased by an execution, which must be closed once
+     * the execution no longer reads it.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final Path path;
+        private final String version;
+        private boolean closed;
+
+        private Lease(Path path, String version) {
+            this.path = path;
+            this.version = version;
+        }
+
+        /**
+         * @return the directory of the leased version
+         */
+        public Path path() {
+            return path;
+        }
+
+        /**
+         * @return the leased version, or {@code null} for a folder written
+         *         before versions existed
+         */
+        public String version() {
+            return version;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(path);
+            }
+        }
+    }
+
+    private final int retain;
+    private final Map<Path, Integer> leases = new ConcurrentHashMap<>();
+    private final Set<Path> retired = ConcurrentHashMap.newKeySet();
+    private final Set<Path> deleting = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastVersion = new AtomicLong();
+    private final ExecutorService collector = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "folder-version-collector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MeterRegistry registry;
+
+    @Inject
+    public VersionedFolders(MeterRegistry registry,
+            @ConfigProperty(name = "storage.versions.retain", defaultValue = "1") int retain) {
+        this.registry = registry;
+        this.retain = retain;
+    }
+
+    /**
+     * Creates the staged directory of a new version of a folder, to be filled
+     * and then {@link #publish(Path, String, Path, String) published}.
+     *
+     * @param baseDir the directory holding the folders
+     * @param name    the name of the folder
+     * @return the empty staged directory
+     * @throws IOException if the directory cannot be created
+     */
+    public Path stage(Path baseDir, String name) throws IOException {
+        Path staging = absolute(baseDir).resolve(STAGING_DIR).resolve(name);
+        while (true) {
+            // Versions are timestamps, unique and increasing within this application
+            long version = lastVersion.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+            Path staged = staging.resolve(Long.toString(version));
+            if (!Files.exists(staged)) {
+                createDirectory(staged);
+                return staged;
+            }
+        }
+    }
+
+    /**
+     * Makes a staged version the current version of its folder, and retires
+     * the versions that are no longer retained.
+     *
+     * @param baseDir the directory holding the folders
+     * @param name    the name of the folder
+     * @param staged  the staged directory returned by
+     *                {@link #stage(Path, String)}
+     * @param label   what the version was built from, or {@code null}
+     * @return the directory of the published version
+     * @throws IOException if the version cannot be moved in or the link
+     *                     replaced
+     */
+    public Path publish(Path baseDir, String name, Path staged, String label) throws IOException {
+        baseDir = absolute(baseDir);
+        Path link = baseDir.resolve(name);
+        if (Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS)) {
+            move(link, versionsOf(baseDir, name).resolve(LEGACY_VERSION));
+        }
+        Path published = versionsOf(baseDir, name).resolve(absolute(staged).getFileName());
+        move(absolute(staged), published);
+
+        try {
+            if (label != null) {
+                // Written before the link, so the current version always has its label
+                Files.writeString(labelOf(published), label);
+            }
+            Path temporary = baseDir.resolve("." + name + "." + UUID.randomUUID() + ".link");
+            Files.createSymbolicLink(temporary, baseDir.relativize(published));
+            try {
+                // rename(2) replaces the previous link atomically
+                Files.move(temporary, link, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            retire(published);
+            throw e;
+        }
+        registry.counter("storage.versions.published").increment();
+
+        // A concurrent publication may have replaced the link in the meantime
+        String current = currentVersion(baseDir, name);
+        List<Path> superseded = listVersions(baseDir, name).stream()
+                .filter(version -> !version.equals(published))
+                .filter(version -> !version.getFileName().toString().equals(current))
+                .toList();
+        for (int i = 0; i < superseded.size() - retain; i++) {
+            retire(superseded.get(i));
+        }
+        return published;
+    }
+
+    /**
+     * Deletes a staged version that will not be published, such as one whose
+     * upload failed.
+     *
+     * @param staged the staged directory returned by
+     *               {@link #stage(Path, String)}
+     */
+    public void discard(Path staged) {
+        retire(absolute(staged));
+    }
+
+    /**
+     * Removes a folder. Its versions are deleted once no execution leases
+     * them.
+     *
+     * @param baseDir the directory holding the folders
+     * @param name    the name of the folder
+     * @throws IOException if the link cannot be removed
+     */
+    public void remove(Path baseDir, String name) throws IOException {
+        baseDir = absolute(baseDir);
+        Path link = baseDir.resolve(name);
+        if (Files.isSymbolicLink(link)) {
+            Files.delete(link);
+        } else if (Files.isDirectory(link)) {
+            // A folder written before versions existed goes away like a version
+            move(link, versionsOf(baseDir, name).resolve(LEGACY_VERSION));
+        }
+        for (Path version : listVersions(baseDir, name)) {
+            retire(version);
+        }
+    }
+
+    /**
+     * Leases a version of a folder, which is not deleted until the lease is
+     * closed.
+     *
+     * @param baseDir the directory holding the folders
+     * @param name    the name of the folder
+     * @param version the version to lease, or {@code null} for the current one
+     * @return the lease
+     * @throws FileNotFoundException if the folder or the version does not exist
+     * @throws IOException           if the folder cannot be resolved
+     */
+    public Lease lease(Path baseDir, String name, String version) throws IOException {
+        baseDir = absolute(baseDir);
+        for (int attempt = 0; attempt < LEASE_ATTEMPTS; attempt++) {
+            Path link = baseDir.resolve(name);
+            Path directory;
+            String leasedVersion;
+            if (version != null) {
+                if (!version.chars().allMatch(Character::isDigit) || version.isEmpty()) {
+                    throw new FileNotFoundException("Version " + version + " of " + name + " does not exist");
+                }
+                directory = versionsOf(baseDir, name).resolve(version);
+                leasedVersion = version;
+            } else if (Files.isSymbolicLink(link)) {
+                directory = link.resolveSibling(Files.readSymbolicLink(link)).normalize();
+                leasedVersion = directory.getFileName().toString();
+            } else if (Files.isDirectory(link)) {
+                directory = link;
+                leasedVersion = null;
+            } else {
+                throw new FileNotFoundException("Program directory does not exist: " + link);
+            }
+
+            if (acquire(directory)) {
+                return new Lease(directory, leasedVersion);
+            }
+            if (version != null) {
+                throw new FileNotFoundException("Version " + version + " of " + name + " is no longer available");
+            }
+            // The current version was superseded and deleted while it was being resolved
+        }
+        throw new IOException("Unable to lease the current version of " + name);
+    }
+
+    /**
+     * Lists the versions of a folder that can be leased.
+     *
+     * @param baseDir the directory holding the folders
+     * @param name    the name of the folder
+     * @return the versions, oldest first
+     * @throws IOException if the versions cannot be listed
+     */
+    public List<String> versions(Path baseDir, String name) throws IOException {
+        return listVersions(absolute(baseDir), name).stream()
+                .filter(version -> !retired.contains(version))
+                .map(version -> version.getFileName().toString())
+                .toList();
+    }
+
+    /**
+     * Returns the current version of a folder.
+     *
+     * @param baseDir the directory holding the folders
+     * @param name    the name of the folder
+     * @return the version, or {@code null} if the folder is not versioned
+     * @throws IOException if the link cannot be read
+     */
+    public String currentVersion(Path baseDir, String name) throws IOException {
+        Path link = absolute(baseDir).resolve(name);
+        return Files.isSymbolicLink(link) ? Files.readSymbolicLink(link).getFileName().toString() : null;
+    }
+
+    /**
+     * Returns the label the current version of a folder was published with.
+     *
+     * @param baseDir the directory holding the folders
+     * @param name    the name of the folder
+     * @return the label, or {@code null} if the folder does not exist or its
+     *         current version has no label
+     * @throws IOException if the label cannot be read
+     */
+    public String currentLabel(Path baseDir, String name) throws IOException {
+        String version = currentVersion(baseDir, name);
+        if (version == null) {
+            return null;
+        }
+        Path label = labelOf(versionsOf(absolute(baseDir), name).resolve(version));
+        try {
+            return Files.readString(label);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private boolean acquire(Path directory) {
+        boolean[] acquired = new boolean[1];
+        leases.compute(directory, (key, count) -> {
+            if (deleting.contains(key) || !Files.isDirectory(key)) {
+                return count;
+            }
+            acquired[0] = true;
+            return count == null ? 1 : count + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(Path directory) {
+        Integer remaining = leases.computeIfPresent(directory, (key, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null && retired.contains(directory)) {
+            collectLater(directory);
+        }
+    }
+
+    private void retire(Path version) {
+        if (retired.add(version)) {
+            collectLater(version);
+        }
+    }
+
+    private void collectLater(Path version) {
+        try {
+            collector.execute(() -> collect(version));
+        } catch (RuntimeException e) {
+            logger.warn("Unable to schedule the deletion of {}", version, e);
+        }
+    }
+
+    /**
+     * Deletes a retired version unless an execution leases it; the last lease
+     * to be released schedules it again.
+     */
+    private void collect(Path version) {
+        if (!retired.contains(version)) {
+            // Already deleted by an earlier request
+            return;
+        }
+        if (!Files.exists(version)) {
+            // Listed by a publication while an earlier request was deleting it
+            retired.remove(version);
+            return;
+        }
+        leases.compute(version, (key, count) -> {
+            if (count == null) {
+                deleting.add(key);
+            }
+            return count;
+        });
+        if (!deleting.contains(version)) {
+            return;
+        }
+        try {
+            deleteTree(version);
+            Files.deleteIfExists(labelOf(version));
+            registry.counter("storage.versions.collected").increment();
+            Path parent = version.getParent();
+            try (Stream<Path> remaining = Files.list(parent)) {
+                if (remaining.findAny().isEmpty()) {
+                    Files.deleteIfExists(parent);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to delete folder version {}", version, e);
+        } finally {
+            retired.remove(version);
+            deleting.remove(version);
+        }
+    }
+
+    private List<Path> listVersions(Path baseDir, String name) throws IOException {
+        Path versions = versionsOf(baseDir, name);
+        if (!Files.isDirectory(versions)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(versions)) {
+            List<Path> found = new ArrayList<>(children
+                    .filter(child -> child.getFileName().toString().chars().allMatch(Character::isDigit))
+                    .toList());
+            found.sort(Comparator.comparingLong(child -> Long.parseLong(child.getFileName().toString())));
+            return found;
+        }
+    }
+
+    private static Path absolute(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static Path versionsOf(Path baseDir, String name) {
+        return baseDir.resolve(VERSIONS_DIR).resolve(name);
+    }
+
+    /**
+     * Creates a directory, and its parent again if the collector deleted it
+     * as empty in the meantime.
+     */
+    private static void createDirectory(Path directory) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            Files.createDirectories(directory.getParent());
+            try {
+                Files.createDirectory(directory);
+                return;
+            } catch (NoSuchFileException e) {
+                if (attempt == MOVE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Atomically moves a directory into a parent directory, created if
+     * needed, retrying if the collector deleted the parent as empty in the
+     * meantime.
+     */
+    private static void move(Path source, Path target) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            } catch (NoSuchFileException e) {
+                if (attempt == MOVE_ATTEMPTS || !Files.exists(source)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static Path labelOf(Path version) {
+        return version.resolveSibling(version.getFileName() + LABEL_SUFFIX);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Stops the collector when the application stops. Superseded versions left
+     * behind are retired again by the next publication of their folder.
+     */
+    @PreDestroy
+    void shutdown() {
+        collector.shutdownNow();
+    }
+}
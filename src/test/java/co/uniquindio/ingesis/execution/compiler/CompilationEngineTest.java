@@ -0,0 +1,72 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import co.uniquindio.ingesis.execution.runner.ProcessSupervisor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompilationEngineTest {
+
+    private static final Map<String, String> SOURCES = Map.of("Main.java", """
+            public class Main {
+                public static void main(String[] args) {
+                    System.out.println("hello");
+                }
+            }
+            """);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compilesInProcess() throws IOException {
+        CompilationEngine engine = engine(10, 1 << 20);
+        try {
+            CompilationResult result = engine.compile(dir, SOURCES, dir.resolve("classes"));
+
+            assertTrue(result.success());
+            assertTrue(result.classFiles().containsKey("Main"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void failsCompilationsExceedingTheTimeLimit() throws IOException {
+        CompilationEngine engine = engine(0, 1 << 20);
+        try {
+            CompilationResult result = engine.compile(dir, SOURCES, dir.resolve("classes"));
+
+            assertFalse(result.success());
+            assertEquals("Compilation exceeded time limit (0s)", result.diagnostics().get(0).message());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsSourcesAboveTheSizeLimit() throws IOException {
+        CompilationEngine engine = engine(10, 16);
+        try {
+            CompilationResult result = engine.compile(dir, SOURCES, dir.resolve("classes"));
+
+            assertFalse(result.success());
+            assertEquals("Sources exceed the size limit (16 bytes)", result.diagnostics().get(0).message());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static CompilationEngine engine(long timeoutSeconds, long maxSourceBytes) {
+        return new CompilationEngine(new ProcessSupervisor(new SimpleMeterRegistry(), 4), CompilerMode.IN_PROCESS,
+                timeoutSeconds, maxSourceBytes, 1);
+    }
+}
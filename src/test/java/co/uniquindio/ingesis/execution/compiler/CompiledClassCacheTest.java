@@ -0,0 +1,180 @@
+package co.uniquindio.ingesis.execution.compiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledClassCacheTest {
+
+    @Test
+    void digestIgnoresTheOrderOfTheFiles() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("Main.java", "class Main {}");
+        sources.put("util/Helper.java", "class Helper {}");
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("util/Helper.java", "class Helper {}");
+        reversed.put("Main.java", "class Main {}");
+
+        assertEquals(CompiledClassCache.digest(sources), CompiledClassCache.digest(reversed));
+    }
+
+    @Test
+    void digestNormalizesWindowsSeparators() {
+        assertEquals(CompiledClassCache.digest(Map.of("util/Helper.java", "class Helper {}")),
+                CompiledClassCache.digest(Map.of("util\\Helper.java", "class Helper {}")));
+    }
+
+    @Test
+    void digestCoversPathsAndContents() {
+        String digest = CompiledClassCache.digest(Map.of("Main.java", "class Main {}"));
+
+        assertNotEquals(digest, CompiledClassCache.digest(Map.of("Other.java", "class Main {}")));
+        assertNotEquals(digest, CompiledClassCache.digest(Map.of("Main.java", "class Main { }")));
+        // The separator keeps a path and a content from running into each other
+        assertNotEquals(CompiledClassCache.digest(Map.of("A.java", "xclass A {}")),
+                CompiledClassCache.digest(Map.of("A.javax", "class A {}")));
+    }
+
+    @Test
+    void sharesOneEntryBetweenFoldersWithTheSameSources() throws IOException {
+        CompiledClassCache cache = new CompiledClassCache(16, Long.MAX_VALUE);
+        AtomicInteger compilations = new AtomicInteger();
+
+        CompiledProgram first = cache.acquireOrCompile("a", "digest", dir -> compile(compilations));
+        CompiledProgram second = cache.acquireOrCompile("b", "digest", dir -> compile(compilations));
+
+        assertSame(first, second);
+        assertEquals(1, compilations.get());
+        cache.release(first);
+        cache.release(second);
+    }
+
+    @Test
+    void invalidatingAFolderDropsItsEntry() throws IOException {
+        CompiledClassCache cache = new CompiledClassCache(16, Long.MAX_VALUE);
+        CompiledProgram program = cache.acquireOrCompile("a", "digest", dir -> compile(new AtomicInteger()));
+        cache.release(program);
+
+        cache.invalidate("a");
+
+        assertNull(cache.acquire("a", "digest"));
+        assertFalse(Files.exists(program.getClassesDir()));
+    }
+
+    @Test
+    void invalidatingAFolderKeepsTheEntriesOfOtherFolders() throws IOException {
+        CompiledClassCache cache = new CompiledClassCache(16, Long.MAX_VALUE);
+        CompiledProgram program = cache.acquireOrCompile("a", "digest", dir -> compile(new AtomicInteger()));
+        cache.release(program);
+        cache.release(cache.acquire("b", "digest"));
+
+        cache.invalidate("a");
+
+        CompiledProgram shared = cache.acquire("b", "digest");
+        assertSame(program, shared);
+        cache.release(shared);
+        assertTrue(Files.exists(program.getClassesDir()));
+    }
+
+    @Test
+    void keepsTheClassesOfAnEvictedEntryUntilItIsReleased() throws IOException {
+        CompiledClassCache cache = new CompiledClassCache(1, Long.MAX_VALUE);
+        CompiledProgram leased = cache.acquireOrCompile("a", "first", dir -> compile(new AtomicInteger()));
+
+        CompiledProgram other = cache.acquireOrCompile("b", "second", dir -> compile(new AtomicInteger()));
+        cache.release(other);
+
+        assertNull(cache.acquire("a", "first"));
+        assertTrue(Files.exists(leased.getClassesDir()));
+        cache.release(leased);
+        assertFalse(Files.exists(leased.getClassesDir()));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryFirst() throws IOException {
+        CompiledClassCache cache = new CompiledClassCache(2, Long.MAX_VALUE);
+        cache.release(cache.acquireOrCompile("a", "first", dir -> compile(new AtomicInteger())));
+        cache.release(cache.acquireOrCompile("b", "second", dir -> compile(new AtomicInteger())));
+        cache.release(cache.acquire("a", "first"));
+
+        cache.release(cache.acquireOrCompile("c", "third", dir -> compile(new AtomicInteger())));
+
+        CompiledProgram first = cache.acquire("a", "first");
+        assertNotNull(first);
+        assertNull(cache.acquire("b", "second"));
+        cache.release(first);
+    }
+
+    @Test
+    void evictsEntriesAboveTheByteBound() throws IOException {
+        CompiledClassCache cache = new CompiledClassCache(16, 6);
+        cache.release(cache.acquireOrCompile("a", "first", dir -> compile(new AtomicInteger())));
+        cache.release(cache.acquireOrCompile("b", "second", dir -> compile(new AtomicInteger())));
+
+        assertNull(cache.acquire("a", "first"));
+        CompiledProgram second = cache.acquire("b", "second");
+        assertNotNull(second);
+        cache.release(second);
+    }
+
+    @Test
+    void concurrentRequestsForTheSameSourcesCompileOnce() throws Exception {
+        CompiledClassCache cache = new CompiledClassCache(16, Long.MAX_VALUE);
+        AtomicInteger compilations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<CompiledProgram> leader = executor.submit(() -> cache.acquireOrCompile("a", "digest", dir -> {
+                started.countDown();
+                await(finish);
+                return compile(compilations);
+            }));
+            started.await();
+            List<Future<CompiledProgram>> followers = List.of(
+                    executor.submit(() -> cache.acquireOrCompile("a", "digest", dir -> compile(compilations))),
+                    executor.submit(() -> cache.acquireOrCompile("a", "digest", dir -> compile(compilations))));
+            finish.countDown();
+
+            CompiledProgram program = leader.get(10, TimeUnit.SECONDS);
+            for (Future<CompiledProgram> follower : followers) {
+                assertSame(program, follower.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, compilations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static CompilationResult compile(AtomicInteger compilations) throws IOException {
+        compilations.incrementAndGet();
+        return new CompilationResult(true, List.of(), Map.of("Main", new byte[4]));
+    }
+}
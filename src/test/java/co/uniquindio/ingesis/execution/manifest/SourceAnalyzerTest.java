@@ -0,0 +1,108 @@
+package co.uniquindio.ingesis.execution.manifest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceAnalyzerTest {
+
+    private static final String HELLO = """
+            package demo;
+
+            public class Hello {
+                public static void main(String[] args) {
+                    int total = 0;
+                    for (int i = 1; i <= 10; i++) {
+                        total += i;
+                    }
+                    System.out.println("Total: " + total);
+                }
+            }
+            """;
+
+    @Test
+    void findsThePackageAndTheMainClass() {
+        assertTrue(SourceAnalyzer.hasMainMethod(HELLO));
+        assertEquals("demo", SourceAnalyzer.packageOf(HELLO));
+        assertEquals("demo.Hello", SourceAnalyzer.fullClassName("demo/Hello.java", "demo"));
+        assertNull(SourceAnalyzer.packageOf("class Plain {}"));
+        assertEquals("Plain", SourceAnalyzer.fullClassName("Plain.java", null));
+    }
+
+    @Test
+    void aPlainComputationIsDeterministic() {
+        assertFalse(SourceAnalyzer.isNondeterministic(HELLO));
+        assertFalse(SourceAnalyzer.readsInput(HELLO));
+        assertFalse(SourceAnalyzer.accessesFiles(HELLO));
+        assertFalse(SourceAnalyzer.callsExit(HELLO));
+        assertTrue(ProgramManifest.build(Map.of("demo/Hello.java", HELLO)).isDeterministic());
+    }
+
+    @Test
+    void detectsRandomnessAndClocks() {
+        assertTrue(SourceAnalyzer.isNondeterministic("int n = new Random().nextInt();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("double d = Math.random();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("long t = System.currentTimeMillis();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("var today = LocalDate.now();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("System.out.println(new Date());"));
+        assertTrue(SourceAnalyzer.isNondeterministic("Calendar c = Calendar.getInstance();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("Instant i = Clock.systemUTC().instant();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("String id = UUID.randomUUID().toString();"));
+    }
+
+    @Test
+    void detectsThreadsAndTheEnvironment() {
+        assertTrue(SourceAnalyzer.isNondeterministic("new Thread(task).start();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("String home = System.getenv(\"HOME\");"));
+        assertTrue(SourceAnalyzer.isNondeterministic("int cpus = Runtime.getRuntime().availableProcessors();"));
+    }
+
+    @Test
+    void detectsIdentityHashesAndHashedCollections() {
+        assertTrue(SourceAnalyzer.isNondeterministic("int h = System.identityHashCode(o);"));
+        assertTrue(SourceAnalyzer.isNondeterministic("Set<Point> seen = new HashSet<>();"));
+        assertTrue(SourceAnalyzer.isNondeterministic("Map<Node, Integer> costs = new HashMap<>();"));
+    }
+
+    @Test
+    void detectsStaticImportsOfSystem() {
+        String source = """
+                import static java.lang.System.*;
+
+                public class Echo {
+                    public static void main(String[] args) {
+                        java.util.Scanner scanner = new java.util.Scanner(in);
+                        out.println(scanner.nextLine());
+                    }
+                }
+                """;
+        assertTrue(SourceAnalyzer.readsInput(source));
+        assertTrue(SourceAnalyzer.isNondeterministic(source));
+        assertTrue(SourceAnalyzer.readsInput("import static java.lang.System.in;"));
+    }
+
+    @Test
+    void detectsInput() {
+        assertTrue(SourceAnalyzer.readsInput("Scanner scanner = new Scanner(System.in);"));
+        assertTrue(SourceAnalyzer.readsInput("String line = System.console().readLine();"));
+        assertFalse(ProgramManifest.build(Map.of("Echo.java", "new Scanner(System.in)")).isDeterministic());
+    }
+
+    @Test
+    void detectsFileAccess() {
+        assertTrue(SourceAnalyzer.accessesFiles("List<String> lines = Files.readAllLines(Path.of(\"a.txt\"));"));
+        assertTrue(SourceAnalyzer.accessesFiles("new FileWriter(\"out.txt\")"));
+        assertTrue(SourceAnalyzer.accessesFiles("import java.io.File;"));
+    }
+
+    @Test
+    void detectsExitCalls() {
+        assertTrue(SourceAnalyzer.callsExit("System.exit(1);"));
+        assertTrue(SourceAnalyzer.callsExit("Runtime.getRuntime().halt(0);"));
+    }
+}
@@ -0,0 +1,162 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExitCallScannerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void acceptsAProgramUsingLambdasRecordsAndStringConcatenation() throws IOException {
+        Map<String, byte[]> classes = compile("""
+                import java.util.List;
+
+                public class Main {
+                    record Point(int x, int y) {}
+
+                    public static void main(String[] args) {
+                        List.of(new Point(1, 2), new Point(3, 4)).forEach(p -> System.out.println("p=" + p));
+                        long big = 1L << 40;
+                        double half = 0.5;
+                        System.out.println(big * half);
+                    }
+                }
+                """);
+
+        assertFalse(ExitCallScanner.mayExit(classes));
+    }
+
+    @Test
+    void rejectsSystemExitWhateverTheSource() throws IOException {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                import static java.lang.System.exit;
+
+                public class Main {
+                    public static void main(String[] args) {
+                        exit(3);
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsRuntimeHaltThroughAVariable() throws IOException {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        Runtime r = Runtime.getRuntime();
+                        r.halt(0);
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsReflection() throws Exception {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        String name = new StringBuilder("tixe").reverse().toString();
+                        System.class.getMethod(name, int.class).invoke(null, 0);
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsProcessLaunches() throws IOException {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        new ProcessBuilder("kill", "-9", String.valueOf(ProcessHandle.current().pid())).start();
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsJavaBeansStatements() throws IOException {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        new java.beans.Statement(System.class, "exit", new Object[] { 3 }).execute();
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsUnsafeThroughFieldAccess() throws IOException {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        Object unsafe = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+                        System.out.println(unsafe);
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsMethodHandleLookups() throws IOException {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                import java.lang.invoke.MethodHandles;
+                import java.lang.invoke.MethodType;
+
+                public class Main {
+                    public static void main(String[] args) throws Throwable {
+                        MethodHandles.lookup().findConstructor(StringBuilder.class, MethodType.methodType(void.class));
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsChangesToApplicationDefaults() throws IOException {
+        assertTrue(ExitCallScanner.mayExit(compile("""
+                import java.util.Locale;
+
+                public class Main {
+                    public static void main(String[] args) {
+                        Locale.setDefault(Locale.GERMANY);
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void rejectsBytesThatAreNotAClass() {
+        assertTrue(ExitCallScanner.mayExit(Map.of("Main", new byte[] { 1, 2, 3, 4 })));
+    }
+
+    private Map<String, byte[]> compile(String source) throws IOException {
+        Path file = dir.resolve("Main.java");
+        Files.writeString(file, source);
+        Path classesDir = Files.createDirectories(dir.resolve("classes"));
+        int exitCode = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-d", classesDir.toString(), file.toString());
+        assertEquals(0, exitCode);
+
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        try (Stream<Path> paths = Files.walk(classesDir)) {
+            for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(".class"))::iterator) {
+                classes.put(classesDir.relativize(path).toString(), Files.readAllBytes(path));
+            }
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,87 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeadTailBufferTest {
+
+    @Test
+    void keepsEverythingThatFits() {
+        HeadTailBuffer buffer = new HeadTailBuffer(10);
+        write(buffer, "hello");
+        write(buffer, "world");
+
+        assertEquals("helloworld", buffer.toText());
+        assertFalse(buffer.isTruncated());
+    }
+
+    @Test
+    void keepsTheBeginningAndTheEnd() {
+        HeadTailBuffer buffer = new HeadTailBuffer(8);
+        write(buffer, "abcdefghijklmnop");
+
+        assertEquals("abcd\n... [8 bytes truncated] ...\nmnop", buffer.toText());
+        assertTrue(buffer.isTruncated());
+    }
+
+    @Test
+    void wrapsTheTailAcrossSmallWrites() {
+        HeadTailBuffer buffer = new HeadTailBuffer(8);
+        for (char c = 'a'; c <= 'p'; c++) {
+            write(buffer, String.valueOf(c));
+        }
+
+        assertEquals("abcd\n... [8 bytes truncated] ...\nmnop", buffer.toText());
+    }
+
+    @Test
+    void honoursTheOffsetAndLengthOfAWrite() {
+        HeadTailBuffer buffer = new HeadTailBuffer(8);
+        byte[] data = "xxabcdefghijyy".getBytes(StandardCharsets.US_ASCII);
+        buffer.write(data, 2, 10);
+
+        assertEquals("abcd\n... [2 bytes truncated] ...\nghij", buffer.toText());
+    }
+
+    @Test
+    void doesNotSplitCharactersThatWereNotTruncated() {
+        HeadTailBuffer buffer = new HeadTailBuffer(8);
+        // The two bytes of "ñ" land on both sides of the head boundary
+        write(buffer, "abcñde");
+
+        assertEquals("abcñde", buffer.toText());
+        assertFalse(buffer.isTruncated());
+    }
+
+    @Test
+    void aZeroCapacityKeepsNothing() {
+        HeadTailBuffer buffer = new HeadTailBuffer(0);
+        write(buffer, "abc");
+
+        assertEquals("", buffer.toText());
+        assertTrue(buffer.isTruncated());
+    }
+
+    @Test
+    void outputCaptureSeparatesTheStreams() {
+        OutputCapture capture = new OutputCapture(8);
+        byte[] out = "out".getBytes(StandardCharsets.US_ASCII);
+        byte[] err = "error output".getBytes(StandardCharsets.US_ASCII);
+        capture.onOutput(OutputChannel.STDOUT, out, 0, out.length);
+        capture.onOutput(OutputChannel.STDERR, err, 0, err.length);
+
+        assertEquals("out", capture.getStdout());
+        assertEquals("erro\n... [4 bytes truncated] ...\ntput", capture.getStderr());
+        assertTrue(capture.isTruncated());
+    }
+
+    private static void write(HeadTailBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+    }
+}
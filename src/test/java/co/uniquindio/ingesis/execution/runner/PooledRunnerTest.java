@@ -0,0 +1,137 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PooledRunnerTest {
+
+    private Path socketDir;
+    private SocketChannel runnerSide;
+    private DataOutputStream runner;
+    private PooledRunner pooledRunner;
+
+    @BeforeEach
+    void connect() throws IOException {
+        socketDir = Files.createTempDirectory("runner-test-");
+        Path socket = socketDir.resolve("control");
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            runnerSide = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+            pooledRunner = new PooledRunner(null, null, server.accept());
+        }
+        runner = new DataOutputStream(RunnerProtocol.outputStream(runnerSide));
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        runnerSide.close();
+        Files.deleteIfExists(socketDir.resolve("control"));
+        Files.deleteIfExists(socketDir);
+    }
+
+    @Test
+    void forwardsOutputFramesUntilExit() throws IOException {
+        writeFrame(RunnerProtocol.FRAME_STDOUT, "hello ");
+        writeFrame(RunnerProtocol.FRAME_STDERR, "oops");
+        writeFrame(RunnerProtocol.FRAME_STDOUT, "world");
+        runner.writeByte(RunnerProtocol.FRAME_EXIT);
+        runner.writeInt(3);
+        runner.writeBoolean(true);
+        runner.flush();
+
+        CollectingListener listener = new CollectingListener();
+        int[] exit = pooledRunner.readFrames(listener);
+
+        assertEquals(3, exit[0]);
+        assertEquals(1, exit[1]);
+        assertEquals("hello world", listener.stdout.toString(StandardCharsets.UTF_8));
+        assertEquals("oops", listener.stderr.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void acceptsFramesOfTheMaximumSize() throws IOException {
+        byte[] payload = new byte[RunnerProtocol.MAX_FRAME_BYTES];
+        payload[payload.length - 1] = 'z';
+        runner.writeByte(RunnerProtocol.FRAME_STDOUT);
+        runner.writeInt(payload.length);
+        runner.write(payload);
+        runner.writeByte(RunnerProtocol.FRAME_EXIT);
+        runner.writeInt(0);
+        runner.writeBoolean(false);
+        runner.flush();
+
+        CollectingListener listener = new CollectingListener();
+        int[] exit = pooledRunner.readFrames(listener);
+
+        assertArrayEquals(payload, listener.stdout.toByteArray());
+        assertEquals(0, exit[1]);
+    }
+
+    @Test
+    void rejectsOversizedFrames() throws IOException {
+        runner.writeByte(RunnerProtocol.FRAME_STDOUT);
+        runner.writeInt(Integer.MAX_VALUE);
+        runner.flush();
+
+        assertThrows(IOException.class, () -> pooledRunner.readFrames(new CollectingListener()));
+    }
+
+    @Test
+    void rejectsNegativeFrameLengths() throws IOException {
+        runner.writeByte(RunnerProtocol.FRAME_STDERR);
+        runner.writeInt(-1);
+        runner.flush();
+
+        assertThrows(IOException.class, () -> pooledRunner.readFrames(new CollectingListener()));
+    }
+
+    @Test
+    void rejectsUnknownFrameTypes() throws IOException {
+        runner.writeByte('?');
+        runner.flush();
+
+        assertThrows(IOException.class, () -> pooledRunner.readFrames(new CollectingListener()));
+    }
+
+    @Test
+    void failsWhenTheRunnerDisconnectsMidRun() throws IOException {
+        writeFrame(RunnerProtocol.FRAME_STDOUT, "partial");
+        runnerSide.close();
+
+        assertThrows(IOException.class, () -> pooledRunner.readFrames(new CollectingListener()));
+    }
+
+    private void writeFrame(byte type, String text) throws IOException {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        runner.writeByte(type);
+        runner.writeInt(data.length);
+        runner.write(data);
+    }
+
+    private static final class CollectingListener implements OutputListener {
+
+        private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        @Override
+        public void onOutput(OutputChannel channel, byte[] data, int offset, int length) {
+            (channel == OutputChannel.STDOUT ? stdout : stderr).write(data, offset, length);
+        }
+    }
+}
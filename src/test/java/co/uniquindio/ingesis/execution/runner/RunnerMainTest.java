@@ -0,0 +1,37 @@
+package co.uniquindio.ingesis.execution.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunnerMainTest {
+
+    @Test
+    void findsThreadsLeftInAnyThreadGroup() throws InterruptedException {
+        Set<Thread> runnerThreads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        CountDownLatch stop = new CountDownLatch(1);
+        ThreadGroup parent = Thread.currentThread().getThreadGroup().getParent();
+        Thread leftover = new Thread(parent != null ? parent : Thread.currentThread().getThreadGroup(), () -> {
+            try {
+                stop.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "leftover");
+        leftover.setDaemon(true);
+        leftover.start();
+
+        try {
+            assertTrue(RunnerMain.programThreads(runnerThreads).contains(leftover));
+        } finally {
+            stop.countDown();
+            leftover.join();
+        }
+        assertFalse(RunnerMain.programThreads(runnerThreads).contains(leftover));
+    }
+}
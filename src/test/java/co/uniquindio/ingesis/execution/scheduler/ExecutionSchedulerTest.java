@@ -0,0 +1,153 @@
+package co.uniquindio.ingesis.execution.scheduler;
+
+import co.uniquindio.ingesis.exception.ExecutionQuotaExceededException;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionSchedulerTest {
+
+    private static final ExecutionTenant TEACHER = new ExecutionTenant("t1", "teacher");
+    private static final ExecutionTenant STUDENT = new ExecutionTenant("s1", "student");
+    private static final ExecutionTenant OTHER_STUDENT = new ExecutionTenant("s2", "student");
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private ExecutionScheduler scheduler(int slots, int queueCapacity, long maxWaitSeconds, int maxPerStudent) {
+        return new ExecutionScheduler(registry, slots, queueCapacity, maxWaitSeconds, maxPerStudent, 0, 3);
+    }
+
+    @Test
+    void grantsFreeSlotsRightAway() {
+        ExecutionScheduler scheduler = scheduler(2, 10, 5, 0);
+
+        ExecutionPermit first = scheduler.acquire(STUDENT);
+        ExecutionPermit second = scheduler.acquire(OTHER_STUDENT);
+        assertEquals(2.0, gauge("execution.scheduler.active"));
+
+        first.close();
+        second.close();
+        assertEquals(0.0, gauge("execution.scheduler.active"));
+        assertEquals(0.0, gauge("execution.scheduler.tenants"));
+    }
+
+    @Test
+    void closingAPermitTwiceReturnsOneSlot() {
+        ExecutionScheduler scheduler = scheduler(1, 10, 5, 0);
+
+        ExecutionPermit permit = scheduler.acquire(STUDENT);
+        permit.close();
+        permit.close();
+
+        ExecutionPermit again = scheduler.acquire(STUDENT);
+        assertEquals(1.0, gauge("execution.scheduler.active"));
+        again.close();
+    }
+
+    @Test
+    void sharesFreedSlotsInWeightedRoundRobin() throws InterruptedException {
+        ExecutionScheduler scheduler = scheduler(1, 10, 30, 0);
+        List<String> grants = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+
+        ExecutionPermit holder = scheduler.acquire(OTHER_STUDENT);
+        // The teacher queues first, then the student
+        for (ExecutionTenant tenant : List.of(TEACHER, TEACHER, TEACHER, TEACHER, STUDENT, STUDENT)) {
+            Thread thread = new Thread(() -> {
+                ExecutionPermit permit = scheduler.acquire(tenant);
+                grants.add(tenant.id());
+                permit.close();
+            });
+            thread.start();
+            threads.add(thread);
+            awaitGauge("execution.scheduler.queue.depth", threads.size());
+        }
+
+        holder.close();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        // The teacher gets up to three slots per turn, the student one
+        assertEquals(List.of("t1", "t1", "t1", "s1", "t1", "s1"), grants);
+    }
+
+    @Test
+    void rejectsStudentsAboveTheirLimitWithAQuotaError() {
+        ExecutionScheduler scheduler = scheduler(4, 10, 5, 2);
+
+        scheduler.acquire(STUDENT);
+        scheduler.acquire(STUDENT);
+        ExecutionQuotaExceededException e = assertThrows(ExecutionQuotaExceededException.class,
+                () -> scheduler.acquire(STUDENT));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+
+        // Other students are not affected
+        scheduler.acquire(OTHER_STUDENT);
+        assertEquals(3.0, gauge("execution.scheduler.active"));
+    }
+
+    @Test
+    void joiningARunningExecutionTakesNoSlotButCountsTowardsTheLimit() {
+        ExecutionScheduler scheduler = scheduler(1, 10, 0, 2);
+
+        ExecutionPermit holder = scheduler.acquire(OTHER_STUDENT);
+        ExecutionPermit first = scheduler.join(STUDENT);
+        ExecutionPermit second = scheduler.join(STUDENT);
+        assertEquals(1.0, gauge("execution.scheduler.active"));
+        assertThrows(ExecutionQuotaExceededException.class, () -> scheduler.join(STUDENT));
+        assertThrows(ExecutionQuotaExceededException.class, () -> scheduler.acquire(STUDENT));
+
+        first.close();
+        second.close();
+        holder.close();
+        assertEquals(0.0, gauge("execution.scheduler.tenants"));
+        ExecutionPermit own = scheduler.acquire(STUDENT);
+        assertEquals(1.0, gauge("execution.scheduler.active"));
+        own.close();
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() {
+        ExecutionScheduler scheduler = scheduler(1, 0, 5, 0);
+
+        scheduler.acquire(STUDENT);
+        ExecutionRejectedException e = assertThrows(ExecutionRejectedException.class,
+                () -> scheduler.acquire(OTHER_STUDENT));
+        assertFalse(e instanceof ExecutionQuotaExceededException);
+    }
+
+    @Test
+    void rejectsWhenNoSlotFreesUpInTime() {
+        ExecutionScheduler scheduler = scheduler(1, 10, 0, 0);
+
+        scheduler.acquire(STUDENT);
+        ExecutionRejectedException e = assertThrows(ExecutionRejectedException.class,
+                () -> scheduler.acquire(OTHER_STUDENT));
+        assertFalse(e instanceof ExecutionQuotaExceededException);
+        assertEquals(0.0, gauge("execution.scheduler.queue.depth"));
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private void awaitGauge(String name, double value) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (gauge(name) < value && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(value, gauge(name));
+    }
+}
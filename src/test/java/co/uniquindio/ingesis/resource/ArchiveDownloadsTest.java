@@ -0,0 +1,50 @@
+package co.uniquindio.ingesis.resource;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ArchiveDownloadsTest {
+
+    private static final long SIZE = 1000;
+
+    @Test
+    void readsClosedRanges() {
+        assertArrayEquals(new long[] { 100, 199 }, ArchiveDownloads.parseRange("bytes=100-199", SIZE));
+        assertArrayEquals(new long[] { 0, 0 }, ArchiveDownloads.parseRange("bytes=0-0", SIZE));
+        assertArrayEquals(new long[] { 10, 20 }, ArchiveDownloads.parseRange("BYTES=10-20", SIZE));
+    }
+
+    @Test
+    void clampsRangesToTheArchive() {
+        assertArrayEquals(new long[] { 900, 999 }, ArchiveDownloads.parseRange("bytes=900-5000", SIZE));
+        assertArrayEquals(new long[] { 500, 999 }, ArchiveDownloads.parseRange("bytes=500-", SIZE));
+    }
+
+    @Test
+    void readsSuffixRanges() {
+        assertArrayEquals(new long[] { 900, 999 }, ArchiveDownloads.parseRange("bytes=-100", SIZE));
+        assertArrayEquals(new long[] { 0, 999 }, ArchiveDownloads.parseRange("bytes=-5000", SIZE));
+    }
+
+    @Test
+    void rejectsRangesBeyondTheArchive() {
+        assertEquals(0, ArchiveDownloads.parseRange("bytes=1000-", SIZE).length);
+        assertEquals(0, ArchiveDownloads.parseRange("bytes=2000-3000", SIZE).length);
+        assertEquals(0, ArchiveDownloads.parseRange("bytes=-0", SIZE).length);
+        assertEquals(0, ArchiveDownloads.parseRange("bytes=0-", 0).length);
+        assertEquals(0, ArchiveDownloads.parseRange("bytes=-10", 0).length);
+    }
+
+    @Test
+    void ignoresHeadersItCannotServe() {
+        assertNull(ArchiveDownloads.parseRange("items=0-10", SIZE));
+        assertNull(ArchiveDownloads.parseRange("bytes=0-10,20-30", SIZE));
+        assertNull(ArchiveDownloads.parseRange("bytes=10", SIZE));
+        assertNull(ArchiveDownloads.parseRange("bytes=200-100", SIZE));
+        assertNull(ArchiveDownloads.parseRange("bytes=a-b", SIZE));
+        assertNull(ArchiveDownloads.parseRange("bytes=-", SIZE));
+    }
+}
@@ -0,0 +1,28 @@
+package co.uniquindio.ingesis.resource;
+
+import co.uniquindio.ingesis.exception.ExecutionQuotaExceededException;
+import co.uniquindio.ingesis.exception.ExecutionRejectedException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RejectedExecutionsTest {
+
+    @Test
+    void mapsAUserQuotaTo429() {
+        Response response = RejectedExecutions.response(new ExecutionQuotaExceededException("limit", 7));
+
+        assertEquals(429, response.getStatus());
+        assertEquals("7", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void mapsASaturatedServerTo503() {
+        Response response = RejectedExecutions.response(new ExecutionRejectedException("full", 12));
+
+        assertEquals(503, response.getStatus());
+        assertEquals("12", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+    }
+}
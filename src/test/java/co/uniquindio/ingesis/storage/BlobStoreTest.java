@@ -0,0 +1,129 @@
+package co.uniquindio.ingesis.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private BlobStore store() {
+        StorageLayout layout = new StorageLayout(root.toString());
+        return new BlobStore(registry, new LocalBlobBackend(layout), layout, Long.MAX_VALUE);
+    }
+
+    @Test
+    void stagesSmallContentsInMemory() throws IOException, NoSuchAlgorithmException {
+        byte[] content = "class Main {}".getBytes(StandardCharsets.UTF_8);
+
+        try (StagedBlob staged = store().stage(new ByteArrayInputStream(content))) {
+            assertEquals(sha256(content), staged.sha256());
+            assertEquals(content.length, staged.sizeBytes());
+            assertNull(staged.spill());
+            assertArrayEquals(content, read(staged));
+        }
+    }
+
+    @Test
+    void spillsLargeContentsToDiskAndDeletesThemOnClose() throws IOException, NoSuchAlgorithmException {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        Arrays.fill(content, (byte) 'x');
+
+        StagedBlob staged = store().stage(new ByteArrayInputStream(content));
+        Path spill = staged.spill();
+        assertNotNull(spill);
+        assertEquals(sha256(content), staged.sha256());
+        assertArrayEquals(content, read(staged));
+
+        staged.close();
+        assertFalse(Files.exists(spill));
+    }
+
+    @Test
+    void storesEachContentOnce() throws IOException {
+        BlobStore store = store();
+        byte[] content = "shared".getBytes(StandardCharsets.UTF_8);
+
+        String sha256;
+        try (StagedBlob first = store.stage(new ByteArrayInputStream(content))) {
+            store.put(first);
+            sha256 = first.sha256();
+        }
+        try (StagedBlob second = store.stage(new ByteArrayInputStream(content))) {
+            store.put(second);
+        }
+
+        assertArrayEquals(content, Files.readAllBytes(store.fetch(sha256)));
+        assertEquals(content.length, registry.get("storage.blob.written").counter().count());
+        assertEquals(content.length, registry.get("storage.blob.deduplicated").counter().count());
+    }
+
+    @Test
+    void materializesWritableCopiesThatLeaveTheBlobIntact() throws IOException {
+        BlobStore store = store();
+        byte[] content = "data".getBytes(StandardCharsets.UTF_8);
+        String sha256 = put(store, content);
+
+        Path target = root.resolve("folder").resolve("input.txt");
+        Files.createDirectories(target.getParent());
+        store.materialize(sha256, target);
+        // Materializing again replaces the previous copy
+        store.materialize(sha256, target);
+        assertTrue(Files.isWritable(target));
+
+        Files.writeString(target, "changed by the program");
+        assertArrayEquals(content, Files.readAllBytes(store.fetch(sha256)));
+        assertFalse(Files.isSameFile(target, store.fetch(sha256)));
+    }
+
+    @Test
+    void deletesContents() throws IOException {
+        BlobStore store = store();
+        String sha256 = put(store, "gone".getBytes(StandardCharsets.UTF_8));
+
+        store.delete(sha256);
+
+        assertThrows(IOException.class, () -> store.fetch(sha256));
+    }
+
+    private static String put(BlobStore store, byte[] content) throws IOException {
+        try (StagedBlob staged = store.stage(new ByteArrayInputStream(content))) {
+            store.put(staged);
+            return staged.sha256();
+        }
+    }
+
+    private static byte[] read(StagedBlob staged) throws IOException {
+        try (InputStream in = staged.open()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
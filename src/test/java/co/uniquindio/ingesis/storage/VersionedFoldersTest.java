@@ -0,0 +1,168 @@
+package co.uniquindio.ingesis.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionedFoldersTest {
+
+    private static final String NAME = "P001";
+
+    @TempDir
+    Path baseDir;
+
+    private final VersionedFolders folders = new VersionedFolders(new SimpleMeterRegistry(), 1);
+
+    @AfterEach
+    void shutdown() {
+        folders.shutdown();
+    }
+
+    @Test
+    void leasesTheCurrentVersion() throws IOException {
+        Path first = publish("first", "label-1");
+
+        try (VersionedFolders.Lease lease = folders.lease(baseDir, NAME, null)) {
+            assertEquals(first, lease.path());
+            assertEquals(first.getFileName().toString(), lease.version());
+            assertEquals("first", Files.readString(lease.path().resolve("Main.java")));
+        }
+        assertEquals("first", Files.readString(baseDir.resolve(NAME).resolve("Main.java")));
+        assertEquals("label-1", folders.currentLabel(baseDir, NAME));
+    }
+
+    @Test
+    void keepsRetainedVersionsForPinnedLeases() throws IOException {
+        Path first = publish("first", null);
+        Path second = publish("second", null);
+
+        assertEquals(List.of(name(first), name(second)), folders.versions(baseDir, NAME));
+        assertEquals(name(second), folders.currentVersion(baseDir, NAME));
+        try (VersionedFolders.Lease lease = folders.lease(baseDir, NAME, name(first))) {
+            assertEquals("first", Files.readString(lease.path().resolve("Main.java")));
+        }
+        assertThrows(FileNotFoundException.class, () -> folders.lease(baseDir, NAME, "../" + NAME));
+        assertThrows(FileNotFoundException.class, () -> folders.lease(baseDir, NAME, "42"));
+    }
+
+    @Test
+    void deletesRetiredVersionsOnlyOnceTheirLeasesAreClosed() throws Exception {
+        Path first = publish("first", null);
+        VersionedFolders.Lease lease = folders.lease(baseDir, NAME, null);
+
+        publish("second", null);
+        Path third = publish("third", null);
+
+        // Retired but still leased: readable, yet no longer offered
+        assertFalse(folders.versions(baseDir, NAME).contains(name(first)));
+        assertTrue(folders.versions(baseDir, NAME).contains(name(third)));
+        assertEquals("first", Files.readString(lease.path().resolve("Main.java")));
+
+        lease.close();
+        assertTrue(awaitDeleted(first));
+    }
+
+    @Test
+    void discardsStagedVersions() throws Exception {
+        Path staged = folders.stage(baseDir, NAME);
+        Files.writeString(staged.resolve("Main.java"), "unpublished");
+
+        folders.discard(staged);
+
+        assertTrue(awaitDeleted(staged));
+        assertThrows(FileNotFoundException.class, () -> folders.lease(baseDir, NAME, null));
+    }
+
+    @Test
+    void hidesStagedVersionsUntilTheyArePublished() throws Exception {
+        Path first = publish("first", null);
+        Path staged = folders.stage(baseDir, NAME);
+        Files.writeString(staged.resolve("Main.java"), "staged");
+
+        assertEquals(List.of(name(first)), folders.versions(baseDir, NAME));
+        assertThrows(FileNotFoundException.class, () -> folders.lease(baseDir, NAME, name(staged)));
+
+        // Publications of other uploads leave it alone
+        publish("second", null);
+        Path third = publish("third", null);
+        assertTrue(Files.exists(staged));
+
+        Path published = folders.publish(baseDir, NAME, staged, null);
+        assertEquals(name(staged), name(published));
+        assertFalse(Files.exists(staged));
+        // Staged before the third version, so it sorts first
+        assertEquals(List.of(name(published), name(third)), folders.versions(baseDir, NAME));
+        try (VersionedFolders.Lease lease = folders.lease(baseDir, NAME, null)) {
+            assertEquals("staged", Files.readString(lease.path().resolve("Main.java")));
+        }
+    }
+
+    @Test
+    void removesFoldersOnceTheirLeasesAreClosed() throws Exception {
+        Path current = publish("current", null);
+        VersionedFolders.Lease lease = folders.lease(baseDir, NAME, null);
+
+        folders.remove(baseDir, NAME);
+
+        assertFalse(Files.exists(baseDir.resolve(NAME)));
+        assertThrows(FileNotFoundException.class, () -> folders.lease(baseDir, NAME, null));
+        assertEquals("current", Files.readString(lease.path().resolve("Main.java")));
+
+        lease.close();
+        assertTrue(awaitDeleted(current));
+    }
+
+    @Test
+    void movesLegacyFoldersInAsTheFirstVersion() throws IOException {
+        Path legacy = Files.createDirectories(baseDir.resolve(NAME));
+        Files.writeString(legacy.resolve("Main.java"), "legacy");
+        try (VersionedFolders.Lease lease = folders.lease(baseDir, NAME, null)) {
+            assertNull(lease.version());
+        }
+
+        publish("uploaded", null);
+
+        assertTrue(Files.isSymbolicLink(baseDir.resolve(NAME)));
+        try (VersionedFolders.Lease lease = folders.lease(baseDir, NAME, "0")) {
+            assertEquals("legacy", Files.readString(lease.path().resolve("Main.java")));
+        }
+    }
+
+    private Path publish(String content, String label) throws IOException {
+        Path staged = folders.stage(baseDir, NAME);
+        Files.writeString(staged.resolve("Main.java"), content);
+        return folders.publish(baseDir, NAME, staged, label);
+    }
+
+    private static String name(Path version) {
+        return version.getFileName().toString();
+    }
+
+    /**
+     * Waits for the background collector to delete a version.
+     */
+    private static boolean awaitDeleted(Path version) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.exists(version)) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}